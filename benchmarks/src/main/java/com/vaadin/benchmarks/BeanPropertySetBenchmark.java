@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.data.BeanPropertySet;
+import com.vaadin.data.PropertySet;
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.Setter;
+
+/**
+ * Compares reading and writing bean properties through
+ * {@link BeanPropertySet} with calling the accessors directly and through
+ * {@link Method#invoke(Object, Object...)}. The {@code getPropertyDescriptor}
+ * case reproduces what the property set used to do for every value: look up
+ * the read method from the property descriptor, invoke it reflectively and
+ * cast the result.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=BeanPropertySetBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BeanPropertySetBenchmark {
+
+    /**
+     * A bean with a nested bean.
+     */
+    public static class Person {
+        private String name = "John";
+        private int age = 42;
+        private Address address = new Address();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    /**
+     * The nested bean.
+     */
+    public static class Address {
+        private String city = "Turku";
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+
+    private final Person person = new Person();
+
+    private PropertyDescriptor nameDescriptor;
+    private Method getNameMethod;
+    private Method setNameMethod;
+    private ValueProvider<Person, String> nameGetter;
+    private Setter<Person, String> nameSetter;
+    private ValueProvider<Person, Integer> ageGetter;
+    private ValueProvider<Person, String> cityGetter;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws NoSuchMethodException, IntrospectionException {
+        nameDescriptor = new PropertyDescriptor("name", Person.class);
+        getNameMethod = Person.class.getMethod("getName");
+        setNameMethod = Person.class.getMethod("setName", String.class);
+
+        PropertySet<Person> propertySet = BeanPropertySet.get(Person.class);
+        nameGetter = (ValueProvider<Person, String>) propertySet
+                .getProperty("name").get().getGetter();
+        nameSetter = (Setter<Person, String>) propertySet.getProperty("name")
+                .get().getSetter().get();
+        ageGetter = (ValueProvider<Person, Integer>) propertySet
+                .getProperty("age").get().getGetter();
+        cityGetter = (ValueProvider<Person, String>) propertySet
+                .getProperty("address.city").get().getGetter();
+    }
+
+    @Benchmark
+    public String getDirect() {
+        return person.getName();
+    }
+
+    @Benchmark
+    public Object getReflection()
+            throws IllegalAccessException, InvocationTargetException {
+        return getNameMethod.invoke(person);
+    }
+
+    @Benchmark
+    public String getPropertyDescriptor()
+            throws IllegalAccessException, InvocationTargetException {
+        Method readMethod = nameDescriptor.getReadMethod();
+        return String.class.cast(readMethod.invoke(person));
+    }
+
+    @Benchmark
+    public String getPropertySet() {
+        return nameGetter.apply(person);
+    }
+
+    @Benchmark
+    public Integer getPrimitivePropertySet() {
+        return ageGetter.apply(person);
+    }
+
+    @Benchmark
+    public String getNestedPropertySet() {
+        return cityGetter.apply(person);
+    }
+
+    @Benchmark
+    public Object setReflection()
+            throws IllegalAccessException, InvocationTargetException {
+        return setNameMethod.invoke(person, "Jane");
+    }
+
+    @Benchmark
+    public void setPropertySet() {
+        nameSetter.accept(person, "Jane");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BeanPropertySetBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.Properties;
+
+import javax.servlet.ServletException;
+
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ComponentContainer;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * A UI in a mock session that is always locked by the current thread, for
+ * running server side code without a servlet container or a browser. The UI
+ * and its session are set as the current instances when the UI is created.
+ *
+ * @author Vaadin Ltd
+ */
+public class BenchmarkUI extends UI {
+
+    /**
+     * Creates a new UI in a new session using the default deployment
+     * configuration with production mode enabled.
+     *
+     * @throws ServletException
+     *             if the mock servlet cannot be initialized
+     * @throws ServiceException
+     *             if the service cannot be created
+     */
+    public BenchmarkUI() throws ServletException, ServiceException {
+        this(new Properties());
+    }
+
+    /**
+     * Creates a new UI in a new session using a deployment configuration with
+     * the given parameters. Production mode is enabled unless set otherwise.
+     *
+     * @param initParameters
+     *            the deployment configuration parameters, not
+     *            <code>null</code>
+     * @throws ServletException
+     *             if the mock servlet cannot be initialized
+     * @throws ServiceException
+     *             if the service cannot be created
+     */
+    public BenchmarkUI(Properties initParameters)
+            throws ServletException, ServiceException {
+        Properties parameters = new Properties();
+        parameters.setProperty(Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
+                "true");
+        parameters.putAll(initParameters);
+
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(parameters));
+        DefaultDeploymentConfiguration configuration = new DefaultDeploymentConfiguration(
+                BenchmarkUI.class, parameters);
+        VaadinServletService service = new VaadinServletService(servlet,
+                configuration);
+
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.setConfiguration(configuration);
+        setSession(session);
+
+        VaadinSession.setCurrent(session);
+        setCurrent(this);
+    }
+
+    @Override
+    protected void init(VaadinRequest request) {
+    }
+
+    /**
+     * Fills a container with a tree of layouts containing labels, buttons and
+     * text fields.
+     *
+     * @param container
+     *            the container to fill
+     * @param componentCount
+     *            the approximate number of components to add
+     */
+    public static void populate(ComponentContainer container,
+            int componentCount) {
+        int perLayout = 10;
+        int layouts = Math.max(1, componentCount / (perLayout + 1));
+        for (int i = 0; i < layouts; i++) {
+            VerticalLayout layout = new VerticalLayout();
+            for (int j = 0; j < perLayout; j++) {
+                switch (j % 3) {
+                case 0:
+                    layout.addComponent(new Label("Label " + i + "-" + j));
+                    break;
+                case 1:
+                    layout.addComponent(new Button("Button " + i + "-" + j));
+                    break;
+                default:
+                    TextField field = new TextField("Field " + i + "-" + j);
+                    field.setValue("Value");
+                    layout.addComponent(field);
+                }
+            }
+            container.addComponent(layout);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.data.Binder;
+import com.vaadin.data.BinderValidationStatus;
+import com.vaadin.data.converter.StringToIntegerConverter;
+import com.vaadin.data.validator.EmailValidator;
+import com.vaadin.data.validator.IntegerRangeValidator;
+import com.vaadin.data.validator.StringLengthValidator;
+import com.vaadin.ui.TextField;
+
+/**
+ * Measures reading, validating and writing a bean with a {@link Binder} bound
+ * using property names, converters and validators.
+ * <p>
+ * Run with {@code mvn -pl benchmarks exec:exec -Dbenchmark=BinderBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BinderBenchmark {
+
+    /**
+     * The bean edited in the benchmarks.
+     */
+    public static class Person {
+        private String firstName = "John";
+        private String lastName = "Doe";
+        private String email = "john.doe@example.com";
+        private int age = 42;
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public void setFirstName(String firstName) {
+            this.firstName = firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public void setLastName(String lastName) {
+            this.lastName = lastName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    private Binder<Person> binder;
+    private Person person;
+
+    @Setup
+    public void setup() {
+        binder = new Binder<>(Person.class);
+        binder.forField(new TextField())
+                .withValidator(new StringLengthValidator("Too long", 1, 50))
+                .bind("firstName");
+        binder.forField(new TextField())
+                .withValidator(new StringLengthValidator("Too long", 1, 50))
+                .bind("lastName");
+        binder.forField(new TextField())
+                .withValidator(new EmailValidator("Invalid email"))
+                .bind("email");
+        binder.forField(new TextField())
+                .withConverter(new StringToIntegerConverter("Not a number"))
+                .withValidator(new IntegerRangeValidator("Out of range", 0, 150))
+                .bind("age");
+
+        person = new Person();
+        binder.readBean(person);
+    }
+
+    @Benchmark
+    public Binder<Person> readBean() {
+        binder.readBean(person);
+        return binder;
+    }
+
+    @Benchmark
+    public BinderValidationStatus<Person> validate() {
+        return binder.validate();
+    }
+
+    @Benchmark
+    public boolean writeBeanIfValid() {
+        return binder.writeBeanIfValid(person);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BinderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.DataObjectCache;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.ServiceException;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.ui.grid.HeightMode;
+import com.vaadin.ui.Grid;
+
+/**
+ * Measures the server side work of a {@link Grid} answering a row request
+ * from the client: handling the request RPC and producing the row data in
+ * {@link DataCommunicator#beforeClientResponse(boolean)}, with and without a
+ * {@link DataObjectCache}.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=DataCommunicatorBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DataCommunicatorBenchmark {
+
+    /**
+     * A bean shown in the benchmarked grid.
+     */
+    public static class Row {
+        private final int id;
+        private final String name;
+        private final double value;
+
+        public Row(int id) {
+            this.id = id;
+            name = "Row " + id;
+            value = id * 1.5;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    @Param({ "10000" })
+    public int rowCount;
+
+    @Param({ "50", "200" })
+    public int pageSize;
+
+    @Param({ "false", "true" })
+    public boolean dataObjectCache;
+
+    private DataCommunicator<Row> communicator;
+    private ServerRpcMethodInvocation requestRows;
+    private int firstRow;
+
+    @Setup
+    public void setup() throws ServletException, ServiceException {
+        BenchmarkUI ui = new BenchmarkUI();
+
+        List<Row> rows = IntStream.range(0, rowCount).mapToObj(Row::new)
+                .collect(Collectors.toList());
+        Grid<Row> grid = new Grid<>(Row.class);
+        grid.setHeightMode(HeightMode.ROW);
+        grid.setHeightByRows(pageSize);
+        grid.setDataProvider(new ListDataProvider<>(rows));
+        ui.setContent(grid);
+
+        communicator = grid.getDataCommunicator();
+        if (dataObjectCache) {
+            communicator.setDataObjectCache(
+                    new DataObjectCache(4 * pageSize));
+        }
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        requestRows = new ServerRpcMethodInvocation(
+                communicator.getConnectorId(), DataRequestRpc.class,
+                "requestRows", 4);
+    }
+
+    @Benchmark
+    public List<ClientMethodInvocation> requestPage()
+            throws RpcInvocationException {
+        firstRow = (firstRow + pageSize) % (rowCount - pageSize);
+        return request(firstRow);
+    }
+
+    @Benchmark
+    public List<ClientMethodInvocation> scrollBackAndForth()
+            throws RpcInvocationException {
+        // Alternates between two pages that both fit in the cache
+        firstRow = firstRow == 0 ? 2 * pageSize : 0;
+        return request(firstRow);
+    }
+
+    private List<ClientMethodInvocation> request(int first)
+            throws RpcInvocationException {
+        requestRows.setParameters(
+                new Object[] { first, pageSize, first, pageSize });
+        ServerRpcManager.applyInvocation(communicator, requestRows);
+
+        communicator.beforeClientResponse(false);
+        // Also drops the queued calls so they don't accumulate
+        return communicator.retrievePendingRpcCalls();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DataCommunicatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.AbstractComponentState;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.shared.ui.grid.ColumnState;
+import com.vaadin.shared.ui.grid.GridState;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Compares encoding shared state objects using {@link JsonCodec} with a
+ * reimplementation of the reflective bean walking previously used by
+ * {@link JsonCodec}, and measures decoding the encoded state back.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=JsonCodecBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({ "AbstractComponentState", "GridState", "ColumnState" })
+    public String stateType;
+
+    private SharedState state;
+    private Class<? extends SharedState> type;
+    private JsonObject reference;
+
+    @Setup
+    public void setup() {
+        switch (stateType) {
+        case "GridState":
+            GridState gridState = new GridState();
+            gridState.columnOrder.addAll(Arrays.asList("a", "b", "c", "d"));
+            gridState.sortColumns = new String[] { "a" };
+            state = gridState;
+            break;
+        case "ColumnState":
+            ColumnState columnState = new ColumnState();
+            columnState.caption = "Column";
+            columnState.internalId = "column1";
+            state = columnState;
+            break;
+        default:
+            AbstractComponentState componentState = new AbstractComponentState();
+            componentState.caption = "Caption";
+            componentState.styles = Arrays.asList("primary", "small");
+            state = componentState;
+        }
+        type = state.getClass();
+        reference = (JsonObject) JsonCodec.encode(state, null, type, null)
+                .getEncodedValue();
+    }
+
+    @Benchmark
+    public EncodeResult encodeInitial() {
+        return JsonCodec.encode(state, null, type, null);
+    }
+
+    @Benchmark
+    public EncodeResult encodeDiff() {
+        return JsonCodec.encode(state, reference, type, null);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return JsonCodec.decodeInternalOrCustomType(type, reference, null);
+    }
+
+    @Benchmark
+    public EncodeResult reflectiveEncodeInitial() throws Exception {
+        return reflectiveEncode(state, null, type);
+    }
+
+    @Benchmark
+    public EncodeResult reflectiveEncodeDiff() throws Exception {
+        return reflectiveEncode(state, reference, type);
+    }
+
+    /*
+     * The bean walking JsonCodec.encodeObject did before the properties were
+     * compiled into a per type encoder.
+     */
+    private static EncodeResult reflectiveEncode(Object value,
+            JsonObject referenceValue, Class<?> valueType) throws Exception {
+        JsonObject encoded = Json.createObject();
+        JsonObject diff = Json.createObject();
+
+        for (BeanProperty property : JsonCodec.getProperties(valueType)) {
+            String fieldName = property.getName();
+            Object fieldValue = property.getValue(value);
+
+            if (encoded.hasKey(fieldName)) {
+                throw new IllegalStateException(fieldName);
+            }
+
+            JsonValue fieldReference = null;
+            if (referenceValue != null) {
+                fieldReference = referenceValue.get(fieldName);
+                if (fieldReference instanceof JsonNull) {
+                    fieldReference = null;
+                }
+            }
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, property.getType(), null);
+            JsonValue encodedValue = encodeResult.getEncodedValue();
+            encoded.put(fieldName, encodedValue);
+
+            if (encodedValue instanceof JsonNull) {
+                encodedValue = null;
+            }
+            if (encodedValue != fieldReference && (encodedValue == null
+                    || fieldReference == null
+                    || !JsonCodec.jsonEquals(encodedValue, fieldReference))) {
+                diff.put(fieldName, encodeResult.getDiffOrValue());
+            }
+        }
+        return new EncodeResult(encoded, diff);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonCodecBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
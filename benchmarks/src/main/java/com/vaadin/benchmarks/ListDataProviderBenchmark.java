@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * Measures fetching pages of items from a {@link ListDataProvider}, with and
+ * without in-memory sorting and filtering.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=ListDataProviderBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ListDataProviderBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({ "10000", "100000" })
+    public int itemCount;
+
+    private ListDataProvider<String> dataProvider;
+    private Comparator<String> comparator;
+    private SerializablePredicate<String> filter;
+    private int offset;
+
+    @Setup
+    public void setup() {
+        List<String> items = IntStream.range(0, itemCount)
+                .mapToObj(i -> "Item " + Integer.toHexString(i * 31))
+                .collect(Collectors.toList());
+        dataProvider = new ListDataProvider<>(items);
+        comparator = Comparator.reverseOrder();
+        filter = item -> item.endsWith("f");
+    }
+
+    @Benchmark
+    public List<String> fetchPage() {
+        return dataProvider.fetch(query(null, null))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> fetchSortedPage() {
+        return dataProvider.fetch(query(comparator, null))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> fetchFilteredPage() {
+        return dataProvider.fetch(query(null, filter))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int sizeFiltered() {
+        return dataProvider.size(new Query<>(filter));
+    }
+
+    private Query<String, SerializablePredicate<String>> query(
+            Comparator<String> inMemorySorting,
+            SerializablePredicate<String> queryFilter) {
+        offset = (offset + PAGE_SIZE) % (itemCount / 20);
+        return new Query<>(offset, PAGE_SIZE, Collections.emptyList(),
+                inMemorySorting, queryFilter);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ListDataProviderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
+
+/**
+ * Compares the throughput of reading a multipart upload body using
+ * {@link SimpleMultiPartInputStream} with a reimplementation of the byte by
+ * byte boundary matching it previously used.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=MultipartUploadBenchmark}
+ * or from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MultipartUploadBenchmark {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Param({ "65536", "16777216" })
+    public int contentLength;
+
+    private byte[] body;
+    private final byte[] readBuffer = new byte[4 * 1024];
+
+    @Setup
+    public void setup() {
+        byte[] content = new byte[contentLength];
+        new Random(42).nextBytes(content);
+        byte[] end = ("\r\n--" + BOUNDARY + "--\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        body = new byte[content.length + end.length];
+        System.arraycopy(content, 0, body, 0, content.length);
+        System.arraycopy(end, 0, body, content.length, end.length);
+    }
+
+    @Benchmark
+    public long blockScan() throws IOException {
+        return drain(new SimpleMultiPartInputStream(
+                new ByteArrayInputStream(body), BOUNDARY));
+    }
+
+    @Benchmark
+    public long byteByByteScan() throws IOException {
+        return drain(new ByteByByteMultiPartInputStream(
+                new ByteArrayInputStream(body), BOUNDARY));
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(readBuffer)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    /*
+     * The boundary matching SimpleMultiPartInputStream did before it was
+     * changed to search the content in blocks.
+     */
+    private static class ByteByByteMultiPartInputStream extends InputStream {
+        private int matchedCount = -1;
+        private int curBoundaryIndex = 0;
+        private int bufferedByte = -1;
+        private boolean atTheEnd = false;
+        private final char[] boundary;
+        private final InputStream realInputStream;
+
+        public ByteByByteMultiPartInputStream(InputStream realInputStream,
+                String boundaryString) {
+            boundary = ("\r\n--" + boundaryString).toCharArray();
+            this.realInputStream = realInputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (atTheEnd) {
+                return -1;
+            } else if (bufferedByte >= 0) {
+                return getBuffered();
+            } else if (matchedCount != -1) {
+                return matchForBoundary();
+            } else {
+                int fromActualStream = realInputStream.read();
+                if (fromActualStream == -1) {
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
+                }
+                if (boundary[0] == fromActualStream) {
+                    return matchForBoundary();
+                }
+                return fromActualStream;
+            }
+        }
+
+        private int matchForBoundary() throws IOException {
+            matchedCount = 0;
+            while (true) {
+                matchedCount++;
+                if (matchedCount == boundary.length) {
+                    atTheEnd = true;
+                    return -1;
+                }
+                int fromActualStream = realInputStream.read();
+                if (fromActualStream != boundary[matchedCount]) {
+                    bufferedByte = fromActualStream;
+                    return getBuffered();
+                }
+            }
+        }
+
+        private int getBuffered() throws IOException {
+            int b;
+            if (matchedCount == 0) {
+                b = bufferedByte;
+                bufferedByte = -1;
+                matchedCount = -1;
+            } else {
+                b = boundary[curBoundaryIndex++];
+                if (curBoundaryIndex == matchedCount) {
+                    curBoundaryIndex = 0;
+                    if (bufferedByte != boundary[0]) {
+                        matchedCount = 0;
+                    } else {
+                        matchedCount = 0;
+                        bufferedByte = -1;
+                    }
+                }
+            }
+            if (b == -1) {
+                throw new IOException(
+                        "The multipart stream ended unexpectedly");
+            }
+            return b;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MultipartUploadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
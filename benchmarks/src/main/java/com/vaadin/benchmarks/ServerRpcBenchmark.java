@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.communication.ServerRpcHandler;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.ui.button.ButtonServerRpc;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Measures parsing and dispatching a client to server message containing
+ * button click RPC invocations using {@link ServerRpcHandler}.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=ServerRpcBenchmark} or
+ * from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ServerRpcBenchmark {
+
+    @Param({ "1", "50" })
+    public int invocationCount;
+
+    private BenchmarkUI ui;
+    private VaadinRequest request;
+    private String message;
+    private int clickCount;
+
+    @Setup
+    public void setup()
+            throws ServletException, ServiceException, IOException {
+        ui = new BenchmarkUI();
+        VerticalLayout content = new VerticalLayout();
+        for (int i = 0; i < invocationCount; i++) {
+            Button button = new Button("Button " + i);
+            button.addClickListener(event -> clickCount++);
+            content.addComponent(button);
+        }
+        ui.setContent(content);
+        // Makes the buttons known to the client
+        new UidlWriter().write(ui, new StringWriter(), false);
+
+        request = Mockito.mock(VaadinRequest.class);
+        VaadinService service = ui.getSession().getService();
+        Mockito.when(request.getService()).thenReturn(service);
+
+        MouseEventDetails details = new MouseEventDetails();
+        details.setButton(MouseEventDetails.MouseButton.LEFT);
+        details.setClientX(10);
+        details.setClientY(20);
+        JsonObject encodedDetails = (JsonObject) JsonCodec
+                .encode(details, null, MouseEventDetails.class,
+                        ui.getConnectorTracker())
+                .getEncodedValue();
+
+        JsonArray invocations = Json.createArray();
+        for (int i = 0; i < invocationCount; i++) {
+            JsonArray parameters = Json.createArray();
+            parameters.set(0, encodedDetails);
+
+            JsonArray invocation = Json.createArray();
+            invocation.set(0, content.getComponent(i).getConnectorId());
+            invocation.set(1, ButtonServerRpc.class.getName());
+            invocation.set(2, "click");
+            invocation.set(3, parameters);
+            invocations.set(i, invocation);
+        }
+
+        JsonObject json = Json.createObject();
+        json.put(ApplicationConstants.CSRF_TOKEN,
+                ui.getSession().getCsrfToken());
+        json.put(ApplicationConstants.RPC_INVOCATIONS, invocations);
+        json.put(ApplicationConstants.SERVER_SYNC_ID,
+                ui.getConnectorTracker().getCurrentSyncId());
+        // Skips the message id check so that the message can be replayed
+        json.put(ApplicationConstants.CLIENT_TO_SERVER_ID, -1);
+        message = json.toJson();
+    }
+
+    @Benchmark
+    public int handleRpc() throws Exception {
+        new ServerRpcHandler().handleRpc(ui, new StringReader(message),
+                request);
+        return clickCount;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServerRpcBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vaadin.server.Constants;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.ComponentContainer;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Measures writing the UIDL response for a UI with a large component tree,
+ * both for the initial response containing every connector and for an
+ * incremental response after a few components have changed.
+ * <p>
+ * Run with
+ * {@code mvn -pl benchmarks exec:exec -Dbenchmark=UidlWriterBenchmark} or
+ * from an IDE.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UidlWriterBenchmark {
+
+    @Param({ "100", "1000" })
+    public int componentCount;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private BenchmarkUI ui;
+    private Label[] labels;
+    private int changeCount;
+
+    @Setup
+    public void setup()
+            throws ServletException, ServiceException, IOException {
+        Properties parameters = new Properties();
+        parameters.setProperty(Constants.SERVLET_PARAMETER_STREAMING_UIDL,
+                Boolean.toString(streaming));
+        ui = new BenchmarkUI(parameters);
+
+        VerticalLayout content = new VerticalLayout();
+        BenchmarkUI.populate(content, componentCount);
+        ui.setContent(content);
+
+        labels = new Label[content.getComponentCount()];
+        for (int i = 0; i < labels.length; i++) {
+            ComponentContainer layout = (ComponentContainer) content
+                    .getComponent(i);
+            labels[i] = (Label) layout.iterator().next();
+        }
+        write();
+    }
+
+    /**
+     * State that makes the UI look like it has never been sent to the client.
+     */
+    @State(Scope.Thread)
+    public static class Initial {
+        @Setup(Level.Invocation)
+        public void reset(UidlWriterBenchmark benchmark) {
+            BenchmarkUI ui = benchmark.ui;
+            ui.getConnectorTracker().markAllConnectorsDirty();
+            ui.getConnectorTracker().markAllClientSidesUninitialized();
+            ui.getSession().getCommunicationManager().getClientCache(ui)
+                    .clear();
+        }
+    }
+
+    @Benchmark
+    public String writeInitial(Initial initial) throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public String writeChanges() throws IOException {
+        changeCount++;
+        // One label per layout, i.e. roughly every tenth component
+        for (Label label : labels) {
+            label.setValue("Changed " + changeCount);
+        }
+        return write();
+    }
+
+    private String write() throws IOException {
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+        return writer.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UidlWriterBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
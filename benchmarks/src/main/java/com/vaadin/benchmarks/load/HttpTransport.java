@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.vaadin.shared.JsonConstants;
+
+/**
+ * Transport sending requests over HTTP to a Vaadin application running in a
+ * servlet container, for instance on a local port. The session cookies set by
+ * the server are kept and sent back like a browser would.
+ *
+ * @author Vaadin Ltd
+ */
+public class HttpTransport implements LoadTransport {
+
+    private final String servletUrl;
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+
+    /**
+     * Creates a new transport for the servlet at the given URL.
+     *
+     * @param servletUrl
+     *            the URL the Vaadin servlet is mapped to, e.g.
+     *            <code>http://localhost:8080/myapp/</code>
+     */
+    public HttpTransport(String servletUrl) {
+        this.servletUrl = servletUrl.endsWith("/")
+                ? servletUrl.substring(0, servletUrl.length() - 1)
+                : servletUrl;
+    }
+
+    @Override
+    public Response post(String pathInfo, String query, String body)
+            throws IOException {
+        String url = servletUrl + pathInfo;
+        if (query != null) {
+            url += "?" + query;
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url)
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setInstanceFollowRedirects(false);
+        if (!cookies.isEmpty()) {
+            connection.setRequestProperty("Cookie",
+                    cookies.entrySet().stream()
+                            .map(e -> e.getKey() + "=" + e.getValue())
+                            .collect(Collectors.joining("; ")));
+        }
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type",
+                    JsonConstants.JSON_CONTENT_TYPE);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        storeCookies(connection.getHeaderFields().get("Set-Cookie"));
+        InputStream in = status < 400 ? connection.getInputStream()
+                : connection.getErrorStream();
+        return new Response(status, in == null ? "" : read(in));
+    }
+
+    private void storeCookies(List<String> setCookieHeaders) {
+        if (setCookieHeaders == null) {
+            return;
+        }
+        for (String header : setCookieHeaders) {
+            String cookie = header.split(";", 2)[0];
+            int separator = cookie.indexOf('=');
+            if (separator > 0) {
+                cookies.put(cookie.substring(0, separator).trim(),
+                        cookie.substring(separator + 1).trim());
+            }
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,760 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+import javax.servlet.http.HttpSessionContext;
+
+import com.vaadin.server.Constants;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+
+/**
+ * A Vaadin servlet running in the same JVM as the simulated clients, without
+ * a servlet container. Requests are passed directly to
+ * {@link VaadinServlet#service(javax.servlet.ServletRequest, javax.servlet.ServletResponse)}
+ * using minimal in-memory implementations of the servlet request, response
+ * and HTTP session.
+ * <p>
+ * This measures the framework and the application without any network or
+ * container overhead, and lets the heap used by each {@link VaadinSession} be
+ * measured from the same JVM.
+ *
+ * @author Vaadin Ltd
+ */
+public class InProcessServer {
+
+    private final VaadinServlet servlet;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new server running the given UI class in production mode.
+     *
+     * @param uiClass
+     *            the UI class to serve, not <code>null</code>
+     * @throws ServletException
+     *             if the servlet cannot be initialized
+     */
+    public InProcessServer(Class<? extends UI> uiClass)
+            throws ServletException {
+        this(uiClass, new Properties());
+    }
+
+    /**
+     * Creates a new server running the given UI class using the given
+     * deployment configuration parameters. Production mode is enabled unless
+     * set otherwise.
+     *
+     * @param uiClass
+     *            the UI class to serve, not <code>null</code>
+     * @param initParameters
+     *            the deployment configuration parameters, not
+     *            <code>null</code>
+     * @throws ServletException
+     *             if the servlet cannot be initialized
+     */
+    public InProcessServer(Class<? extends UI> uiClass,
+            Properties initParameters) throws ServletException {
+        Properties parameters = new Properties();
+        parameters.setProperty(Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
+                "true");
+        parameters.putAll(initParameters);
+        parameters.setProperty(VaadinSession.UI_PARAMETER, uiClass.getName());
+
+        servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(parameters));
+    }
+
+    /**
+     * Creates a transport for a new simulated browser. Each transport has an
+     * HTTP session of its own, created on the first request.
+     *
+     * @return a new transport, not <code>null</code>
+     */
+    public LoadTransport createTransport() {
+        return new InProcessTransport();
+    }
+
+    /**
+     * Gets the number of HTTP sessions that have not been invalidated.
+     *
+     * @return the number of live sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Invalidates all sessions and destroys the servlet.
+     */
+    public void destroy() {
+        sessions.values().forEach(Session::invalidate);
+        servlet.destroy();
+    }
+
+    private class InProcessTransport implements LoadTransport {
+        private Session session;
+
+        @Override
+        public Response post(String pathInfo, String query, String body)
+                throws IOException {
+            Request request = new Request(this, pathInfo, query,
+                    body == null ? new byte[0]
+                            : body.getBytes(StandardCharsets.UTF_8));
+            ResponseImpl response = new ResponseImpl();
+            try {
+                servlet.service(request, response);
+            } catch (ServletException e) {
+                throw new IOException(e);
+            }
+            return new Response(response.getStatus(), response.getBody());
+        }
+
+        private Session getSession(boolean create) {
+            if (session != null && !session.valid) {
+                session = null;
+            }
+            if (session == null && create) {
+                session = new Session();
+                sessions.put(session.getId(), session);
+            }
+            return session;
+        }
+    }
+
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(
+                            method.getName() + " is not supported");
+                }));
+    }
+
+    private class Request extends HttpServletRequestWrapper {
+        private final InProcessTransport transport;
+        private final String pathInfo;
+        private final String query;
+        private final byte[] body;
+        private final Map<String, String[]> parameters = new LinkedHashMap<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final String requestedSessionId;
+        private String characterEncoding = "UTF-8";
+
+        public Request(InProcessTransport transport, String pathInfo,
+                String query, byte[] body) throws IOException {
+            super(unsupported(HttpServletRequest.class));
+            this.transport = transport;
+            this.pathInfo = pathInfo;
+            this.query = query;
+            this.body = body;
+            Session session = transport.getSession(false);
+            requestedSessionId = session == null ? null : session.getId();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    String[] parts = pair.split("=", 2);
+                    parameters.put(decode(parts[0]), new String[] {
+                            parts.length > 1 ? decode(parts[1]) : "" });
+                }
+            }
+        }
+
+        private String decode(String value)
+                throws UnsupportedEncodingException {
+            return URLDecoder.decode(value, "UTF-8");
+        }
+
+        @Override
+        public String getMethod() {
+            return "POST";
+        }
+
+        @Override
+        public String getScheme() {
+            return "http";
+        }
+
+        @Override
+        public String getServerName() {
+            return "localhost";
+        }
+
+        @Override
+        public int getServerPort() {
+            return 80;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return "localhost";
+        }
+
+        @Override
+        public String getContextPath() {
+            return "";
+        }
+
+        @Override
+        public String getServletPath() {
+            return "";
+        }
+
+        @Override
+        public String getPathInfo() {
+            return pathInfo;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return pathInfo;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            return new StringBuffer("http://localhost").append(pathInfo);
+        }
+
+        @Override
+        public String getQueryString() {
+            return query;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            return values == null ? null : values[0];
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(parameters);
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return -1;
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            return -1;
+        }
+
+        @Override
+        public Cookie[] getCookies() {
+            return null;
+        }
+
+        @Override
+        public String getContentType() {
+            return body.length == 0 ? null : "application/json";
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return characterEncoding;
+        }
+
+        @Override
+        public void setCharacterEncoding(String env) {
+            characterEncoding = env;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            return new BufferedReader(
+                    new InputStreamReader(getInputStream(), characterEncoding));
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.ENGLISH;
+        }
+
+        @Override
+        public Enumeration<Locale> getLocales() {
+            return Collections.enumeration(
+                    Collections.singletonList(Locale.ENGLISH));
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            return transport.getSession(create);
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return requestedSessionId;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            Session session = transport.getSession(false);
+            return session != null
+                    && session.getId().equals(requestedSessionId);
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return null;
+        }
+
+        @Override
+        public java.security.Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }
+
+        @Override
+        public String getAuthType() {
+            return null;
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servlet.getServletContext();
+        }
+    }
+
+    private static class ResponseImpl extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final Map<String, String> headers = new HashMap<>();
+        private String characterEncoding = "UTF-8";
+        private PrintWriter writer;
+        private int status = SC_OK;
+
+        public ResponseImpl() {
+            super(unsupported(HttpServletResponse.class));
+        }
+
+        public String getBody() {
+            if (writer != null) {
+                writer.flush();
+            }
+            try {
+                return body.toString(characterEncoding);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+            status = sc;
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            status = SC_FOUND;
+            headers.put("Location", location);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            headers.put(name, Long.toString(date));
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            setDateHeader(name, date);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            headers.put(name, Integer.toString(value));
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            setIntHeader(name, value);
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return headers.containsKey(name);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            // Sessions are tracked by the transport
+        }
+
+        @Override
+        public void setContentType(String type) {
+            headers.put("Content-Type", type);
+        }
+
+        @Override
+        public String getContentType() {
+            return headers.get("Content-Type");
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setIntHeader("Content-Length", len);
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            characterEncoding = charset;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return characterEncoding;
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+            // Not relevant for the simulated client
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+            // Everything is buffered
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void flushBuffer() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void reset() {
+            body.reset();
+            headers.clear();
+            status = SC_OK;
+        }
+
+        @Override
+        public void resetBuffer() {
+            body.reset();
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public PrintWriter getWriter() throws UnsupportedEncodingException {
+            if (writer == null) {
+                writer = new PrintWriter(
+                        new OutputStreamWriter(body, characterEncoding));
+            }
+            return writer;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private class Session implements HttpSession {
+        private final String id = UUID.randomUUID().toString();
+        private final long creationTime = System.currentTimeMillis();
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private volatile int maxInactiveInterval = 1800;
+        private volatile boolean valid = true;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servlet.getServletContext();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+            maxInactiveInterval = interval;
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        @Override
+        public HttpSessionContext getSessionContext() {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Object getValue(String name) {
+            return getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public String[] getValueNames() {
+            return attributes.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                removeAttribute(name);
+                return;
+            }
+            Object old = attributes.put(name, value);
+            // Like containers, only notify when the value actually changes
+            if (old != value) {
+                if (value instanceof HttpSessionBindingListener) {
+                    ((HttpSessionBindingListener) value).valueBound(
+                            new HttpSessionBindingEvent(this, name, value));
+                }
+                unbound(name, old);
+            }
+        }
+
+        @Override
+        public void putValue(String name, Object value) {
+            setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            unbound(name, attributes.remove(name));
+        }
+
+        @Override
+        public void removeValue(String name) {
+            removeAttribute(name);
+        }
+
+        private void unbound(String name, Object value) {
+            if (value instanceof HttpSessionBindingListener) {
+                ((HttpSessionBindingListener) value).valueUnbound(
+                        new HttpSessionBindingEvent(this, name, value));
+            }
+        }
+
+        @Override
+        public void invalidate() {
+            if (!valid) {
+                return;
+            }
+            valid = false;
+            sessions.remove(id);
+            for (String name : attributes.keySet()) {
+                removeAttribute(name);
+            }
+        }
+
+        @Override
+        public boolean isNew() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Simulates a number of concurrent users, each with a session of its own,
+ * using {@link UidlClient}.
+ * <p>
+ * The sessions are started evenly over the ramp-up time. Each user then
+ * repeats the steps of a {@link LoadScenario} with a random think time in
+ * between and sends heartbeats, until the test duration has passed. The users
+ * share a small thread pool, so thousands of mostly idle sessions can be
+ * simulated from one JVM.
+ * <p>
+ * Run from the command line with
+ * {@code mvn -pl benchmarks exec:exec@load -Dload.args="<arguments>"}, see
+ * {@link #main(String[])} for the arguments.
+ *
+ * @author Vaadin Ltd
+ */
+public class LoadGenerator {
+
+    private final Supplier<LoadTransport> transportFactory;
+    private final LoadScenario scenario;
+
+    private int sessionCount = 100;
+    private int threadCount = Runtime.getRuntime().availableProcessors() * 2;
+    private long rampUpMillis = 10000;
+    private long durationMillis = 60000;
+    private long thinkTimeMillis = 1000;
+    private long heartbeatIntervalMillis = 300000;
+    private boolean measureHeap = false;
+
+    /**
+     * Creates a new load generator.
+     *
+     * @param transportFactory
+     *            creates a new transport for each simulated user, not
+     *            <code>null</code>
+     * @param scenario
+     *            the actions of each user, not <code>null</code>
+     */
+    public LoadGenerator(Supplier<LoadTransport> transportFactory,
+            LoadScenario scenario) {
+        this.transportFactory = transportFactory;
+        this.scenario = scenario;
+    }
+
+    /**
+     * Sets the number of simulated sessions. The default is 100.
+     *
+     * @param sessionCount
+     *            the number of sessions, at least 1
+     */
+    public void setSessionCount(int sessionCount) {
+        if (sessionCount < 1) {
+            throw new IllegalArgumentException(
+                    "sessionCount must be at least 1");
+        }
+        this.sessionCount = sessionCount;
+    }
+
+    /**
+     * Gets the number of simulated sessions.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Sets the number of threads used for sending requests, which limits the
+     * number of requests in progress at any time. The default is twice the
+     * number of processors.
+     *
+     * @param threadCount
+     *            the number of threads, at least 1
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "threadCount must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Gets the number of threads used for sending requests.
+     *
+     * @return the number of threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets the time over which the sessions are started. The default is 10
+     * seconds.
+     *
+     * @param rampUpMillis
+     *            the ramp-up time in milliseconds, not negative
+     */
+    public void setRampUp(long rampUpMillis) {
+        if (rampUpMillis < 0) {
+            throw new IllegalArgumentException("rampUp cannot be negative");
+        }
+        this.rampUpMillis = rampUpMillis;
+    }
+
+    /**
+     * Gets the time over which the sessions are started.
+     *
+     * @return the ramp-up time in milliseconds
+     */
+    public long getRampUp() {
+        return rampUpMillis;
+    }
+
+    /**
+     * Sets how long the users keep running their scenario after the ramp-up
+     * time. The default is 60 seconds.
+     *
+     * @param durationMillis
+     *            the duration in milliseconds, not negative
+     */
+    public void setDuration(long durationMillis) {
+        if (durationMillis < 0) {
+            throw new IllegalArgumentException("duration cannot be negative");
+        }
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Gets how long the users keep running their scenario after the ramp-up
+     * time.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDuration() {
+        return durationMillis;
+    }
+
+    /**
+     * Sets the average time between the steps of a user. The actual time is
+     * randomly chosen between half and one and a half times this value. The
+     * default is one second.
+     *
+     * @param thinkTimeMillis
+     *            the average think time in milliseconds, not negative
+     */
+    public void setThinkTime(long thinkTimeMillis) {
+        if (thinkTimeMillis < 0) {
+            throw new IllegalArgumentException(
+                    "thinkTime cannot be negative");
+        }
+        this.thinkTimeMillis = thinkTimeMillis;
+    }
+
+    /**
+     * Gets the average time between the steps of a user.
+     *
+     * @return the average think time in milliseconds
+     */
+    public long getThinkTime() {
+        return thinkTimeMillis;
+    }
+
+    /**
+     * Sets the interval between heartbeats of a user. The default is five
+     * minutes, the same as the default heartbeat interval of the framework.
+     *
+     * @param heartbeatIntervalMillis
+     *            the heartbeat interval in milliseconds, or 0 to not send
+     *            heartbeats
+     */
+    public void setHeartbeatInterval(long heartbeatIntervalMillis) {
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    }
+
+    /**
+     * Gets the interval between heartbeats of a user.
+     *
+     * @return the heartbeat interval in milliseconds, or 0 if heartbeats are
+     *         not sent
+     */
+    public long getHeartbeatInterval() {
+        return heartbeatIntervalMillis;
+    }
+
+    /**
+     * Sets whether the heap used per session should be estimated. This is
+     * only meaningful when the server runs in the same JVM, e.g. with
+     * {@link InProcessServer}, and forces garbage collections during the
+     * test. The default is <code>false</code>.
+     *
+     * @param measureHeap
+     *            <code>true</code> to estimate the heap usage per session
+     */
+    public void setMeasureHeap(boolean measureHeap) {
+        this.measureHeap = measureHeap;
+    }
+
+    /**
+     * Gets whether the heap used per session is estimated.
+     *
+     * @return <code>true</code> if the heap usage per session is estimated
+     */
+    public boolean isMeasureHeap() {
+        return measureHeap;
+    }
+
+    /**
+     * Runs the load test and waits for it to finish.
+     *
+     * @return the results, not <code>null</code>
+     * @throws InterruptedException
+     *             if interrupted while waiting for the test to finish
+     */
+    public LoadReport run() throws InterruptedException {
+        LoadStatistics statistics = new LoadStatistics();
+        CountDownLatch initialized = new CountDownLatch(sessionCount);
+        CountDownLatch finished = new CountDownLatch(sessionCount);
+        AtomicInteger failedSessions = new AtomicInteger();
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                threadCount, runnable -> {
+                    Thread thread = new Thread(runnable, "load-generator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        long heapBefore = measureHeap ? getUsedHeap() : 0;
+        long start = System.nanoTime();
+        long end = start
+                + TimeUnit.MILLISECONDS.toNanos(rampUpMillis + durationMillis);
+
+        for (int i = 0; i < sessionCount; i++) {
+            SimulatedUser user = new SimulatedUser(executor,
+                    new UidlClient(transportFactory.get(), statistics), end,
+                    initialized, finished, failedSessions);
+            executor.schedule(user::start, rampUpMillis * i / sessionCount,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        long heapPerSession = -1;
+        initialized.await();
+        if (measureHeap) {
+            heapPerSession = Math.max(0,
+                    (getUsedHeap() - heapBefore) / sessionCount);
+        }
+        finished.await();
+        executor.shutdownNow();
+
+        return new LoadReport(sessionCount, failedSessions.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                statistics, heapPerSession);
+    }
+
+    private class SimulatedUser {
+        private final ScheduledThreadPoolExecutor executor;
+        private final UidlClient client;
+        private final long end;
+        private final CountDownLatch initialized;
+        private final CountDownLatch finished;
+        private final AtomicInteger failedSessions;
+        private long lastHeartbeat;
+
+        private SimulatedUser(ScheduledThreadPoolExecutor executor,
+                UidlClient client, long end, CountDownLatch initialized,
+                CountDownLatch finished, AtomicInteger failedSessions) {
+            this.executor = executor;
+            this.client = client;
+            this.end = end;
+            this.initialized = initialized;
+            this.finished = finished;
+            this.failedSessions = failedSessions;
+        }
+
+        private void start() {
+            try {
+                client.init();
+            } catch (IOException | RuntimeException e) {
+                getLogger().log(Level.FINE, "Could not initialize UI", e);
+                failedSessions.incrementAndGet();
+                initialized.countDown();
+                finish();
+                return;
+            }
+            lastHeartbeat = System.nanoTime();
+            initialized.countDown();
+            scheduleNextStep();
+        }
+
+        private void step() {
+            long now = System.nanoTime();
+            if (now >= end) {
+                finish();
+                return;
+            }
+            try {
+                if (heartbeatIntervalMillis > 0 && now
+                        - lastHeartbeat >= TimeUnit.MILLISECONDS
+                                .toNanos(heartbeatIntervalMillis)) {
+                    lastHeartbeat = now;
+                    client.heartbeat();
+                }
+                scenario.step(client);
+            } catch (IOException | RuntimeException e) {
+                // Failed requests are counted by the client
+                getLogger().log(Level.FINE, "Step failed", e);
+            }
+            scheduleNextStep();
+        }
+
+        private void scheduleNextStep() {
+            long delay = thinkTimeMillis / 2 + ThreadLocalRandom.current()
+                    .nextLong(thinkTimeMillis + 1);
+            executor.schedule(this::step, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void finish() {
+            client.close();
+            finished.countDown();
+        }
+    }
+
+    private static long getUsedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            memory.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(LoadGenerator.class.getName());
+    }
+
+    /**
+     * Runs a load test from the command line and prints the report. The
+     * supported arguments are:
+     * <ul>
+     * <li><code>-url &lt;url&gt;</code> test the Vaadin servlet at the given
+     * URL
+     * <li><code>-ui &lt;class&gt;</code> test the given UI class using an
+     * in-process server, {@link LoadTestUI} by default
+     * <li><code>-sessions &lt;count&gt;</code> the number of sessions
+     * <li><code>-threads &lt;count&gt;</code> the number of threads
+     * <li><code>-rampup &lt;seconds&gt;</code> the ramp-up time
+     * <li><code>-duration &lt;seconds&gt;</code> the test duration after
+     * ramp-up
+     * <li><code>-think &lt;milliseconds&gt;</code> the average think time
+     * <li><code>-heartbeat &lt;seconds&gt;</code> the heartbeat interval
+     * </ul>
+     * The users click random buttons in the UI.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws Exception
+     *             if the test cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        String uiClassName = LoadTestUI.class.getName();
+        int sessions = 100;
+        Integer threads = null;
+        long rampUp = 10;
+        long duration = 60;
+        long think = 1000;
+        long heartbeat = 300;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "-url":
+                url = value;
+                break;
+            case "-ui":
+                uiClassName = value;
+                break;
+            case "-sessions":
+                sessions = Integer.parseInt(value);
+                break;
+            case "-threads":
+                threads = Integer.valueOf(value);
+                break;
+            case "-rampup":
+                rampUp = Long.parseLong(value);
+                break;
+            case "-duration":
+                duration = Long.parseLong(value);
+                break;
+            case "-think":
+                think = Long.parseLong(value);
+                break;
+            case "-heartbeat":
+                heartbeat = Long.parseLong(value);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown argument " + args[i]);
+            }
+        }
+
+        InProcessServer server = null;
+        Supplier<LoadTransport> transports;
+        if (url != null) {
+            String servletUrl = url;
+            transports = () -> new HttpTransport(servletUrl);
+        } else {
+            server = new InProcessServer(
+                    Class.forName(uiClassName).asSubclass(UI.class));
+            transports = server::createTransport;
+        }
+
+        LoadGenerator generator = new LoadGenerator(transports,
+                LoadScenario.clickButtons());
+        generator.setSessionCount(sessions);
+        if (threads != null) {
+            generator.setThreadCount(threads);
+        }
+        generator.setRampUp(TimeUnit.SECONDS.toMillis(rampUp));
+        generator.setDuration(TimeUnit.SECONDS.toMillis(duration));
+        generator.setThinkTime(think);
+        generator.setHeartbeatInterval(TimeUnit.SECONDS.toMillis(heartbeat));
+        generator.setMeasureHeap(server != null);
+
+        LoadReport report = generator.run();
+        if (server != null) {
+            server.destroy();
+        }
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.util.Locale;
+
+import com.vaadin.benchmarks.load.LoadStatistics.RequestType;
+import com.vaadin.server.metrics.LatencyStatistics;
+
+/**
+ * The results of a load test run by {@link LoadGenerator}.
+ *
+ * @author Vaadin Ltd
+ */
+public class LoadReport {
+
+    private final int sessionCount;
+    private final int failedSessionCount;
+    private final long durationMillis;
+    private final LoadStatistics statistics;
+    private final long heapPerSession;
+
+    /**
+     * Creates a new report.
+     *
+     * @param sessionCount
+     *            the number of simulated sessions
+     * @param failedSessionCount
+     *            the number of sessions whose UI could not be initialized
+     * @param durationMillis
+     *            the duration of the test in milliseconds, including ramp-up
+     * @param statistics
+     *            the request statistics collected during the test
+     * @param heapPerSession
+     *            the estimated heap usage per session in bytes, or -1 if not
+     *            measured
+     */
+    public LoadReport(int sessionCount, int failedSessionCount,
+            long durationMillis, LoadStatistics statistics,
+            long heapPerSession) {
+        this.sessionCount = sessionCount;
+        this.failedSessionCount = failedSessionCount;
+        this.durationMillis = durationMillis;
+        this.statistics = statistics;
+        this.heapPerSession = heapPerSession;
+    }
+
+    /**
+     * Gets the number of simulated sessions.
+     *
+     * @return the session count
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Gets the number of sessions whose UI could not be initialized.
+     *
+     * @return the failed session count
+     */
+    public int getFailedSessionCount() {
+        return failedSessionCount;
+    }
+
+    /**
+     * Gets the duration of the test, including ramp-up.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Gets the number of completed requests.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return statistics.getRequestCount();
+    }
+
+    /**
+     * Gets the number of failed requests.
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return statistics.getErrorCount();
+    }
+
+    /**
+     * Gets the average number of completed requests per second.
+     *
+     * @return the throughput in requests per second
+     */
+    public double getThroughput() {
+        return durationMillis == 0 ? 0
+                : getRequestCount() * 1000.0 / durationMillis;
+    }
+
+    /**
+     * Gets the response time statistics of one type of request.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the response time statistics in milliseconds
+     */
+    public LatencyStatistics getLatency(RequestType type) {
+        return statistics.getLatency(type);
+    }
+
+    /**
+     * Gets the estimated heap usage per session. The estimate is the growth
+     * of the used heap after garbage collection divided by the number of
+     * sessions, measured once all sessions have been initialized. For
+     * in-process tests this includes the state kept by the simulated clients.
+     *
+     * @return the heap usage in bytes, or -1 if not measured
+     */
+    public long getHeapPerSession() {
+        return heapPerSession;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ENGLISH,
+                "Sessions: %d (%d failed)%n", sessionCount,
+                failedSessionCount));
+        builder.append(String.format(Locale.ENGLISH,
+                "Duration: %.1f s%n", durationMillis / 1000.0));
+        builder.append(String.format(Locale.ENGLISH,
+                "Requests: %d (%d errors), %.1f requests/s%n",
+                getRequestCount(), getErrorCount(), getThroughput()));
+        builder.append(String.format(Locale.ENGLISH,
+                "Response size: %.0f characters on average%n",
+                getRequestCount() == 0 ? 0
+                        : (double) statistics.getReceivedCharacters()
+                                / getRequestCount()));
+        if (heapPerSession >= 0) {
+            builder.append(String.format(Locale.ENGLISH,
+                    "Heap per session: %.1f kB%n", heapPerSession / 1024.0));
+        }
+        builder.append(String.format(Locale.ENGLISH,
+                "%-10s %8s %9s %9s %9s %9s %9s%n", "Request", "Count",
+                "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        for (RequestType type : RequestType.values()) {
+            LatencyStatistics latency = getLatency(type);
+            builder.append(String.format(Locale.ENGLISH,
+                    "%-10s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", type,
+                    latency.getCount(), latency.getMean(), latency.getP50(),
+                    latency.getP95(), latency.getP99(), latency.getMax()));
+        }
+        return builder.toString();
+    }
+}
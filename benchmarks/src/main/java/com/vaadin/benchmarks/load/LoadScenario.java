@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.vaadin.ui.Button;
+
+import elemental.json.Json;
+
+/**
+ * The actions of a simulated user. The load generator calls
+ * {@link #step(UidlClient)} repeatedly for each user, with a think time in
+ * between, after the UI of the user has been initialized.
+ *
+ * @author Vaadin Ltd
+ */
+@FunctionalInterface
+public interface LoadScenario {
+
+    /**
+     * Performs one user action, typically sending one UIDL request.
+     *
+     * @param client
+     *            the initialized client of the user, not <code>null</code>
+     * @throws IOException
+     *             if a request fails
+     */
+    public void step(UidlClient client) throws IOException;
+
+    /**
+     * Gets a scenario that clicks a random button in the UI on each step, or
+     * sends an empty UIDL request if there are no buttons.
+     *
+     * @return the scenario, not <code>null</code>
+     */
+    public static LoadScenario clickButtons() {
+        return client -> {
+            List<String> buttons = client
+                    .findConnectors(Button.class.getName());
+            if (buttons.isEmpty()) {
+                client.sendRpc(Json.createArray());
+            } else {
+                client.click(buttons.get(
+                        ThreadLocalRandom.current().nextInt(buttons.size())));
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vaadin.server.metrics.LatencyHistogram;
+import com.vaadin.server.metrics.LatencyStatistics;
+
+/**
+ * Thread safe collector of the response times and errors of the requests
+ * sent by any number of simulated clients.
+ *
+ * @author Vaadin Ltd
+ */
+public class LoadStatistics {
+
+    /**
+     * The kinds of requests sent by a simulated client.
+     */
+    public enum RequestType {
+        /**
+         * The browser details request creating a UI and returning its initial
+         * UIDL.
+         */
+        INIT,
+        /**
+         * A UIDL request sending RPC invocations.
+         */
+        UIDL,
+        /**
+         * A heartbeat request keeping the UI alive.
+         */
+        HEARTBEAT;
+    }
+
+    private final Map<RequestType, LatencyHistogram> latencies = new EnumMap<>(
+            RequestType.class);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder receivedCharacters = new LongAdder();
+
+    /**
+     * Creates a new empty collector.
+     */
+    public LoadStatistics() {
+        for (RequestType type : RequestType.values()) {
+            latencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param type
+     *            the type of the request, not <code>null</code>
+     * @param duration
+     *            the time from sending the request to receiving the full
+     *            response, in nanoseconds
+     * @param responseLength
+     *            the number of characters in the response
+     */
+    public void requestCompleted(RequestType type, long duration,
+            int responseLength) {
+        latencies.get(type).record(duration);
+        receivedCharacters.add(responseLength);
+    }
+
+    /**
+     * Records a request that failed or got an error response.
+     */
+    public void requestFailed() {
+        errors.increment();
+    }
+
+    /**
+     * Gets the response time statistics of one type of request.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the response time statistics in milliseconds
+     */
+    public LatencyStatistics getLatency(RequestType type) {
+        return latencies.get(type).getStatistics();
+    }
+
+    /**
+     * Gets the number of completed requests of all types.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return latencies.values().stream()
+                .mapToLong(LatencyHistogram::getCount).sum();
+    }
+
+    /**
+     * Gets the number of failed requests.
+     *
+     * @return the number of errors
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Gets the total length of the received responses in characters.
+     *
+     * @return the number of characters received
+     */
+    public long getReceivedCharacters() {
+        return receivedCharacters.sum();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * A small UI used by default by {@link LoadGenerator}: a form, a grid and
+ * buttons that change parts of the UI when clicked.
+ *
+ * @author Vaadin Ltd
+ */
+public class LoadTestUI extends UI {
+
+    private static final int MAX_ROWS = 20;
+
+    @Override
+    protected void init(VaadinRequest request) {
+        Label counter = new Label("0");
+        VerticalLayout rows = new VerticalLayout();
+        TextField name = new TextField("Name");
+
+        Button increment = new Button("Increment",
+                event -> counter.setValue(Integer
+                        .toString(Integer.parseInt(counter.getValue()) + 1)));
+        Button addRow = new Button("Add row", event -> {
+            if (rows.getComponentCount() >= MAX_ROWS) {
+                rows.removeAllComponents();
+            }
+            rows.addComponent(new Label("Row for " + name.getValue()));
+        });
+        Button greet = new Button("Greet", event -> name.setValue(
+                "Visitor " + counter.getValue()));
+
+        List<String> items = IntStream.range(0, 1000)
+                .mapToObj(i -> "Item " + i).collect(Collectors.toList());
+        Grid<String> grid = new Grid<>();
+        grid.addColumn(String::toString).setCaption("Item");
+        grid.setItems(items);
+
+        setContent(new VerticalLayout(counter, name, increment, addRow, greet,
+                rows, grid));
+    }
+}
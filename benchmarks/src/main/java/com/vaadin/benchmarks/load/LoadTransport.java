@@ -0,0 +1,95 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends the HTTP requests of one simulated browser to a Vaadin servlet. A
+ * transport keeps track of the HTTP session of its browser, so each
+ * {@link UidlClient} uses a transport of its own.
+ *
+ * @author Vaadin Ltd
+ */
+public interface LoadTransport extends Closeable {
+
+    /**
+     * The response to a request sent through a transport.
+     */
+    public static class Response {
+        private final int status;
+        private final String body;
+
+        /**
+         * Creates a new response.
+         *
+         * @param status
+         *            the HTTP status code
+         * @param body
+         *            the response body, not <code>null</code>
+         */
+        public Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        /**
+         * Gets the HTTP status code of this response.
+         *
+         * @return the status code
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Gets the decoded body of this response.
+         *
+         * @return the response body, not <code>null</code>
+         */
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Sends a POST request to the servlet.
+     *
+     * @param pathInfo
+     *            the path within the servlet, starting with <code>/</code>
+     * @param query
+     *            the URL encoded query string, or <code>null</code> for none
+     * @param body
+     *            the JSON request body, or <code>null</code> for an empty
+     *            body
+     * @return the response, not <code>null</code>
+     * @throws IOException
+     *             if the request cannot be sent or the response cannot be
+     *             read
+     */
+    public Response post(String pathInfo, String query, String body)
+            throws IOException;
+
+    /**
+     * Releases the resources of this transport. The server side session is
+     * not invalidated.
+     */
+    @Override
+    public default void close() {
+        // Nothing to release by default
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks.load;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vaadin.benchmarks.load.LoadStatistics.RequestType;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.communication.UIInitHandler;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.MouseEventDetails.MouseButton;
+import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.shared.ui.button.ButtonServerRpc;
+import com.vaadin.shared.ui.ui.UIConstants;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * A simulated browser speaking the UIDL protocol. The client creates a UI the
+ * same way the bootstrap script does, sends RPC invocations with the sync and
+ * message ids expected by the server, sends heartbeats and keeps track of the
+ * connectors and shared state it receives.
+ * <p>
+ * A client is not thread safe; each simulated user should use a client and a
+ * transport of its own.
+ *
+ * @author Vaadin Ltd
+ */
+public class UidlClient {
+
+    private static final String JSON_PREFIX = "for(;;);";
+
+    private static final AtomicInteger windowCounter = new AtomicInteger();
+
+    private final LoadTransport transport;
+    private final LoadStatistics statistics;
+
+    private int uiId = -1;
+    private String csrfToken = ApplicationConstants.CSRF_TOKEN_DEFAULT_VALUE;
+    private int syncId = -1;
+    private int clientToServerId = 0;
+
+    // Type id -> class name, and type id -> id of the super type
+    private final Map<String, String> typeNames = new HashMap<>();
+    private final Map<String, String> superTypes = new HashMap<>();
+    // Connector id -> type id
+    private final Map<String, String> connectorTypes = new LinkedHashMap<>();
+    private final Map<String, JsonObject> states = new HashMap<>();
+
+    /**
+     * Creates a new client sending its requests through the given transport
+     * and recording the response times to the given statistics.
+     *
+     * @param transport
+     *            the transport to use, not <code>null</code>
+     * @param statistics
+     *            the statistics to record to, not <code>null</code>
+     */
+    public UidlClient(LoadTransport transport, LoadStatistics statistics) {
+        this.transport = transport;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Creates the UI by sending the browser details request, like the
+     * bootstrap script does after loading the host page, and processes the
+     * initial UIDL.
+     *
+     * @throws IOException
+     *             if the request fails
+     */
+    public void init() throws IOException {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put(UIInitHandler.BROWSER_DETAILS_PARAMETER, "1");
+        parameters.put("theme", "valo");
+        parameters.put("v-appId", "load");
+        parameters.put("v-sh", "1080");
+        parameters.put("v-sw", "1920");
+        parameters.put("v-cw", "1920");
+        parameters.put("v-ch", "1000");
+        parameters.put("v-vw", "1920");
+        parameters.put("v-vh", "1000");
+        parameters.put("v-curdate",
+                Long.toString(System.currentTimeMillis()));
+        parameters.put("v-tzo", "0");
+        parameters.put("v-dstd", "0");
+        parameters.put("v-rtzo", "0");
+        parameters.put("v-dston", "false");
+        parameters.put("v-loc", "http://localhost/");
+        parameters.put("v-wn", "load-" + windowCounter.incrementAndGet());
+
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(parameter.getKey()).append('=')
+                    .append(encode(parameter.getValue()));
+        }
+
+        String response = post(RequestType.INIT, "/", query.toString(), null);
+        JsonObject json = parse(response);
+        if (!json.hasKey(UIConstants.UI_ID_PARAMETER)) {
+            statistics.requestFailed();
+            throw new IOException("No UI created: " + abbreviate(response));
+        }
+        uiId = (int) json.getNumber(UIConstants.UI_ID_PARAMETER);
+
+        JsonObject uidl = parse(json.getString("uidl"));
+        if (uidl.hasKey(ApplicationConstants.UIDL_SECURITY_TOKEN_ID)) {
+            csrfToken = uidl
+                    .getString(ApplicationConstants.UIDL_SECURITY_TOKEN_ID);
+        }
+        handleUidl(uidl);
+    }
+
+    /**
+     * Sends a UIDL request containing the given RPC invocations and processes
+     * the response.
+     *
+     * @param invocations
+     *            the invocations as encoded by the client side, each being an
+     *            array of connector id, interface name, method name and
+     *            parameter array
+     * @return the processed response
+     * @throws IOException
+     *             if the request fails or the server reports an error
+     */
+    public JsonObject sendRpc(JsonArray invocations) throws IOException {
+        ensureInitialized();
+        JsonObject message = Json.createObject();
+        message.put(ApplicationConstants.CSRF_TOKEN, csrfToken);
+        message.put(ApplicationConstants.RPC_INVOCATIONS, invocations);
+        message.put(ApplicationConstants.SERVER_SYNC_ID, syncId);
+        message.put(ApplicationConstants.CLIENT_TO_SERVER_ID,
+                clientToServerId++);
+
+        String response = post(RequestType.UIDL,
+                "/" + ApplicationConstants.UIDL_PATH + "/", uiIdQuery(),
+                message.toJson());
+        if (!response.startsWith(JSON_PREFIX)) {
+            statistics.requestFailed();
+            throw new IOException(
+                    "Unexpected UIDL response: " + abbreviate(response));
+        }
+        JsonArray wrapper = JsonUtil
+                .parse(response.substring(JSON_PREFIX.length()));
+        JsonObject uidl = wrapper.getObject(0);
+        handleUidl(uidl);
+        return uidl;
+    }
+
+    /**
+     * Invokes a server RPC method of a connector. The parameters are encoded
+     * using {@link JsonCodec} based on their runtime types.
+     *
+     * @param connectorId
+     *            the id of the target connector
+     * @param rpcInterface
+     *            the RPC interface declaring the method
+     * @param methodName
+     *            the name of the method to invoke
+     * @param parameters
+     *            the method parameters
+     * @return the processed response
+     * @throws IOException
+     *             if the request fails or the server reports an error
+     */
+    public JsonObject invoke(String connectorId,
+            Class<? extends ServerRpc> rpcInterface, String methodName,
+            Object... parameters) throws IOException {
+        JsonArray encodedParameters = Json.createArray();
+        for (int i = 0; i < parameters.length; i++) {
+            Object parameter = parameters[i];
+            encodedParameters.set(i, parameter == null ? Json.createNull()
+                    : JsonCodec.encode(parameter, null, parameter.getClass(),
+                            null).getEncodedValue());
+        }
+
+        JsonArray invocation = Json.createArray();
+        invocation.set(0, connectorId);
+        invocation.set(1, rpcInterface.getName());
+        invocation.set(2, methodName);
+        invocation.set(3, encodedParameters);
+
+        JsonArray invocations = Json.createArray();
+        invocations.set(0, invocation);
+        return sendRpc(invocations);
+    }
+
+    /**
+     * Clicks a button with the left mouse button.
+     *
+     * @param connectorId
+     *            the id of the button connector
+     * @return the processed response
+     * @throws IOException
+     *             if the request fails or the server reports an error
+     */
+    public JsonObject click(String connectorId) throws IOException {
+        MouseEventDetails details = new MouseEventDetails();
+        details.setButton(MouseButton.LEFT);
+        return invoke(connectorId, ButtonServerRpc.class, "click", details);
+    }
+
+    /**
+     * Sends a heartbeat request for the UI.
+     *
+     * @throws IOException
+     *             if the request fails or the UI is no longer available
+     */
+    public void heartbeat() throws IOException {
+        ensureInitialized();
+        post(RequestType.HEARTBEAT,
+                "/" + ApplicationConstants.HEARTBEAT_PATH + "/", uiIdQuery(),
+                null);
+    }
+
+    /**
+     * Finds the ids of the connectors of the given server side type or any of
+     * its subtypes, in the order they were first received.
+     *
+     * @param className
+     *            the fully qualified name of the server side class, e.g.
+     *            <code>com.vaadin.ui.Button</code>
+     * @return the connector ids, not <code>null</code>
+     */
+    public List<String> findConnectors(String className) {
+        List<String> result = new ArrayList<>();
+        connectorTypes.forEach((connectorId, typeId) -> {
+            for (String type = typeId; type != null; type = superTypes
+                    .get(type)) {
+                if (className.equals(typeNames.get(type))) {
+                    result.add(connectorId);
+                    break;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the shared state received for a connector, merged from all the
+     * state changes sent by the server.
+     *
+     * @param connectorId
+     *            the id of the connector
+     * @return the state, or <code>null</code> if no state has been received
+     */
+    public JsonObject getState(String connectorId) {
+        return states.get(connectorId);
+    }
+
+    /**
+     * Gets the id of the UI created by {@link #init()}.
+     *
+     * @return the UI id, or -1 if not initialized
+     */
+    public int getUIId() {
+        return uiId;
+    }
+
+    /**
+     * Releases the transport of this client.
+     */
+    public void close() {
+        transport.close();
+    }
+
+    private void handleUidl(JsonObject uidl) throws IOException {
+        if (uidl.hasKey("meta")) {
+            JsonObject meta = uidl.getObject("meta");
+            if (meta.hasKey("appError")) {
+                statistics.requestFailed();
+                throw new IOException(
+                        "Server reported an error: " + meta.get("appError"));
+            }
+        }
+        if (uidl.hasKey(ApplicationConstants.SERVER_SYNC_ID)) {
+            syncId = (int) uidl.getNumber(ApplicationConstants.SERVER_SYNC_ID);
+        }
+        if (uidl.hasKey(ApplicationConstants.CLIENT_TO_SERVER_ID)) {
+            clientToServerId = (int) uidl
+                    .getNumber(ApplicationConstants.CLIENT_TO_SERVER_ID);
+        }
+        if (uidl.hasKey(ApplicationConstants.RESYNCHRONIZE_ID)
+                && uidl.getBoolean(ApplicationConstants.RESYNCHRONIZE_ID)) {
+            connectorTypes.clear();
+            states.clear();
+        }
+        if (uidl.hasKey("typeMappings")) {
+            JsonObject mappings = uidl.getObject("typeMappings");
+            for (String className : mappings.keys()) {
+                typeNames.put(toKey(mappings.get(className)), className);
+            }
+        }
+        if (uidl.hasKey("typeInheritanceMap")) {
+            JsonObject inheritance = uidl.getObject("typeInheritanceMap");
+            for (String typeId : inheritance.keys()) {
+                superTypes.put(typeId, toKey(inheritance.get(typeId)));
+            }
+        }
+        if (uidl.hasKey("types")) {
+            JsonObject types = uidl.getObject("types");
+            for (String connectorId : types.keys()) {
+                connectorTypes.put(connectorId, toKey(types.get(connectorId)));
+            }
+        }
+        if (uidl.hasKey("state")) {
+            JsonObject stateChanges = uidl.getObject("state");
+            for (String connectorId : stateChanges.keys()) {
+                JsonObject change = stateChanges.getObject(connectorId);
+                JsonObject state = states.computeIfAbsent(connectorId,
+                        id -> Json.createObject());
+                for (String property : change.keys()) {
+                    state.put(property, (JsonValue) change.get(property));
+                }
+            }
+        }
+    }
+
+    private String post(RequestType type, String pathInfo, String query,
+            String body) throws IOException {
+        long start = System.nanoTime();
+        LoadTransport.Response response;
+        try {
+            response = transport.post(pathInfo, query, body);
+        } catch (IOException | RuntimeException e) {
+            statistics.requestFailed();
+            throw e;
+        }
+        if (response.getStatus() != 200) {
+            statistics.requestFailed();
+            throw new IOException(type + " request failed with HTTP status "
+                    + response.getStatus());
+        }
+        statistics.requestCompleted(type, System.nanoTime() - start,
+                response.getBody().length());
+        return response.getBody();
+    }
+
+    private void ensureInitialized() {
+        if (uiId == -1) {
+            throw new IllegalStateException("init() has not been called");
+        }
+    }
+
+    private String uiIdQuery() {
+        return UIConstants.UI_ID_PARAMETER + "=" + uiId;
+    }
+
+    private JsonObject parse(String json) throws IOException {
+        try {
+            return Json.parse(json);
+        } catch (RuntimeException e) {
+            statistics.requestFailed();
+            throw new IOException("Invalid JSON: " + abbreviate(json), e);
+        }
+    }
+
+    /*
+     * Type ids are sent as numbers, but are used as keys in other maps
+     */
+    private static String toKey(JsonValue value) {
+        return Integer.toString((int) value.asNumber());
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() > 200 ? text.substring(0, 200) + "..." : text;
+    }
+}
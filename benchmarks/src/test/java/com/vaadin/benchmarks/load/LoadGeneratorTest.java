@@ -0,0 +1,70 @@
+package com.vaadin.benchmarks.load;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.benchmarks.load.LoadStatistics.RequestType;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.UI;
+
+public class LoadGeneratorTest {
+
+    private static final int SESSIONS = 3;
+
+    private static final AtomicInteger clicks = new AtomicInteger();
+
+    public static class ClickUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+            setContent(new Button("Click", event -> clicks.incrementAndGet()));
+        }
+    }
+
+    private InProcessServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        clicks.set(0);
+        server = new InProcessServer(ClickUI.class);
+    }
+
+    @After
+    public void tearDown() {
+        server.destroy();
+    }
+
+    @Test
+    public void clickButtons_requestsCountedWithoutErrors() throws Exception {
+        LoadGenerator generator = new LoadGenerator(server::createTransport,
+                LoadScenario.clickButtons());
+        generator.setSessionCount(SESSIONS);
+        generator.setThreadCount(2);
+        generator.setRampUp(0);
+        generator.setDuration(500);
+        generator.setThinkTime(20);
+        generator.setHeartbeatInterval(0);
+
+        LoadReport report = generator.run();
+
+        Assert.assertEquals(SESSIONS, report.getSessionCount());
+        Assert.assertEquals(0, report.getFailedSessionCount());
+        Assert.assertEquals(0, report.getErrorCount());
+        Assert.assertEquals(SESSIONS, server.getSessionCount());
+
+        long initRequests = report.getLatency(RequestType.INIT).getCount();
+        long uidlRequests = report.getLatency(RequestType.UIDL).getCount();
+        Assert.assertEquals(SESSIONS, initRequests);
+        Assert.assertTrue("Each session should have clicked the button",
+                uidlRequests >= SESSIONS);
+        Assert.assertEquals(0,
+                report.getLatency(RequestType.HEARTBEAT).getCount());
+        Assert.assertEquals(initRequests + uidlRequests,
+                report.getRequestCount());
+        Assert.assertEquals(uidlRequests, clicks.get());
+    }
+}
@@ -78,6 +78,16 @@ public class DataCommunicatorConnector extends AbstractExtensionConnector {
                                 updateRowData(data.getObject(i));
                             }
                         }
+
+                        @Override
+                        public void insertRows(int firstRowIndex, int count) {
+                            insertRowData(firstRowIndex, count);
+                        }
+
+                        @Override
+                        public void removeRows(int firstRowIndex, int count) {
+                            removeRowData(firstRowIndex, count);
+                        }
                     });
         }
 
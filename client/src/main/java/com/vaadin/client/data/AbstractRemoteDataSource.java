@@ -473,7 +473,12 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
             int start = newUsefulData.getStart();
             for (int i = start; i < newUsefulData.getEnd(); i++) {
                 final T row = rowData.get(i - firstRowIndex);
-                indexToRowMap.put(Integer.valueOf(i), row);
+                T oldRow = indexToRowMap.put(Integer.valueOf(i), row);
+                if (oldRow != null) {
+                    // The replaced row might have had a different key, e.g.
+                    // if it was a placeholder
+                    keyToIndexMap.remove(getRowKey(oldRow));
+                }
                 keyToIndexMap.put(getRowKey(row), Integer.valueOf(i));
             }
 
@@ -616,20 +621,24 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
                 moveRowFromIndexToIndex(oldIndex, newIndex);
             }
         } else if (cached.contains(firstRowIndex)) {
-            int oldCacheEnd = cached.getEnd();
             /*
-             * We need to invalidate the cache from the inserted row onwards,
-             * since the cache wants to be a contiguous range. It doesn't
-             * support holes.
-             *
-             * If holes were supported, we could shift the higher part of
-             * "cached" and leave a hole the size of "count" in the middle.
+             * The cache wants to be a contiguous range. It doesn't support
+             * holes, so only the rows before or the rows after the inserted
+             * rows can stay cached. Keep the larger part, shifting the higher
+             * part forward, and drop the other part from the cache.
              */
-            cached = cached.splitAt(firstRowIndex)[0];
-
-            for (int i = firstRowIndex; i < oldCacheEnd; i++) {
-                T row = indexToRowMap.remove(Integer.valueOf(i));
-                keyToIndexMap.remove(getRowKey(row));
+            Range[] partitions = cached.splitAt(firstRowIndex);
+            Range before = partitions[0];
+            Range after = partitions[1];
+            if (after.length() > before.length()) {
+                dropFromCache(before);
+                for (int i = after.getEnd() - 1; i >= after.getStart(); i--) {
+                    moveRowFromIndexToIndex(i, i + count);
+                }
+                cached = after.offsetBy(count);
+            } else {
+                dropFromCache(after);
+                cached = before;
             }
         }
 
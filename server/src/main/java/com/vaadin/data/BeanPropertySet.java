@@ -19,6 +19,9 @@ import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -36,7 +39,14 @@ import com.vaadin.shared.util.SharedUtil;
 import com.vaadin.util.ReflectTools;
 
 /**
- * A {@link PropertySet} that uses reflection to find bean properties.
+ * A {@link PropertySet} that uses reflection to find bean properties. The
+ * accessors of the properties are compiled into method handles once per bean
+ * type, so reading and writing property values does not go through the
+ * reflection API.
+ * <p>
+ * Nested properties can be accessed using a dot separated property name, e.g.
+ * <code>address.street</code>. Nested properties are not included in
+ * {@link #getProperties()}.
  *
  * @author Vaadin Ltd
  *
@@ -106,9 +116,23 @@ public class BeanPropertySet<T> implements PropertySet<T> {
     private static class BeanPropertyDefinition<T, V>
             implements PropertyDefinition<T, V> {
 
+        private static final MethodType GETTER_TYPE = MethodType
+                .methodType(Object.class, Object.class);
+        private static final MethodType SETTER_TYPE = MethodType
+                .methodType(void.class, Object.class, Object.class);
+
         private final PropertyDescriptor descriptor;
         private final BeanPropertySet<T> propertySet;
+        private final Class<V> type;
 
+        /*
+         * Not serialized since the definition itself is replaced by a
+         * SerializedPropertyDefinition when serializing.
+         */
+        private final transient MethodHandle getter;
+        private final transient MethodHandle setter;
+
+        @SuppressWarnings("unchecked")
         public BeanPropertyDefinition(BeanPropertySet<T> propertySet,
                 PropertyDescriptor descriptor) {
             this.propertySet = propertySet;
@@ -121,33 +145,70 @@ public class BeanPropertySet<T> implements PropertySet<T> {
                                 + descriptor.getName());
             }
 
+            type = (Class<V>) ReflectTools
+                    .convertPrimitiveType(descriptor.getPropertyType());
+            getter = createHandle(descriptor.getReadMethod(), GETTER_TYPE);
+            setter = createHandle(descriptor.getWriteMethod(), SETTER_TYPE);
+        }
+
+        private static MethodHandle createHandle(Method method,
+                MethodType methodType) {
+            if (method == null) {
+                return null;
+            }
+            try {
+                return MethodHandles.lookup().unreflect(method)
+                        .asType(methodType);
+            } catch (IllegalAccessException | SecurityException e) {
+                // Use Method.invoke for this accessor
+                return null;
+            }
         }
 
         @Override
         public ValueProvider<T, V> getGetter() {
-            return bean -> {
-                Method readMethod = descriptor.getReadMethod();
-                Object value = invokeWrapExceptions(readMethod, bean);
-                return getType().cast(value);
-            };
+            return this::getValue;
         }
 
         @Override
         public Optional<Setter<T, V>> getSetter() {
-            Method setter = descriptor.getWriteMethod();
-            if (setter == null) {
+            if (descriptor.getWriteMethod() == null) {
                 return Optional.empty();
             }
 
-            return Optional.of(
-                    (bean, value) -> invokeWrapExceptions(setter, bean, value));
+            return Optional.of(this::setValue);
+        }
+
+        private V getValue(T bean) {
+            Object value;
+            if (getter == null) {
+                value = invokeWrapExceptions(descriptor.getReadMethod(),
+                        bean);
+            } else {
+                try {
+                    value = (Object) getter.invokeExact((Object) bean);
+                } catch (Throwable t) {
+                    throw ReflectTools.wrapException(t);
+                }
+            }
+            return type.cast(value);
+        }
+
+        private void setValue(T bean, V value) {
+            if (setter == null) {
+                invokeWrapExceptions(descriptor.getWriteMethod(), bean, value);
+                return;
+            }
+            try {
+                setter.invokeExact((Object) bean, (Object) value);
+            } catch (Throwable t) {
+                throw ReflectTools.wrapException(t);
+            }
         }
 
-        @SuppressWarnings("unchecked")
         @Override
         public Class<V> getType() {
-            return (Class<V>) ReflectTools
-                    .convertPrimitiveType(descriptor.getPropertyType());
+            return type;
         }
 
         @Override
@@ -176,12 +237,89 @@ public class BeanPropertySet<T> implements PropertySet<T> {
         }
     }
 
+    /**
+     * Definition of a nested property, e.g. <code>address.street</code>. The
+     * value of a nested property is <code>null</code> if the value of any of
+     * the properties along the path is <code>null</code>.
+     */
+    private static class NestedBeanPropertyDefinition<T, V>
+            implements PropertyDefinition<T, V> {
+
+        private final BeanPropertySet<T> propertySet;
+        private final PropertyDefinition<T, ?> parent;
+        private final PropertyDefinition<Object, V> child;
+
+        private final ValueProvider<T, ?> parentGetter;
+        private final ValueProvider<Object, V> childGetter;
+
+        @SuppressWarnings("unchecked")
+        public NestedBeanPropertyDefinition(BeanPropertySet<T> propertySet,
+                PropertyDefinition<T, ?> parent,
+                PropertyDefinition<?, V> child) {
+            this.propertySet = propertySet;
+            this.parent = parent;
+            this.child = (PropertyDefinition<Object, V>) child;
+
+            parentGetter = parent.getGetter();
+            childGetter = this.child.getGetter();
+        }
+
+        @Override
+        public ValueProvider<T, V> getGetter() {
+            return bean -> {
+                Object parentValue = parentGetter.apply(bean);
+                return parentValue == null ? null
+                        : childGetter.apply(parentValue);
+            };
+        }
+
+        @Override
+        public Optional<Setter<T, V>> getSetter() {
+            return child.getSetter().map(childSetter -> (bean, value) -> {
+                Object parentValue = parentGetter.apply(bean);
+                if (parentValue == null) {
+                    throw new IllegalStateException("Cannot set "
+                            + getName() + " since " + parent.getName()
+                            + " is null");
+                }
+                childSetter.accept(parentValue, value);
+            });
+        }
+
+        @Override
+        public Class<V> getType() {
+            return child.getType();
+        }
+
+        @Override
+        public String getName() {
+            return parent.getName() + "." + child.getName();
+        }
+
+        @Override
+        public String getCaption() {
+            return child.getCaption();
+        }
+
+        @Override
+        public BeanPropertySet<T> getPropertySet() {
+            return propertySet;
+        }
+
+        private Object writeReplace() {
+            return new SerializedPropertyDefinition(getPropertySet().beanType,
+                    getName());
+        }
+    }
+
     private static final ConcurrentMap<Class<?>, BeanPropertySet<?>> instances = new ConcurrentHashMap<>();
 
     private final Class<T> beanType;
 
     private final Map<String, PropertyDefinition<T, ?>> definitions;
 
+    private final ConcurrentMap<String, PropertyDefinition<T, ?>> nestedDefinitions = new ConcurrentHashMap<>();
+
     private BeanPropertySet(Class<T> beanType) {
         this.beanType = beanType;
 
@@ -223,7 +361,36 @@ public class BeanPropertySet<T> implements PropertySet<T> {
 
     @Override
     public Optional<PropertyDefinition<T, ?>> getProperty(String name) {
-        return Optional.ofNullable(definitions.get(name));
+        PropertyDefinition<T, ?> definition = definitions.get(name);
+        if (definition == null && name.indexOf('.') >= 0) {
+            definition = getNestedProperty(name);
+        }
+        return Optional.ofNullable(definition);
+    }
+
+    private PropertyDefinition<T, ?> getNestedProperty(String name) {
+        PropertyDefinition<T, ?> definition = nestedDefinitions.get(name);
+        if (definition != null) {
+            return definition;
+        }
+
+        int lastDot = name.lastIndexOf('.');
+        Optional<PropertyDefinition<T, ?>> parent = getProperty(
+                name.substring(0, lastDot));
+        if (!parent.isPresent()) {
+            return null;
+        }
+        Optional<? extends PropertyDefinition<?, ?>> child = get(
+                parent.get().getType()).getProperty(name.substring(lastDot + 1));
+        if (!child.isPresent()) {
+            return null;
+        }
+
+        definition = new NestedBeanPropertyDefinition<>(this, parent.get(),
+                child.get());
+        PropertyDefinition<T, ?> existing = nestedDefinitions
+                .putIfAbsent(name, definition);
+        return existing != null ? existing : definition;
     }
 
     private static boolean hasNonObjectReadMethod(
@@ -237,7 +404,10 @@ public class BeanPropertySet<T> implements PropertySet<T> {
             Object... parameters) {
         try {
             return method.invoke(target, parameters);
-        } catch (IllegalAccessException | InvocationTargetException e) {
+        } catch (InvocationTargetException e) {
+            // Propagated like exceptions from the method handles
+            throw ReflectTools.wrapException(e.getCause());
+        } catch (IllegalAccessException e) {
             throw new RuntimeException(e);
         }
     }
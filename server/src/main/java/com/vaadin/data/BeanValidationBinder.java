@@ -93,21 +93,33 @@ public class BeanValidationBinder<BEAN> extends Binder<BEAN> {
     protected BindingBuilder<BEAN, ?> configureBinding(
             BindingBuilder<BEAN, ?> binding,
             PropertyDefinition<BEAN, ?> definition) {
-        BeanValidator validator = new BeanValidator(beanType,
-                definition.getName());
+        // Nested properties are validated using the constraints of the bean
+        // that holds the last property in the path
+        Class<?> holderType = beanType;
+        String propertyName = definition.getName();
+        int lastDot = propertyName.lastIndexOf('.');
+        if (lastDot >= 0) {
+            holderType = definition.getPropertySet()
+                    .getProperty(propertyName.substring(0, lastDot)).get()
+                    .getType();
+            propertyName = propertyName.substring(lastDot + 1);
+        }
+
+        BeanValidator validator = new BeanValidator(holderType, propertyName);
         if (requiredConfigurator != null) {
-            configureRequired(binding, definition, validator);
+            configureRequired(binding, holderType, propertyName, validator);
         }
         return binding.withValidator(validator);
     }
 
     private void configureRequired(BindingBuilder<BEAN, ?> binding,
-            PropertyDefinition<BEAN, ?> definition, BeanValidator validator) {
+            Class<?> holderType, String propertyName,
+            BeanValidator validator) {
         assert requiredConfigurator != null;
         BeanDescriptor descriptor = validator.getJavaxBeanValidator()
-                .getConstraintsForClass(beanType);
+                .getConstraintsForClass(holderType);
         PropertyDescriptor propertyDescriptor = descriptor
-                .getConstraintsForProperty(definition.getName());
+                .getConstraintsForProperty(propertyName);
         if (propertyDescriptor == null) {
             return;
         }
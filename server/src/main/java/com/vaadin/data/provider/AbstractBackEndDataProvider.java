@@ -19,9 +19,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.vaadin.server.BackgroundExecutor;
+
 /**
  * Abstract base class for implementing back end data providers.
  *
@@ -36,6 +39,8 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
 
     private List<QuerySortOrder> sortOrders = new ArrayList<>();
 
+    private boolean asynchronous = false;
+
     private Query<T, F> mixInSortOrders(Query<T, F> query) {
         if (sortOrders.isEmpty()) {
             return query;
@@ -66,6 +71,71 @@ public abstract class AbstractBackEndDataProvider<T, F> extends
         return sizeInBackEnd(mixInSortOrders(query));
     }
 
+    /**
+     * Fetches data from the back end without blocking the calling thread. This
+     * method is used instead of {@link #fetch(Query)} by components when this
+     * data provider is {@link #setAsynchronous(boolean) asynchronous}.
+     * <p>
+     * The default implementation runs {@link #fetch(Query)} using the given
+     * executor and collects the items in the background thread, so that a
+     * lazily evaluated stream is not consumed while holding any lock. Data
+     * providers for back ends with a non-blocking API can override this method
+     * to return a future completed by the back end instead. Cancelling the
+     * returned future means that the items are no longer needed.
+     *
+     * @since 8.1
+     * @param query
+     *            the query that defines sorting, filtering and paging for
+     *            fetching the data
+     * @param executor
+     *            the executor to use for running blocking operations, not
+     *            <code>null</code>
+     * @return a future that is completed with a stream of items matching the
+     *         query
+     */
+    public CompletableFuture<Stream<T>> fetchAsync(Query<T, F> query,
+            BackgroundExecutor executor) {
+        Objects.requireNonNull(executor, "Executor cannot be null");
+        return executor.submit(
+                () -> fetch(query).collect(Collectors.toList()).stream());
+    }
+
+    /**
+     * Sets whether components should fetch items from this data provider
+     * asynchronously. In asynchronous mode, a component does not wait for the
+     * items while holding the session lock. It first sends placeholder rows to
+     * the client and sends the actual rows when
+     * {@link #fetchAsync(Query, BackgroundExecutor)} completes. Rows are
+     * only fetched asynchronously for UIs that use server push, since they
+     * could otherwise not be delivered before the next request from the
+     * client. For other UIs, items are fetched as if this data provider was
+     * not asynchronous. The size of the data is still queried synchronously.
+     * <p>
+     * By default, a data provider is not asynchronous.
+     *
+     * @since 8.1
+     * @param asynchronous
+     *            <code>true</code> to fetch items asynchronously,
+     *            <code>false</code> to fetch them while handling the request
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * Gets whether components should fetch items from this data provider
+     * asynchronously.
+     *
+     * @see #setAsynchronous(boolean)
+     *
+     * @since 8.1
+     * @return <code>true</code> if items are fetched asynchronously,
+     *         <code>false</code> otherwise
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
     /**
      * Fetches data from the back end using the given query.
      *
@@ -16,9 +16,14 @@
 package com.vaadin.data.provider;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EventObject;
 
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsAddedEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsRemovedEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsUpdatedEvent;
 import com.vaadin.event.EventRouter;
 import com.vaadin.shared.Registration;
 
@@ -56,6 +61,21 @@ public abstract class AbstractDataProvider<T, F> implements DataProvider<T, F> {
         fireEvent(new DataRefreshEvent<>(this, item));
     }
 
+    @Override
+    public void refreshItems(Collection<T> items) {
+        fireEvent(new ItemsUpdatedEvent<>(this, new ArrayList<>(items)));
+    }
+
+    @Override
+    public void refreshItemsAdded(int index, int count) {
+        fireEvent(new ItemsAddedEvent<>(this, index, count));
+    }
+
+    @Override
+    public void refreshItemsRemoved(int index, int count) {
+        fireEvent(new ItemsRemovedEvent<>(this, index, count));
+    }
+
     /**
      * Registers a new listener with the specified activation method to listen
      * events generated by this component. If the activation method does not
@@ -0,0 +1,658 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * Hierarchical data provider that lazily fetches the children of one item at
+ * a time from a back end using callbacks.
+ * <p>
+ * The number of children is only queried for the root and for expanded items,
+ * and it is cached until the item is collapsed, {@link #refreshAll()} is
+ * called or a query with a different filter is made. The rows visible in a
+ * flattened view of the hierarchy are resolved on demand: a query for a range
+ * of rows only fetches the children of the items that overlap the range, using
+ * {@link HierarchicalQuery#getOffset()} and
+ * {@link HierarchicalQuery#getLimit()} relative to the children of each
+ * parent. The whole hierarchy is thus never loaded into memory.
+ * <p>
+ * Only items that have been fetched can be expanded, since the position of an
+ * item among its siblings is recorded when it is fetched. For the same reason,
+ * {@link #refreshAll()} and any change of the filter or sorting collapse all
+ * items. When an item is collapsed, the recorded positions of its descendants
+ * are discarded, except for descendants that are themselves expanded.
+ * <p>
+ * The positions of at most {@link #setFetchedItemLimit(int) a limited number}
+ * of fetched items that are not expanded are remembered, so that scrolling
+ * through a large hierarchy does not keep all items in memory. The items
+ * fetched least recently are forgotten first.
+ *
+ * @param <T>
+ *            data provider data type
+ * @param <F>
+ *            data provider filter type
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class CallbackHierarchicalDataProvider<T, F> extends
+        AbstractDataProvider<T, F> implements HierarchicalDataProvider<T, F> {
+
+    /**
+     * Callback interface for fetching a stream of the children of an item from
+     * a back end based on a query.
+     *
+     * @param <T>
+     *            the type of the items to fetch
+     * @param <F>
+     *            the type of the optional filter in the query,
+     *            <code>Void</code> if filtering is not supported
+     */
+    @FunctionalInterface
+    public interface ChildFetchCallback<T, F> extends Serializable {
+        /**
+         * Fetches a stream of the children of the item defined by
+         * {@link HierarchicalQuery#getParent()}, or of the root items if the
+         * parent is <code>null</code>. The query defines the paging of the
+         * children through {@link Query#getOffset()} and
+         * {@link Query#getLimit()}, the sorting through
+         * {@link Query#getSortOrders()} and optionally also any filtering to
+         * use through {@link Query#getFilter()}.
+         *
+         * @param query
+         *            the query that defines which items to fetch
+         * @return a stream of items
+         */
+        public Stream<T> fetch(HierarchicalQuery<T, F> query);
+    }
+
+    /**
+     * Callback interface for counting the children of an item in a back end
+     * based on a query.
+     *
+     * @param <T>
+     *            the type of the items to count
+     * @param <F>
+     *            the type of the optional filter in the query,
+     *            <code>Void</code> if filtering is not supported
+     */
+    @FunctionalInterface
+    public interface ChildCountCallback<T, F> extends Serializable {
+        /**
+         * Counts the children of the item defined by
+         * {@link HierarchicalQuery#getParent()}, or the root items if the
+         * parent is <code>null</code>. The query optionally defines any
+         * filtering to use through {@link Query#getFilter()}.
+         *
+         * @param query
+         *            the query that defines which items to count
+         * @return the number of children
+         */
+        public int count(HierarchicalQuery<T, F> query);
+    }
+
+    /**
+     * The parent and the position among the siblings of a fetched item.
+     */
+    private static final class ItemInfo<T> implements Serializable {
+        private final T parent;
+        private final int index;
+
+        private ItemInfo(T parent, int index) {
+            this.parent = parent;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The sorting for which the recorded item positions are valid.
+     */
+    private static final class SortState implements Serializable {
+        private final List<List<Object>> sortOrders;
+        private final Comparator<?> inMemorySorting;
+
+        private SortState(Query<?, ?> query) {
+            if (query.getSortOrders() == null) {
+                sortOrders = Collections.emptyList();
+            } else {
+                // SortOrder does not implement equals
+                sortOrders = query.getSortOrders().stream()
+                        .map(order -> Arrays.<Object> asList(
+                                order.getSorted(), order.getDirection()))
+                        .collect(Collectors.toList());
+            }
+            inMemorySorting = query.getInMemorySorting();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SortState)) {
+                return false;
+            }
+            SortState other = (SortState) obj;
+            return inMemorySorting == other.inMemorySorting
+                    && sortOrders.equals(other.sortOrders);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sortOrders,
+                    System.identityHashCode(inMemorySorting));
+        }
+    }
+
+    /**
+     * The default maximum number of fetched items whose positions are
+     * remembered.
+     */
+    public static final int DEFAULT_FETCHED_ITEM_LIMIT = 5000;
+
+    private final ChildFetchCallback<T, F> fetchCallback;
+    private final ChildCountCallback<T, F> countCallback;
+    private final SerializablePredicate<T> hasChildrenCallback;
+    private final ValueProvider<T, Object> idGetter;
+
+    private int fetchedItemLimit = DEFAULT_FETCHED_ITEM_LIMIT;
+
+    private SortState sortState;
+    private List<QuerySortOrder> sortOrders = Collections.emptyList();
+    private Comparator<T> inMemorySorting;
+    private F filter;
+
+    /** Item id to position info of fetched items, least recently used first */
+    private final Map<Object, ItemInfo<T>> itemInfos = new LinkedHashMap<>(16,
+            0.75f, true);
+    /** Parent item id, or null for the root, to the ids of fetched children */
+    private final Map<Object, Set<Object>> fetchedChildIds = new HashMap<>();
+    /** Parent item id, or null for the root, to the number of children */
+    private final Map<Object, Integer> childCounts = new HashMap<>();
+    /** Parent item id, or null for the root, to expanded children by index */
+    private final Map<Object, TreeMap<Integer, T>> expandedChildren = new HashMap<>();
+    private final Set<Object> expandedIds = new HashSet<>();
+    /** Item id, or null for the root, to the number of visible rows below */
+    private final Map<Object, Integer> expandedSizes = new HashMap<>();
+
+    /**
+     * Constructs a new hierarchical data provider that requests data using
+     * callbacks for fetching and counting the children of an item and for
+     * checking whether an item has children.
+     *
+     * @param fetchCallback
+     *            function that returns a stream of children from the back end
+     *            for a query
+     * @param countCallback
+     *            function that returns the number of children in the back end
+     *            for a query
+     * @param hasChildrenCallback
+     *            function that returns whether an item has children, used for
+     *            every displayed item
+     *
+     * @see #CallbackHierarchicalDataProvider(ChildFetchCallback,
+     *      ChildCountCallback, SerializablePredicate, ValueProvider)
+     */
+    public CallbackHierarchicalDataProvider(
+            ChildFetchCallback<T, F> fetchCallback,
+            ChildCountCallback<T, F> countCallback,
+            SerializablePredicate<T> hasChildrenCallback) {
+        this(fetchCallback, countCallback, hasChildrenCallback, t -> t);
+    }
+
+    /**
+     * Constructs a new hierarchical data provider that requests data using
+     * callbacks for fetching and counting the children of an item and for
+     * checking whether an item has children.
+     *
+     * @param fetchCallback
+     *            function that returns a stream of children from the back end
+     *            for a query
+     * @param countCallback
+     *            function that returns the number of children in the back end
+     *            for a query
+     * @param hasChildrenCallback
+     *            function that returns whether an item has children, used for
+     *            every displayed item
+     * @param identifierGetter
+     *            function that returns the identifier for a given item
+     */
+    public CallbackHierarchicalDataProvider(
+            ChildFetchCallback<T, F> fetchCallback,
+            ChildCountCallback<T, F> countCallback,
+            SerializablePredicate<T> hasChildrenCallback,
+            ValueProvider<T, Object> identifierGetter) {
+        Objects.requireNonNull(fetchCallback, "Fetch callback can't be null");
+        Objects.requireNonNull(countCallback, "Count callback can't be null");
+        Objects.requireNonNull(hasChildrenCallback,
+                "Has children callback can't be null");
+        Objects.requireNonNull(identifierGetter,
+                "Identifier getter function can't be null");
+        this.fetchCallback = fetchCallback;
+        this.countCallback = countCallback;
+        this.hasChildrenCallback = hasChildrenCallback;
+        this.idGetter = identifierGetter;
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Sets the maximum number of fetched items whose positions are
+     * remembered, not counting expanded items. Only remembered items can be
+     * expanded, so the limit should be well above the number of rows a
+     * component caches on the client side.
+     * <p>
+     * The default limit is {@value #DEFAULT_FETCHED_ITEM_LIMIT}.
+     *
+     * @param fetchedItemLimit
+     *            the maximum number of remembered items, greater than zero
+     */
+    public void setFetchedItemLimit(int fetchedItemLimit) {
+        if (fetchedItemLimit <= 0) {
+            throw new IllegalArgumentException(
+                    "Fetched item limit must be greater than zero");
+        }
+        this.fetchedItemLimit = fetchedItemLimit;
+        evictFetchedItems();
+    }
+
+    /**
+     * Gets the maximum number of fetched items whose positions are
+     * remembered.
+     *
+     * @see #setFetchedItemLimit(int)
+     *
+     * @return the maximum number of remembered items
+     */
+    public int getFetchedItemLimit() {
+        return fetchedItemLimit;
+    }
+
+    @Override
+    public Object getId(T item) {
+        Object itemId = idGetter.apply(item);
+        assert itemId != null : "CallbackHierarchicalDataProvider got null as an id for item: "
+                + item;
+        return itemId;
+    }
+
+    @Override
+    public int size(Query<T, F> query) {
+        updateFilter(query);
+        return getExpandedSize(null);
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, F> query) {
+        updateFilter(query);
+        updateSortState(query);
+        List<T> rows = new ArrayList<>();
+        collectRows(null, query.getOffset(),
+                (long) query.getOffset() + query.getLimit(), rows);
+        return rows.stream();
+    }
+
+    @Override
+    public void refreshAll() {
+        clearCaches();
+        super.refreshAll();
+    }
+
+    @Override
+    public int getDepth(T item) {
+        int depth = 0;
+        T parent = getItemInfo(item).parent;
+        while (parent != null) {
+            depth++;
+            parent = getItemInfo(parent).parent;
+        }
+        return depth;
+    }
+
+    @Override
+    public boolean isRoot(T item) {
+        return getItemInfo(item).parent == null;
+    }
+
+    @Override
+    public T getParent(T item) {
+        return getItemInfo(item).parent;
+    }
+
+    @Override
+    public boolean isCollapsed(T item) {
+        return !expandedIds.contains(getId(item));
+    }
+
+    @Override
+    public boolean hasChildren(T item) {
+        return hasChildrenCallback.test(item);
+    }
+
+    @Override
+    public void setCollapsed(T item, boolean collapsed) {
+        Object id = getId(item);
+        ItemInfo<T> info = getItemInfo(item);
+        if (collapsed) {
+            if (expandedIds.remove(id)) {
+                TreeMap<Integer, T> siblings = expandedChildren
+                        .get(getKey(info.parent));
+                if (siblings != null) {
+                    siblings.remove(info.index);
+                }
+                invalidateExpandedSizes(info.parent);
+                childCounts.remove(id);
+                expandedSizes.remove(id);
+                pruneFetchedChildren(id);
+            }
+        } else if (expandedIds.add(id)) {
+            expandedChildren.computeIfAbsent(getKey(info.parent),
+                    key -> new TreeMap<>()).put(info.index, item);
+            invalidateExpandedSizes(info.parent);
+        }
+    }
+
+    @Override
+    public int getIndexOf(T item) {
+        ItemInfo<T> info = itemInfos.get(getId(item));
+        if (info == null) {
+            return -1;
+        }
+        int index = getPositionInParent(info);
+        while (info.parent != null) {
+            if (!expandedIds.contains(getId(info.parent))) {
+                return -1;
+            }
+            info = itemInfos.get(getId(info.parent));
+            if (info == null) {
+                return -1;
+            }
+            // The parent row itself precedes its children
+            index += 1 + getPositionInParent(info);
+        }
+        return index;
+    }
+
+    @Override
+    public int getVisibleDescendantCount(T item) {
+        if (!expandedIds.contains(getId(item))) {
+            return 0;
+        }
+        return getExpandedSize(item);
+    }
+
+    /**
+     * Gets the number of rows below the given item among the visible rows
+     * below its parent, including the descendants of preceding siblings.
+     */
+    private int getPositionInParent(ItemInfo<T> info) {
+        int position = info.index;
+        TreeMap<Integer, T> siblings = expandedChildren
+                .get(getKey(info.parent));
+        if (siblings != null) {
+            for (T sibling : siblings.headMap(info.index).values()) {
+                position += getExpandedSize(sibling);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Gets the number of visible rows below an expanded item.
+     */
+    private int getExpandedSize(T parent) {
+        Object key = getKey(parent);
+        Integer size = expandedSizes.get(key);
+        if (size == null) {
+            size = getChildCount(parent);
+            TreeMap<Integer, T> expanded = expandedChildren.get(key);
+            if (expanded != null) {
+                for (T child : expanded.values()) {
+                    size += getExpandedSize(child);
+                }
+            }
+            expandedSizes.put(key, size);
+        }
+        return size;
+    }
+
+    /**
+     * Discards the cached sizes of the given item and its ancestors after an
+     * item below it has been expanded or collapsed.
+     */
+    private void invalidateExpandedSizes(T item) {
+        while (item != null) {
+            Object id = getId(item);
+            expandedSizes.remove(id);
+            ItemInfo<T> info = itemInfos.get(id);
+            if (info == null) {
+                expandedSizes.clear();
+                return;
+            }
+            item = info.parent;
+        }
+        expandedSizes.remove(null);
+    }
+
+    /**
+     * Discards the cached info of the fetched descendants of a collapsed item.
+     * Expanded descendants are kept so that they are still expanded when the
+     * item is expanded again.
+     */
+    private void pruneFetchedChildren(Object id) {
+        Set<Object> childIds = fetchedChildIds.remove(id);
+        if (childIds == null) {
+            return;
+        }
+        Set<Object> expandedChildIds = new HashSet<>();
+        for (Object childId : childIds) {
+            if (expandedIds.contains(childId)) {
+                expandedChildIds.add(childId);
+            } else {
+                itemInfos.remove(childId);
+                childCounts.remove(childId);
+                expandedSizes.remove(childId);
+            }
+            pruneFetchedChildren(childId);
+        }
+        if (!expandedChildIds.isEmpty()) {
+            fetchedChildIds.put(id, expandedChildIds);
+        }
+    }
+
+    /**
+     * Adds the visible rows below an expanded item in the range [from, to) to
+     * the given list. The range is relative to the first row below the item.
+     */
+    private void collectRows(T parent, int from, long to, List<T> rows) {
+        int count = getChildCount(parent);
+        TreeMap<Integer, T> expanded = expandedChildren.get(getKey(parent));
+
+        int row = 0;
+        int child = 0;
+        if (expanded != null) {
+            for (Entry<Integer, T> entry : expanded.entrySet()) {
+                int position = entry.getKey();
+                if (position >= count) {
+                    break;
+                }
+                // Children up to and including the expanded one
+                int runLength = position - child + 1;
+                fetchChildren(parent, child, row, runLength, from, to, rows);
+                row += runLength;
+                child = position + 1;
+                if (row >= to) {
+                    return;
+                }
+
+                int subtreeSize = getExpandedSize(entry.getValue());
+                if (row + subtreeSize > from) {
+                    collectRows(entry.getValue(), Math.max(0, from - row),
+                            to - row, rows);
+                }
+                row += subtreeSize;
+                if (row >= to) {
+                    return;
+                }
+            }
+        }
+        fetchChildren(parent, child, row, count - child, from, to, rows);
+    }
+
+    /**
+     * Fetches the part of a run of consecutive children that overlaps the
+     * requested rows.
+     */
+    private void fetchChildren(T parent, int firstChild, int firstRow,
+            int runLength, int from, long to, List<T> rows) {
+        int start = Math.max(from, firstRow);
+        long end = Math.min(to, (long) firstRow + runLength);
+        if (start >= end) {
+            return;
+        }
+
+        int offset = firstChild + start - firstRow;
+        List<T> children = fetchCallback
+                .fetch(new HierarchicalQuery<>(offset, (int) (end - start),
+                        sortOrders, inMemorySorting, filter, parent))
+                .collect(Collectors.toList());
+        Set<Object> fetchedIds = fetchedChildIds
+                .computeIfAbsent(getKey(parent), key -> new HashSet<>());
+        for (T item : children) {
+            Object id = getId(item);
+            itemInfos.put(id, new ItemInfo<>(parent, offset++));
+            fetchedIds.add(id);
+            rows.add(item);
+        }
+        evictFetchedItems();
+    }
+
+    /**
+     * Forgets the least recently used items that are not expanded until at
+     * most {@link #getFetchedItemLimit()} such items are remembered.
+     */
+    private void evictFetchedItems() {
+        int excess = itemInfos.size() - expandedIds.size() - fetchedItemLimit;
+        Iterator<Entry<Object, ItemInfo<T>>> iterator = itemInfos.entrySet()
+                .iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            Entry<Object, ItemInfo<T>> entry = iterator.next();
+            Object id = entry.getKey();
+            if (expandedIds.contains(id)) {
+                continue;
+            }
+            iterator.remove();
+            excess--;
+            Object parentKey = getKey(entry.getValue().parent);
+            Set<Object> siblingIds = fetchedChildIds.get(parentKey);
+            if (siblingIds != null) {
+                siblingIds.remove(id);
+                if (siblingIds.isEmpty()) {
+                    fetchedChildIds.remove(parentKey);
+                }
+            }
+            childCounts.remove(id);
+            expandedSizes.remove(id);
+        }
+    }
+
+    /**
+     * Gets the number of fetched items whose positions are remembered.
+     *
+     * @return the number of remembered items
+     */
+    int getFetchedItemCount() {
+        return itemInfos.size();
+    }
+
+    private int getChildCount(T parent) {
+        Object key = getKey(parent);
+        Integer count = childCounts.get(key);
+        if (count == null) {
+            count = countCallback.count(new HierarchicalQuery<>(0,
+                    Integer.MAX_VALUE, sortOrders, inMemorySorting, filter,
+                    parent));
+            childCounts.put(key, count);
+        }
+        return count;
+    }
+
+    private Object getKey(T parent) {
+        return parent == null ? null : getId(parent);
+    }
+
+    private ItemInfo<T> getItemInfo(T item) {
+        ItemInfo<T> info = itemInfos.get(getId(item));
+        if (info == null) {
+            throw new IllegalArgumentException(
+                    "The item " + item + " has not been fetched");
+        }
+        return info;
+    }
+
+    private void updateFilter(Query<T, F> query) {
+        F queryFilter = query.getFilter().orElse(null);
+        if (!Objects.equals(filter, queryFilter)) {
+            clearCaches();
+            filter = queryFilter;
+        }
+    }
+
+    private void updateSortState(Query<T, F> query) {
+        SortState state = new SortState(query);
+        if (!state.equals(sortState)) {
+            // Child counts do not depend on the sorting
+            clearPositions();
+            sortState = state;
+            sortOrders = query.getSortOrders();
+            inMemorySorting = query.getInMemorySorting();
+        }
+    }
+
+    private void clearCaches() {
+        childCounts.clear();
+        clearPositions();
+    }
+
+    private void clearPositions() {
+        sortState = null;
+        itemInfos.clear();
+        fetchedChildIds.clear();
+        expandedChildren.clear();
+        expandedIds.clear();
+        expandedSizes.clear();
+    }
+}
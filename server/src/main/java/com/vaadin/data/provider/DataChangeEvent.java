@@ -15,6 +15,8 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.Objects;
 
@@ -68,6 +70,161 @@ public class DataChangeEvent<T> extends EventObject {
         }
     }
 
+    /**
+     * An event fired when multiple items of a {@code DataProvider} have been
+     * updated.
+     *
+     * @see DataProvider#refreshItems(Collection)
+     *
+     * @since 8.1
+     * @param <T>
+     *            the data type
+     */
+    public static class ItemsUpdatedEvent<T> extends DataChangeEvent<T> {
+
+        private final Collection<T> items;
+
+        /**
+         * Creates a new items updated event originating from the given data
+         * provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param items
+         *            the updated items, not null
+         */
+        public ItemsUpdatedEvent(DataProvider<T, ?> source,
+                Collection<T> items) {
+            super(source);
+            Objects.requireNonNull(items, "Refreshed items can't be null");
+            this.items = items;
+        }
+
+        /**
+         * Gets the updated items.
+         *
+         * @return an unmodifiable collection of the updated items
+         */
+        public Collection<T> getItems() {
+            return Collections.unmodifiableCollection(items);
+        }
+    }
+
+    /**
+     * Base class for events fired when a range of items has been added to or
+     * removed from a {@code DataProvider}. The indexes are positions in the
+     * results of a query without filtering and sorting.
+     *
+     * @since 8.1
+     * @param <T>
+     *            the data type
+     */
+    public abstract static class ItemRangeEvent<T> extends DataChangeEvent<T> {
+
+        private final int index;
+        private final int count;
+
+        /**
+         * Creates a new item range event originating from the given data
+         * provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param index
+         *            the index of the first item in the range, not negative
+         * @param count
+         *            the number of items in the range, not negative
+         */
+        protected ItemRangeEvent(DataProvider<T, ?> source, int index,
+                int count) {
+            super(source);
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        "Index cannot be negative");
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException(
+                        "Item count cannot be negative");
+            }
+            this.index = index;
+            this.count = count;
+        }
+
+        /**
+         * Gets the index of the first item in the range.
+         *
+         * @return the index of the first item
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the number of items in the range.
+         *
+         * @return the number of items
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * An event fired when items have been added to a {@code DataProvider}.
+     *
+     * @see DataProvider#refreshItemsAdded(int, int)
+     *
+     * @since 8.1
+     * @param <T>
+     *            the data type
+     */
+    public static class ItemsAddedEvent<T> extends ItemRangeEvent<T> {
+
+        /**
+         * Creates a new items added event originating from the given data
+         * provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param index
+         *            the index of the first added item, not negative
+         * @param count
+         *            the number of added items, not negative
+         */
+        public ItemsAddedEvent(DataProvider<T, ?> source, int index,
+                int count) {
+            super(source, index, count);
+        }
+    }
+
+    /**
+     * An event fired when items have been removed from a {@code DataProvider}.
+     *
+     * @see DataProvider#refreshItemsRemoved(int, int)
+     *
+     * @since 8.1
+     * @param <T>
+     *            the data type
+     */
+    public static class ItemsRemovedEvent<T> extends ItemRangeEvent<T> {
+
+        /**
+         * Creates a new items removed event originating from the given data
+         * provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param index
+         *            the index the first removed item had, not negative
+         * @param count
+         *            the number of removed items, not negative
+         */
+        public ItemsRemovedEvent(DataProvider<T, ?> source, int index,
+                int count) {
+            super(source, index, count);
+        }
+    }
+
     /**
      * Creates a new {@code DataChangeEvent} event originating from the given
      * data provider.
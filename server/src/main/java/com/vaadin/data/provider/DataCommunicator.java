@@ -18,25 +18,37 @@ package com.vaadin.data.provider;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemRangeEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsAddedEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsUpdatedEvent;
 import com.vaadin.server.AbstractExtension;
+import com.vaadin.server.BackgroundExecutor;
 import com.vaadin.server.KeyMapper;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.communication.PushMode;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -55,6 +67,16 @@ import elemental.json.JsonObject;
  */
 public class DataCommunicator<T> extends AbstractExtension {
 
+    /**
+     * The prefix of the keys of the placeholder rows sent to the client while
+     * rows are being fetched from an
+     * {@link AbstractBackEndDataProvider#setAsynchronous(boolean)
+     * asynchronous} data provider.
+     *
+     * @since 8.1
+     */
+    public static final String PLACEHOLDER_KEY_PREFIX = "placeholder-";
+
     private Registration dataProviderUpdateRegistration;
 
     /**
@@ -67,6 +89,7 @@ public class DataCommunicator<T> extends AbstractExtension {
         public void requestRows(int firstRowIndex, int numberOfRows,
                 int firstCachedRowIndex, int cacheSize) {
             pushRows = Range.withLength(firstRowIndex, numberOfRows);
+            clientCache = Range.withLength(firstCachedRowIndex, cacheSize);
             markAsDirty();
         }
 
@@ -204,6 +227,32 @@ public class DataCommunicator<T> extends AbstractExtension {
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    private DataPageCache<T> pageCache;
+    private DataObjectCache dataObjectCache;
+
+    /**
+     * The size last sent to the client, used for limiting the number of
+     * placeholder rows.
+     */
+    private int clientSize = 0;
+
+    /**
+     * The rows cached by the client according to its latest row request.
+     * Asynchronous fetches for rows outside this range are not needed.
+     */
+    private Range clientCache = Range.withLength(0, 0);
+
+    /**
+     * Asynchronous fetches that have not been delivered yet, by row range.
+     */
+    private transient Map<Range, CompletableFuture<Stream<T>>> pendingFetches;
+
+    /**
+     * Rows for which the client shows placeholders of a cancelled fetch, to
+     * be fetched again in the next response.
+     */
+    private final List<Range> refetchRows = new ArrayList<>();
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -221,6 +270,8 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void detach() {
         super.detach();
         detachDataProviderListener();
+        cancelPendingFetches();
+        refetchRows.clear();
     }
 
     /**
@@ -237,20 +288,26 @@ public class DataCommunicator<T> extends AbstractExtension {
 
         if (initial || reset) {
             @SuppressWarnings({ "rawtypes", "unchecked" })
-            int dataProviderSize = getDataProvider().size(new Query(filter));
+            Query<T, ?> query = new Query(filter);
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            int dataProviderSize = pageCache != null
+                    ? pageCache.size(getDataProvider(), query)
+                    : getDataProvider().size((Query) query);
             rpc.reset(dataProviderSize);
+            clientSize = dataProviderSize;
         }
 
         if (!pushRows.isEmpty()) {
-            int offset = pushRows.getStart();
-            int limit = pushRows.length();
-
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            Stream<T> rowsToPush = getDataProvider().fetch(new Query(offset,
-                    limit, backEndSorting, inMemorySorting, filter));
+            fetchRows(pushRows);
+        }
 
-            pushData(offset, rowsToPush);
+        for (Range range : refetchRows) {
+            Range rows = range.restrictTo(Range.withLength(0, clientSize));
+            if (!rows.isEmpty()) {
+                fetchRows(rows);
+            }
         }
+        refetchRows.clear();
 
         if (!updatedData.isEmpty()) {
             JsonArray dataArray = Json.createArray();
@@ -266,6 +323,178 @@ public class DataCommunicator<T> extends AbstractExtension {
         updatedData.clear();
     }
 
+    private void fetchRows(Range range) {
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        Query<T, ?> query = new Query(range.getStart(), range.length(),
+                backEndSorting, inMemorySorting, filter);
+        BackgroundExecutor executor = getBackgroundExecutor();
+        if (executor != null) {
+            fetchAsync(range, query, executor);
+        } else {
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            Stream<T> rowsToPush = pageCache != null
+                    ? pageCache.fetch(getDataProvider(), query).stream()
+                    : getDataProvider().fetch((Query) query);
+
+            pushData(range.getStart(), rowsToPush);
+        }
+    }
+
+    /**
+     * Gets the executor to fetch rows with if the data provider is
+     * {@link AbstractBackEndDataProvider#setAsynchronous(boolean)
+     * asynchronous}. Rows are fetched synchronously unless the UI uses
+     * {@link PushMode#AUTOMATIC automatic} push, since the fetched rows could
+     * otherwise not be delivered before the next request from the client or
+     * an explicit call to {@link UI#push()}.
+     *
+     * @return the executor, or <code>null</code> if rows should be fetched
+     *         synchronously
+     */
+    private BackgroundExecutor getBackgroundExecutor() {
+        if (!(getDataProvider() instanceof AbstractBackEndDataProvider)
+                || !((AbstractBackEndDataProvider<T, ?>) getDataProvider())
+                        .isAsynchronous()
+                || getSession() == null
+                || getUI().getPushConfiguration()
+                        .getPushMode() != PushMode.AUTOMATIC) {
+            return null;
+        }
+        return getSession().getService().getBackgroundExecutor();
+    }
+
+    /**
+     * Sends placeholder rows for the given range to the client and fetches
+     * the actual rows in the background. The rows are sent to the client when
+     * the fetch completes, unless the rows have been reset or the client has
+     * requested other rows before that.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void fetchAsync(Range range, Query<T, ?> query,
+            BackgroundExecutor executor) {
+        if (pendingFetches == null) {
+            pendingFetches = new HashMap<>();
+        }
+        // Cancel fetches superseded by this one and fetches for rows the
+        // client no longer caches. The client still shows the placeholders of
+        // the other fetches, e.g. for rows just above the requested ones.
+        pendingFetches.entrySet().removeIf(entry -> {
+            Range pending = entry.getKey();
+            if (pending.isSubsetOf(range) || !pending.intersects(range)
+                    && !pending.intersects(clientCache)) {
+                entry.getValue().cancel(false);
+                return true;
+            }
+            return false;
+        });
+
+        pushPlaceholders(range);
+
+        AbstractBackEndDataProvider backEndProvider = (AbstractBackEndDataProvider) getDataProvider();
+        CompletableFuture<Stream<T>> future = backEndProvider
+                .fetchAsync(query, executor);
+        pendingFetches.put(range, future);
+
+        UI ui = getUI();
+        future.whenComplete((rows, failure) -> {
+            if (failure instanceof CancellationException) {
+                return;
+            }
+            try {
+                ui.access(() -> {
+                    if (pendingFetches == null
+                            || pendingFetches.get(range) != future) {
+                        // Reset or superseded while fetching
+                        return;
+                    }
+                    pendingFetches.remove(range);
+                    if (failure != null) {
+                        invalidateClientRows(range);
+                        throw new RuntimeException(
+                                "Fetching rows " + range + " failed", failure);
+                    }
+                    pushData(range.getStart(), rows);
+                });
+            } catch (UIDetachedException e) {
+                // Nobody to deliver the rows to
+            }
+        });
+    }
+
+    private void pushPlaceholders(Range range) {
+        JsonArray placeholders = Json.createArray();
+        int end = Math.min(range.getEnd(), clientSize);
+        for (int i = range.getStart(); i < end; i++) {
+            JsonObject placeholder = Json.createObject();
+            placeholder.put(DataCommunicatorConstants.KEY,
+                    PLACEHOLDER_KEY_PREFIX + i);
+            placeholder.put(DataCommunicatorConstants.DATA,
+                    Json.createObject());
+            placeholders.set(placeholders.length(), placeholder);
+        }
+        if (placeholders.length() > 0) {
+            rpc.setData(range.getStart(), placeholders);
+        }
+    }
+
+    /**
+     * Makes the client forget the placeholders for the given rows, so that
+     * it requests the rows again once they are needed.
+     */
+    private void invalidateClientRows(Range range) {
+        int count = Math.min(range.getEnd(), clientSize) - range.getStart();
+        if (count > 0) {
+            rpc.removeRows(range.getStart(), count);
+            rpc.insertRows(range.getStart(), count);
+        }
+    }
+
+    /**
+     * Cancels pending fetches after rows have been inserted or removed, and
+     * fetches the rows again at their new positions since the client keeps
+     * showing the placeholders after shifting them.
+     *
+     * @param firstRowIndex
+     *            the index of the first inserted or removed row
+     * @param delta
+     *            the number of inserted rows, or the negated number of
+     *            removed rows
+     */
+    private void refetchMovedRows(int firstRowIndex, int delta) {
+        List<Range> moved = new ArrayList<>(refetchRows);
+        if (pendingFetches != null) {
+            moved.addAll(pendingFetches.keySet());
+        }
+        cancelPendingFetches();
+        refetchRows.clear();
+        for (Range range : moved) {
+            Range rows = Range.between(
+                    moveIndex(range.getStart(), firstRowIndex, delta),
+                    moveIndex(range.getEnd(), firstRowIndex, delta));
+            if (!rows.isEmpty()) {
+                refetchRows.add(rows);
+            }
+        }
+        if (!refetchRows.isEmpty()) {
+            markAsDirty();
+        }
+    }
+
+    private static int moveIndex(int index, int firstRowIndex, int delta) {
+        if (index <= firstRowIndex) {
+            return index;
+        }
+        // Indexes of removed rows move to the start of the removed range
+        return Math.max(firstRowIndex, index + delta);
+    }
+
+    private void cancelPendingFetches() {
+        if (pendingFetches != null) {
+            pendingFetches.values().forEach(future -> future.cancel(false));
+            pendingFetches.clear();
+        }
+    }
+
     /**
      * Adds a data generator to this data communicator. Data generators can be
      * used to insert custom data to the rows sent to the client. If the data
@@ -276,7 +505,9 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     public void addDataGenerator(DataGenerator<T> generator) {
         Objects.requireNonNull(generator, "generator cannot be null");
-        generators.add(generator);
+        if (generators.add(generator)) {
+            invalidateDataObjects();
+        }
     }
 
     /**
@@ -288,7 +519,9 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     public void removeDataGenerator(DataGenerator<T> generator) {
         Objects.requireNonNull(generator, "generator cannot be null");
-        generators.remove(generator);
+        if (generators.remove(generator)) {
+            invalidateDataObjects();
+        }
     }
 
     /**
@@ -326,13 +559,32 @@ public class DataCommunicator<T> extends AbstractExtension {
 
     /**
      * Creates the JsonObject for given data object. This method calls all data
-     * generators for it.
+     * generators for it, unless the JsonObject is found in the
+     * {@link #setDataObjectCache(DataObjectCache) data object cache}.
      *
      * @param data
      *            data object to be made into a json object
      * @return json object representing the data object
      */
     protected JsonObject getDataObject(T data) {
+        if (dataObjectCache == null) {
+            return generateDataObject(data);
+        }
+
+        Object id = getDataProvider().getId(data);
+        JsonObject dataObject = dataObjectCache.get(id);
+        if (dataObject == null) {
+            dataObject = generateDataObject(data);
+            dataObjectCache.put(id, dataObject);
+        } else {
+            // Marks the item as active again and updates its key, which
+            // changes if the client has dropped the item in between
+            handler.generateData(data, dataObject);
+        }
+        return dataObject;
+    }
+
+    private JsonObject generateDataObject(T data) {
         JsonObject dataObject = Json.createObject();
 
         for (DataGenerator<T> generator : generators) {
@@ -370,9 +622,23 @@ public class DataCommunicator<T> extends AbstractExtension {
     }
 
     /**
-     * Informs the DataProvider that the collection has changed.
+     * Informs the DataProvider that the collection has changed. This also
+     * discards all JSON in the {@link #setDataObjectCache(DataObjectCache)
+     * data object cache}.
      */
     public void reset() {
+        invalidateDataObjects();
+        resetRows();
+    }
+
+    /**
+     * Sends all rows to the client again without discarding cached JSON, for
+     * when only the order or the set of the rows has changed.
+     */
+    private void resetRows() {
+        // The client discards all rows, including placeholders, on reset
+        cancelPendingFetches();
+        refetchRows.clear();
         if (reset) {
             return;
         }
@@ -381,6 +647,69 @@ public class DataCommunicator<T> extends AbstractExtension {
         markAsDirty();
     }
 
+    /**
+     * Informs the client-side that rows have been inserted into the data set.
+     * Rows already sent to the client are shifted instead of being sent again,
+     * and only the inserted rows are requested if they are visible.
+     * <p>
+     * This is a lighter alternative to {@link #reset()} for when the indexes
+     * of the changed rows are known, e.g. when a node of a tree is expanded.
+     *
+     * @param firstRowIndex
+     *            the index of the first inserted row, not negative
+     * @param count
+     *            the number of inserted rows, not negative
+     */
+    public void insertRows(int firstRowIndex, int count) {
+        validateRowRange(firstRowIndex, count);
+        if (pageCache != null) {
+            pageCache.invalidateAll();
+        }
+        if (reset || count == 0) {
+            // Everything will be sent again anyway
+            return;
+        }
+        refetchMovedRows(firstRowIndex, count);
+        clientSize += count;
+        rpc.insertRows(firstRowIndex, count);
+    }
+
+    /**
+     * Informs the client-side that rows have been removed from the data set.
+     * Rows already sent to the client after the removed range are shifted
+     * instead of being sent again.
+     * <p>
+     * This is a lighter alternative to {@link #reset()} for when the indexes
+     * of the changed rows are known, e.g. when a node of a tree is collapsed.
+     *
+     * @param firstRowIndex
+     *            the index of the first removed row, not negative
+     * @param count
+     *            the number of removed rows, not negative
+     */
+    public void removeRows(int firstRowIndex, int count) {
+        validateRowRange(firstRowIndex, count);
+        if (pageCache != null) {
+            pageCache.invalidateAll();
+        }
+        if (reset || count == 0) {
+            return;
+        }
+        refetchMovedRows(firstRowIndex, -count);
+        clientSize -= count;
+        rpc.removeRows(firstRowIndex, count);
+    }
+
+    private static void validateRowRange(int firstRowIndex, int count) {
+        if (firstRowIndex < 0) {
+            throw new IllegalArgumentException(
+                    "First row index cannot be negative");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Row count cannot be negative");
+        }
+    }
+
     /**
      * Informs the DataProvider that a data object has been updated.
      *
@@ -388,6 +717,10 @@ public class DataCommunicator<T> extends AbstractExtension {
      *            updated data object
      */
     public void refresh(T data) {
+        if (dataObjectCache != null) {
+            dataObjectCache.invalidate(getDataProvider().getId(data));
+        }
+
         if (!handler.getActiveData().contains(data)) {
             // Item is not currently available at the client-side
             return;
@@ -408,7 +741,18 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     public void setInMemorySorting(Comparator<T> comparator) {
         inMemorySorting = comparator;
-        reset();
+        resetRows();
+    }
+
+    /**
+     * Gets the {@link Comparator} used with in-memory sorting.
+     *
+     * @since 8.1
+     * @return the comparator used to sort data, or <code>null</code> if not
+     *         sorted in memory
+     */
+    public Comparator<T> getInMemorySorting() {
+        return inMemorySorting;
     }
 
     /**
@@ -420,7 +764,18 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void setBackEndSorting(List<QuerySortOrder> sortOrder) {
         backEndSorting.clear();
         backEndSorting.addAll(sortOrder);
-        reset();
+        resetRows();
+    }
+
+    /**
+     * Gets the {@link QuerySortOrder}s used with backend sorting.
+     *
+     * @since 8.1
+     * @return an unmodifiable list of sort orders, empty if not sorted in the
+     *         back end
+     */
+    public List<QuerySortOrder> getBackEndSorting() {
+        return Collections.unmodifiableList(backEndSorting);
     }
 
     /**
@@ -479,6 +834,9 @@ public class DataCommunicator<T> extends AbstractExtension {
         detachDataProviderListener();
         dropAllData();
         this.dataProvider = dataProvider;
+        if (pageCache != null) {
+            pageCache.invalidateAll();
+        }
 
         /*
          * This introduces behavior which influence on the client-server
@@ -506,11 +864,24 @@ public class DataCommunicator<T> extends AbstractExtension {
 
             if (!Objects.equals(this.filter, filter)) {
                 this.filter = filter;
-                reset();
+                resetRows();
             }
         };
     }
 
+    /**
+     * Gets the filter value currently used in queries sent to the data
+     * provider.
+     *
+     * @see #setDataProvider(DataProvider, Object)
+     *
+     * @since 8.1
+     * @return the filter value, or <code>null</code> if no filter is used
+     */
+    public Object getFilter() {
+        return filter;
+    }
+
     /**
      * Set minimum size of data which will be sent to the client when data
      * source is set.
@@ -548,6 +919,80 @@ public class DataCommunicator<T> extends AbstractExtension {
         return minPushSize;
     }
 
+    /**
+     * Sets the cache to use for items and sizes fetched from the data
+     * provider. Cached data is only discarded when the data provider fires a
+     * data change event or the data provider is changed, so a page cache
+     * should only be used with data providers that notify about all changes
+     * to their data. By default no page cache is used.
+     * <p>
+     * The page cache is not used for fetching rows from an
+     * {@link AbstractBackEndDataProvider#setAsynchronous(boolean)
+     * asynchronous} data provider.
+     *
+     * @param pageCache
+     *            the page cache to use, or <code>null</code> to always query
+     *            the data provider
+     */
+    public void setPageCache(DataPageCache<T> pageCache) {
+        if (pageCache != null) {
+            pageCache.invalidateAll();
+        }
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Gets the cache used for items and sizes fetched from the data provider.
+     *
+     * @see #setPageCache(DataPageCache)
+     *
+     * @return the page cache, or <code>null</code> if no page cache is used
+     */
+    public DataPageCache<T> getPageCache() {
+        return pageCache;
+    }
+
+    /**
+     * Sets the cache to use for the JSON generated for items by the data
+     * generators. Cached JSON is discarded when items are refreshed or the
+     * data communicator is reset, so a data object cache should only be used
+     * when all changes affecting the generated JSON are followed by either.
+     * By default no data object cache is used.
+     *
+     * @see DataObjectCache
+     *
+     * @since 8.1
+     * @param dataObjectCache
+     *            the data object cache to use, or <code>null</code> to always
+     *            run the data generators
+     */
+    public void setDataObjectCache(DataObjectCache dataObjectCache) {
+        if (dataObjectCache != null) {
+            dataObjectCache.invalidateAll();
+        }
+        this.dataObjectCache = dataObjectCache;
+    }
+
+    /**
+     * Gets the cache used for the JSON generated for items by the data
+     * generators.
+     *
+     * @see #setDataObjectCache(DataObjectCache)
+     *
+     * @since 8.1
+     * @return the data object cache, or <code>null</code> if no data object
+     *         cache is used
+     */
+    public DataObjectCache getDataObjectCache() {
+        return dataObjectCache;
+    }
+
+    private void invalidateDataObjects() {
+        if (dataObjectCache != null) {
+            dataObjectCache.invalidateAll();
+        }
+    }
+
     @Override
     protected DataCommunicatorState getState(boolean markAsDirty) {
         return (DataCommunicatorState) super.getState(markAsDirty);
@@ -562,11 +1007,24 @@ public class DataCommunicator<T> extends AbstractExtension {
         dataProviderUpdateRegistration = getDataProvider()
                 .addDataProviderListener(event -> {
                     getUI().access(() -> {
+                        boolean itemsUpdated = event instanceof DataRefreshEvent
+                                || event instanceof ItemsUpdatedEvent;
+                        if (pageCache != null) {
+                            if (itemsUpdated) {
+                                pageCache.invalidatePages();
+                            } else {
+                                pageCache.invalidateAll();
+                            }
+                        }
                         if (event instanceof DataRefreshEvent) {
-                            T item = ((DataRefreshEvent<T>) event).getItem();
-                            generators.forEach(g -> g.refreshData(item));
-                            keyMapper.refresh(item, dataProvider::getId);
-                            refresh(item);
+                            refreshItem(
+                                    ((DataRefreshEvent<T>) event).getItem());
+                        } else if (event instanceof ItemsUpdatedEvent) {
+                            ((ItemsUpdatedEvent<T>) event).getItems()
+                                    .forEach(this::refreshItem);
+                        } else if (event instanceof ItemRangeEvent
+                                && isRowOrderUnchanged(event)) {
+                            updateRowRange((ItemRangeEvent<T>) event);
                         } else {
                             reset();
                         }
@@ -574,6 +1032,31 @@ public class DataCommunicator<T> extends AbstractExtension {
                 });
     }
 
+    private void refreshItem(T item) {
+        generators.forEach(g -> g.refreshData(item));
+        keyMapper.refresh(item, dataProvider::getId);
+        refresh(item);
+    }
+
+    private void updateRowRange(ItemRangeEvent<T> event) {
+        if (event instanceof ItemsAddedEvent) {
+            insertRows(event.getIndex(), event.getCount());
+        } else {
+            removeRows(event.getIndex(), event.getCount());
+        }
+    }
+
+    /**
+     * Checks whether the indexes of an item range event are the indexes of
+     * the rows, which is the case when the rows are neither filtered nor
+     * sorted, and the event comes from the data provider itself rather than
+     * from a data provider wrapped by it.
+     */
+    private boolean isRowOrderUnchanged(DataChangeEvent<T> event) {
+        return event.getSource() == dataProvider && filter == null
+                && inMemorySorting == null && backEndSorting.isEmpty();
+    }
+
     private void detachDataProviderListener() {
         if (dataProviderUpdateRegistration != null) {
             dataProviderUpdateRegistration.remove();
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import elemental.json.JsonObject;
+
+/**
+ * A cache of the JSON objects generated by the {@link DataGenerator}s of a
+ * {@link DataCommunicator}. The JSON of an item is cached by the
+ * {@link DataProvider#getId(Object) identifier} of the item, so that rows which
+ * are sent again, e.g. when scrolling back over rows the client has dropped,
+ * are not generated again.
+ * <p>
+ * The data communicator discards the cached JSON of an item when the item is
+ * {@link DataCommunicator#refresh(Object) refreshed}, and all cached JSON when
+ * the data communicator is {@link DataCommunicator#reset() reset}, when a data
+ * generator is added or removed, when the data provider is changed, or when
+ * the data provider fires a {@link DataChangeEvent} for all items. Changes to
+ * the data generators themselves, such as a new style generator for a grid
+ * column, must thus be followed by a reset, which is what the framework
+ * components do. Changing the sorting or the filter does not discard the cached
+ * JSON. The least recently used entry is evicted when the cache is full.
+ * <p>
+ * A data object cache should only be used with data generators that generate
+ * the same JSON for an item until it is refreshed, and that do not rely on
+ * {@link DataGenerator#generateData(Object, JsonObject)} being called each time
+ * the item is sent to the client.
+ *
+ * @see DataCommunicator#setDataObjectCache(DataObjectCache)
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class DataObjectCache implements Serializable {
+
+    /**
+     * The default maximum number of items kept in the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+
+    private final Map<Object, JsonObject> entries;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a new data object cache with the default maximum number of
+     * entries.
+     */
+    public DataObjectCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new data object cache.
+     *
+     * @param maxEntries
+     *            the maximum number of items to keep in the cache, greater
+     *            than zero
+     */
+    public DataObjectCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum number of entries must be greater than zero");
+        }
+        entries = new LinkedHashMap<Object, JsonObject>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Object, JsonObject> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached JSON of the item with the given identifier.
+     *
+     * @param id
+     *            the identifier of the item, not <code>null</code>
+     * @return the cached JSON object, or <code>null</code> if the item is not
+     *         in the cache
+     */
+    public JsonObject get(Object id) {
+        JsonObject dataObject = entries.get(id);
+        if (dataObject != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return dataObject;
+    }
+
+    /**
+     * Stores the JSON generated for the item with the given identifier.
+     *
+     * @param id
+     *            the identifier of the item, not <code>null</code>
+     * @param dataObject
+     *            the generated JSON object, not <code>null</code>
+     */
+    public void put(Object id, JsonObject dataObject) {
+        entries.put(id, dataObject);
+    }
+
+    /**
+     * Discards the cached JSON of the item with the given identifier.
+     *
+     * @param id
+     *            the identifier of the item, not <code>null</code>
+     */
+    public void invalidate(Object id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Discards the cached JSON of all items.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of items currently in the cache.
+     *
+     * @return the number of cached items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups for which the JSON had to be generated.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the ratio of lookups served from the cache to all lookups.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if there have been no
+     *         lookups
+     */
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Resets the hit and miss counters to zero.
+     */
+    public void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A cache of items fetched by a {@link DataCommunicator} from its data
+ * provider. Fetched items are stored as fixed size pages keyed by the filter,
+ * the sort order and the page index, so that rows which are requested again,
+ * e.g. when scrolling back and forth, can be sent without querying the data
+ * provider. The size of the data set is memoized per filter.
+ * <p>
+ * The cached pages and sizes are only discarded when the data provider fires a
+ * {@link DataChangeEvent}, when the data provider of the data communicator is
+ * changed, or when the cache runs out of room. A page cache should therefore
+ * only be used with data providers that notify about all changes to their
+ * data. The least recently used entry is evicted when the cache is full.
+ * <p>
+ * This class can be extended to customize fetching, e.g. to share pages
+ * between several data communicators.
+ *
+ * @see DataCommunicator#setPageCache(DataPageCache)
+ *
+ * @param <T>
+ *            the bean type
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class DataPageCache<T> implements Serializable {
+
+    /**
+     * The default number of items in a page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * The default maximum number of pages and sizes kept in the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 20;
+
+    /**
+     * Key of a cached size.
+     */
+    private static final class SizeKey implements Serializable {
+        private final Object filter;
+
+        private SizeKey(Object filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SizeKey
+                    && Objects.equals(filter, ((SizeKey) obj).filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(filter);
+        }
+    }
+
+    /**
+     * Key of a cached page.
+     */
+    private static final class PageKey implements Serializable {
+        private final Object filter;
+        private final List<List<Object>> sortOrders;
+        private final Comparator<?> inMemorySorting;
+        private final int page;
+
+        private PageKey(Query<?, ?> query, int page) {
+            filter = query.getFilter().orElse(null);
+            // SortOrder does not implement equals
+            sortOrders = query.getSortOrders().stream()
+                    .map(order -> Arrays.<Object> asList(order.getSorted(),
+                            order.getDirection()))
+                    .collect(Collectors.toList());
+            inMemorySorting = query.getInMemorySorting();
+            this.page = page;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) obj;
+            return page == other.page
+                    && inMemorySorting == other.inMemorySorting
+                    && Objects.equals(filter, other.filter)
+                    && sortOrders.equals(other.sortOrders);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, sortOrders,
+                    System.identityHashCode(inMemorySorting), page);
+        }
+    }
+
+    private final int pageSize;
+    private final Map<Object, Object> entries;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a new page cache with the default page size and the default
+     * maximum number of entries.
+     */
+    public DataPageCache() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new page cache.
+     *
+     * @param pageSize
+     *            the number of items in a page, greater than zero
+     * @param maxEntries
+     *            the maximum number of pages and sizes to keep in the cache,
+     *            greater than zero
+     */
+    public DataPageCache(int pageSize, int maxEntries) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Page size must be greater than zero");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum number of entries must be greater than zero");
+        }
+        this.pageSize = pageSize;
+        entries = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Object, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the number of items in a page.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Gets the size of the data set matching the filter of the given query,
+     * either from the cache or from the data provider.
+     *
+     * @param dataProvider
+     *            the data provider to query on a cache miss, not
+     *            <code>null</code>
+     * @param query
+     *            the size query, not <code>null</code>
+     * @return the size of the data set
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public int size(DataProvider<T, ?> dataProvider, Query<T, ?> query) {
+        SizeKey key = new SizeKey(query.getFilter().orElse(null));
+        Integer size = (Integer) entries.get(key);
+        if (size != null) {
+            hitCount++;
+            return size;
+        }
+        missCount++;
+        size = ((DataProvider) dataProvider).size(query);
+        entries.put(key, size);
+        return size;
+    }
+
+    /**
+     * Fetches the items for the given query. Pages that are not in the cache
+     * are fetched from the data provider, fetching adjacent missing pages with
+     * a single query.
+     *
+     * @param dataProvider
+     *            the data provider to query on a cache miss, not
+     *            <code>null</code>
+     * @param query
+     *            the fetch query, not <code>null</code>
+     * @return the fetched items
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List<T> fetch(DataProvider<T, ?> dataProvider, Query<T, ?> query) {
+        int offset = query.getOffset();
+        int limit = query.getLimit();
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (limit == Integer.MAX_VALUE) {
+            // Unbounded queries are not paged
+            return (List<T>) ((DataProvider) dataProvider).fetch(query)
+                    .collect(Collectors.toList());
+        }
+
+        int end = offset + limit;
+        int lastPage = (end - 1) / pageSize;
+        List<T> result = new ArrayList<>(limit);
+
+        int page = offset / pageSize;
+        while (page <= lastPage) {
+            List<T> items = (List<T>) entries.get(new PageKey(query, page));
+            int lastFetchedPage = page;
+            if (items != null) {
+                hitCount++;
+            } else {
+                // Fetch all adjacent missing pages at once
+                while (lastFetchedPage < lastPage && !entries.containsKey(
+                        new PageKey(query, lastFetchedPage + 1))) {
+                    lastFetchedPage++;
+                }
+                missCount += lastFetchedPage - page + 1;
+                items = fetchPages(dataProvider, query, page,
+                        lastFetchedPage);
+            }
+
+            int itemsStart = page * pageSize;
+            int from = Math.max(offset - itemsStart, 0);
+            int to = Math.min(end - itemsStart, items.size());
+            if (from < to) {
+                result.addAll(items.subList(from, to));
+            }
+
+            if (items.size() < (lastFetchedPage - page + 1) * pageSize) {
+                // Reached the end of the data set
+                break;
+            }
+            page = lastFetchedPage + 1;
+        }
+        return result;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<T> fetchPages(DataProvider<T, ?> dataProvider,
+            Query<T, ?> query, int firstPage, int lastPage) {
+        int pageCount = lastPage - firstPage + 1;
+        List<T> items = (List<T>) ((DataProvider) dataProvider)
+                .fetch(new Query(firstPage * pageSize, pageCount * pageSize,
+                        query.getSortOrders(), query.getInMemorySorting(),
+                        query.getFilter().orElse(null)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < pageCount; i++) {
+            int from = Math.min(i * pageSize, items.size());
+            int to = Math.min(from + pageSize, items.size());
+            entries.put(new PageKey(query, firstPage + i),
+                    new ArrayList<>(items.subList(from, to)));
+        }
+        return items;
+    }
+
+    /**
+     * Discards all cached pages but keeps the cached sizes. This is called
+     * when single items have been refreshed.
+     */
+    public void invalidatePages() {
+        entries.keySet().removeIf(key -> key instanceof PageKey);
+    }
+
+    /**
+     * Discards all cached pages and sizes.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of page and size lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of page and size lookups that had to query the data
+     * provider.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Resets the hit and miss counters to zero.
+     */
+    public void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+    }
+}
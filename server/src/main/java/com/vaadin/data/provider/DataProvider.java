@@ -107,6 +107,65 @@ public interface DataProvider<T, F> extends Serializable {
      */
     void refreshItem(T item);
 
+    /**
+     * Refreshes the given items. This method should be used instead of
+     * calling {@link #refreshItem(Object)} for each item, so that listeners
+     * can handle all the updated items at once.
+     * <p>
+     * The default implementation refreshes each item separately.
+     *
+     * @see #refreshItem(Object)
+     *
+     * @since 8.1
+     * @param items
+     *            the items to refresh, not null
+     */
+    default void refreshItems(Collection<T> items) {
+        Objects.requireNonNull(items, "Refreshed items can't be null");
+        items.forEach(this::refreshItem);
+    }
+
+    /**
+     * Informs all {@link DataProviderListener DataProviderListeners} that
+     * items have been added to the underlying data. The index is the position
+     * of the first added item in the results of a query without filtering and
+     * sorting, and the added items must be consecutive in those results.
+     * Listeners can then update only the affected range, e.g. a {@code Grid}
+     * shifts the rows it has already loaded instead of loading them again.
+     * <p>
+     * The default implementation calls {@link #refreshAll()}.
+     *
+     * @since 8.1
+     * @param index
+     *            the index of the first added item, not negative
+     * @param count
+     *            the number of added items, not negative
+     */
+    default void refreshItemsAdded(int index, int count) {
+        refreshAll();
+    }
+
+    /**
+     * Informs all {@link DataProviderListener DataProviderListeners} that
+     * items have been removed from the underlying data. The index is the
+     * position the first removed item had in the results of a query without
+     * filtering and sorting, and the removed items must have been consecutive
+     * in those results.
+     * <p>
+     * The default implementation calls {@link #refreshAll()}.
+     *
+     * @see #refreshItemsAdded(int, int)
+     *
+     * @since 8.1
+     * @param index
+     *            the index the first removed item had, not negative
+     * @param count
+     *            the number of removed items, not negative
+     */
+    default void refreshItemsRemoved(int index, int count) {
+        refreshAll();
+    }
+
     /**
      * Refreshes all data based on currently available data in the underlying
      * provider.
@@ -15,6 +15,7 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Collection;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -69,6 +70,21 @@ public abstract class DataProviderWrapper<T, F, M>
         dataProvider.refreshItem(item);
     }
 
+    @Override
+    public void refreshItems(Collection<T> items) {
+        dataProvider.refreshItems(items);
+    }
+
+    @Override
+    public void refreshItemsAdded(int index, int count) {
+        dataProvider.refreshItemsAdded(index, count);
+    }
+
+    @Override
+    public void refreshItemsRemoved(int index, int count) {
+        dataProvider.refreshItemsRemoved(index, count);
+    }
+
     @Override
     public Object getId(T item) {
         return dataProvider.getId(item);
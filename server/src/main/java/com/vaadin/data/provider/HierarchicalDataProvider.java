@@ -36,4 +36,40 @@ public interface HierarchicalDataProvider<T, F> extends DataProvider<T, F> {
     public boolean hasChildren(T item);
 
     public void setCollapsed(T item, boolean b);
+
+    /**
+     * Gets the index of the given item among the currently visible rows, i.e.
+     * the root items and the descendants of expanded items.
+     * <p>
+     * Data providers that can resolve the index cheaply should override this
+     * method together with {@link #getVisibleDescendantCount(Object)}, so that
+     * expanding or collapsing a node only inserts or removes the affected rows
+     * on the client instead of resetting all rows. The default implementation
+     * returns -1.
+     *
+     * @param item
+     *            the item to get the index of, not null
+     * @return the index of the item among the visible rows, or -1 if the item
+     *         is not visible or the index is not known
+     */
+    public default int getIndexOf(T item) {
+        return -1;
+    }
+
+    /**
+     * Gets the number of visible rows that are descendants of the given item,
+     * i.e. the number of rows that collapsing the item would hide. The count
+     * is 0 for collapsed items.
+     * <p>
+     * The default implementation returns -1.
+     *
+     * @see #getIndexOf(Object)
+     *
+     * @param item
+     *            the item to count the visible descendants of, not null
+     * @return the number of visible descendants, or -1 if not known
+     */
+    public default int getVisibleDescendantCount(T item) {
+        return -1;
+    }
 }
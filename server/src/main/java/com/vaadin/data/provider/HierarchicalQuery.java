@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable query object used to request the children of a single item from a
+ * hierarchical backend. The offset and limit refer to the children of the
+ * parent item, not to the flattened rows of the whole hierarchy.
+ *
+ * @see CallbackHierarchicalDataProvider
+ *
+ * @param <T>
+ *            bean type
+ * @param <F>
+ *            filter type
+ *
+ * @since 8.1
+ */
+public class HierarchicalQuery<T, F> extends Query<T, F> {
+
+    private final T parent;
+
+    /**
+     * Constructs a new hierarchical query object with given offset, limit,
+     * sorting, filtering and parent item.
+     *
+     * @param offset
+     *            first index of the children to fetch
+     * @param limit
+     *            fetched children count
+     * @param sortOrders
+     *            sorting order for fetching; used for sorting backends
+     * @param inMemorySorting
+     *            comparator for sorting in-memory data
+     * @param filter
+     *            filtering for fetching; can be <code>null</code>
+     * @param parent
+     *            the item whose children are fetched, or <code>null</code> to
+     *            fetch the root items
+     */
+    public HierarchicalQuery(int offset, int limit,
+            List<QuerySortOrder> sortOrders, Comparator<T> inMemorySorting,
+            F filter, T parent) {
+        super(offset, limit, sortOrders, inMemorySorting, filter);
+        this.parent = parent;
+    }
+
+    /**
+     * Gets the item whose children are queried.
+     *
+     * @return the parent item, or <code>null</code> if the root items are
+     *         queried
+     */
+    public T getParent() {
+        return parent;
+    }
+
+    /**
+     * Gets the item whose children are queried.
+     *
+     * @return the parent item, or an empty optional if the root items are
+     *         queried
+     */
+    public Optional<T> getParentOptional() {
+        return Optional.ofNullable(parent);
+    }
+}
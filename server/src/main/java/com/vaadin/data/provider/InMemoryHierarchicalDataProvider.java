@@ -0,0 +1,395 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * An in-memory {@link HierarchicalDataProvider} that stores a tree of items.
+ * <p>
+ * The currently visible rows, i.e. the root items and the descendants of
+ * expanded items, are kept in a flattened index, so that fetching rows does
+ * not need to walk the tree. Expanding or collapsing an item only inserts or
+ * removes the rows of its visible descendants in the index, and the number of
+ * visible descendants is maintained for each item. This allows
+ * {@link com.vaadin.ui.TreeGrid} to only send the affected rows to the client.
+ * <p>
+ * Items are identified by their {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} implementations, and each item can only be added
+ * once. Changes made to the hierarchy with methods like
+ * {@link #addItem(Object, Object)} should be followed by a call to
+ * {@link #refreshAll()} to update the components that use this data provider.
+ * <p>
+ * Items are returned in the order they have been added. In-memory and back end
+ * sorting defined in queries are ignored.
+ *
+ * @param <T>
+ *            data type
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class InMemoryHierarchicalDataProvider<T>
+        extends AbstractDataProvider<T, SerializablePredicate<T>>
+        implements HierarchicalDataProvider<T, SerializablePredicate<T>> {
+
+    /**
+     * The hierarchy data of a single item.
+     */
+    private static final class Node<T> implements Serializable {
+        private final T parent;
+        private final int depth;
+        private final List<T> children = new ArrayList<>();
+        private boolean collapsed = true;
+        /**
+         * The number of rows that are visible below this node when it is
+         * expanded, regardless of whether it currently is.
+         */
+        private int expandedSize = 0;
+
+        private Node(T parent, int depth) {
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        private int getVisibleDescendantCount() {
+            return collapsed ? 0 : expandedSize;
+        }
+    }
+
+    private final List<T> rootItems = new ArrayList<>();
+    private final Map<T, Node<T>> nodes = new HashMap<>();
+
+    /**
+     * The visible rows in display order, or <code>null</code> if it must be
+     * rebuilt.
+     */
+    private List<T> visibleRows = new ArrayList<>();
+
+    /**
+     * Creates a new empty data provider.
+     */
+    public InMemoryHierarchicalDataProvider() {
+    }
+
+    /**
+     * Creates a new data provider with the given items as root items.
+     *
+     * @param rootItems
+     *            the root items to add, not null
+     */
+    public InMemoryHierarchicalDataProvider(Collection<T> rootItems) {
+        addItems(null, rootItems);
+    }
+
+    /**
+     * Adds an item as the last child of the given parent.
+     *
+     * @param parent
+     *            the parent item, or <code>null</code> to add a root item
+     * @param item
+     *            the item to add, not null
+     * @throws IllegalArgumentException
+     *             if the item has already been added, or if the parent has not
+     *             been added
+     */
+    public void addItem(T parent, T item) {
+        Objects.requireNonNull(item, "Item cannot be null");
+        if (nodes.containsKey(item)) {
+            throw new IllegalArgumentException(
+                    "The item " + item + " has already been added");
+        }
+        if (parent == null) {
+            rootItems.add(item);
+            nodes.put(item, new Node<>(null, 0));
+            visibleRows = null;
+        } else {
+            Node<T> parentNode = getNode(parent);
+            parentNode.children.add(item);
+            nodes.put(item, new Node<>(parent, parentNode.depth + 1));
+            updateExpandedSizes(parent, 1);
+            if (isVisible(parent) && !parentNode.collapsed) {
+                visibleRows = null;
+            }
+        }
+    }
+
+    /**
+     * Adds items as the last children of the given parent.
+     *
+     * @see #addItem(Object, Object)
+     *
+     * @param parent
+     *            the parent item, or <code>null</code> to add root items
+     * @param items
+     *            the items to add, not null
+     */
+    public void addItems(T parent, Collection<T> items) {
+        Objects.requireNonNull(items, "Items cannot be null");
+        items.forEach(item -> addItem(parent, item));
+    }
+
+    /**
+     * Removes an item and all its descendants.
+     *
+     * @param item
+     *            the item to remove, not null
+     * @throws IllegalArgumentException
+     *             if the item has not been added
+     */
+    public void removeItem(T item) {
+        Node<T> node = getNode(item);
+        int removedRows = 1 + node.getVisibleDescendantCount();
+        if (node.parent == null) {
+            rootItems.remove(item);
+            visibleRows = null;
+        } else {
+            Node<T> parentNode = getNode(node.parent);
+            if (isVisible(node.parent) && !parentNode.collapsed) {
+                visibleRows = null;
+            }
+            parentNode.children.remove(item);
+            updateExpandedSizes(node.parent, -removedRows);
+        }
+        removeRecursively(item);
+    }
+
+    private void removeRecursively(T item) {
+        Node<T> node = nodes.remove(item);
+        node.children.forEach(this::removeRecursively);
+    }
+
+    /**
+     * Removes all items.
+     */
+    public void clear() {
+        rootItems.clear();
+        nodes.clear();
+        visibleRows = new ArrayList<>();
+    }
+
+    /**
+     * Gets the root items in the order they have been added.
+     *
+     * @return an unmodifiable list of the root items
+     */
+    public List<T> getRootItems() {
+        return Collections.unmodifiableList(rootItems);
+    }
+
+    /**
+     * Gets the children of an item in the order they have been added.
+     *
+     * @param item
+     *            the item to get the children of, not null
+     * @return an unmodifiable list of the children
+     */
+    public List<T> getChildren(T item) {
+        return Collections.unmodifiableList(getNode(item).children);
+    }
+
+    /**
+     * Checks whether an item has been added to this data provider.
+     *
+     * @param item
+     *            the item to check
+     * @return <code>true</code> if the item has been added, <code>false</code>
+     *         otherwise
+     */
+    public boolean contains(T item) {
+        return nodes.containsKey(item);
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public int size(Query<T, SerializablePredicate<T>> query) {
+        if (query.getFilter().isPresent()) {
+            return (int) getVisibleRows().stream()
+                    .filter(query.getFilter().get()).count();
+        }
+        return getVisibleRows().size();
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        List<T> rows = getVisibleRows();
+        if (query.getFilter().isPresent()) {
+            return new ArrayList<>(rows).stream()
+                    .filter(query.getFilter().get()).skip(query.getOffset())
+                    .limit(query.getLimit());
+        }
+        int offset = query.getOffset();
+        if (offset >= rows.size()) {
+            return Stream.empty();
+        }
+        int end = (int) Math.min(rows.size(),
+                (long) offset + query.getLimit());
+        // Copy so that the stream is not affected by later changes
+        return new ArrayList<>(rows.subList(offset, end)).stream();
+    }
+
+    @Override
+    public int getDepth(T item) {
+        return getNode(item).depth;
+    }
+
+    @Override
+    public boolean isRoot(T item) {
+        return getNode(item).parent == null;
+    }
+
+    @Override
+    public T getParent(T item) {
+        return getNode(item).parent;
+    }
+
+    @Override
+    public boolean isCollapsed(T item) {
+        return getNode(item).collapsed;
+    }
+
+    @Override
+    public boolean hasChildren(T item) {
+        return !getNode(item).children.isEmpty();
+    }
+
+    @Override
+    public void setCollapsed(T item, boolean collapsed) {
+        Node<T> node = getNode(item);
+        if (node.collapsed == collapsed || node.children.isEmpty()) {
+            node.collapsed = collapsed;
+            return;
+        }
+
+        int index = visibleRows != null ? getIndexOf(item) : -1;
+        if (index >= 0) {
+            if (collapsed) {
+                visibleRows.subList(index + 1, index + 1 + node.expandedSize)
+                        .clear();
+            } else {
+                List<T> descendants = new ArrayList<>(node.expandedSize);
+                node.children.forEach(
+                        child -> collectVisibleRows(child, descendants));
+                visibleRows.addAll(index + 1, descendants);
+            }
+        }
+
+        node.collapsed = collapsed;
+        if (node.parent != null) {
+            updateExpandedSizes(node.parent,
+                    collapsed ? -node.expandedSize : node.expandedSize);
+        }
+    }
+
+    @Override
+    public int getIndexOf(T item) {
+        Node<T> node = getNode(item);
+        if (!isVisible(item)) {
+            return -1;
+        }
+
+        int index = 0;
+        T current = item;
+        Node<T> currentNode = node;
+        while (true) {
+            List<T> siblings = currentNode.parent == null ? rootItems
+                    : getNode(currentNode.parent).children;
+            for (T sibling : siblings) {
+                if (sibling.equals(current)) {
+                    break;
+                }
+                index += 1 + getNode(sibling).getVisibleDescendantCount();
+            }
+            if (currentNode.parent == null) {
+                return index;
+            }
+            // The parent row itself precedes its children
+            index++;
+            current = currentNode.parent;
+            currentNode = getNode(current);
+        }
+    }
+
+    @Override
+    public int getVisibleDescendantCount(T item) {
+        return getNode(item).getVisibleDescendantCount();
+    }
+
+    private boolean isVisible(T item) {
+        T parent = getNode(item).parent;
+        while (parent != null) {
+            Node<T> parentNode = getNode(parent);
+            if (parentNode.collapsed) {
+                return false;
+            }
+            parent = parentNode.parent;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a change in the visible descendant count of an item to the expanded
+     * sizes of its ancestors, up to the first collapsed ancestor.
+     */
+    private void updateExpandedSizes(T item, int delta) {
+        Node<T> node = getNode(item);
+        node.expandedSize += delta;
+        while (!node.collapsed && node.parent != null) {
+            node = getNode(node.parent);
+            node.expandedSize += delta;
+        }
+    }
+
+    private List<T> getVisibleRows() {
+        if (visibleRows == null) {
+            List<T> rows = new ArrayList<>(nodes.size());
+            rootItems.forEach(item -> collectVisibleRows(item, rows));
+            visibleRows = rows;
+        }
+        return visibleRows;
+    }
+
+    private void collectVisibleRows(T item, List<T> rows) {
+        rows.add(item);
+        Node<T> node = getNode(item);
+        if (!node.collapsed) {
+            node.children.forEach(child -> collectVisibleRows(child, rows));
+        }
+    }
+
+    private Node<T> getNode(T item) {
+        Node<T> node = nodes.get(item);
+        if (node == null) {
+            throw new IllegalArgumentException(
+                    "The item " + item + " has not been added");
+        }
+        return node;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * A {@link ListDataProvider} that keeps an index of the filtered and sorted
+ * items for each combination of query filter and in-memory sorting that it is
+ * queried with. Subsequent queries with the same filter and sorting, e.g. when
+ * a {@code Grid} is scrolled, are served from the index instead of filtering
+ * and sorting the whole backing collection again.
+ * <p>
+ * The indexes are discarded when {@link #refreshAll()},
+ * {@link #refreshItemsAdded(int, int)} or
+ * {@link #refreshItemsRemoved(int, int)} is called, which is also the case
+ * when the filter or the default sorting of this data provider is changed.
+ * {@link #refreshItem(Object)} and {@link #refreshItems(Collection)} update
+ * the existing indexes incrementally, but a refreshed item is not necessarily
+ * placed in the order of the backing collection among items that the sorting
+ * considers equal. Refreshed items are looked up in the indexes by their
+ * {@link #getId(Object) id}, so the hash code of the id must not change when
+ * the item is modified. Any other changes made to the backing collection must
+ * be followed by a call to {@link #refreshAll()}.
+ * <p>
+ * In-memory sortings are compared by identity, so the same comparator
+ * instance should be used for queries with the same sort order, like
+ * {@link DataCommunicator} does. The least recently used index is discarded
+ * when the maximum number of indexes is reached.
+ * <p>
+ * The indexes are guarded by a lock, so the same data provider instance can be
+ * shared by components in different sessions. An index is built while holding
+ * the lock.
+ *
+ * @param <T>
+ *            data type
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class IndexedListDataProvider<T> extends ListDataProvider<T> {
+
+    /**
+     * The default maximum number of indexes kept.
+     */
+    public static final int DEFAULT_MAX_INDEXES = 10;
+
+    /**
+     * Key of an index.
+     */
+    private static final class IndexKey implements Serializable {
+        private final Object filter;
+        private final Comparator<?> inMemorySorting;
+
+        private IndexKey(Query<?, ?> query) {
+            filter = query.getFilter().orElse(null);
+            inMemorySorting = query.getInMemorySorting();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) obj;
+            return inMemorySorting == other.inMemorySorting
+                    && Objects.equals(filter, other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter,
+                    System.identityHashCode(inMemorySorting));
+        }
+    }
+
+    /**
+     * The filtered and sorted items for one filter and sorting.
+     */
+    private static final class Index<T> implements Serializable {
+        private final SerializablePredicate<T> filter;
+        private final Comparator<T> comparator;
+        private final List<T> items;
+        /*
+         * Positions of the items by id, created when an item is first
+         * refreshed
+         */
+        private Map<Object, Integer> positions;
+
+        private Index(SerializablePredicate<T> filter,
+                Comparator<T> comparator, List<T> items) {
+            this.filter = filter;
+            this.comparator = comparator;
+            this.items = items;
+        }
+    }
+
+    /**
+     * Access ordered, so also reads must synchronize on this map.
+     */
+    private final Map<IndexKey, Index<T>> indexes;
+
+    private int parallelSortThreshold = -1;
+
+    /**
+     * Constructs a new indexed list data provider that keeps at most
+     * {@value #DEFAULT_MAX_INDEXES} indexes.
+     * <p>
+     * No protective copy is made of the list, and changes in the provided
+     * backing Collection will be visible via this data provider after
+     * {@link #refreshAll()} has been called. The caller should copy the list if
+     * necessary.
+     *
+     * @param items
+     *            the initial data, not null
+     */
+    public IndexedListDataProvider(Collection<T> items) {
+        this(items, DEFAULT_MAX_INDEXES);
+    }
+
+    /**
+     * Constructs a new indexed list data provider that keeps at most the
+     * given number of indexes.
+     *
+     * @see #IndexedListDataProvider(Collection)
+     *
+     * @param items
+     *            the initial data, not null
+     * @param maxIndexes
+     *            the maximum number of indexes to keep, at least 1
+     */
+    public IndexedListDataProvider(Collection<T> items, int maxIndexes) {
+        super(items);
+        if (maxIndexes < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of indexes must be at least 1");
+        }
+        indexes = new LinkedHashMap<IndexKey, Index<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Entry<IndexKey, Index<T>> eldest) {
+                return size() > maxIndexes;
+            }
+        };
+    }
+
+    /**
+     * Sets the number of matching items from which on a new index is sorted
+     * using {@link Arrays#parallelSort(Object[], Comparator)}. Parallel sorting
+     * is disabled by default.
+     * <p>
+     * A parallel sort runs the comparators in the threads of the common
+     * fork-join pool, where e.g. {@link com.vaadin.ui.UI#getCurrent()} is not
+     * available. It should only be enabled when the used comparators do not
+     * depend on such thread local state.
+     *
+     * @param parallelSortThreshold
+     *            the minimum number of items to sort in parallel, or a negative
+     *            value to disable parallel sorting
+     */
+    public void setParallelSortThreshold(int parallelSortThreshold) {
+        this.parallelSortThreshold = parallelSortThreshold;
+    }
+
+    /**
+     * Gets the number of matching items from which on a new index is sorted in
+     * parallel.
+     *
+     * @see #setParallelSortThreshold(int)
+     *
+     * @return the minimum number of items to sort in parallel, or a negative
+     *         value if parallel sorting is disabled
+     */
+    public int getParallelSortThreshold() {
+        return parallelSortThreshold;
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        synchronized (indexes) {
+            List<T> items = getIndex(query).items;
+            int offset = query.getOffset();
+            if (offset >= items.size()) {
+                return Stream.empty();
+            }
+            int end = (int) Math.min(items.size(),
+                    (long) offset + query.getLimit());
+            // Copy so that the stream is not affected by later index updates
+            return new ArrayList<>(items.subList(offset, end)).stream();
+        }
+    }
+
+    @Override
+    public int size(Query<T, SerializablePredicate<T>> query) {
+        Object filter = query.getFilter().orElse(null);
+        synchronized (indexes) {
+            // Any index with the same filter has the same size
+            for (Entry<IndexKey, Index<T>> entry : indexes.entrySet()) {
+                if (Objects.equals(filter, entry.getKey().filter)) {
+                    return entry.getValue().items.size();
+                }
+            }
+        }
+        return super.size(query);
+    }
+
+    @Override
+    public void refreshAll() {
+        clearIndexes();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        Objects.requireNonNull(item, "Refreshed item can't be null");
+        Object id = getId(item);
+
+        synchronized (indexes) {
+            Iterator<Index<T>> iterator = indexes.values().iterator();
+            while (iterator.hasNext()) {
+                Index<T> index = iterator.next();
+                if (!updateIndex(index, item, id)) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        super.refreshItem(item);
+    }
+
+    @Override
+    public void refreshItems(Collection<T> items) {
+        Objects.requireNonNull(items, "Refreshed items can't be null");
+        synchronized (indexes) {
+            for (T item : items) {
+                Objects.requireNonNull(item, "Refreshed item can't be null");
+                Object id = getId(item);
+                indexes.values()
+                        .removeIf(index -> !updateIndex(index, item, id));
+            }
+        }
+
+        super.refreshItems(items);
+    }
+
+    @Override
+    public void refreshItemsAdded(int index, int count) {
+        clearIndexes();
+        super.refreshItemsAdded(index, count);
+    }
+
+    @Override
+    public void refreshItemsRemoved(int index, int count) {
+        clearIndexes();
+        super.refreshItemsRemoved(index, count);
+    }
+
+    private void clearIndexes() {
+        synchronized (indexes) {
+            indexes.clear();
+        }
+    }
+
+    /**
+     * Updates the position of a refreshed item in an index.
+     *
+     * @return <code>true</code> if the index was updated, <code>false</code>
+     *         if it must be rebuilt
+     */
+    private boolean updateIndex(Index<T> index, T item, Object id) {
+        List<T> items = index.items;
+        Integer oldPosition = getPositions(index).get(id);
+        boolean included = passesFilters(item, index.filter);
+
+        if (index.comparator == null) {
+            // The position of an unsorted item is defined by the backing
+            // collection, which is only known for items already in the index
+            if (oldPosition != null && included) {
+                items.set(oldPosition, item);
+                return true;
+            }
+            return oldPosition == null && !included;
+        }
+
+        if (oldPosition == null) {
+            if (included) {
+                int position = findPosition(items, item, index.comparator);
+                items.add(position, item);
+                updatePositions(index, position, items.size());
+            }
+        } else if (!included) {
+            items.remove(oldPosition.intValue());
+            index.positions.remove(id);
+            updatePositions(index, oldPosition, items.size());
+        } else if (isInOrder(items, oldPosition, item, index.comparator)) {
+            items.set(oldPosition, item);
+        } else {
+            items.remove(oldPosition.intValue());
+            int position = findPosition(items, item, index.comparator);
+            items.add(position, item);
+            updatePositions(index, Math.min(oldPosition, position),
+                    Math.max(oldPosition, position) + 1);
+        }
+        return true;
+    }
+
+    private Map<Object, Integer> getPositions(Index<T> index) {
+        if (index.positions == null) {
+            index.positions = new HashMap<>(index.items.size() * 2);
+            updatePositions(index, 0, index.items.size());
+        }
+        return index.positions;
+    }
+
+    private void updatePositions(Index<T> index, int from, int to) {
+        for (int i = from; i < to; i++) {
+            index.positions.put(getId(index.items.get(i)), i);
+        }
+    }
+
+    private static <T> boolean isInOrder(List<T> items, int position, T item,
+            Comparator<T> comparator) {
+        return (position == 0
+                || comparator.compare(items.get(position - 1), item) <= 0)
+                && (position == items.size() - 1 || comparator.compare(item,
+                        items.get(position + 1)) <= 0);
+    }
+
+    private static <T> int findPosition(List<T> items, T item,
+            Comparator<T> comparator) {
+        int position = Collections.binarySearch(items, item, comparator);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    private Index<T> getIndex(Query<T, SerializablePredicate<T>> query) {
+        IndexKey key = new IndexKey(query);
+        Index<T> index = indexes.get(key);
+        if (index == null) {
+            index = createIndex(query);
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    private Index<T> createIndex(Query<T, SerializablePredicate<T>> query) {
+        Comparator<T> comparator = getComparator(query).orElse(null);
+        List<T> items = getFilteredStream(query)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (comparator != null) {
+            if (parallelSortThreshold >= 0
+                    && items.size() >= parallelSortThreshold) {
+                @SuppressWarnings("unchecked")
+                T[] array = (T[]) items.toArray();
+                Arrays.parallelSort(array, comparator);
+                items = new ArrayList<>(Arrays.asList(array));
+            } else {
+                items.sort(comparator);
+            }
+        }
+
+        return new Index<>(query.getFilter().orElse(null), comparator, items);
+    }
+}
@@ -86,10 +86,7 @@ public class ListDataProvider<T>
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = getFilteredStream(query);
 
-        Optional<Comparator<T>> comparing = Stream
-                .of(query.getInMemorySorting(), sortOrder)
-                .filter(c -> c != null)
-                .reduce((c1, c2) -> c1.thenComparing(c2));
+        Optional<Comparator<T>> comparing = getComparator(query);
 
         if (comparing.isPresent()) {
             stream = stream.sorted(comparing.get());
@@ -98,6 +95,23 @@ public class ListDataProvider<T>
         return stream.skip(query.getOffset()).limit(query.getLimit());
     }
 
+    /**
+     * Gets the comparator that defines the order of the items for the given
+     * query, combining the sorting of the query with the default sorting of
+     * this data provider.
+     *
+     * @param query
+     *            the query, not null
+     * @return the combined comparator, or an empty optional if neither the
+     *         query nor this data provider defines any sorting
+     */
+    Optional<Comparator<T>> getComparator(
+            Query<T, SerializablePredicate<T>> query) {
+        return Stream.of(query.getInMemorySorting(), sortOrder)
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+    }
+
     @Override
     public boolean isInMemory() {
         return true;
@@ -108,8 +122,58 @@ public class ListDataProvider<T>
         return (int) getFilteredStream(query).count();
     }
 
-    private Stream<T> getFilteredStream(
-            Query<T, SerializablePredicate<T>> query) {
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The index is the position of the first added item in the iteration
+     * order of the backing collection. If this data provider has a filter or
+     * a default sorting, the positions of the items in the query results are
+     * not known and {@link #refreshAll()} is called instead.
+     */
+    @Override
+    public void refreshItemsAdded(int index, int count) {
+        if (filter != null || sortOrder != null) {
+            refreshAll();
+        } else {
+            super.refreshItemsAdded(index, count);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The index is the position the first removed item had in the iteration
+     * order of the backing collection. If this data provider has a filter or
+     * a default sorting, the positions of the items in the query results are
+     * not known and {@link #refreshAll()} is called instead.
+     */
+    @Override
+    public void refreshItemsRemoved(int index, int count) {
+        if (filter != null || sortOrder != null) {
+            refreshAll();
+        } else {
+            super.refreshItemsRemoved(index, count);
+        }
+    }
+
+    /**
+     * Checks whether the given item passes both the filter of this data
+     * provider and the given query filter.
+     *
+     * @param item
+     *            the item to test
+     * @param queryFilter
+     *            the filter of a query, or <code>null</code> if the query has
+     *            no filter
+     * @return <code>true</code> if the item passes the filters,
+     *         <code>false</code> otherwise
+     */
+    boolean passesFilters(T item, SerializablePredicate<T> queryFilter) {
+        return (filter == null || filter.test(item))
+                && (queryFilter == null || queryFilter.test(item));
+    }
+
+    Stream<T> getFilteredStream(Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
 
         // Apply our own filters first so that query filters never see the items
@@ -140,7 +140,7 @@ public abstract class AbstractClientConnector
     @Override
     public void markAsDirty() {
         assert getSession() == null
-                || getSession().hasLock() : buildLockAssertMessage(
+                || getSession().hasUILock(getUI()) : buildLockAssertMessage(
                         "markAsDirty()");
         UI uI = getUI();
         if (uI != null) {
@@ -255,7 +255,7 @@ public abstract class AbstractClientConnector
      */
     protected SharedState getState(boolean markAsDirty) {
         assert getSession() == null
-                || getSession().hasLock() : buildLockAssertMessage(
+                || getSession().hasUILock(getUI()) : buildLockAssertMessage(
                         "getState()");
 
         if (null == sharedState) {
@@ -667,7 +667,8 @@ public abstract class AbstractClientConnector
         String key = parts[0];
 
         VaadinSession session = getSession();
-        session.lock();
+        UI ui = getUI();
+        session.lockUI(ui);
         try {
             ConnectorResource resource = (ConnectorResource) getResource(key);
             if (resource == null) {
@@ -675,7 +676,7 @@ public abstract class AbstractClientConnector
             }
             stream = resource.getStream();
         } finally {
-            session.unlock();
+            session.unlockUI(ui);
         }
         stream.writeResponse(request, response);
         return true;
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+/**
+ * Runs background tasks for a {@link VaadinService} and applies their results
+ * to UIs while holding the appropriate lock. The tasks are run by an
+ * {@link Executor} created by {@link VaadinService#createBackgroundExecutor()}.
+ * <p>
+ * The executor keeps track of the number of queued and running tasks and of
+ * the time tasks spend waiting, both for a thread to run them and for the lock
+ * needed to apply their results.
+ * <p>
+ * The number of tasks running at the same time can be limited. Tasks
+ * submitted while the limit is reached are queued by this class and handed to
+ * the executor once a running task completes. This keeps executors that start
+ * a new thread for each task, such as a virtual thread per task executor, from
+ * running an unbounded number of tasks against e.g. a database.
+ *
+ * @see UI#accessAsync(Supplier, Consumer)
+ * @see VaadinService#getBackgroundExecutor()
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class BackgroundExecutor implements Serializable {
+
+    private final transient Executor executor;
+    private final int maxConcurrentTasks;
+    private final transient Semaphore permits;
+    private final transient Queue<QueuedTask> pendingTasks;
+    private volatile boolean shutdown;
+
+    private final AtomicLong queuedTaskCount = new AtomicLong();
+    private final AtomicLong activeTaskCount = new AtomicLong();
+    private final AtomicLong completedTaskCount = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+
+    private final AtomicLong appliedResultCount = new AtomicLong();
+    private final AtomicLong totalLockWaitTime = new AtomicLong();
+
+    /**
+     * Creates a new background executor running tasks using the given
+     * executor without limiting the number of concurrently running tasks.
+     *
+     * @param executor
+     *            the executor to run tasks with, not <code>null</code>
+     */
+    public BackgroundExecutor(Executor executor) {
+        this(executor, 0);
+    }
+
+    /**
+     * Creates a new background executor running at most the given number of
+     * tasks at the same time using the given executor.
+     *
+     * @param executor
+     *            the executor to run tasks with, not <code>null</code>
+     * @param maxConcurrentTasks
+     *            the maximum number of tasks to run at the same time, or 0 to
+     *            not limit the number of tasks
+     * @throws IllegalArgumentException
+     *             if the maximum number of tasks is negative
+     */
+    public BackgroundExecutor(Executor executor, int maxConcurrentTasks) {
+        Objects.requireNonNull(executor, "Executor cannot be null");
+        if (maxConcurrentTasks < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum number of concurrent tasks cannot be negative");
+        }
+        this.executor = executor;
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        if (maxConcurrentTasks > 0) {
+            permits = new Semaphore(maxConcurrentTasks);
+            pendingTasks = new ConcurrentLinkedQueue<>();
+        } else {
+            permits = null;
+            pendingTasks = null;
+        }
+    }
+
+    /**
+     * Runs a task in the background. The task is run without holding any
+     * Vaadin lock.
+     *
+     * @param <T>
+     *            the type of the task result
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @return a future that is completed with the result of the task, or
+     *         completed exceptionally if the task fails or cannot be run
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        Objects.requireNonNull(task, "Task cannot be null");
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long submitTime = System.nanoTime();
+        queuedTaskCount.incrementAndGet();
+        Runnable runnable = () -> {
+            queuedTaskCount.decrementAndGet();
+            totalQueueTime.addAndGet(System.nanoTime() - submitTime);
+            activeTaskCount.incrementAndGet();
+            T result = null;
+            Throwable failure = null;
+            try {
+                if (!future.isCancelled()) {
+                    result = task.get();
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                activeTaskCount.decrementAndGet();
+                completedTaskCount.incrementAndGet();
+            }
+            // Complete only after updating the counters since dependent
+            // actions, such as applying the result, run in this thread
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        };
+
+        if (shutdown) {
+            queuedTaskCount.decrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Background executor has been shut down"));
+        } else if (permits == null) {
+            execute(new QueuedTask(runnable, future), null);
+        } else {
+            QueuedTask permitted = new QueuedTask(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    permits.release();
+                    runPendingTasks();
+                }
+            }, future);
+            pendingTasks.add(
+                    new QueuedTask(() -> execute(permitted, permits), future));
+            if (shutdown) {
+                cancelPendingTasks();
+            } else {
+                runPendingTasks();
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Hands pending tasks to the executor for as long as there are free
+     * permits. A task completing releases its permit before calling this
+     * method, so a task queued concurrently is always picked up either by the
+     * submitting thread or by the completing task.
+     */
+    private void runPendingTasks() {
+        while (!pendingTasks.isEmpty() && permits.tryAcquire()) {
+            QueuedTask pending = pendingTasks.poll();
+            if (pending == null) {
+                permits.release();
+            } else {
+                pending.run();
+            }
+        }
+    }
+
+    /**
+     * Hands a task to the executor. If the executor rejects the task, its
+     * future is completed exceptionally and the given permit, if any, is
+     * released.
+     */
+    private void execute(QueuedTask task, Semaphore permit) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queuedTaskCount.decrementAndGet();
+            task.future.completeExceptionally(e);
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+
+    private void cancelPendingTasks() {
+        QueuedTask pending;
+        while ((pending = pendingTasks.poll()) != null) {
+            pending.cancel();
+        }
+    }
+
+    /**
+     * Runs a task in the background and passes its result to a handler that is
+     * run while holding the lock of the given UI.
+     * <p>
+     * If the background task fails, the exception is handled by the error
+     * handler of the UI in the same way as exceptions thrown by tasks passed to
+     * {@link UI#access(Runnable)}.
+     *
+     * @param <T>
+     *            the type of the background task result
+     * @param ui
+     *            the UI to apply the result to, not <code>null</code>
+     * @param backgroundTask
+     *            the task to run without holding any lock, not
+     *            <code>null</code>
+     * @param resultHandler
+     *            the handler to run with the result of the background task
+     *            while holding the UI lock, not <code>null</code>
+     * @return a future that is completed when the result handler has been
+     *         run, or completed exceptionally if either the background task
+     *         or the result handler fails. Cancelling the future before the
+     *         result has been applied prevents the result handler from being
+     *         run.
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session
+     */
+    public <T> CompletableFuture<Void> accessAsync(UI ui,
+            Supplier<T> backgroundTask, Consumer<T> resultHandler) {
+        Objects.requireNonNull(ui, "UI cannot be null");
+        Objects.requireNonNull(resultHandler, "Result handler cannot be null");
+        if (ui.getSession() == null) {
+            throw new UIDetachedException();
+        }
+
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        submit(backgroundTask).whenComplete((value, failure) -> {
+            if (applied.isCancelled()) {
+                return;
+            }
+            long completeTime = System.nanoTime();
+            try {
+                ui.access(() -> {
+                    appliedResultCount.incrementAndGet();
+                    totalLockWaitTime
+                            .addAndGet(System.nanoTime() - completeTime);
+                    if (applied.isCancelled()) {
+                        return;
+                    }
+                    try {
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        resultHandler.accept(value);
+                        applied.complete(null);
+                    } catch (RuntimeException | Error e) {
+                        applied.completeExceptionally(e);
+                        throw e;
+                    } catch (Throwable t) {
+                        applied.completeExceptionally(t);
+                        throw new RuntimeException(t);
+                    }
+                });
+            } catch (UIDetachedException e) {
+                applied.completeExceptionally(e);
+            }
+        });
+        return applied;
+    }
+
+    /**
+     * Gets the maximum number of tasks that are run at the same time.
+     *
+     * @return the maximum number of concurrent tasks, or 0 if the number is
+     *         not limited
+     */
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    /**
+     * Gets the number of tasks that have been submitted but not yet started.
+     *
+     * @return the number of queued tasks
+     */
+    public long getQueuedTaskCount() {
+        return queuedTaskCount.get();
+    }
+
+    /**
+     * Gets the number of tasks that are currently running.
+     *
+     * @return the number of running tasks
+     */
+    public long getActiveTaskCount() {
+        return activeTaskCount.get();
+    }
+
+    /**
+     * Gets the number of tasks that have been run, including tasks that have
+     * failed.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount.get();
+    }
+
+    /**
+     * Gets the average time tasks have been waiting for a thread before being
+     * run.
+     *
+     * @return the average queue time in milliseconds, or 0 if no task has
+     *         been started
+     */
+    public double getAverageQueueTime() {
+        long started = completedTaskCount.get() + activeTaskCount.get();
+        return average(totalQueueTime.get(), started);
+    }
+
+    /**
+     * Gets the average time results of tasks submitted using
+     * {@link #accessAsync(UI, Supplier, Consumer)} have been waiting for the
+     * UI lock before being applied.
+     *
+     * @return the average lock wait time in milliseconds, or 0 if no result
+     *         has been applied
+     */
+    public double getAverageLockWaitTime() {
+        return average(totalLockWaitTime.get(), appliedResultCount.get());
+    }
+
+    private static double average(long totalNanos, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        return (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Shuts down the underlying executor if it is an {@link ExecutorService}.
+     * The futures of tasks that have not yet been started are cancelled and
+     * tasks submitted after shutting down are rejected. Called by the
+     * framework when the service is destroyed.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (pendingTasks != null) {
+            cancelPendingTasks();
+        }
+        if (executor instanceof ExecutorService) {
+            for (Runnable task : ((ExecutorService) executor).shutdownNow()) {
+                if (task instanceof QueuedTask) {
+                    ((QueuedTask) task).cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that has been submitted but not yet started, together with the
+     * future to cancel if the task is never run.
+     */
+    private final class QueuedTask implements Runnable {
+        private final Runnable action;
+        private final CompletableFuture<?> future;
+
+        private QueuedTask(Runnable action, CompletableFuture<?> future) {
+            this.action = action;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+
+        private void cancel() {
+            queuedTaskCount.decrementAndGet();
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * A single byte range requested with an HTTP <code>Range</code> header, as
+ * defined in RFC 7233.
+ * <p>
+ * Only a single range is supported. A header with several ranges, with an
+ * unknown unit or with a syntax error is ignored, which means that the whole
+ * entity should be sent.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+final class ByteRange implements Serializable {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+    private final long entityLength;
+
+    private ByteRange(long first, long last, long entityLength) {
+        this.first = first;
+        this.last = last;
+        this.entityLength = entityLength;
+    }
+
+    /**
+     * Parses the value of a <code>Range</code> header.
+     *
+     * @param rangeHeader
+     *            the header value, or <code>null</code> if the request has no
+     *            range header
+     * @param entityLength
+     *            the length of the requested entity in bytes
+     * @return the requested range, or <code>null</code> if the whole entity
+     *         should be sent
+     */
+    static ByteRange parse(String rangeHeader, long entityLength) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        String spec = rangeHeader.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+
+        try {
+            String firstString = spec.substring(0, dash).trim();
+            String lastString = spec.substring(dash + 1).trim();
+            if (firstString.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffixLength = Long.parseLong(lastString);
+                if (suffixLength < 0) {
+                    return null;
+                }
+                if (suffixLength == 0 || entityLength == 0) {
+                    return new ByteRange(entityLength, entityLength - 1,
+                            entityLength);
+                }
+                return new ByteRange(
+                        Math.max(0, entityLength - suffixLength),
+                        entityLength - 1, entityLength);
+            }
+
+            long first = Long.parseLong(firstString);
+            long last = lastString.isEmpty() ? Long.MAX_VALUE
+                    : Long.parseLong(lastString);
+            if (first < 0 || last < first) {
+                return null;
+            }
+            return new ByteRange(first, Math.min(last, entityLength - 1),
+                    entityLength);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the range overlaps the entity. A response to a request
+     * with an unsatisfiable range should have the status 416 (Range Not
+     * Satisfiable).
+     *
+     * @return <code>true</code> if the range can be served,
+     *         <code>false</code> otherwise
+     */
+    boolean isSatisfiable() {
+        return first < entityLength && first <= last;
+    }
+
+    /**
+     * Gets the offset of the first byte in the range.
+     *
+     * @return the first byte offset
+     */
+    long getFirst() {
+        return first;
+    }
+
+    /**
+     * Gets the offset of the last byte in the range, inclusive.
+     *
+     * @return the last byte offset
+     */
+    long getLast() {
+        return last;
+    }
+
+    /**
+     * Gets the number of bytes in a satisfiable range.
+     *
+     * @return the range length in bytes
+     */
+    long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * Gets the value of the <code>Content-Range</code> header for a response
+     * to this range.
+     *
+     * @return the content range header value
+     */
+    String getContentRange() {
+        if (!isSatisfiable()) {
+            return "bytes */" + entityLength;
+        }
+        return "bytes " + first + "-" + last + "/" + entityLength;
+    }
+}
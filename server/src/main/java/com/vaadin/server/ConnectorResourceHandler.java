@@ -62,26 +62,19 @@ public class ConnectorResourceHandler implements RequestHandler {
         String cid = matcher.group(2);
         String key = matcher.group(3);
 
-        session.lock();
-        UI ui;
-        ClientConnector connector;
-        try {
-            ui = session.getUIById(Integer.parseInt(uiId));
-            if (ui == null) {
-                return error(request, response,
-                        "Ignoring connector request for no-existent root "
-                                + uiId);
-            }
-
-            connector = ui.getConnectorTracker().getConnector(cid);
-            if (connector == null) {
-                return error(request, response,
-                        "Ignoring connector request for no-existent connector "
-                                + cid + " in root " + uiId);
-            }
+        // The lookups are safe without locking, the connector locks itself
+        // while handling the request
+        UI ui = session.getUIById(Integer.parseInt(uiId));
+        if (ui == null) {
+            return error(request, response,
+                    "Ignoring connector request for no-existent root " + uiId);
+        }
 
-        } finally {
-            session.unlock();
+        ClientConnector connector = ui.getConnectorTracker().getConnector(cid);
+        if (connector == null) {
+            return error(request, response,
+                    "Ignoring connector request for no-existent connector "
+                            + cid + " in root " + uiId);
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
@@ -95,12 +88,12 @@ public class ConnectorResourceHandler implements RequestHandler {
                                 + key);
             }
         } catch (Exception e) {
-            session.lock();
+            session.lockUI(ui);
             try {
                 session.getCommunicationManager()
                         .handleConnectorRelatedException(connector, e);
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
         } finally {
             CurrentInstance.restoreInstances(oldInstances);
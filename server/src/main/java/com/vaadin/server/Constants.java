@@ -50,6 +50,24 @@ public interface Constants {
             + "in web.xml. The default of 5min will be used.\n"
             + "===========================================================";
 
+    static final String WARNING_SESSION_HOUSEKEEPING_INTERVAL_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: sessionHousekeepingInterval has been set to a non integer\n"
+            + "value in web.xml. Sessions will be cleaned up after each request.\n"
+            + "===========================================================";
+
+    static final String WARNING_COMPRESSION_THRESHOLD_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: compressionThreshold has been set to a non integer value\n"
+            + "in web.xml. Responses will not be compressed.\n"
+            + "===========================================================";
+
+    static final String WARNING_BACKGROUND_TASK_LIMIT_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: backgroundTaskLimit has been set to a negative or\n"
+            + "non integer value in web.xml. The default limit will be used.\n"
+            + "===========================================================";
+
     static final String WARNING_PUSH_MODE_NOT_RECOGNIZED = "\n"
             + "===========================================================\n"
             + "WARNING: pushMode has been set to an unrecognized value\n"
@@ -116,6 +134,14 @@ public interface Constants {
     static final String SERVLET_PARAMETER_SYNC_ID_CHECK = "syncIdCheck";
     static final String SERVLET_PARAMETER_SENDURLSASPARAMETERS = "sendUrlsAsParameters";
     static final String SERVLET_PARAMETER_PUSH_SUSPEND_TIMEOUT_LONGPOLLING = "pushLongPollingSuspendTimeout";
+    static final String SERVLET_PARAMETER_STREAMING_UIDL = "streamingUidl";
+    static final String SERVLET_PARAMETER_INCREMENTAL_STATE_ENCODING = "incrementalStateEncoding";
+    static final String SERVLET_PARAMETER_STATIC_RESOURCE_CACHE = "staticResourceCache";
+    static final String SERVLET_PARAMETER_UI_LOCKING = "uiLocking";
+    static final String SERVLET_PARAMETER_SESSION_HOUSEKEEPING_INTERVAL = "sessionHousekeepingInterval";
+    static final String SERVLET_PARAMETER_REQUEST_METRICS = "requestMetrics";
+    static final String SERVLET_PARAMETER_COMPRESSION_THRESHOLD = "compressionThreshold";
+    static final String SERVLET_PARAMETER_BACKGROUND_TASK_LIMIT = "backgroundTaskLimit";
     /**
      * Name of system or context property to write declarative syntax with the
      * old "v-" prefix or with the new "vaadin-" prefix. The default value
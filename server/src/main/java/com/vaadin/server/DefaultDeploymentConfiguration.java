@@ -54,6 +54,56 @@ public class DefaultDeploymentConfiguration
 
     public static final boolean DEFAULT_SEND_URLS_AS_PARAMETERS = true;
 
+    /**
+     * Default value for {@link #isStreamingUidlEnabled()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final boolean DEFAULT_STREAMING_UIDL = false;
+
+    /**
+     * Default value for {@link #isIncrementalStateEncodingEnabled()} =
+     * {@value} .
+     *
+     * @since 8.1
+     */
+    public static final boolean DEFAULT_INCREMENTAL_STATE_ENCODING = false;
+
+    /**
+     * Default value for {@link #isStaticResourceCacheEnabled()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final boolean DEFAULT_STATIC_RESOURCE_CACHE = false;
+
+    /**
+     * Default value for {@link #isUILockingEnabled()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final boolean DEFAULT_UI_LOCKING = false;
+
+    /**
+     * Default value for {@link #getSessionHousekeepingInterval()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final int DEFAULT_SESSION_HOUSEKEEPING_INTERVAL = 0;
+
+    /**
+     * Default value for {@link #isRequestMetricsEnabled()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final boolean DEFAULT_REQUEST_METRICS = false;
+
+    /**
+     * Default value for {@link #getCompressionThreshold()} = {@value} .
+     *
+     * @since 8.1
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = -1;
+
     private final Properties initParameters;
     private boolean productionMode;
     private boolean xsrfProtectionEnabled;
@@ -64,6 +114,13 @@ public class DefaultDeploymentConfiguration
     private final Class<?> systemPropertyBaseClass;
     private boolean syncIdCheck;
     private boolean sendUrlsAsParameters;
+    private boolean streamingUidl;
+    private boolean incrementalStateEncoding;
+    private boolean staticResourceCache;
+    private boolean uiLocking;
+    private int sessionHousekeepingInterval;
+    private boolean requestMetrics;
+    private int compressionThreshold;
 
     /**
      * Create a new deployment configuration instance.
@@ -88,6 +145,13 @@ public class DefaultDeploymentConfiguration
         checkPushMode();
         checkSyncIdCheck();
         checkSendUrlsAsParameters();
+        checkStreamingUidl();
+        checkIncrementalStateEncoding();
+        checkStaticResourceCache();
+        checkUILocking();
+        checkSessionHousekeepingInterval();
+        checkRequestMetrics();
+        checkCompressionThreshold();
     }
 
     @Override
@@ -245,6 +309,76 @@ public class DefaultDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isStreamingUidlEnabled() {
+        return streamingUidl;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isIncrementalStateEncodingEnabled() {
+        return incrementalStateEncoding;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isStaticResourceCacheEnabled() {
+        return staticResourceCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isUILockingEnabled() {
+        return uiLocking;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is 0, i.e. sessions are cleaned up after each request.
+     */
+    @Override
+    public int getSessionHousekeepingInterval() {
+        return sessionHousekeepingInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isRequestMetricsEnabled() {
+        return requestMetrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is -1, i.e. responses are not compressed.
+     */
+    @Override
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -342,6 +476,65 @@ public class DefaultDeploymentConfiguration
                         .equals("true");
     }
 
+    private void checkStreamingUidl() {
+        streamingUidl = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_STREAMING_UIDL,
+                Boolean.toString(DEFAULT_STREAMING_UIDL)).equals("true");
+    }
+
+    private void checkIncrementalStateEncoding() {
+        incrementalStateEncoding = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_INCREMENTAL_STATE_ENCODING,
+                Boolean.toString(DEFAULT_INCREMENTAL_STATE_ENCODING))
+                        .equals("true");
+    }
+
+    private void checkStaticResourceCache() {
+        staticResourceCache = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE,
+                Boolean.toString(DEFAULT_STATIC_RESOURCE_CACHE))
+                        .equals("true");
+    }
+
+    private void checkUILocking() {
+        uiLocking = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_UI_LOCKING,
+                Boolean.toString(DEFAULT_UI_LOCKING)).equals("true");
+    }
+
+    private void checkSessionHousekeepingInterval() {
+        try {
+            sessionHousekeepingInterval = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_SESSION_HOUSEKEEPING_INTERVAL,
+                            Integer.toString(
+                                    DEFAULT_SESSION_HOUSEKEEPING_INTERVAL)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_SESSION_HOUSEKEEPING_INTERVAL_NOT_NUMERIC);
+            sessionHousekeepingInterval = DEFAULT_SESSION_HOUSEKEEPING_INTERVAL;
+        }
+    }
+
+    private void checkRequestMetrics() {
+        requestMetrics = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_REQUEST_METRICS,
+                Boolean.toString(DEFAULT_REQUEST_METRICS)).equals("true");
+    }
+
+    private void checkCompressionThreshold() {
+        try {
+            compressionThreshold = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_COMPRESSION_THRESHOLD,
+                            Integer.toString(DEFAULT_COMPRESSION_THRESHOLD)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_COMPRESSION_THRESHOLD_NOT_NUMERIC);
+            compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        }
+    }
+
     private Logger getLogger() {
         return Logger.getLogger(getClass().getName());
     }
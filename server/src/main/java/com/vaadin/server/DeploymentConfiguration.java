@@ -80,6 +80,104 @@ public interface DeploymentConfiguration extends Serializable {
      */
     public boolean isSendUrlsAsParameters();
 
+    /**
+     * Returns whether shared state, hierarchy and RPC information of UIDL
+     * messages should be written directly to the message writer instead of
+     * first being collected into intermediate JSON trees. Both modes produce
+     * the same output.
+     * <p>
+     * This only avoids building the intermediate trees. A UIDL response is
+     * still written to memory in full before it is sent, since a critical
+     * notification is sent instead if writing fails and since the length of
+     * the response decides whether it is compressed.
+     *
+     * @since 8.1
+     * @return <code>true</code> if streaming UIDL writing is enabled;
+     *         <code>false</code> otherwise
+     */
+    public boolean isStreamingUidlEnabled();
+
+    /**
+     * Returns whether shared state changes should be encoded incrementally.
+     * When enabled, properties of an immutable type such as strings, numbers
+     * and enums are only encoded if their value has changed since the state
+     * was last sent to the client. Collections and nested beans are always
+     * encoded and compared to the previously sent value.
+     *
+     * @since 8.1
+     * @return <code>true</code> if incremental state encoding is enabled;
+     *         <code>false</code> otherwise
+     */
+    public boolean isIncrementalStateEncodingEnabled();
+
+    /**
+     * Returns whether static resources in the VAADIN directory should be
+     * served through an in-memory cache. When enabled, each resource and its
+     * precompressed variants are looked up only once, small resources are kept
+     * in memory and the responses support entity tags and byte range requests.
+     *
+     * @since 8.1
+     * @return <code>true</code> if the static resource cache is enabled;
+     *         <code>false</code> otherwise
+     */
+    public boolean isStaticResourceCacheEnabled();
+
+    /**
+     * Returns whether requests and access tasks for a single UI should only
+     * lock that UI instead of the whole session. When enabled, UIDL, heartbeat,
+     * push and connector resource requests for different UIs in the same
+     * session can be handled concurrently. Operations that affect the whole
+     * session, such as creating and removing UIs, still lock the session.
+     *
+     * @see VaadinSession#lockUI(com.vaadin.ui.UI)
+     *
+     * @since 8.1
+     * @return <code>true</code> if UIs are locked separately;
+     *         <code>false</code> if the session is locked for all requests
+     */
+    public boolean isUILockingEnabled();
+
+    /**
+     * Returns the number of seconds between background sweeps that close
+     * inactive UIs and expired sessions, or a non-positive number if this is
+     * instead done at the end of every request. When enabled, the end of a
+     * request only cleans up the session right away if the session or the UI
+     * of the request has been closed.
+     *
+     * @see VaadinService#requestEnd(VaadinRequest, VaadinResponse,
+     *      VaadinSession)
+     *
+     * @since 8.1
+     * @return the time between session housekeeping sweeps in seconds
+     */
+    public int getSessionHousekeepingInterval();
+
+    /**
+     * Returns whether request handling metrics such as request latencies,
+     * session lock wait times and response sizes should be collected and
+     * published as a JMX MBean.
+     *
+     * @see VaadinService#getRequestMetrics()
+     *
+     * @since 8.1
+     * @return <code>true</code> if request metrics are collected;
+     *         <code>false</code> otherwise
+     */
+    public boolean isRequestMetricsEnabled();
+
+    /**
+     * Returns the minimum size in bytes of UIDL responses that are gzip
+     * compressed when the browser accepts a compressed response, or a negative
+     * number if responses should never be compressed by the framework.
+     *
+     * @see VaadinService#getResponseCompressor()
+     *
+     * @since 8.1
+     * @return the compression threshold in bytes, or a negative number if
+     *         compression is disabled
+     */
+    public int getCompressionThreshold();
+
     /**
      * Returns whether a session should be closed when all its open UIs have
      * been idle for longer than its configured maximum inactivity time.
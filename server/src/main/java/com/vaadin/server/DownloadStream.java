@@ -16,6 +16,7 @@
 
 package com.vaadin.server;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,6 +27,7 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.vaadin.server.StreamResource.SeekableStreamSource;
 import com.vaadin.util.EncodeUtil;
 
 /**
@@ -35,6 +37,13 @@ import com.vaadin.util.EncodeUtil;
  * session to prevent locking the session during long file downloads. If your
  * DownloadStream uses anything from the session, you must handle the locking.
  * </p>
+ * <p>
+ * If the length of the data is known, single byte range requests are supported
+ * so that clients can seek in media files and resume interrupted downloads.
+ * The data before the requested range is skipped, or not read at all if the
+ * stream is a {@link FileInputStream} or the download stream has been created
+ * for a {@link SeekableStreamSource}.
+ * </p>
  *
  * @author Vaadin Ltd.
  * @since 3.0
@@ -66,6 +75,12 @@ public class DownloadStream implements Serializable {
 
     private int bufferSize = 0;
 
+    private SeekableStreamSource seekableSource;
+
+    private long length = -1;
+
+    private long lastModified = -1;
+
     /**
      * Creates a new instance of DownloadStream.
      */
@@ -76,12 +91,34 @@ public class DownloadStream implements Serializable {
         setFileName(fileName);
     }
 
+    /**
+     * Creates a new download stream for a seekable source. The source is only
+     * opened when the stream is written, starting from the first requested
+     * byte.
+     *
+     * @since 8.1
+     * @param source
+     *            the source of the data, not <code>null</code>
+     * @param contentType
+     *            the MIME type of the data
+     * @param fileName
+     *            the file name of the data
+     */
+    public DownloadStream(SeekableStreamSource source, String contentType,
+            String fileName) {
+        this((InputStream) null, contentType, fileName);
+        seekableSource = source;
+    }
+
     /**
      * Gets downloadable stream.
      *
      * @return output stream.
      */
     public InputStream getStream() {
+        if (stream == null && seekableSource != null) {
+            stream = seekableSource.getStream(0);
+        }
         return stream;
     }
 
@@ -207,6 +244,69 @@ public class DownloadStream implements Serializable {
         this.cacheTime = cacheTime;
     }
 
+    /**
+     * Gets the length of the data in bytes. If no length has been set, the
+     * length of a seekable source or the value of the
+     * <code>Content-Length</code> parameter is used.
+     *
+     * @since 8.1
+     * @return the length of the data, or -1 if it is not known
+     */
+    public long getLength() {
+        if (length >= 0) {
+            return length;
+        }
+        if (seekableSource != null) {
+            return seekableSource.getLength();
+        }
+        String contentLength = getParameter("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // Not a valid length
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the length of the data in bytes. Byte range requests are only
+     * supported when the length is known.
+     *
+     * @since 8.1
+     * @param length
+     *            the length of the data, or -1 if it is not known
+     */
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Gets the time when the data was last modified.
+     *
+     * @since 8.1
+     * @return the modification time in milliseconds since the epoch, or -1 if
+     *         it is not known
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Sets the time when the data was last modified. If set, it is sent in
+     * the <code>Last-Modified</code> header and used for evaluating
+     * <code>If-Range</code> headers.
+     *
+     * @since 8.1
+     * @param lastModified
+     *            the modification time in milliseconds since the epoch, or -1
+     *            if it is not known
+     */
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
     /**
      * Gets the size of the download buffer.
      *
@@ -257,8 +357,24 @@ public class DownloadStream implements Serializable {
             return;
         }
 
+        long length = getLength();
+        ByteRange range = null;
+        if (length >= 0 && request != null && isIfRangeSatisfied(request)) {
+            range = ByteRange.parse(request.getHeader("Range"), length);
+        }
+
         // Download from given stream
-        final InputStream data = getStream();
+        final InputStream data;
+        long skip = 0;
+        if (range != null && range.isSatisfiable() && stream == null
+                && seekableSource != null) {
+            data = seekableSource.getStream(range.getFirst());
+        } else {
+            data = getStream();
+            if (range != null && range.isSatisfiable()) {
+                skip = range.getFirst();
+            }
+        }
         if (data == null) {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             return;
@@ -293,25 +409,33 @@ public class DownloadStream implements Serializable {
 
                 response.setHeader(CONTENT_DISPOSITION, contentDisposition);
 
-                int bufferSize = getBufferSize();
-                if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
-                    bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+                if (lastModified > 0) {
+                    response.setDateHeader("Last-Modified", lastModified);
+                }
+                long count = -1;
+                if (length >= 0) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    if (range != null) {
+                        response.setHeader("Content-Range",
+                                range.getContentRange());
+                        if (!range.isSatisfiable()) {
+                            response.setStatus(
+                                    HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                            response.setContentLength(0);
+                            return;
+                        }
+                        response.setStatus(
+                                HttpServletResponse.SC_PARTIAL_CONTENT);
+                        count = range.getLength();
+                        response.setHeader("Content-Length",
+                                String.valueOf(count));
+                    }
                 }
-                final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
 
                 out = response.getOutputStream();
 
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
-
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
-                    }
-                }
+                // Skipping a FileInputStream seeks without reading
+                copy(data, skip, count, out);
             } finally {
                 tryToCloseStream(out);
                 tryToCloseStream(data);
@@ -319,6 +443,60 @@ public class DownloadStream implements Serializable {
         }
     }
 
+    private boolean isIfRangeSatisfied(VaadinRequest request) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Entity tags must match exactly, weak tags never match
+            return !ifRange.startsWith("W/")
+                    && ifRange.equals(getParameter("ETag"));
+        }
+        try {
+            return lastModified > 0 && request.getDateHeader(
+                    "If-Range") == lastModified - lastModified % 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void copy(InputStream data, long skip, long count,
+            OutputStream out) throws IOException {
+        while (skip > 0) {
+            long skipped = data.skip(skip);
+            if (skipped <= 0) {
+                // skip() may return 0 before the end of the stream
+                if (data.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            skip -= skipped;
+        }
+
+        int bufferSize = getBufferSize();
+        if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
+            bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+        }
+        final byte[] buffer = new byte[bufferSize];
+        int bytesRead = 0;
+
+        long remaining = count < 0 ? Long.MAX_VALUE : count;
+        long totalWritten = 0;
+        while (remaining > 0 && (bytesRead = data.read(buffer, 0,
+                (int) Math.min(buffer.length, remaining))) > 0) {
+            out.write(buffer, 0, bytesRead);
+            remaining -= bytesRead;
+
+            totalWritten += bytesRead;
+            if (totalWritten >= buffer.length) {
+                // Avoid chunked encoding for small resources
+                out.flush();
+            }
+        }
+    }
+
     /**
      * Returns the filename formatted for inclusion in a Content-Disposition
      * header. Includes both a plain version of the name and a UTF-8 version
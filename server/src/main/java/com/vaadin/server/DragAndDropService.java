@@ -61,7 +61,8 @@ public class DragAndDropService implements VariableOwner, ClientConnector {
     }
 
     @Override
-    public void changeVariables(Object source, Map<String, Object> variables) {
+    public synchronized void changeVariables(Object source,
+            Map<String, Object> variables) {
         Object owner = variables.get("dhowner");
 
         final Component sourceComponent = (Component) variables
@@ -233,7 +234,8 @@ public class DragAndDropService implements VariableOwner, ClientConnector {
         return isConnectorEnabled();
     }
 
-    public void printJSONResponse(Writer outWriter) throws IOException {
+    public synchronized void printJSONResponse(Writer outWriter)
+            throws IOException {
         if (isDirty()) {
 
             outWriter.write(", \"dd\":");
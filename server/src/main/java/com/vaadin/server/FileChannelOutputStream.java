@@ -0,0 +1,127 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * An output stream that writes directly to a {@link FileChannel}, without any
+ * intermediate buffering.
+ * <p>
+ * When a {@link StreamVariable} returns an instance of this class as its
+ * output stream, uploads are read from the request in chunks of
+ * {@link #getBufferSize()} bytes and each chunk is written to the channel with
+ * a single call. Large buffer sizes reduce the number of system calls for
+ * multi-gigabyte uploads.
+ *
+ * @see com.vaadin.ui.Upload.FileChannelReceiver
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class FileChannelOutputStream extends OutputStream {
+
+    /**
+     * The default buffer size, {@value} bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int bufferSize;
+
+    /**
+     * Creates a new output stream writing to the given channel.
+     *
+     * @param channel
+     *            the channel to write to, not <code>null</code>
+     * @param bufferSize
+     *            the preferred number of bytes to write at a time, greater
+     *            than zero
+     */
+    public FileChannelOutputStream(FileChannel channel, int bufferSize) {
+        Objects.requireNonNull(channel, "Channel cannot be null");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Buffer size must be greater than zero");
+        }
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Opens a file for writing and creates an output stream for it. The file
+     * is created if it does not exist and truncated if it does.
+     *
+     * @param path
+     *            the file to write to, not <code>null</code>
+     * @param bufferSize
+     *            the preferred number of bytes to write at a time, greater
+     *            than zero
+     * @return a new output stream
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    public static FileChannelOutputStream open(Path path, int bufferSize)
+            throws IOException {
+        return new FileChannelOutputStream(
+                FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE),
+                bufferSize);
+    }
+
+    /**
+     * Gets the preferred number of bytes to write at a time.
+     *
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the channel that this stream writes to.
+     *
+     * @return the file channel
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
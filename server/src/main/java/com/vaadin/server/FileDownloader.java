@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import com.vaadin.shared.extension.filedownloader.FileDownloaderState;
 import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
 
 /**
  * Extension that starts a download when the extended component is clicked. This
@@ -131,8 +132,9 @@ public class FileDownloader extends AbstractExtension {
             return false;
         }
         VaadinSession session = getSession();
+        UI ui = getUI();
 
-        session.lock();
+        session.lockUI(ui);
         DownloadStream stream;
 
         try {
@@ -158,7 +160,7 @@ public class FileDownloader extends AbstractExtension {
                 stream.setContentType("application/octet-stream;charset=UTF-8");
             }
         } finally {
-            session.unlock();
+            session.unlockUI(ui);
         }
         stream.writeResponse(request, response);
         return true;
@@ -71,6 +71,8 @@ public class FileResource implements ConnectorResource {
                     getFilename());
             ds.setParameter("Content-Length",
                     String.valueOf(sourceFile.length()));
+            ds.setLength(sourceFile.length());
+            ds.setLastModified(sourceFile.lastModified());
 
             ds.setCacheTime(cacheTime);
             return ds;
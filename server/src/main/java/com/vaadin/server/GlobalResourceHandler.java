@@ -60,6 +60,12 @@ public class GlobalResourceHandler implements RequestHandler {
     private final Map<String, ConnectorResource> legacyResources = new HashMap<>();
     private int nextLegacyId = 0;
 
+    /*
+     * The maps above are guarded by this instance since connectors in
+     * different UIs register and unregister resources concurrently when
+     * per-UI locking is enabled.
+     */
+
     // APP/global/[uiid]/[type]/[id]
     private static final Pattern pattern = Pattern
             .compile("^/?" + ApplicationConstants.APP_PATH + '/'
@@ -86,35 +92,36 @@ public class GlobalResourceHandler implements RequestHandler {
             return error(request, response,
                     pathInfo + " is not a valid global resource path");
         }
-        session.lock();
+        // The lookups are safe without locking
+        UI ui = session.getUIById(Integer.parseInt(uiid));
+        if (ui == null) {
+            return error(request, response, "No UI found for id  " + uiid);
+        }
+        ConnectorResource resource;
+        if (LEGACY_TYPE.equals(type)) {
+            resource = getLegacyResource(key);
+        } else {
+            return error(request, response, "Unknown global resource type "
+                    + type + " in requested path " + pathInfo);
+        }
+
+        if (resource == null) {
+            return error(request, response,
+                    "Global resource " + key + " not found");
+        }
+
+        session.lockUI(ui);
         Map<Class<?>, CurrentInstance> oldInstances = null;
         DownloadStream stream = null;
         try {
-            UI ui = session.getUIById(Integer.parseInt(uiid));
-            if (ui == null) {
-                return error(request, response, "No UI found for id  " + uiid);
-            }
             oldInstances = CurrentInstance.setCurrent(ui);
-            ConnectorResource resource;
-            if (LEGACY_TYPE.equals(type)) {
-                resource = legacyResources.get(key);
-            } else {
-                return error(request, response, "Unknown global resource type "
-                        + type + " in requested path " + pathInfo);
-            }
-
-            if (resource == null) {
-                return error(request, response,
-                        "Global resource " + key + " not found");
-            }
-
             stream = resource.getStream();
             if (stream == null) {
                 return error(request, response,
                         "Resource " + resource + " didn't produce any stream.");
             }
         } finally {
-            session.unlock();
+            session.unlockUI(ui);
             if (oldInstances != null) {
                 CurrentInstance.restoreInstances(oldInstances);
             }
@@ -136,7 +143,8 @@ public class GlobalResourceHandler implements RequestHandler {
      * @param ownerConnector
      *            the connector to which the resource belongs
      */
-    public void register(Resource resource, ClientConnector ownerConnector) {
+    public synchronized void register(Resource resource,
+            ClientConnector ownerConnector) {
         if (resource instanceof ConnectorResource) {
             if (!(ownerConnector instanceof LegacyComponent)) {
                 throw new IllegalArgumentException(
@@ -157,6 +165,10 @@ public class GlobalResourceHandler implements RequestHandler {
         }
     }
 
+    private synchronized ConnectorResource getLegacyResource(String key) {
+        return legacyResources.get(key);
+    }
+
     private void unregisterResource(Resource resource) {
         String oldUri = legacyResourceKeys.remove(resource);
         if (oldUri != null) {
@@ -192,7 +204,10 @@ public class GlobalResourceHandler implements RequestHandler {
     public String getUri(ClientConnector connector,
             ConnectorResource resource) {
         // app://APP/global/[ui]/[type]/[id]
-        String uri = legacyResourceKeys.get(resource);
+        String uri;
+        synchronized (this) {
+            uri = legacyResourceKeys.get(resource);
+        }
         if (uri != null && !uri.isEmpty()) {
             return ApplicationConstants.APP_PROTOCOL_PREFIX
                     + ApplicationConstants.APP_PATH + '/'
@@ -211,7 +226,7 @@ public class GlobalResourceHandler implements RequestHandler {
      *            the connector for which any registered resources can be
      *            released.
      */
-    public void unregisterConnector(ClientConnector connector) {
+    public synchronized void unregisterConnector(ClientConnector connector) {
         Set<Resource> set = usedResources.remove(connector);
         if (set == null) {
             return;
@@ -20,6 +20,9 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -46,6 +49,7 @@ import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.communication.UidlValue;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.util.ReflectTools;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -134,6 +138,10 @@ public class JsonCodec implements Serializable {
             return field.getGenericType();
         }
 
+        private MethodHandle createGetter() throws IllegalAccessException {
+            return MethodHandles.lookup().unreflectGetter(field);
+        }
+
         public static Collection<FieldProperty> find(Class<?> type)
                 throws IntrospectionException {
             Field[] fields = type.getFields();
@@ -196,6 +204,232 @@ public class JsonCodec implements Serializable {
             return pd.getReadMethod().getGenericReturnType();
         }
 
+        private MethodHandle createGetter() throws IllegalAccessException {
+            return MethodHandles.lookup().unreflect(pd.getReadMethod());
+        }
+
+    }
+
+    /**
+     * Encoder for the properties of one bean type. Property names, types and
+     * read accessors are resolved once per type, with the read accessors
+     * compiled into method handles, so that encoding an instance does not need
+     * to go through the introspection or reflection API. Properties for which
+     * no method handle can be created are read through their
+     * {@link BeanProperty} instead.
+     */
+    private static class BeanEncoder implements Serializable {
+        private static final MethodType GETTER_TYPE = MethodType
+                .methodType(Object.class, Object.class);
+
+        private final BeanProperty[] properties;
+        private final String[] names;
+        private final Type[] types;
+        private final MethodHandle[] getters;
+        private final boolean[] immutable;
+
+        public BeanEncoder(Class<?> type) throws IntrospectionException {
+            Collection<BeanProperty> beanProperties = getProperties(type);
+            int count = beanProperties.size();
+            properties = beanProperties.toArray(new BeanProperty[count]);
+            names = new String[count];
+            types = new Type[count];
+            getters = new MethodHandle[count];
+            immutable = new boolean[count];
+
+            Set<String> seenNames = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                BeanProperty property = properties[i];
+                String name = property.getName();
+                if (!seenNames.add(name)) {
+                    throw new RuntimeException("Can't encode " + type.getName()
+                            + " as it has multiple properties with the name "
+                            + name.toLowerCase()
+                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+                }
+                names[i] = name;
+                // We can't use PropertyDescriptor.getPropertyType() as it does
+                // not support generics
+                types[i] = property.getType();
+                getters[i] = createGetter(property);
+                immutable[i] = isImmutableType(types[i]);
+            }
+        }
+
+        /*
+         * Strings, primitives, their wrappers and enums can be compared with
+         * equals() instead of by encoding them.
+         */
+        private static boolean isImmutableType(Type type) {
+            if (!(type instanceof Class<?>)) {
+                return false;
+            }
+            Class<?> typeClass = (Class<?>) type;
+            return typeClass.isPrimitive() || typeClass.isEnum()
+                    || typeClass == String.class || typeClass == Boolean.class
+                    || typeClass == Character.class
+                    || typeClass == Integer.class || typeClass == Long.class
+                    || typeClass == Short.class || typeClass == Byte.class
+                    || typeClass == Float.class || typeClass == Double.class;
+        }
+
+        private static MethodHandle createGetter(BeanProperty property) {
+            try {
+                MethodHandle getter;
+                if (property instanceof MethodProperty) {
+                    getter = ((MethodProperty) property).createGetter();
+                } else if (property instanceof FieldProperty) {
+                    getter = ((FieldProperty) property).createGetter();
+                } else {
+                    return null;
+                }
+                return getter.asType(GETTER_TYPE);
+            } catch (IllegalAccessException | SecurityException e) {
+                // Use the reflective BeanProperty for this property
+                return null;
+            }
+        }
+
+        private Object getValue(int index, Object bean) throws Throwable {
+            MethodHandle getter = getters[index];
+            if (getter == null) {
+                return properties[index].getValue(bean);
+            }
+            return (Object) getter.invokeExact(bean);
+        }
+
+        public EncodeResult encode(Object value, JsonObject referenceValue,
+                ConnectorTracker connectorTracker) throws Throwable {
+            JsonObject encoded = Json.createObject();
+            JsonObject diff = Json.createObject();
+
+            for (int i = 0; i < names.length; i++) {
+                String fieldName = names[i];
+                Object fieldValue = getValue(i, value);
+
+                JsonValue fieldReference;
+                if (referenceValue != null) {
+                    fieldReference = referenceValue.get(fieldName);
+                    if (fieldReference instanceof JsonNull) {
+                        fieldReference = null;
+                    }
+                } else {
+                    fieldReference = null;
+                }
+
+                JsonValue encodedValue = encodeSimpleValue(fieldValue,
+                        fieldReference);
+                if (encodedValue != null) {
+                    // Unchanged simple values reuse the reference instance
+                    encoded.put(fieldName, encodedValue);
+                    if (encodedValue != fieldReference) {
+                        diff.put(fieldName, encodedValue);
+                    }
+                    continue;
+                }
+
+                EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                        fieldReference, types[i], connectorTracker);
+                encoded.put(fieldName, encodeResult.getEncodedValue());
+
+                if (valueChanged(encodeResult.getEncodedValue(),
+                        fieldReference)) {
+                    diff.put(fieldName, encodeResult.getDiffOrValue());
+                }
+            }
+            return new EncodeResult(encoded, diff);
+        }
+
+        /*
+         * The first half of the returned array holds the property values and
+         * the second half the encoded values they correspond to. The encoded
+         * instances are compared by identity to notice when the encoded value
+         * has been modified in place, e.g. for a change from the client.
+         */
+        public Object[] getImmutableValues(Object value,
+                JsonObject encodedValue) throws Throwable {
+            Object[] values = new Object[names.length * 2];
+            for (int i = 0; i < names.length; i++) {
+                if (immutable[i]) {
+                    values[i] = getValue(i, value);
+                    values[names.length + i] = encodedValue.get(names[i]);
+                }
+            }
+            return values;
+        }
+
+        public JsonObject encodeChanges(Object value, JsonObject encodedValue,
+                Object[] previousValues, ConnectorTracker connectorTracker)
+                throws Throwable {
+            JsonObject diff = Json.createObject();
+
+            for (int i = 0; i < names.length; i++) {
+                Object fieldValue = getValue(i, value);
+                String fieldName = names[i];
+                JsonValue fieldReference = encodedValue.get(fieldName);
+                if (immutable[i]) {
+                    Object previousValue = previousValues[i];
+                    if (fieldReference == previousValues[names.length + i]
+                            && (fieldValue == previousValue
+                                    || (fieldValue != null && fieldValue
+                                            .equals(previousValue)))) {
+                        continue;
+                    }
+                    previousValues[i] = fieldValue;
+                }
+
+                if (fieldReference instanceof JsonNull) {
+                    fieldReference = null;
+                }
+
+                EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                        fieldReference, types[i], connectorTracker);
+                if (valueChanged(encodeResult.getEncodedValue(),
+                        fieldReference)) {
+                    encodedValue.put(fieldName,
+                            encodeResult.getEncodedValue());
+                    diff.put(fieldName, encodeResult.getDiffOrValue());
+                }
+                if (immutable[i]) {
+                    previousValues[names.length + i] = encodedValue
+                            .get(fieldName);
+                }
+            }
+            return diff;
+        }
+
+        /*
+         * Encodes strings, booleans and numbers directly. Returns the reference
+         * value itself if it is equal to the encoded value, or null if the
+         * value is not of a simple type.
+         */
+        private static JsonValue encodeSimpleValue(Object value,
+                JsonValue reference) {
+            if (value instanceof String) {
+                if (reference != null && reference.getType() == JsonType.STRING
+                        && reference.asString().equals(value)) {
+                    return reference;
+                }
+                return Json.create((String) value);
+            } else if (value instanceof Boolean) {
+                boolean booleanValue = ((Boolean) value).booleanValue();
+                if (reference != null
+                        && reference.getType() == JsonType.BOOLEAN
+                        && reference.asBoolean() == booleanValue) {
+                    return reference;
+                }
+                return Json.create(booleanValue);
+            } else if (value instanceof Number) {
+                double doubleValue = ((Number) value).doubleValue();
+                if (reference != null && reference.getType() == JsonType.NUMBER
+                        && reference.asNumber() == doubleValue) {
+                    return reference;
+                }
+                return Json.create(doubleValue);
+            } else {
+                return null;
+            }
+        }
     }
 
     /**
@@ -206,6 +440,13 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> typePropertyCache = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of the precompiled encoders for bean types. Will be used from any
+     * thread that happens to process Vaadin requests, so it must be protected
+     * from corruption caused by concurrent access.
+     */
+    private static final ConcurrentMap<Class<?>, BeanEncoder> beanEncoderCache = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> typeToTransportType = new HashMap<>();
 
     /**
@@ -709,53 +950,102 @@ public class JsonCodec implements Serializable {
     }
 
     /*
-     * Loops through the fields of value and encodes them.
+     * Encodes the properties of value using the cached encoder for its type.
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
             JsonObject referenceValue, ConnectorTracker connectorTracker) {
-        JsonObject encoded = Json.createObject();
-        JsonObject diff = Json.createObject();
-
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase()
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
+            return getBeanEncoder(valueType).encode(value, referenceValue,
+                    connectorTracker);
+        } catch (Throwable e) {
+            throw ReflectTools.wrapException(e);
+        }
+    }
 
-                JsonValue fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (fieldReference instanceof JsonNull) {
-                        fieldReference = null;
-                    }
-                } else {
-                    fieldReference = null;
-                }
+    /**
+     * Reads the current values of the properties of the given bean that have
+     * an immutable type such as {@link String}, a primitive type or an enum,
+     * together with their values in the given encoded bean. The returned array
+     * can be passed to
+     * {@link #encodeChanges(Object, Class, JsonObject, Object[], ConnectorTracker)}
+     * to detect which of these properties have been changed since. Properties
+     * that have been modified in place in the encoded bean are also detected,
+     * so the array stays valid as long as the encoded bean is not replaced.
+     * <p>
+     * This method is for internal use only and may be removed in future
+     * versions.
+     *
+     * @since 8.1
+     * @param value
+     *            the bean to read, not <code>null</code>
+     * @param valueType
+     *            the type of the bean
+     * @param encodedValue
+     *            the encoded bean that matches the current values of the bean,
+     *            not <code>null</code>
+     * @return an opaque array describing the immutable properties
+     */
+    public static Object[] getImmutablePropertyValues(Object value,
+            Class<?> valueType, JsonObject encodedValue) {
+        try {
+            return getBeanEncoder(valueType).getImmutableValues(value,
+                    encodedValue);
+        } catch (Throwable e) {
+            throw ReflectTools.wrapException(e);
+        }
+    }
 
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
+    /**
+     * Encodes the properties of a bean that may have changed since it was
+     * last encoded, and updates the previously encoded value accordingly.
+     * <p>
+     * Properties of an immutable type are only encoded if their value differs
+     * from the corresponding value in <code>previousValues</code>. Other
+     * properties, such as collections and nested beans, are always encoded and
+     * compared to the encoded value.
+     * <p>
+     * This method is for internal use only and may be removed in future
+     * versions.
+     *
+     * @since 8.1
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param valueType
+     *            the type of the bean
+     * @param encodedValue
+     *            the previously encoded bean, which is updated with the
+     *            changed properties
+     * @param previousValues
+     *            the values of the immutable properties when the bean was
+     *            encoded, as returned by
+     *            {@link #getImmutablePropertyValues(Object, Class, JsonObject)}.
+     *            Updated with the current values.
+     * @param connectorTracker
+     *            the connector tracker to use
+     * @return a JSON object containing the changed properties
+     */
+    public static JsonObject encodeChanges(Object value, Class<?> valueType,
+            JsonObject encodedValue, Object[] previousValues,
+            ConnectorTracker connectorTracker) {
+        try {
+            return getBeanEncoder(valueType).encodeChanges(value, encodedValue,
+                    previousValues, connectorTracker);
+        } catch (Throwable e) {
+            throw ReflectTools.wrapException(e);
+        }
+    }
 
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
-                }
-            }
-        } catch (Exception e) {
-            // TODO: Should exceptions be handled in a different way?
-            throw new RuntimeException(e);
+    private static BeanEncoder getBeanEncoder(Class<?> type)
+            throws IntrospectionException {
+        BeanEncoder encoder = beanEncoderCache.get(type);
+        if (encoder == null) {
+            encoder = new BeanEncoder(type);
+            // Doesn't matter if the same encoder is created multiple times
+            // from different threads, so there's no need to do e.g.
+            // putIfAbsent
+            beanEncoderCache.put(type, encoder);
         }
-        return new EncodeResult(encoded, diff);
+        return encoder;
     }
 
     /**
@@ -193,7 +193,10 @@ public class JsonPaintTarget implements PaintTarget {
             tag = parent;
         } else {
             changes++;
-            uidlBuffer.print(((changes > 1) ? "," : "") + tag.getJSON());
+            if (changes > 1) {
+                uidlBuffer.print(',');
+            }
+            tag.writeJSON(uidlBuffer);
             tag = null;
         }
     }
@@ -638,7 +641,7 @@ public class JsonPaintTarget implements PaintTarget {
      */
     public void close() throws PaintException {
         if (tag != null) {
-            uidlBuffer.write(tag.getJSON());
+            tag.writeJSON(uidlBuffer);
         }
         flush();
         closed = true;
@@ -765,6 +768,28 @@ public class JsonPaintTarget implements PaintTarget {
             return data.toString();
         }
 
+        /**
+         * Writes the JSON of this tag to the given writer. For a tag that has
+         * not yet been closed, the attributes and children are written
+         * directly instead of first being collected into the tag data.
+         *
+         * @param out
+         *            the writer to write to
+         */
+        public void writeJSON(PrintWriter out) {
+            if (tagClosed) {
+                out.append(data);
+                return;
+            }
+            out.append(data);
+            out.print(attributesAsJsonObject());
+            for (Object child : children) {
+                out.print(startField());
+                out.print(child);
+            }
+            out.print(']');
+        }
+
         public void openChildrenArray() {
             if (!childrenArrayOpen) {
                 // append("c : [");
@@ -58,7 +58,7 @@ import elemental.json.JsonValue;
 public class LegacyCommunicationManager implements Serializable {
 
     // TODO Refactor (#11410)
-    private final HashMap<Integer, ClientCache> uiToClientCache = new HashMap<>();
+    private final Map<Integer, ClientCache> uiToClientCache = new ConcurrentHashMap<>();
 
     /**
      * The session this communication manager is used for
@@ -66,7 +66,7 @@ public class LegacyCommunicationManager implements Serializable {
     private final VaadinSession session;
 
     // TODO Refactor (#11413)
-    private final Map<String, Class<?>> publishedFileContexts = new HashMap<>();
+    private final Map<String, Class<?>> publishedFileContexts = new ConcurrentHashMap<>();
 
     /**
      * TODO New constructor - document me!
@@ -94,6 +94,17 @@ public class LegacyCommunicationManager implements Serializable {
         Class<? extends SharedState> stateType = connector.getStateType();
         JsonValue diffState = connectorTracker.getDiffState(connector);
 
+        boolean incremental = isIncrementalStateEncodingEnabled(uI);
+        if (incremental && diffState != null) {
+            Object[] snapshot = connectorTracker.getStateSnapshot(connector);
+            if (snapshot != null) {
+                // Only encode the properties that may have changed and update
+                // the diff state in place
+                return JsonCodec.encodeChanges(state, stateType,
+                        (JsonObject) diffState, snapshot, connectorTracker);
+            }
+        }
+
         if (diffState == null) {
             // Use an empty state object as reference for full
             // repaints
@@ -105,12 +116,23 @@ public class LegacyCommunicationManager implements Serializable {
         }
         EncodeResult encodeResult = JsonCodec.encode(state, diffState,
                 stateType, uI.getConnectorTracker());
-        connectorTracker.setDiffState(connector,
-                (JsonObject) encodeResult.getEncodedValue());
+        JsonObject encodedValue = (JsonObject) encodeResult.getEncodedValue();
+        connectorTracker.setDiffState(connector, encodedValue);
+        if (incremental) {
+            connectorTracker.setStateSnapshot(connector, JsonCodec
+                    .getImmutablePropertyValues(state, stateType, encodedValue));
+        }
 
         return (JsonObject) encodeResult.getDiff();
     }
 
+    private static boolean isIncrementalStateEncodingEnabled(UI ui) {
+        DeploymentConfiguration configuration = ui.getSession()
+                .getConfiguration();
+        return configuration != null
+                && configuration.isIncrementalStateEncodingEnabled();
+    }
+
     private static JsonValue createReferenceDiffStateState(
             Class<? extends SharedState> stateType) {
         if (JavaScriptConnectorState.class.isAssignableFrom(stateType)) {
@@ -205,7 +227,8 @@ public class LegacyCommunicationManager implements Serializable {
         return publishedFileContexts;
     }
 
-    private String registerPublishedFile(String name, Class<?> context) {
+    private synchronized String registerPublishedFile(String name,
+            Class<?> context) {
         // Add to map of names accepted by servePublishedFile
         if (publishedFileContexts.containsKey(name)) {
             Class<?> oldContext = publishedFileContexts.get(name);
@@ -226,13 +249,9 @@ public class LegacyCommunicationManager implements Serializable {
      */
     @Deprecated
     public ClientCache getClientCache(UI uI) {
-        Integer uiId = Integer.valueOf(uI.getUIId());
-        ClientCache cache = uiToClientCache.get(uiId);
-        if (cache == null) {
-            cache = new ClientCache();
-            uiToClientCache.put(uiId, cache);
-        }
-        return cache;
+        // Different UIs may be accessed concurrently with per-UI locking
+        return uiToClientCache.computeIfAbsent(uI.getUIId(),
+                uiId -> new ClientCache());
     }
 
     /**
@@ -329,7 +348,8 @@ public class LegacyCommunicationManager implements Serializable {
      * @deprecated As of 7.1. Will be removed in the future.
      */
     @Deprecated
-    public String getTagForType(Class<? extends ClientConnector> class1) {
+    public synchronized String getTagForType(
+            Class<? extends ClientConnector> class1) {
         Integer id = typeToKey.get(class1);
         if (id == null) {
             id = nextTypeKey++;
@@ -0,0 +1,581 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves static resources from the VAADIN directory through a cache of
+ * resolved resources. Used by {@link VaadinServlet} when
+ * {@link DeploymentConfiguration#isStaticResourceCacheEnabled()} is
+ * <code>true</code>.
+ * <p>
+ * Each resource is looked up with {@link VaadinServlet#findResourceURL(String)}
+ * only once, together with its precompressed Brotli (<code>.br</code>) and
+ * gzip (<code>.gz</code>) variants. Resources that are not found are not
+ * cached. Variants of at most {@link #MAX_IN_MEMORY_SIZE} bytes are kept in
+ * memory until {@link #MAX_TOTAL_IN_MEMORY_SIZE} bytes are used. Larger
+ * resources are copied to the response through a buffer from their file or,
+ * e.g. for JAR entries, from their URL.
+ * <p>
+ * Responses have a strong entity tag and support conditional requests and
+ * single byte ranges. Range requests are always served from the uncompressed
+ * resource. The precompressed variants are only served if
+ * {@link VaadinServlet#allowServePrecompressedResource(HttpServletRequest, String)}
+ * allows it.
+ * <p>
+ * When <code>checkModifications</code> is enabled, resources that are files
+ * are resolved again if their size or modification time has changed.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+final class StaticResourceCache implements Serializable {
+
+    /**
+     * The maximum size in bytes of a resource variant that is kept in memory.
+     */
+    static final int MAX_IN_MEMORY_SIZE = 128 * 1024;
+
+    /**
+     * The maximum total size in bytes of the resource variants kept in
+     * memory.
+     */
+    static final long MAX_TOTAL_IN_MEMORY_SIZE = 32 * 1024 * 1024;
+
+    private static final String GZIP = "gzip";
+    private static final String BROTLI = "br";
+
+    /**
+     * A single representation of a resource, either the resource itself or
+     * one of its precompressed variants.
+     */
+    private static final class Variant implements Serializable {
+        private final URL url;
+        private final String contentEncoding;
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final byte[] content;
+        private final String eTag;
+
+        private Variant(URL url, String contentEncoding, File file,
+                long length, long lastModified, byte[] content) {
+            this.url = url;
+            this.contentEncoding = contentEncoding;
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.content = content;
+            eTag = createETag(length, lastModified, content, contentEncoding);
+        }
+
+        private boolean isModified() {
+            return file != null && (file.length() != length
+                    || truncateToSeconds(file.lastModified()) != lastModified);
+        }
+
+        private long getMemoryUsage() {
+            return content == null ? 0 : content.length;
+        }
+    }
+
+    private static final class Resource implements Serializable {
+        private final String mimeType;
+        private final Variant identity;
+        private final Variant gzip;
+        private final Variant brotli;
+
+        private Resource(String mimeType, Variant identity, Variant gzip,
+                Variant brotli) {
+            this.mimeType = mimeType;
+            this.identity = identity;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        private boolean hasCompressedVariants() {
+            return gzip != null || brotli != null;
+        }
+
+        private boolean isModified() {
+            return identity.isModified()
+                    || (gzip != null && gzip.isModified())
+                    || (brotli != null && brotli.isModified());
+        }
+
+        private long getMemoryUsage() {
+            return identity.getMemoryUsage()
+                    + (gzip == null ? 0 : gzip.getMemoryUsage())
+                    + (brotli == null ? 0 : brotli.getMemoryUsage());
+        }
+    }
+
+    private final VaadinServlet servlet;
+    private final boolean checkModifications;
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<>();
+    private final AtomicLong memoryUsage = new AtomicLong();
+
+    /**
+     * Creates a new static resource cache.
+     *
+     * @param servlet
+     *            the servlet used for finding resources, not <code>null</code>
+     * @param checkModifications
+     *            <code>true</code> to check whether the files of a cached
+     *            resource have changed each time it is served,
+     *            <code>false</code> to assume that resources never change
+     */
+    StaticResourceCache(VaadinServlet servlet, boolean checkModifications) {
+        this.servlet = servlet;
+        this.checkModifications = checkModifications;
+    }
+
+    /**
+     * Serves a static resource if it can be found.
+     *
+     * @param filename
+     *            the name of the resource, starting with /VAADIN/
+     * @param request
+     *            the request for the resource
+     * @param response
+     *            the response to write to
+     * @return <code>true</code> if the resource was found and served,
+     *         <code>false</code> if the resource was not found or may not be
+     *         accessed
+     * @throws IOException
+     *             if reading the resource or writing the response fails
+     */
+    boolean serve(String filename, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Resource resource = getResource(filename, request);
+        if (resource == null) {
+            return false;
+        }
+
+        servlet.setCacheHeaders(filename, response);
+        if (resource.hasCompressedVariants()) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+
+        Variant variant = selectVariant(resource, request);
+        if (variant.eTag != null) {
+            response.setHeader("ETag", variant.eTag);
+        }
+        if (variant.lastModified > 0) {
+            response.setDateHeader("Last-Modified", variant.lastModified);
+        }
+        if (isNotModified(request, variant)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        if (resource.mimeType != null) {
+            response.setContentType(resource.mimeType);
+        }
+        if (variant.contentEncoding != null) {
+            response.setHeader("Content-Encoding", variant.contentEncoding);
+        }
+
+        long offset = 0;
+        long length = variant.length;
+        if (length >= 0) {
+            response.setHeader("Accept-Ranges", "bytes");
+            ByteRange range = isIfRangeSatisfied(request, variant)
+                    ? ByteRange.parse(request.getHeader("Range"), length)
+                    : null;
+            if (range != null) {
+                response.setHeader("Content-Range", range.getContentRange());
+                if (!range.isSatisfiable()) {
+                    response.setStatus(
+                            HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return true;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                offset = range.getFirst();
+                length = range.getLength();
+            }
+            if (length <= Integer.MAX_VALUE) {
+                response.setContentLength((int) length);
+            } else {
+                response.setHeader("Content-Length", Long.toString(length));
+            }
+        }
+
+        if (!"HEAD".equals(request.getMethod())) {
+            writeContent(variant, offset, length, response.getOutputStream());
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of bytes of resource content kept in memory.
+     *
+     * @return the memory usage in bytes
+     */
+    long getMemoryUsage() {
+        return memoryUsage.get();
+    }
+
+    private Resource getResource(String filename, HttpServletRequest request)
+            throws IOException {
+        Resource resource = resources.get(filename);
+        if (resource != null && checkModifications && resource.isModified()) {
+            remove(filename);
+            resource = null;
+        }
+        if (resource == null) {
+            resource = resolve(filename, request);
+            if (resource == null) {
+                return null;
+            }
+            Resource existing = resources.putIfAbsent(filename, resource);
+            if (existing != null) {
+                // Resolved concurrently by another request
+                memoryUsage.addAndGet(-resource.getMemoryUsage());
+                resource = existing;
+            }
+        }
+        return resource;
+    }
+
+    private void remove(String filename) {
+        Resource removed = resources.remove(filename);
+        if (removed != null) {
+            memoryUsage.addAndGet(-removed.getMemoryUsage());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private Resource resolve(String filename, HttpServletRequest request)
+            throws IOException {
+        URL url = servlet.findResourceURL(filename);
+        if (url == null || !servlet.isAllowedVAADINResourceUrl(request, url)) {
+            return null;
+        }
+        Variant identity = loadVariant(url, null);
+        if (identity == null) {
+            return null;
+        }
+
+        Variant gzip = null;
+        Variant brotli = null;
+        URL gzipUrl = servlet.findResourceURL(filename + ".gz");
+        if (gzipUrl != null
+                && servlet.isAllowedVAADINResourceUrl(request, gzipUrl)) {
+            gzip = loadVariant(gzipUrl, GZIP);
+        }
+        URL brotliUrl = servlet.findResourceURL(filename + ".br");
+        if (brotliUrl != null
+                && servlet.isAllowedVAADINResourceUrl(request, brotliUrl)) {
+            brotli = loadVariant(brotliUrl, BROTLI);
+        }
+
+        return new Resource(servlet.getServletContext().getMimeType(filename),
+                identity, gzip, brotli);
+    }
+
+    private Variant loadVariant(URL url, String contentEncoding)
+            throws IOException {
+        File file = toFile(url);
+        if (file != null) {
+            if (!file.isFile()) {
+                return null;
+            }
+            long length = file.length();
+            long lastModified = truncateToSeconds(file.lastModified());
+            byte[] content = null;
+            if (length <= MAX_IN_MEMORY_SIZE && reserveMemory(length)) {
+                content = Files.readAllBytes(file.toPath());
+                if (content.length != length) {
+                    // Changed while reading
+                    memoryUsage.addAndGet(content.length - length);
+                }
+            }
+            return new Variant(url, contentEncoding, file,
+                    content == null ? length : content.length, lastModified,
+                    content);
+        }
+
+        URLConnection connection = url.openConnection();
+        try (InputStream is = connection.getInputStream()) {
+            long length = connection.getContentLengthLong();
+            long lastModified = truncateToSeconds(
+                    connection.getLastModified());
+            byte[] content = null;
+            if (length <= MAX_IN_MEMORY_SIZE) {
+                content = readAtMost(is, MAX_IN_MEMORY_SIZE);
+                if (content != null && reserveMemory(content.length)) {
+                    length = content.length;
+                } else {
+                    content = null;
+                }
+            }
+            return new Variant(url, contentEncoding, null, length,
+                    lastModified, content);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private boolean reserveMemory(long bytes) {
+        if (memoryUsage.addAndGet(bytes) > MAX_TOTAL_IN_MEMORY_SIZE) {
+            memoryUsage.addAndGet(-bytes);
+            return false;
+        }
+        return true;
+    }
+
+    private Variant selectVariant(Resource resource,
+            HttpServletRequest request) {
+        if (request.getHeader("Range") != null) {
+            return resource.identity;
+        }
+        if (resource.brotli == null && resource.gzip == null
+                || !servlet.allowServePrecompressedResource(request,
+                        resource.identity.url.toExternalForm())) {
+            return resource.identity;
+        }
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (resource.brotli != null
+                && acceptsEncoding(acceptEncoding, BROTLI)) {
+            return resource.brotli;
+        }
+        if (resource.gzip != null && acceptsEncoding(acceptEncoding, GZIP)) {
+            return resource.gzip;
+        }
+        return resource.identity;
+    }
+
+    /**
+     * Checks whether an <code>Accept-Encoding</code> header value allows the
+     * given content coding.
+     *
+     * @param acceptEncoding
+     *            the header value, or <code>null</code>
+     * @param encoding
+     *            the content coding to check
+     * @return <code>true</code> if the coding is accepted with a non-zero
+     *         quality value, <code>false</code> otherwise
+     */
+    static boolean acceptsEncoding(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if (!parameters[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isNotModified(HttpServletRequest request,
+            Variant variant) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when If-None-Match is present
+            return variant.eTag != null && matchesETag(ifNoneMatch, variant);
+        }
+        return servlet.browserHasNewestVersion(request, variant.lastModified);
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, Variant variant) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // If-None-Match uses weak comparison
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(variant.eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request,
+            Variant variant) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range uses strong comparison
+            return ifRange.equals(variant.eTag);
+        }
+        try {
+            return variant.lastModified > 0 && request
+                    .getDateHeader("If-Range") == variant.lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void writeContent(Variant variant, long offset,
+            long length, OutputStream out) throws IOException {
+        if (variant.content != null) {
+            out.write(variant.content, (int) offset, (int) length);
+        } else if (variant.file != null) {
+            try (InputStream in = Files
+                    .newInputStream(variant.file.toPath())) {
+                copy(in, out, offset, length);
+            }
+        } else {
+            try (InputStream in = variant.url.openStream()) {
+                copy(in, out, offset, length);
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long skip,
+            long length) throws IOException {
+        while (skip > 0) {
+            long skipped = in.skip(skip);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            skip -= skipped;
+        }
+        byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+        long remaining = length < 0 ? Long.MAX_VALUE : length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0,
+                    (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Reads a stream fully if it has at most the given number of bytes.
+     *
+     * @return the content, or <code>null</code> if the stream is longer
+     */
+    private static byte[] readAtMost(InputStream in, int maxLength)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+            if (out.size() > maxLength) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            getLogger().log(Level.FINE,
+                    "Could not convert " + url + " to a file", e);
+            return null;
+        }
+    }
+
+    private static long truncateToSeconds(long timestamp) {
+        // The browser sends dates without milliseconds
+        return timestamp - timestamp % 1000;
+    }
+
+    /**
+     * Creates a strong entity tag. The tag is a hash of the content if it is
+     * kept in memory, or derived from the length and modification time
+     * otherwise. Returns <code>null</code> if neither is known.
+     */
+    private static String createETag(long length, long lastModified,
+            byte[] content, String contentEncoding) {
+        String tag;
+        if (content != null) {
+            tag = toHex(sha256(content), 16);
+        } else if (length >= 0 && lastModified > 0) {
+            tag = Long.toHexString(length) + "-"
+                    + Long.toHexString(lastModified);
+        } else {
+            return null;
+        }
+        if (contentEncoding != null) {
+            tag += "-" + contentEncoding;
+        }
+        return '"' + tag + '"';
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes, int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            builder.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(StaticResourceCache.class.getName());
+    }
+}
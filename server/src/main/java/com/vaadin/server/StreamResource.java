@@ -140,8 +140,14 @@ public class StreamResource implements ConnectorResource {
         if (ss == null) {
             return null;
         }
-        final DownloadStream ds = new DownloadStream(ss.getStream(),
-                getMIMEType(), getFilename());
+        final DownloadStream ds;
+        if (ss instanceof SeekableStreamSource) {
+            ds = new DownloadStream((SeekableStreamSource) ss, getMIMEType(),
+                    getFilename());
+        } else {
+            ds = new DownloadStream(ss.getStream(), getMIMEType(),
+                    getFilename());
+        }
         ds.setBufferSize(getBufferSize());
         ds.setCacheTime(cacheTime);
         return ds;
@@ -162,6 +168,42 @@ public class StreamResource implements ConnectorResource {
         public InputStream getStream();
     }
 
+    /**
+     * A stream source that knows the length of its data and can start reading
+     * from any position. This allows the resource to be served to clients
+     * that request byte ranges, for instance to seek in a video or to resume
+     * an interrupted download, without reading the data before the requested
+     * range.
+     *
+     * @author Vaadin Ltd.
+     * @since 8.1
+     */
+    public interface SeekableStreamSource extends StreamSource {
+
+        /**
+         * Gets the length of the data in bytes.
+         *
+         * @return the length of the data, or -1 if it is not known
+         */
+        public long getLength();
+
+        /**
+         * Returns a new input stream that starts reading the data from the
+         * given position.
+         *
+         * @param offset
+         *            the position of the first byte to read
+         * @return the input stream, or <code>null</code> if the data is not
+         *         available
+         */
+        public InputStream getStream(long offset);
+
+        @Override
+        public default InputStream getStream() {
+            return getStream(0);
+        }
+    }
+
     /**
      * Gets the size of the download buffer used for this resource.
      *
@@ -17,11 +17,18 @@ package com.vaadin.server;
 
 import java.io.IOException;
 
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.ui.UI;
+
 /**
  * RequestHandler which takes care of locking and unlocking of the VaadinSession
  * automatically. The session is locked before
  * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
  * is called and unlocked after it has completed.
+ * <p>
+ * If {@link VaadinSession#isUILockingEnabled() UI locking} is enabled and
+ * {@link #isUILockSufficient(VaadinRequest)} returns <code>true</code>, only
+ * the UI identified by the request is locked instead of the whole session.
  *
  * @author Vaadin Ltd
  * @version @VERSION@
@@ -36,6 +43,25 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        if (session.isUILockingEnabled() && isUILockSufficient(request)) {
+            UI ui = findUIToLock(session, request);
+            if (ui != null) {
+                session.lockUI(ui);
+                try {
+                    /*
+                     * Lock the session instead if the UI was removed while
+                     * waiting for its lock.
+                     */
+                    if (ui.getSession() == session) {
+                        return synchronizedHandleRequest(session, request,
+                                response);
+                    }
+                } finally {
+                    session.unlockUI(ui);
+                }
+            }
+        }
+
         session.lock();
         try {
             return synchronizedHandleRequest(session, request, response);
@@ -44,6 +70,19 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         }
     }
 
+    private static UI findUIToLock(VaadinSession session,
+            VaadinRequest request) {
+        String uiId = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        if (uiId == null) {
+            return null;
+        }
+        try {
+            return session.getUIById(Integer.parseInt(uiId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Identical to
      * {@link #handleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
@@ -87,4 +126,25 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         return true;
     }
 
+    /**
+     * Checks whether a request can be handled while holding only the lock of
+     * the UI identified by the {@value UIConstants#UI_ID_PARAMETER} parameter of
+     * the request. This is only used if
+     * {@link VaadinSession#isUILockingEnabled() UI locking} is enabled. If the
+     * request does not identify any UI in the session, the session is locked
+     * instead.
+     * <p>
+     * The default implementation returns <code>false</code>, which means that
+     * the session is always locked.
+     *
+     * @since 8.1
+     * @param request
+     *            the request to handle
+     * @return <code>true</code> if locking the UI of the request is enough;
+     *         <code>false</code> if the session should be locked
+     */
+    protected boolean isUILockSufficient(VaadinRequest request) {
+        return false;
+    }
+
 }
@@ -52,6 +52,13 @@ public class UnsupportedBrowserHandler extends SynchronizedRequestHandler {
         return false; // pass to next handler
     }
 
+    @Override
+    protected boolean isUILockSufficient(VaadinRequest request) {
+        // Only reads the browser details, which are updated with the session
+        // locked
+        return true;
+    }
+
     /**
      * Writes a page encouraging the user to upgrade to a more current browser.
      *
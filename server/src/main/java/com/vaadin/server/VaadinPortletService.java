@@ -299,6 +299,11 @@ public class VaadinPortletService extends VaadinService {
         return getPortlet().getPortletName();
     }
 
+    @Override
+    protected String getRequestMetricsContextName() {
+        return getPortletContext().getPortletContextName();
+    }
+
     /**
      * Always preserve UIs in portlets to make portlet actions work.
      */
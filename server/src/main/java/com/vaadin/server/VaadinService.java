@@ -25,6 +25,7 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -34,17 +35,27 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.portlet.Portlet;
 import javax.portlet.PortletContext;
 import javax.servlet.Servlet;
@@ -58,6 +69,10 @@ import com.vaadin.server.communication.AtmospherePushConnection;
 import com.vaadin.server.communication.FileUploadHandler;
 import com.vaadin.server.communication.HeartbeatHandler;
 import com.vaadin.server.communication.PublishedFileHandler;
+import com.vaadin.server.communication.PushCoalescer;
+import com.vaadin.server.communication.ResponseCompressor;
+import com.vaadin.server.metrics.JmxRequestMetrics;
+import com.vaadin.server.metrics.RequestMetrics;
 import com.vaadin.server.communication.SessionRequestHandler;
 import com.vaadin.server.communication.UidlRequestHandler;
 import com.vaadin.shared.ApplicationConstants;
@@ -65,6 +80,7 @@ import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.util.CurrentInstance;
 
 import elemental.json.Json;
@@ -150,6 +166,24 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    /*
+     * Sessions to clean up in the background when session housekeeping is
+     * enabled. Sessions are removed when they are destroyed, which also
+     * happens when the underlying session expires.
+     */
+    private final transient Set<VaadinSession> housekeepingSessions = Collections
+            .newSetFromMap(new ConcurrentHashMap<>());
+
+    private transient ScheduledExecutorService housekeepingExecutor;
+
+    private final PushCoalescer pushCoalescer = new PushCoalescer();
+
+    private transient volatile BackgroundExecutor backgroundExecutor;
+
+    private RequestMetrics requestMetrics = RequestMetrics.NONE;
+
+    private ResponseCompressor responseCompressor;
+
     /**
      * Creates a new vaadin service based on a deployment configuration
      *
@@ -206,6 +240,27 @@ public abstract class VaadinService implements Serializable {
 
         requestHandlers = Collections.unmodifiableCollection(handlers);
 
+        requestMetrics = createRequestMetrics();
+
+        responseCompressor = new ResponseCompressor(
+                getDeploymentConfiguration().getCompressionThreshold(),
+                requestMetrics);
+
+        int housekeepingInterval = getDeploymentConfiguration()
+                .getSessionHousekeepingInterval();
+        if (housekeepingInterval > 0) {
+            housekeepingExecutor = Executors
+                    .newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "Vaadin session housekeeping");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            housekeepingExecutor.scheduleWithFixedDelay(
+                    this::runSessionHousekeeping, housekeepingInterval,
+                    housekeepingInterval, TimeUnit.SECONDS);
+        }
+
         initialized = true;
     }
 
@@ -495,6 +550,7 @@ public abstract class VaadinService implements Serializable {
      */
     public void fireSessionDestroy(VaadinSession vaadinSession) {
         final VaadinSession session = vaadinSession;
+        housekeepingSessions.remove(session);
         session.access(() -> {
             if (session.getState() == State.CLOSED) {
                 return;
@@ -669,7 +725,13 @@ public abstract class VaadinService implements Serializable {
                 }
             }
         }
-        lock.lock();
+        if (requestMetrics.isEnabled()) {
+            long start = System.nanoTime();
+            lock.lock();
+            requestMetrics.sessionLockAcquired(System.nanoTime() - start);
+        } else {
+            lock.lock();
+        }
 
         try {
             // Someone might have invalidated the session between fetching the
@@ -1042,19 +1104,34 @@ public abstract class VaadinService implements Serializable {
      *
      */
     public UI findUI(VaadinRequest request) {
-        // getForSession asserts that the lock is held
-        VaadinSession session = loadSession(request.getWrappedSession());
-
-        // Get UI id from the request
-        String uiIdString = request.getParameter(UIConstants.UI_ID_PARAMETER);
-        UI ui = null;
-        if (uiIdString != null && session != null) {
-            int uiId = Integer.parseInt(uiIdString);
-            ui = session.getUIById(uiId);
+        WrappedSession wrappedSession = request.getWrappedSession();
+        Lock lock = null;
+        if (getDeploymentConfiguration().isUILockingEnabled()
+                && !VaadinSession.hasLock(this, wrappedSession)) {
+            // The caller might only hold the lock of the UI
+            lock = getSessionLock(wrappedSession);
+            lock.lock();
         }
+        try {
+            // getForSession asserts that the lock is held
+            VaadinSession session = loadSession(wrappedSession);
+
+            // Get UI id from the request
+            String uiIdString = request
+                    .getParameter(UIConstants.UI_ID_PARAMETER);
+            UI ui = null;
+            if (uiIdString != null && session != null) {
+                int uiId = Integer.parseInt(uiIdString);
+                ui = session.getUIById(uiId);
+            }
 
-        UI.setCurrent(ui);
-        return ui;
+            UI.setCurrent(ui);
+            return ui;
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
     }
 
     /**
@@ -1196,9 +1273,12 @@ public abstract class VaadinService implements Serializable {
     }
 
     /**
-     * Called at the end of a request, after sending the response. Closes
-     * inactive UIs in the given session, removes closed UIs from the session,
-     * and closes the session if it is itself inactive.
+     * Called at the end of a request, after sending the response, or
+     * periodically in the background if session housekeeping is enabled.
+     * Closes inactive UIs in the given session, removes closed UIs from the
+     * session, and closes the session if it is itself inactive.
+     *
+     * @see DeploymentConfiguration#getSessionHousekeepingInterval()
      *
      * @param session
      */
@@ -1231,6 +1311,33 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Cleans up all sessions that have handled requests since session
+     * housekeeping was enabled. Sessions that are locked by some other thread
+     * are skipped and cleaned up during the next sweep instead.
+     *
+     * @see DeploymentConfiguration#getSessionHousekeepingInterval()
+     */
+    void runSessionHousekeeping() {
+        for (VaadinSession session : housekeepingSessions) {
+            if (!session.tryLock()) {
+                continue;
+            }
+            try {
+                CurrentInstance.setCurrent(session);
+                cleanupSession(session);
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING, "Error cleaning up session", e);
+            } finally {
+                try {
+                    session.unlock();
+                } finally {
+                    CurrentInstance.clearAll();
+                }
+            }
+        }
+    }
+
     /**
      * Removes those UIs from the given session for which {@link UI#isClosing()
      * isClosing} yields true.
@@ -1401,19 +1508,54 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
-            session.lock();
-            try {
-                cleanupSession(session);
-                final long duration = (System.nanoTime() - (Long) request
-                        .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
+            final long duration = (System.nanoTime() - (Long) request
+                    .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
+            if (housekeepingExecutor != null && session.isOpen()
+                    && !isCurrentUIClosing()) {
+                // Cleaned up in the background instead of locking again
+                if (!housekeepingSessions.contains(session)) {
+                    // Only the first request of a session writes to the set
+                    housekeepingSessions.add(session);
+                }
                 session.setLastRequestDuration(duration);
-            } finally {
-                session.unlock();
+            } else if (session.isUILockingEnabled()) {
+                /*
+                 * Don't wait for requests to other UIs to complete. The
+                 * session is cleaned up at the end of some later request.
+                 */
+                if (session.tryLock()) {
+                    try {
+                        cleanupSession(session);
+                    } finally {
+                        session.unlock();
+                    }
+                }
+                session.setLastRequestDuration(duration);
+            } else {
+                session.lock();
+                try {
+                    cleanupSession(session);
+                    session.setLastRequestDuration(duration);
+                } finally {
+                    session.unlock();
+                }
+            }
+        }
+        if (requestMetrics.isEnabled()) {
+            Long startTime = (Long) request
+                    .getAttribute(REQUEST_START_TIME_ATTRIBUTE);
+            if (startTime != null) {
+                requestMetrics.requestCompleted(System.nanoTime() - startTime);
             }
         }
         CurrentInstance.clearAll();
     }
 
+    private static boolean isCurrentUIClosing() {
+        UI ui = UI.getCurrent();
+        return ui != null && ui.isClosing();
+    }
+
     /**
      * Returns the request handlers that are registered with this service. The
      * iteration order of the returned collection is the same as the order in
@@ -1461,7 +1603,13 @@ public abstract class VaadinService implements Serializable {
             }
 
             for (RequestHandler handler : getRequestHandlers()) {
+                boolean measure = requestMetrics.isEnabled();
+                long start = measure ? System.nanoTime() : 0;
                 if (handler.handleRequest(vaadinSession, request, response)) {
+                    if (measure) {
+                        requestMetrics.requestHandled(handler.getClass(),
+                                System.nanoTime() - start);
+                    }
                     return;
                 }
             }
@@ -1844,14 +1992,60 @@ public abstract class VaadinService implements Serializable {
          * thread and we acquire it, we just release it again to purge the queue
          * right away.
          */
-        try {
-            // tryLock() would be shorter, but it does not guarantee fairness
-            if (session.getLockInstance().tryLock(0, TimeUnit.SECONDS)) {
-                // unlock triggers runPendingAccessTasks
-                session.unlock();
-            }
-        } catch (InterruptedException e) {
-            // Just ignore
+        if (session.tryLock()) {
+            // unlock triggers runPendingAccessTasks
+            session.unlock();
+        }
+    }
+
+    /**
+     * Implementation for {@link UI#access(Runnable)} when
+     * {@link VaadinSession#isUILockingEnabled() UI locking} is enabled. The
+     * task is run while holding the lock of the UI instead of the session
+     * lock.
+     *
+     * @since 8.1
+     * @see UI#access(Runnable)
+     *
+     * @param ui
+     *            the UI to access
+     * @param runnable
+     *            the runnable to run with the UI locked
+     *
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> accessUI(UI ui, Runnable runnable) {
+        VaadinSession session = ui.getSession();
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+        FutureAccess future = new FutureAccess(session, runnable);
+        ui.getPendingAccessQueue().add(future);
+
+        ensureAccessQueuePurged(ui);
+
+        return future;
+    }
+
+    /**
+     * Makes sure the pending access queue is purged for the provided UI. If
+     * the UI or its session is currently locked, the queue will be purged when
+     * the lock is released. Otherwise the lock of the UI is acquired and the
+     * queue is purged right away.
+     *
+     * @since 8.1
+     * @param ui
+     *            the UI for which the access queue should be purged
+     */
+    public void ensureAccessQueuePurged(UI ui) {
+        VaadinSession session = ui.getSession();
+        if (session == null) {
+            // The tasks fail with UIDetachedException without locking
+            runPendingAccessTasks(ui);
+        } else if (session.tryLockUI(ui)) {
+            // unlock triggers runPendingAccessTasks
+            session.unlockUI(ui);
         }
     }
 
@@ -1867,38 +2061,72 @@ public abstract class VaadinService implements Serializable {
      * @since 7.1
      */
     public void runPendingAccessTasks(VaadinSession session) {
-        assert session.hasLock();
+        assert session.hasSessionOrUILock();
 
-        if (session.getPendingAccessQueue().isEmpty()) {
+        // Tasks for the session are not run while holding only a UI lock
+        if (session.getPendingAccessQueue().isEmpty()
+                || !session.hasExclusiveLock()) {
             return;
         }
 
-        FutureAccess pendingAccess;
-
         // Dump all current instances, not only the ones dumped by setCurrent
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
                 .getInstances();
         CurrentInstance.setCurrent(session);
         try {
-            while ((pendingAccess = session.getPendingAccessQueue()
-                    .poll()) != null) {
-                if (!pendingAccess.isCancelled()) {
-                    pendingAccess.run();
+            runPendingAccessTasks(session.getPendingAccessQueue());
+        } finally {
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(oldInstances);
+        }
+    }
 
-                    try {
-                        pendingAccess.get();
+    /**
+     * Purges the queue of pending access invocations enqueued with
+     * {@link UI#access(Runnable)} when {@link VaadinSession#isUILockingEnabled()
+     * UI locking} is enabled.
+     * <p>
+     * This method is automatically run by the framework at appropriate
+     * situations and is not intended to be used by application developers.
+     *
+     * @param ui
+     *            the UI to purge the queue for
+     * @since 8.1
+     */
+    public void runPendingAccessTasks(UI ui) {
+        if (ui.getPendingAccessQueue().isEmpty()) {
+            return;
+        }
+        assert ui.getLockInstance().isHeldByCurrentThread()
+                || ui.getSession() == null || ui.getSession().hasLock();
 
-                    } catch (Exception exception) {
-                        pendingAccess.handleError(exception);
-                    }
-                }
-            }
+        Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
+                .getInstances();
+        CurrentInstance.setCurrent(ui);
+        try {
+            runPendingAccessTasks(ui.getPendingAccessQueue());
         } finally {
             CurrentInstance.clearAll();
             CurrentInstance.restoreInstances(oldInstances);
         }
     }
 
+    private static void runPendingAccessTasks(Queue<FutureAccess> queue) {
+        FutureAccess pendingAccess;
+        while ((pendingAccess = queue.poll()) != null) {
+            if (!pendingAccess.isCancelled()) {
+                pendingAccess.run();
+
+                try {
+                    pendingAccess.get();
+
+                } catch (Exception exception) {
+                    pendingAccess.handleError(exception);
+                }
+            }
+        }
+    }
+
     /**
      * Adds a service destroy listener that gets notified when this service is
      * destroyed.
@@ -1938,6 +2166,187 @@ public abstract class VaadinService implements Serializable {
         serviceDestroyListeners.remove(serviceDestroyListeners);
     }
 
+    /**
+     * Gets the push coalescer used for UIs that have a
+     * {@link com.vaadin.ui.PushConfiguration#setCoalescingWindow(int)
+     * coalescing window}. The coalescer also keeps track of how many pushes
+     * have been saved by coalescing.
+     *
+     * @since 8.1
+     * @return the push coalescer of this service, not <code>null</code>
+     */
+    public PushCoalescer getPushCoalescer() {
+        return pushCoalescer;
+    }
+
+    /**
+     * Gets the background executor used for running tasks submitted using
+     * {@link UI#accessAsync(java.util.function.Supplier, java.util.function.Consumer)}.
+     * The executor is created using {@link #createBackgroundExecutor()} the
+     * first time this method is called and runs at most
+     * {@link #getBackgroundTaskLimit()} tasks at the same time.
+     *
+     * @since 8.1
+     * @return the background executor of this service, not <code>null</code>
+     */
+    public BackgroundExecutor getBackgroundExecutor() {
+        if (backgroundExecutor == null) {
+            synchronized (this) {
+                if (backgroundExecutor == null) {
+                    backgroundExecutor = new BackgroundExecutor(
+                            createBackgroundExecutor(),
+                            getBackgroundTaskLimit());
+                }
+            }
+        }
+        return backgroundExecutor;
+    }
+
+    /**
+     * Creates the executor that runs background tasks for this service. If
+     * the returned executor is an {@link ExecutorService}, it is shut down
+     * when this service is destroyed.
+     * <p>
+     * The default implementation uses a new virtual thread for each task when
+     * running on a Java version that supports virtual threads. Otherwise, a
+     * pool of daemon threads is used, with two threads per available processor
+     * and an unbounded queue. In both cases, the number of tasks run at the
+     * same time is bounded by {@link #getBackgroundTaskLimit()}. Override this
+     * method to e.g. use an executor managed by the application server.
+     *
+     * @since 8.1
+     * @return the executor for background tasks, not <code>null</code>
+     */
+    protected Executor createBackgroundExecutor() {
+        try {
+            Method factory = Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available, use a thread pool instead
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int poolSize = 2 * Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize,
+                poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "Vaadin background task "
+                                    + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Gets the maximum number of background tasks that are run at the same
+     * time. The limit is read from the
+     * {@value Constants#SERVLET_PARAMETER_BACKGROUND_TASK_LIMIT} parameter,
+     * where 0 means that the number of tasks is not limited.
+     * <p>
+     * The default limit is two tasks per available processor, which is the
+     * same as the size of the thread pool used when virtual threads are not
+     * available. Tasks submitted while the limit is reached wait for a running
+     * task to complete.
+     *
+     * @since 8.1
+     * @return the maximum number of concurrent background tasks, or 0 to not
+     *         limit the number of tasks
+     */
+    protected int getBackgroundTaskLimit() {
+        int defaultLimit = 2 * Runtime.getRuntime().availableProcessors();
+        String limit = getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_BACKGROUND_TASK_LIMIT,
+                        Integer.toString(defaultLimit));
+        try {
+            int parsed = Integer.parseInt(limit);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        getLogger()
+                .warning(Constants.WARNING_BACKGROUND_TASK_LIMIT_NOT_NUMERIC);
+        return defaultLimit;
+    }
+
+    /**
+     * Gets the request metrics that receive measurements from the request
+     * handling of this service. The metrics are created using
+     * {@link #createRequestMetrics()} when this service is initialized.
+     *
+     * @since 8.1
+     * @return the request metrics, not <code>null</code>
+     */
+    public final RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    /**
+     * Gets the response compressor used for compressing large UIDL responses
+     * as configured by {@link DeploymentConfiguration#getCompressionThreshold()}.
+     * The compressor is created when this service is initialized.
+     *
+     * @since 8.1
+     * @return the response compressor, or <code>null</code> if this service
+     *         has not been initialized
+     */
+    public final ResponseCompressor getResponseCompressor() {
+        return responseCompressor;
+    }
+
+    /**
+     * Creates the request metrics for this service. Called when the service
+     * is initialized.
+     * <p>
+     * The default implementation returns {@link RequestMetrics#NONE} unless
+     * {@link DeploymentConfiguration#isRequestMetricsEnabled() request
+     * metrics} are enabled, in which case the metrics are collected in memory
+     * and published over JMX using the name returned by
+     * {@link #getRequestMetricsContextName()} and the service name.
+     * Override this method to send the measurements to some other monitoring
+     * system.
+     *
+     * @since 8.1
+     * @return the request metrics to use, not <code>null</code>
+     */
+    protected RequestMetrics createRequestMetrics() {
+        if (!getDeploymentConfiguration().isRequestMetricsEnabled()) {
+            return RequestMetrics.NONE;
+        }
+        JmxRequestMetrics metrics = new JmxRequestMetrics();
+        try {
+            ObjectName name = JmxRequestMetrics.createObjectName(
+                    getRequestMetricsContextName(), getServiceName());
+            if (metrics.register(name) != null) {
+                addServiceDestroyListener(event -> metrics.unregister());
+            }
+        } catch (MalformedObjectNameException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not publish request metrics over JMX", e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the name of the application this service belongs to, used for
+     * telling apart the request metrics of services with the same name in
+     * different applications. The default implementation returns
+     * <code>null</code>.
+     *
+     * @since 8.1
+     * @return the application name, or <code>null</code> if not known
+     * @see JmxRequestMetrics#createObjectName(String, String)
+     */
+    protected String getRequestMetricsContextName() {
+        return null;
+    }
+
     /**
      * Called when the servlet, portlet or similar for this service is being
      * destroyed. After this method has been called, no more requests will be
@@ -1950,6 +2359,16 @@ public abstract class VaadinService implements Serializable {
      * @since 7.2
      */
     public void destroy() {
+        if (housekeepingExecutor != null) {
+            housekeepingExecutor.shutdownNow();
+        }
+        pushCoalescer.shutdown();
+        if (backgroundExecutor != null) {
+            backgroundExecutor.shutdown();
+        }
+        if (responseCompressor != null) {
+            responseCompressor.shutdown();
+        }
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
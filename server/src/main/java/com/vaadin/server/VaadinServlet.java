@@ -183,6 +183,8 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
     private VaadinServletService servletService;
 
+    private StaticResourceCache staticResourceCache;
+
     /**
      * Called by the servlet container to indicate to a servlet that the servlet
      * is being placed into service.
@@ -228,6 +230,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
         } catch (ServiceException e) {
             throw new ServletException("Could not initialize VaadinServlet", e);
         }
+        if (deploymentConfiguration.isStaticResourceCacheEnabled()) {
+            staticResourceCache = new StaticResourceCache(this,
+                    !deploymentConfiguration.isProductionMode());
+        }
+
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
@@ -739,6 +746,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
             HttpServletRequest request, HttpServletResponse response)
             throws IOException, ServletException {
 
+        if (staticResourceCache != null
+                && staticResourceCache.serve(filename, request, response)) {
+            return;
+        }
+
         final ServletContext sc = getServletContext();
         URL resourceUrl = findResourceURL(filename);
 
@@ -768,14 +780,7 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return;
         }
 
-        String cacheControl = "public, max-age=0, must-revalidate";
-        int resourceCacheTime = getCacheTime(filename);
-        if (resourceCacheTime > 0) {
-            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
-        }
-        response.setHeader("Cache-Control", cacheControl);
-        response.setDateHeader("Expires",
-                System.currentTimeMillis() + resourceCacheTime * 1000);
+        setCacheHeaders(filename, response);
 
         // Find the modification timestamp
         long lastModifiedTime = 0;
@@ -824,6 +829,26 @@ public class VaadinServlet extends HttpServlet implements Constants {
         writeStaticResourceResponse(request, response, resourceUrl);
     }
 
+    /**
+     * Sets the Cache-Control and Expires headers for a static resource based
+     * on {@link #getCacheTime(String)}.
+     *
+     * @param filename
+     *            the name of the served resource
+     * @param response
+     *            the response to set the headers to
+     */
+    void setCacheHeaders(String filename, HttpServletResponse response) {
+        String cacheControl = "public, max-age=0, must-revalidate";
+        int resourceCacheTime = getCacheTime(filename);
+        if (resourceCacheTime > 0) {
+            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        }
+        response.setHeader("Cache-Control", cacheControl);
+        response.setDateHeader("Expires",
+                System.currentTimeMillis() + resourceCacheTime * 1000);
+    }
+
     /**
      * Calculates the cache lifetime for the given filename in seconds. By
      * default filenames containing ".nocache." return 0, filenames containing
@@ -864,6 +889,10 @@ public class VaadinServlet extends HttpServlet implements Constants {
     /**
      * Writes the contents of the given resourceUrl in the response. Can be
      * overridden to add/modify response headers and similar.
+     * <p>
+     * This method is not used for resources served through the static
+     * resource cache, see
+     * {@link DeploymentConfiguration#isStaticResourceCacheEnabled()}.
      *
      * @param request
      *            The request for the resource
@@ -1190,7 +1219,7 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * @return true if the If-Modified-Since header tells the cached version in
      *         the browser is up to date, false otherwise
      */
-    private boolean browserHasNewestVersion(HttpServletRequest request,
+    boolean browserHasNewestVersion(HttpServletRequest request,
             long resourceLastModifiedTimestamp) {
         if (resourceLastModifiedTimestamp < 1) {
             // We do not know when it was modified so the browser cannot have an
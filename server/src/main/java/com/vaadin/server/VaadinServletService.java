@@ -224,6 +224,16 @@ public class VaadinServletService extends VaadinService {
         return getServlet().getServletName();
     }
 
+    @Override
+    protected String getRequestMetricsContextName() {
+        String contextPath = getServlet().getServletContext().getContextPath();
+        if (contextPath == null) {
+            return null;
+        }
+        // The root context has an empty context path
+        return contextPath.isEmpty() ? "/" : contextPath;
+    }
+
     @Override
     public InputStream getThemeResourceAsStream(UI uI, String themeName,
             String resource) throws IOException {
@@ -21,6 +21,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -33,12 +34,16 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +53,7 @@ import javax.servlet.http.HttpSessionBindingEvent;
 import javax.servlet.http.HttpSessionBindingListener;
 
 import com.vaadin.event.EventRouter;
+import com.vaadin.server.metrics.RequestMetrics;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.communication.PushMode;
 import com.vaadin.ui.UI;
@@ -212,7 +218,11 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     private LinkedList<RequestHandler> requestHandlers = new LinkedList<>();
 
     private int nextUIId = 0;
-    private Map<Integer, UI> uIs = new HashMap<>();
+    /*
+     * Concurrent so that UIs can be looked up without locking, e.g. when
+     * handling heartbeat requests. Only modified while holding the lock.
+     */
+    private Map<Integer, UI> uIs = new ConcurrentHashMap<>();
 
     private final Map<String, Integer> embedIdMap = new HashMap<>();
 
@@ -222,17 +232,21 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     protected WebBrowser browser = new WebBrowser();
 
-    private DragAndDropService dragAndDropService;
+    private volatile DragAndDropService dragAndDropService;
 
     private LegacyCommunicationManager communicationManager;
 
-    private long cumulativeRequestDuration = 0;
+    /*
+     * Request durations are updated at the end of requests without locking
+     * when session housekeeping is enabled.
+     */
+    private final AtomicLong cumulativeRequestDuration = new AtomicLong();
 
-    private long lastRequestDuration = -1;
+    private volatile long lastRequestDuration = -1;
 
-    private long lastRequestTimestamp = System.currentTimeMillis();
+    private volatile long lastRequestTimestamp = System.currentTimeMillis();
 
-    private State state = State.OPEN;
+    private volatile State state = State.OPEN;
 
     private transient WrappedSession session;
 
@@ -244,6 +258,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private transient Lock lock;
 
+    /*
+     * When UI locking is enabled, this is held for reading by threads holding
+     * the lock of a UI and for writing by threads holding the session lock.
+     */
+    private transient ReentrantReadWriteLock uiLockGate = new ReentrantReadWriteLock();
+
+    /*
+     * System time when the session lock was acquired, for request metrics.
+     * Only accessed while holding the session lock.
+     */
+    private transient long lockAcquiredTime;
+
     /*
      * Pending tasks can't be serialized and the queue should be empty when the
      * session is serialized as long as it doesn't happen while some other
@@ -325,7 +351,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public WebBrowser getBrowser() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return browser;
     }
 
@@ -334,21 +360,22 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         milliseconds.
      */
     public long getCumulativeRequestDuration() {
-        assert hasLock();
-        return cumulativeRequestDuration;
+        assert hasSessionOrUILock();
+        return cumulativeRequestDuration.get();
     }
 
     /**
      * Sets the time spent servicing the last request in the session and updates
      * the total time spent servicing requests in this session.
+     * <p>
+     * Since 8.1, this method can be used without holding the session lock.
      *
      * @param time
      *            The time spent in the last request, in milliseconds.
      */
     public void setLastRequestDuration(long time) {
-        assert hasLock();
         lastRequestDuration = time;
-        cumulativeRequestDuration += time;
+        cumulativeRequestDuration.addAndGet(time);
     }
 
     /**
@@ -356,7 +383,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         milliseconds.
      */
     public long getLastRequestDuration() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return lastRequestDuration;
     }
 
@@ -369,7 +396,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *
      */
     public void setLastRequestTimestamp(long timestamp) {
-        assert hasLock();
+        assert hasSessionOrUILock();
         lastRequestTimestamp = timestamp;
     }
 
@@ -380,7 +407,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         the epoch.
      */
     public long getLastRequestTimestamp() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return lastRequestTimestamp;
     }
 
@@ -407,13 +434,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public LegacyCommunicationManager getCommunicationManager() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return communicationManager;
     }
 
     public DragAndDropService getDragAndDropService() {
         if (dragAndDropService == null) {
-            dragAndDropService = new DragAndDropService(this);
+            // Connector lookups might run without holding the session lock
+            synchronized (this) {
+                if (dragAndDropService == null) {
+                    dragAndDropService = new DragAndDropService(this);
+                }
+            }
         }
         return dragAndDropService;
     }
@@ -527,7 +559,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the deployment configuration
      */
     public DeploymentConfiguration getConfiguration() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return configuration;
     }
 
@@ -540,7 +572,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the locale of this session.
      */
     public Locale getLocale() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         if (locale != null) {
             return locale;
         }
@@ -568,7 +600,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the current error handler
      */
     public ErrorHandler getErrorHandler() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return errorHandler;
     }
 
@@ -594,7 +626,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public Object getConverterFactory() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return converterFactory;
     }
 
@@ -640,8 +672,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public void addRequestHandler(RequestHandler handler) {
-        assert hasLock();
-        requestHandlers.addFirst(handler);
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            requestHandlers.addFirst(handler);
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -653,8 +690,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public void removeRequestHandler(RequestHandler handler) {
-        assert hasLock();
-        requestHandlers.remove(handler);
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            requestHandlers.remove(handler);
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -671,7 +713,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<RequestHandler> getRequestHandlers() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return Collections.unmodifiableCollection(requestHandlers);
     }
 
@@ -730,7 +772,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<UI> getUIs() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return Collections.unmodifiableCollection(uIs.values());
     }
 
@@ -757,8 +799,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public String createConnectorId(ClientConnector connector) {
-        assert hasLock();
-        return String.valueOf(connectorIdSequence++);
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            return String.valueOf(connectorIdSequence++);
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -766,13 +813,17 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <p>
      * This is meant for framework internal use.
      * </p>
+     * <p>
+     * Since 8.1, this method can also be used without holding the session
+     * lock, e.g. to find the UI that should be locked for handling a request.
+     * The UI itself should still only be accessed while holding its lock.
+     * </p>
      *
      * @param uiId
      *            The UI id
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
         return uIs.get(uiId);
     }
 
@@ -787,6 +838,37 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return l.isHeldByCurrentThread();
     }
 
+    /**
+     * Checks if the current thread has access to the given UI in this session,
+     * either by holding the session lock or, if {@link #isUILockingEnabled()
+     * UI locking} is enabled, by holding the lock of the UI.
+     *
+     * @see #lockUI(UI)
+     *
+     * @param ui
+     *            the UI to check, not <code>null</code>
+     * @return <code>true</code> if the current thread has access to the UI,
+     *         <code>false</code> otherwise
+     * @since 8.1
+     */
+    public boolean hasUILock(UI ui) {
+        return hasLock() || isUILockingEnabled()
+                && ui.getLockInstance().isHeldByCurrentThread();
+    }
+
+    /**
+     * Checks if the current thread holds the session lock or the lock of any
+     * UI in this session. Used for asserting access to session data that can
+     * also be read while holding only the lock of a UI.
+     *
+     * @return <code>true</code> if the current thread holds the session lock
+     *         or a UI lock, <code>false</code> otherwise
+     */
+    boolean hasSessionOrUILock() {
+        return hasLock()
+                || isUILockingEnabled() && uiLockGate.getReadHoldCount() > 0;
+    }
+
     /**
      * Checks if the current thread has exclusive access to the given
      * WrappedSession.
@@ -883,6 +965,15 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         if (embedId != null && id.equals(embedIdMap.get(embedId))) {
             embedIdMap.remove(embedId);
         }
+
+        /*
+         * Tasks can no longer be run with the lock of the removed UI. They fail
+         * with UIDetachedException when the session is unlocked.
+         */
+        FutureAccess pendingAccess;
+        while ((pendingAccess = ui.getPendingAccessQueue().poll()) != null) {
+            getPendingAccessQueue().add(pendingAccess);
+        }
     }
 
     /**
@@ -904,13 +995,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public GlobalResourceHandler getGlobalResourceHandler(
             boolean createOnDemand) {
-        assert hasLock();
-        if (globalResourceHandler == null && createOnDemand) {
-            globalResourceHandler = new GlobalResourceHandler();
-            addRequestHandler(globalResourceHandler);
-        }
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            if (globalResourceHandler == null && createOnDemand) {
+                globalResourceHandler = new GlobalResourceHandler();
+                addRequestHandler(globalResourceHandler);
+            }
 
-        return globalResourceHandler;
+            return globalResourceHandler;
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -968,13 +1064,37 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <p>
      * {@link #getLockInstance()} can be used if more control over the locking
      * is required.
+     * <p>
+     * If {@link #isUILockingEnabled() UI locking} is enabled, this method also
+     * waits until no other thread holds the lock of any UI in this session.
      *
      * @see #unlock()
      * @see #getLockInstance()
      * @see #hasLock()
+     * @see #lockUI(UI)
+     *
+     * @throws IllegalStateException
+     *             if UI locking is enabled and the current thread holds the
+     *             lock of a UI in this session, but not the session lock
      */
     public void lock() {
-        getLockInstance().lock();
+        if (isUILockingEnabled() && !holdsSessionLock()) {
+            if (uiLockGate.getReadHoldCount() > 0) {
+                throw new IllegalStateException(
+                        "Cannot lock the session while holding the lock of a UI in it. "
+                                + "Use VaadinSession.access() to run the task once the UI lock has been released.");
+            }
+            uiLockGate.writeLock().lock();
+        }
+        RequestMetrics metrics = getRequestMetrics();
+        if (metrics.isEnabled() && !holdsSessionLock()) {
+            long start = System.nanoTime();
+            getLockInstance().lock();
+            lockAcquiredTime = System.nanoTime();
+            metrics.sessionLockAcquired(lockAcquiredTime - start);
+        } else {
+            getLockInstance().lock();
+        }
     }
 
     /**
@@ -991,6 +1111,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     public void unlock() {
         assert hasLock();
         boolean ultimateRelease = false;
+        long heldSince = 0;
+        List<UI> uis = null;
         try {
             /*
              * Run pending tasks and push if the reentrant lock will actually be
@@ -1000,21 +1122,30 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 ultimateRelease = true;
                 getService().runPendingAccessTasks(this);
 
+                if (isUILockingEnabled()) {
+                    uis = new ArrayList<>(getUIs());
+                }
                 for (UI ui : getUIs()) {
+                    getService().runPendingAccessTasks(ui);
                     if (ui.getPushConfiguration()
                             .getPushMode() == PushMode.AUTOMATIC) {
-                        Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
-                                .setCurrent(ui);
-                        try {
-                            ui.push();
-                        } finally {
-                            CurrentInstance.restoreInstances(oldCurrent);
-                        }
+                        pushAutomatically(ui);
                     }
                 }
             }
         } finally {
+            if (ultimateRelease) {
+                heldSince = lockAcquiredTime;
+                lockAcquiredTime = 0;
+            }
             getLockInstance().unlock();
+            if (ultimateRelease && uiLockGate.isWriteLockedByCurrentThread()) {
+                uiLockGate.writeLock().unlock();
+            }
+            if (heldSince != 0) {
+                getRequestMetrics()
+                        .sessionLockReleased(System.nanoTime() - heldSince);
+            }
         }
 
         /*
@@ -1028,6 +1159,259 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         if (ultimateRelease && !getPendingAccessQueue().isEmpty()) {
             getService().ensureAccessQueuePurged(this);
         }
+        if (uis != null) {
+            for (UI ui : uis) {
+                if (!ui.getPendingAccessQueue().isEmpty()) {
+                    getService().ensureAccessQueuePurged(ui);
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquires the session lock if it is available right away. Used for
+     * purging the pending access queue.
+     *
+     * @return <code>true</code> if the lock was acquired and should be
+     *         released using {@link #unlock()}, <code>false</code> otherwise
+     */
+    boolean tryLock() {
+        boolean locked = doTryLock();
+        if (locked && getRequestMetrics().isEnabled()
+                && ((ReentrantLock) getLockInstance()).getHoldCount() == 1) {
+            lockAcquiredTime = System.nanoTime();
+        }
+        return locked;
+    }
+
+    private boolean doTryLock() {
+        try {
+            // tryLock() would be shorter, but it does not guarantee fairness
+            if (!isUILockingEnabled() || holdsSessionLock()) {
+                return getLockInstance().tryLock(0, TimeUnit.SECONDS);
+            }
+            if (uiLockGate.getReadHoldCount() > 0
+                    || !uiLockGate.writeLock().tryLock(0, TimeUnit.SECONDS)) {
+                return false;
+            }
+            if (!getLockInstance().tryLock(0, TimeUnit.SECONDS)) {
+                uiLockGate.writeLock().unlock();
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether UIs in this session are locked separately from each
+     * other.
+     *
+     * @see DeploymentConfiguration#isUILockingEnabled()
+     * @see #lockUI(UI)
+     *
+     * @return <code>true</code> if UI locking is enabled, <code>false</code> if
+     *         the whole session is always locked
+     * @since 8.1
+     */
+    public boolean isUILockingEnabled() {
+        return configuration != null && configuration.isUILockingEnabled();
+    }
+
+    /**
+     * Locks a UI in this session to protect its data from concurrent access.
+     * If {@link #isUILockingEnabled() UI locking} is not enabled or if the
+     * current thread already holds the session lock, this is the same as
+     * calling {@link #lock()}.
+     * <p>
+     * Threads holding the locks of different UIs in the same session can run
+     * at the same time, but the session lock is only acquired when no thread
+     * holds the lock of any UI. While holding the lock of a UI, the session
+     * lock can not be acquired, but the data shared by all UIs in the session,
+     * such as the UIs themselves and the session attributes, can still be
+     * accessed.
+     * <p>
+     * When assertions are enabled, locking UIs in an order which could cause
+     * deadlocks, i.e. locking a UI while holding the lock of a UI with a
+     * greater {@link UI#getUIId() id}, is reported by throwing an
+     * {@link AssertionError}.
+     * <p>
+     * The lock should be released using {@link #unlockUI(UI)} in a finally
+     * block. The preferred way to ensure locking is done correctly is to use
+     * {@link UI#access(Runnable)}.
+     *
+     * @see #unlockUI(UI)
+     * @see UI#access(Runnable)
+     *
+     * @param ui
+     *            the UI to lock, or <code>null</code> to lock the session
+     * @since 8.1
+     */
+    public void lockUI(UI ui) {
+        if (ui == null || !ui.getLockInstance().isHeldByCurrentThread()
+                && (!isUILockingEnabled() || holdsSessionLock())) {
+            lock();
+            return;
+        }
+        assert ui.getSession() == null || ui.getSession() == this;
+        assert isUILockOrderValid(ui) : getUILockOrderMessage(ui);
+
+        uiLockGate.readLock().lock();
+        ui.getLockInstance().lock();
+    }
+
+    /**
+     * Unlocks a UI that has been locked using {@link #lockUI(UI)}. Pending
+     * access tasks for the UI are run and, if the UI uses
+     * {@link PushMode#AUTOMATIC automatic} push, pending changes are pushed to
+     * the client when the lock is released.
+     *
+     * @param ui
+     *            the UI to unlock, or <code>null</code> to unlock the session
+     * @since 8.1
+     */
+    public void unlockUI(UI ui) {
+        if (ui == null || !ui.getLockInstance().isHeldByCurrentThread()) {
+            unlock();
+            return;
+        }
+
+        boolean ultimateRelease = ui.getLockInstance().getHoldCount() == 1;
+        try {
+            if (ultimateRelease) {
+                getService().runPendingAccessTasks(ui);
+
+                if (ui.getSession() == this && ui.getPushConfiguration()
+                        .getPushMode() == PushMode.AUTOMATIC) {
+                    pushAutomatically(ui);
+                }
+            }
+        } finally {
+            ui.getLockInstance().unlock();
+            uiLockGate.readLock().unlock();
+        }
+
+        if (ultimateRelease) {
+            if (!ui.getPendingAccessQueue().isEmpty()) {
+                getService().ensureAccessQueuePurged(ui);
+            }
+            if (!getPendingAccessQueue().isEmpty()) {
+                getService().ensureAccessQueuePurged(this);
+            }
+        }
+    }
+
+    private void pushAutomatically(UI ui) {
+        int coalescingWindow = ui.getPushConfiguration().getCoalescingWindow();
+        if (coalescingWindow > 0) {
+            // Pending access tasks have already been run at this point
+            if (ui.getConnectorTracker().hasDirtyConnectors()) {
+                getService().getPushCoalescer().schedulePush(ui,
+                        coalescingWindow);
+            }
+            return;
+        }
+        Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
+                .setCurrent(ui);
+        try {
+            ui.push();
+        } finally {
+            CurrentInstance.restoreInstances(oldCurrent);
+        }
+    }
+
+    /**
+     * Acquires the lock of a UI if it is available right away. Used for
+     * purging the pending access queue of the UI.
+     *
+     * @param ui
+     *            the UI to lock, not <code>null</code>
+     * @return <code>true</code> if the lock was acquired and should be
+     *         released using {@link #unlockUI(UI)}, <code>false</code>
+     *         otherwise
+     */
+    boolean tryLockUI(UI ui) {
+        if (!ui.getLockInstance().isHeldByCurrentThread()
+                && (!isUILockingEnabled() || holdsSessionLock())) {
+            return tryLock();
+        }
+        if (!uiLockGate.readLock().tryLock()) {
+            return false;
+        }
+        if (!ui.getLockInstance().tryLock()) {
+            uiLockGate.readLock().unlock();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the current thread holds the session lock, as opposed to
+     * only the lock of some UI in this session.
+     *
+     * @return <code>true</code> if the session is locked by the current
+     *         thread, <code>false</code> otherwise
+     */
+    boolean hasExclusiveLock() {
+        return holdsSessionLock() && (!isUILockingEnabled()
+                || uiLockGate.isWriteLockedByCurrentThread());
+    }
+
+    private RequestMetrics getRequestMetrics() {
+        VaadinService service = getService();
+        RequestMetrics metrics = service == null ? null
+                : service.getRequestMetrics();
+        return metrics == null ? RequestMetrics.NONE : metrics;
+    }
+
+    private boolean holdsSessionLock() {
+        return ((ReentrantLock) getLockInstance()).isHeldByCurrentThread();
+    }
+
+    /*
+     * Data shared by all UIs can be changed by threads holding only the lock
+     * of a UI when UI locking is enabled. The session lock itself is held
+     * while doing so, which is fine as the session lock is always acquired
+     * after the UI lock.
+     */
+    private boolean lockSharedState() {
+        if (!isUILockingEnabled()) {
+            return false;
+        }
+        getLockInstance().lock();
+        return true;
+    }
+
+    private void unlockSharedState(boolean locked) {
+        if (locked) {
+            getLockInstance().unlock();
+        }
+    }
+
+    private boolean isUILockOrderValid(UI ui) {
+        return getHeldUIWithGreaterId(ui) == null;
+    }
+
+    private String getUILockOrderMessage(UI ui) {
+        return "Locking UI " + ui.getUIId() + " while holding the lock of UI "
+                + getHeldUIWithGreaterId(ui).getUIId()
+                + " might cause a deadlock. Lock UIs in the order of their ids or use UI.access() instead.";
+    }
+
+    private UI getHeldUIWithGreaterId(UI ui) {
+        if (uiLockGate.getReadHoldCount() == 0
+                || ui.getLockInstance().isHeldByCurrentThread()) {
+            return null;
+        }
+        // UIs are only added and removed while holding the session lock
+        for (UI other : uIs.values()) {
+            if (other.getUIId() > ui.getUIId()
+                    && other.getLockInstance().isHeldByCurrentThread()) {
+                return other;
+            }
+        }
+        return null;
     }
 
     /**
@@ -1046,14 +1430,19 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public void setAttribute(String name, Object value) {
-        assert hasLock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
-        if (value != null) {
-            attributes.put(name, value);
-        } else {
-            attributes.remove(name);
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            if (value != null) {
+                attributes.put(name, value);
+            } else {
+                attributes.remove(name);
+            }
+        } finally {
+            unlockSharedState(locked);
         }
     }
 
@@ -1079,7 +1468,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public <T> void setAttribute(Class<T> type, T value) {
-        assert hasLock();
+        assert hasSessionOrUILock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1103,11 +1492,16 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public Object getAttribute(String name) {
-        assert hasLock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
-        return attributes.get(name);
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            return attributes.get(name);
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -1130,7 +1524,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public <T> T getAttribute(Class<T> type) {
-        assert hasLock();
+        assert hasSessionOrUILock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1148,8 +1542,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return a unique UI id
      */
     public int getNextUIid() {
-        assert hasLock();
-        return nextUIId++;
+        boolean locked = lockSharedState();
+        try {
+            assert hasLock();
+            return nextUIId++;
+        } finally {
+            unlockSharedState(locked);
+        }
     }
 
     /**
@@ -1239,7 +1638,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *
      */
     public void close() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         state = State.CLOSING;
     }
 
@@ -1257,7 +1656,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public boolean isClosing() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return state == State.CLOSING || state == State.CLOSED;
     }
 
@@ -1268,10 +1667,21 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the current state
      */
     public State getState() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return state;
     }
 
+    /**
+     * Checks whether this session is open. Unlike {@link #getState()}, this can
+     * be used without holding the session lock.
+     *
+     * @return <code>true</code> if the state of this session is
+     *         {@link State#OPEN}, <code>false</code> otherwise
+     */
+    boolean isOpen() {
+        return state == State.OPEN;
+    }
+
     /**
      * Sets the lifecycle state of this session. The allowed transitions are
      * OPEN to CLOSING and CLOSING to CLOSED.
@@ -1413,7 +1823,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the csrf token string
      */
     public String getCsrfToken() {
-        assert hasLock();
+        assert hasSessionOrUILock();
         return csrfToken;
     }
 
@@ -1427,6 +1837,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         try {
             stream.defaultReadObject();
             pendingAccessQueue = new ConcurrentLinkedQueue<>();
+            uiLockGate = new ReentrantReadWriteLock();
         } finally {
             CurrentInstance.restoreInstances(old);
         }
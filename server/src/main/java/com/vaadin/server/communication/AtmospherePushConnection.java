@@ -164,9 +164,13 @@ public class AtmospherePushConnection implements PushConnection {
             }
         } else {
             try {
+                // Write the message envelope into the same buffer to avoid
+                // copying the whole message once more
                 Writer writer = new StringWriter();
+                writer.write("for(;;);[{");
                 new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer.toString() + "}]");
+                writer.write("}]");
+                sendMessage(writer.toString());
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
             }
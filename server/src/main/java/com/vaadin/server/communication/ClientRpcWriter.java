@@ -106,6 +106,73 @@ public class ClientRpcWriter implements Serializable {
         writer.write(JsonUtil.stringify(rpcCalls));
     }
 
+    /**
+     * Writes a JSON array containing all pending client RPC invocations in the
+     * given UI. Produces the same output as {@link #write(UI, Writer)}, but
+     * writes each invocation directly to the writer instead of first
+     * collecting all invocations into one JSON array.
+     *
+     * @since 8.1
+     * @param ui
+     *            The {@link UI} whose RPC calls to write.
+     * @param writer
+     *            The {@link Writer} used to write the JSON.
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void writeStreaming(UI ui, Writer writer) throws IOException {
+
+        Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(
+                ui.getConnectorTracker().getDirtyVisibleConnectors());
+
+        boolean firstInvocation = true;
+        writer.write('[');
+        for (ClientMethodInvocation invocation : pendingInvocations) {
+            // Encode all parameters before writing anything for the call
+            Type[] parameterTypes = invocation.getParameterTypes();
+            String[] encodedParameters = new String[parameterTypes.length];
+            try {
+                for (int i = 0; i < parameterTypes.length; ++i) {
+                    EncodeResult encodeResult = JsonCodec.encode(
+                            invocation.getParameters()[i], null,
+                            parameterTypes[i], ui.getConnectorTracker());
+                    JsonValue encodedValue = encodeResult.getEncodedValue();
+                    encodedParameters[i] = encodedValue == null ? "null"
+                            : JsonUtil.stringify(encodedValue);
+                }
+            } catch (JsonException e) {
+                throw new PaintException(
+                        "Failed to serialize RPC method call parameters for connector "
+                                + invocation.getConnector().getConnectorId()
+                                + " method " + invocation.getInterfaceName()
+                                + "." + invocation.getMethodName() + ": "
+                                + e.getMessage(),
+                        e);
+            }
+
+            if (!firstInvocation) {
+                writer.write(',');
+            }
+            firstInvocation = false;
+            writer.write('[');
+            writer.write(JsonUtil
+                    .quote(invocation.getConnector().getConnectorId()));
+            writer.write(',');
+            writer.write(JsonUtil.quote(invocation.getInterfaceName()));
+            writer.write(',');
+            writer.write(JsonUtil.quote(invocation.getMethodName()));
+            writer.write(",[");
+            for (int i = 0; i < encodedParameters.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(encodedParameters[i]);
+            }
+            writer.write("]]");
+        }
+        writer.write(']');
+    }
+
     /**
      * Collects all pending RPC calls from listed {@link ClientConnector}s and
      * clears their RPC queues.
@@ -19,7 +19,9 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -97,6 +99,83 @@ public class ConnectorHierarchyWriter implements Serializable {
         writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
+    /**
+     * Writes a JSON object containing the connector hierarchy (parent-child
+     * mappings) of the dirty connectors in the given UI. Produces the same
+     * output as {@link #write(UI, Writer, Set)}, but writes the children of
+     * each connector directly to the writer instead of first collecting the
+     * whole hierarchy into one JSON object.
+     *
+     * @since 8.1
+     * @param ui
+     *            The {@link UI} whose hierarchy to write.
+     * @param writer
+     *            The {@link Writer} used to write the JSON.
+     * @param stateUpdateConnectors
+     *            connector ids with state changes
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void writeStreaming(UI ui, Writer writer,
+            Set<String> stateUpdateConnectors) throws IOException {
+
+        // Write in the key order of the JSON object written by write
+        Collection<ClientConnector> dirtyVisibleConnectors = UidlWriter
+                .inStringifyOrder(ui.getConnectorTracker()
+                        .getDirtyVisibleConnectors());
+
+        // The sent hierarchy is only collected when assertions are enabled
+        JsonObject hierarchyInfo = null;
+        assert (hierarchyInfo = Json.createObject()) != null;
+
+        List<String> children = new ArrayList<>();
+        boolean firstConnector = true;
+        writer.write('{');
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            String connectorId = connector.getConnectorId();
+            children.clear();
+
+            for (ClientConnector child : AbstractClientConnector
+                    .getAllChildrenIterable(connector)) {
+                if (LegacyCommunicationManager
+                        .isConnectorVisibleToClient(child)) {
+                    children.add(child.getConnectorId());
+                }
+            }
+
+            // Omit for leaf nodes with state changes
+            if (!children.isEmpty()
+                    || !stateUpdateConnectors.contains(connectorId)) {
+                if (!firstConnector) {
+                    writer.write(',');
+                }
+                firstConnector = false;
+                writer.write(JsonUtil.quote(connectorId));
+                writer.write(":[");
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(JsonUtil.quote(children.get(i)));
+                }
+                writer.write(']');
+
+                if (hierarchyInfo != null) {
+                    JsonArray childArray = Json.createArray();
+                    for (String childId : children) {
+                        childArray.set(childArray.length(), childId);
+                    }
+                    hierarchyInfo.put(connectorId, childArray);
+                }
+            }
+        }
+        writer.write('}');
+
+        if (hierarchyInfo != null) {
+            storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
+        }
+    }
+
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
             Set<String> stateUpdateConnectors) {
         VaadinRequest request = VaadinService.getCurrentRequest();
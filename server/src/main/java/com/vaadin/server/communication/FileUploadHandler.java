@@ -23,8 +23,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.FileChannelOutputStream;
 import com.vaadin.server.NoInputStreamException;
 import com.vaadin.server.NoOutputStreamException;
 import com.vaadin.server.RequestHandler;
@@ -32,11 +38,13 @@ import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.StreamVariable.StreamingEndEvent;
 import com.vaadin.server.StreamVariable.StreamingErrorEvent;
+import com.vaadin.server.StreamVariable.StreamingProgressEvent;
 import com.vaadin.server.UploadException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.ui.Upload.FailedEvent;
 
 /**
@@ -50,6 +58,13 @@ public class FileUploadHandler implements RequestHandler {
     /**
      * Stream that extracts content from another stream until the boundary
      * string is encountered.
+     * <p>
+     * The underlying stream is read in blocks into an internal buffer, which is
+     * searched for the boundary using the Boyer-Moore-Horspool algorithm. Bytes
+     * that are known not to be part of the boundary can then be returned in
+     * bulk by {@link #read(byte[], int, int)}. The last bytes of the buffer
+     * that could be the beginning of a boundary spanning the end of the block
+     * are held back until more data has been read.
      *
      * Public only for unit tests, should be considered private for all other
      * purposes.
@@ -57,144 +72,198 @@ public class FileUploadHandler implements RequestHandler {
     public static class SimpleMultiPartInputStream extends InputStream {
 
         /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
+         * The default size of the internal buffer, {@value} bytes.
+         *
+         * @since 8.1
          */
-        int matchedCount = -1;
+        public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+        private final byte[] boundary;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * Horspool shift for each byte value, i.e. how far the search window
+         * can be moved when the byte is the last one in the window.
          */
-        int curBoundaryIndex = 0;
+        private final int[] shift = new int[256];
+
+        private final byte[] buffer;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * Index of the next byte to return from the buffer.
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
+        private int position = 0;
+
+        /**
+         * Index after the last valid byte in the buffer.
+         */
+        private int limit = 0;
+
+        /**
+         * Bytes between {@link #position} and this index have been checked
+         * not to be part of the boundary.
+         */
+        private int safeLimit = 0;
+
+        /**
+         * Whether the boundary starts at {@link #safeLimit}.
+         */
+        private boolean boundaryFound = false;
 
-        private final char[] boundary;
+        private boolean atTheEnd = false;
 
         private final InputStream realInputStream;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            this(realInputStream, boundaryString, DEFAULT_BUFFER_SIZE);
+        }
+
+        /**
+         * Creates a new stream reading the underlying stream in blocks of the
+         * given size.
+         *
+         * @param realInputStream
+         *            the stream to read from
+         * @param boundaryString
+         *            the multipart boundary, without the leading dashes
+         * @param bufferSize
+         *            the size of the internal buffer, it is increased to the
+         *            length of the boundary if smaller than that
+         * @since 8.1
+         */
+        public SimpleMultiPartInputStream(InputStream realInputStream,
+                String boundaryString, int bufferSize) {
+            boundary = (CRLF + DASHDASH + boundaryString)
+                    .getBytes(StandardCharsets.ISO_8859_1);
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(bufferSize, boundary.length)];
+
+            Arrays.fill(shift, boundary.length);
+            for (int i = 0; i < boundary.length - 1; i++) {
+                shift[boundary[i] & 0xff] = boundary.length - 1 - i;
+            }
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
-                // End boundary reached, nothing more to read
+            if (position == safeLimit && !scan()) {
                 return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
-                /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
-                 */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
-                }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
-                }
-                return fromActualStream;
             }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+            if (position == safeLimit && !scan()) {
+                return -1;
+            }
+            int count = Math.min(len, safeLimit - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return safeLimit - position;
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
+         * Finds more bytes that can be returned, reading the underlying stream
+         * as needed.
          *
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
+         * @return <code>true</code> if there are bytes available in the
+         *         buffer, <code>false</code> if the boundary has been reached
          * @throws IOException
+         *             if the underlying stream ends before the boundary
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
+        private boolean scan() throws IOException {
+            if (atTheEnd) {
+                return false;
+            } else if (boundaryFound) {
+                // End boundary reached, nothing more to read
+                atTheEnd = true;
+                return false;
+            }
+
             while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
+                int index = indexOfBoundary(position, limit);
+                if (index >= 0) {
+                    safeLimit = index;
+                    boundaryFound = true;
+                    if (index == position) {
+                        atTheEnd = true;
+                        return false;
+                    }
+                    return true;
                 }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
+                /*
+                 * The bytes after this index could be the start of a boundary
+                 * that continues in the next block.
+                 */
+                safeLimit = Math.max(position, limit - boundary.length + 1);
+                if (safeLimit > position) {
+                    return true;
                 }
+                fill();
             }
         }
 
         /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
+         * Moves the unread bytes to the beginning of the buffer and reads more
+         * bytes after them.
          *
-         * @return
          * @throws IOException
+         *             if the underlying stream has ended
          */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
-            } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
-                    }
-                }
+        private void fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0,
+                        limit - position);
+                limit -= position;
+                safeLimit -= position;
+                position = 0;
             }
-            if (b == -1) {
+            int read = realInputStream.read(buffer, limit,
+                    buffer.length - limit);
+            if (read == -1) {
+                // unexpected end of stream
                 throw new IOException(
                         "The multipart stream ended unexpectedly");
             }
-            return b;
+            limit += read;
+        }
+
+        /**
+         * Searches the buffer for the boundary using the Boyer-Moore-Horspool
+         * algorithm.
+         *
+         * @param from
+         *            the first index to search from, inclusive
+         * @param to
+         *            the last index to search to, exclusive
+         * @return the index where the boundary starts, or -1 if the whole
+         *         boundary was not found
+         */
+        private int indexOfBoundary(int from, int to) {
+            int last = boundary.length - 1;
+            int index = from;
+            while (index + last < to) {
+                int i = last;
+                while (buffer[index + i] == boundary[i]) {
+                    if (i == 0) {
+                        return index;
+                    }
+                    i--;
+                }
+                index += shift[buffer[index + last] & 0xff];
+            }
+            return -1;
         }
     }
 
@@ -216,6 +285,52 @@ public class FileUploadHandler implements RequestHandler {
         }
     }
 
+    /**
+     * Delivers the progress events of an upload through
+     * {@link UI#access(Runnable)}, so that the thread reading the upload never
+     * waits for the session lock. Only the latest progress is kept, and at most
+     * one access task is queued at a time for each upload.
+     */
+    private static class ProgressDispatcher implements Serializable {
+        private final UI ui;
+        private final StreamVariable streamVariable;
+        private final AtomicReference<StreamingProgressEvent> pendingEvent = new AtomicReference<>();
+        private final AtomicBoolean taskQueued = new AtomicBoolean();
+
+        private ProgressDispatcher(UI ui, StreamVariable streamVariable) {
+            this.ui = ui;
+            this.streamVariable = streamVariable;
+        }
+
+        private void dispatch(StreamingProgressEvent event) {
+            pendingEvent.set(event);
+            if (taskQueued.compareAndSet(false, true)) {
+                try {
+                    ui.access(this::deliver);
+                } catch (UIDetachedException e) {
+                    // Nobody to show the progress to
+                    pendingEvent.set(null);
+                }
+            }
+        }
+
+        private void deliver() {
+            taskQueued.set(false);
+            StreamingProgressEvent event = pendingEvent.getAndSet(null);
+            if (event != null) {
+                streamVariable.onProgress(event);
+            }
+        }
+
+        /**
+         * Discards a pending event so that no progress is reported after the
+         * upload has ended. Must be called while holding the session lock.
+         */
+        private void discard() {
+            pendingEvent.set(null);
+        }
+    }
+
     /**
      * as per RFC 2045, line delimiters in headers are always CRLF, i.e. 13 10
      */
@@ -263,7 +378,9 @@ public class FileUploadHandler implements RequestHandler {
         ClientConnector source;
         StreamVariable streamVariable;
 
-        session.lock();
+        UI lockedUI = session.isUILockingEnabled()
+                ? session.getUIById(Integer.parseInt(uiId)) : null;
+        session.lockUI(lockedUI);
         try {
             UI uI = session.getUIById(Integer.parseInt(uiId));
             UI.setCurrent(uI);
@@ -278,7 +395,7 @@ public class FileUploadHandler implements RequestHandler {
 
             source = uI.getConnectorTracker().getConnector(connectorId);
         } finally {
-            session.unlock();
+            session.unlockUI(lockedUI);
         }
 
         String contentType = request.getContentType();
@@ -381,14 +498,8 @@ public class FileUploadHandler implements RequestHandler {
                 + 2 * DASHDASH.length() + CRLF.length());
 
         /*
-         * Reads bytes from the underlying stream. Compares the read bytes to
-         * the boundary string and returns -1 if met.
-         *
-         * The matching happens so that if the read byte equals to the first
-         * char of boundary string, the stream goes to "buffering mode". In
-         * buffering mode bytes are read until the character does not match the
-         * corresponding from boundary string or the full boundary string is
-         * found.
+         * Reads blocks from the underlying stream and searches them for the
+         * boundary string. Returns the bytes before the boundary and then -1.
          *
          * Note, if this is someday needed elsewhere, don't shoot yourself to
          * foot and split to a top level helper class.
@@ -432,7 +543,10 @@ public class FileUploadHandler implements RequestHandler {
             String filename, String mimeType, long contentLength,
             ClientConnector connector, String variableName)
             throws UploadException {
-        session.lock();
+        // Store ui reference so we can do cleanup even if connector is
+        // detached in some event handler
+        UI ui = connector == null ? null : connector.getUI();
+        session.lockUI(ui);
         try {
             if (connector == null) {
                 throw new UploadException(
@@ -444,24 +558,22 @@ public class FileUploadHandler implements RequestHandler {
                         + " because the component was disabled");
             }
         } finally {
-            session.unlock();
+            session.unlockUI(ui);
         }
         try {
-            // Store ui reference so we can do cleanup even if connector is
-            // detached in some event handler
-            UI ui = connector.getUI();
-            boolean forgetVariable = streamToReceiver(session, inputStream,
-                    streamVariable, filename, mimeType, contentLength);
+            boolean forgetVariable = streamToReceiver(session, ui,
+                    inputStream, streamVariable, filename, mimeType,
+                    contentLength);
             if (forgetVariable) {
                 cleanStreamVariable(session, ui, connector, variableName);
             }
         } catch (Exception e) {
-            session.lock();
+            session.lockUI(ui);
             try {
                 session.getCommunicationManager()
                         .handleConnectorRelatedException(connector, e);
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
         }
     }
@@ -514,6 +626,12 @@ public class FileUploadHandler implements RequestHandler {
     }
 
     /**
+     * Streams an upload to a stream variable, reporting progress through
+     * {@link UI#getCurrent()}.
+     *
+     * @see #streamToReceiver(VaadinSession, UI, InputStream, StreamVariable,
+     *      String, String, long)
+     *
      * @param in
      * @param streamVariable
      * @param filename
@@ -527,6 +645,49 @@ public class FileUploadHandler implements RequestHandler {
             final InputStream in, StreamVariable streamVariable,
             String filename, String type, long contentLength)
             throws UploadException {
+        return streamToReceiver(session, UI.getCurrent(), in, streamVariable,
+                filename, type, contentLength);
+    }
+
+    /**
+     * Streams an upload to a stream variable.
+     * <p>
+     * The data is written to the output stream of the stream variable without
+     * holding the session lock. Progress events are coalesced and delivered
+     * through {@link UI#access(Runnable)}, so reading the upload never waits
+     * for the session lock. Progress is reported at most once per
+     * {@link #getProgressEventInterval()} milliseconds, and only the latest
+     * progress is reported if the UI is busy. The final progress event is
+     * delivered together with the end event.
+     * <p>
+     * If the output stream is a {@link FileChannelOutputStream}, the upload is
+     * read in chunks of its buffer size.
+     *
+     * @since 8.1
+     * @param session
+     *            the session of the upload
+     * @param ui
+     *            the UI that owns the stream variable, used for locking and
+     *            for delivering progress events, or <code>null</code> to
+     *            deliver all events while holding the session lock
+     * @param in
+     *            the upload data
+     * @param streamVariable
+     *            the stream variable to write to
+     * @param filename
+     *            the name of the uploaded file
+     * @param type
+     *            the MIME type of the uploaded file
+     * @param contentLength
+     *            the length of the upload, or -1 if unknown
+     * @return true if the streamvariable has informed that the terminal can
+     *         forget this variable
+     * @throws UploadException
+     */
+    protected final boolean streamToReceiver(VaadinSession session, UI ui,
+            final InputStream in, StreamVariable streamVariable,
+            String filename, String type, long contentLength)
+            throws UploadException {
         if (streamVariable == null) {
             throw new IllegalStateException(
                     "StreamVariable for the post not found");
@@ -536,15 +697,16 @@ public class FileUploadHandler implements RequestHandler {
         long totalBytes = 0;
         StreamingStartEventImpl startedEvent = new StreamingStartEventImpl(
                 filename, type, contentLength);
+        ProgressDispatcher progressDispatcher = null;
         try {
             boolean listenProgress;
-            session.lock();
+            session.lockUI(ui);
             try {
                 streamVariable.streamingStarted(startedEvent);
                 out = streamVariable.getOutputStream();
                 listenProgress = streamVariable.listenProgress();
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
 
             // Gets the output target stream
@@ -557,7 +719,14 @@ public class FileUploadHandler implements RequestHandler {
                 throw new NoInputStreamException();
             }
 
-            final byte buffer[] = new byte[MAX_UPLOAD_BUFFER_SIZE];
+            if (listenProgress && ui != null) {
+                progressDispatcher = new ProgressDispatcher(ui,
+                        streamVariable);
+            }
+
+            final byte buffer[] = new byte[out instanceof FileChannelOutputStream
+                    ? ((FileChannelOutputStream) out).getBufferSize()
+                    : MAX_UPLOAD_BUFFER_SIZE];
             long lastStreamingEvent = 0;
             int bytesReadToBuffer = 0;
             do {
@@ -566,20 +735,23 @@ public class FileUploadHandler implements RequestHandler {
                     out.write(buffer, 0, bytesReadToBuffer);
                     totalBytes += bytesReadToBuffer;
                 }
-                if (listenProgress) {
+                if (listenProgress && bytesReadToBuffer > 0) {
                     long now = System.currentTimeMillis();
                     // to avoid excessive session locking and event storms,
                     // events are sent in intervals, or at the end of the file.
-                    if (lastStreamingEvent + getProgressEventInterval() <= now
-                            || bytesReadToBuffer <= 0) {
+                    if (lastStreamingEvent + getProgressEventInterval() <= now) {
                         lastStreamingEvent = now;
-                        session.lock();
-                        try {
-                            StreamingProgressEventImpl progressEvent = new StreamingProgressEventImpl(
-                                    filename, type, contentLength, totalBytes);
-                            streamVariable.onProgress(progressEvent);
-                        } finally {
-                            session.unlock();
+                        StreamingProgressEventImpl progressEvent = new StreamingProgressEventImpl(
+                                filename, type, contentLength, totalBytes);
+                        if (progressDispatcher != null) {
+                            progressDispatcher.dispatch(progressEvent);
+                        } else {
+                            session.lockUI(ui);
+                            try {
+                                streamVariable.onProgress(progressEvent);
+                            } finally {
+                                session.unlockUI(ui);
+                            }
                         }
                     }
                 }
@@ -592,11 +764,18 @@ public class FileUploadHandler implements RequestHandler {
             out.close();
             StreamingEndEvent event = new StreamingEndEventImpl(filename, type,
                     totalBytes);
-            session.lock();
+            session.lockUI(ui);
             try {
+                if (listenProgress) {
+                    if (progressDispatcher != null) {
+                        progressDispatcher.discard();
+                    }
+                    streamVariable.onProgress(new StreamingProgressEventImpl(
+                            filename, type, contentLength, totalBytes));
+                }
                 streamVariable.streamingFinished(event);
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
 
         } catch (UploadInterruptedException e) {
@@ -604,18 +783,24 @@ public class FileUploadHandler implements RequestHandler {
             tryToCloseStream(out);
             StreamingErrorEvent event = new StreamingErrorEventImpl(filename,
                     type, contentLength, totalBytes, e);
-            session.lock();
+            session.lockUI(ui);
             try {
+                if (progressDispatcher != null) {
+                    progressDispatcher.discard();
+                }
                 streamVariable.streamingFailed(event);
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
             // Note, we are not throwing interrupted exception forward as it is
             // not a terminal level error like all other exception.
         } catch (final Exception e) {
             tryToCloseStream(out);
-            session.lock();
+            session.lockUI(ui);
             try {
+                if (progressDispatcher != null) {
+                    progressDispatcher.discard();
+                }
                 StreamingErrorEvent event = new StreamingErrorEventImpl(
                         filename, type, contentLength, totalBytes, e);
                 streamVariable.streamingFailed(event);
@@ -623,7 +808,7 @@ public class FileUploadHandler implements RequestHandler {
                 // terminalErrorHandler)
                 throw new UploadException(e);
             } finally {
-                session.unlock();
+                session.unlockUI(ui);
             }
         }
         return startedEvent.isDisposed();
@@ -22,7 +22,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
-import com.vaadin.server.SynchronizedRequestHandler;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
@@ -40,13 +39,7 @@ import com.vaadin.ui.UI;
  * @author Vaadin Ltd
  * @since 7.1
  */
-public class HeartbeatHandler extends SynchronizedRequestHandler
-        implements SessionExpiredHandler {
-
-    @Override
-    protected boolean canHandleRequest(VaadinRequest request) {
-        return ServletPortletHelper.isHeartbeatRequest(request);
-    }
+public class HeartbeatHandler implements SessionExpiredHandler {
 
     /**
      * Handles a heartbeat request for the given session. Reads the GET
@@ -54,12 +47,22 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
      * If the UI is found in the session, sets it
      * {@link UI#getLastHeartbeatTimestamp() heartbeat timestamp} to the current
      * time. Otherwise, writes a HTTP Not Found error to the response.
+     * <p>
+     * Since 8.1, heartbeat requests are handled without locking the session.
+     * Looking up the UI and updating its heartbeat timestamp are safe without
+     * the lock, which means that heartbeats are not delayed by long running
+     * requests or tasks holding the lock.
      */
     @Override
-    public boolean synchronizedHandleRequest(VaadinSession session,
-            VaadinRequest request, VaadinResponse response) throws IOException {
-        UI ui = session.getService().findUI(request);
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        if (!ServletPortletHelper.isHeartbeatRequest(request)) {
+            return false;
+        }
+
+        UI ui = findUI(session, request);
         if (ui != null) {
+            UI.setCurrent(ui);
             ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
             // Ensure that the browser does not cache heartbeat responses.
             // iOS 6 Safari requires this (#10370)
@@ -75,6 +78,18 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
         return true;
     }
 
+    private static UI findUI(VaadinSession session, VaadinRequest request) {
+        String uiId = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        if (uiId == null) {
+            return null;
+        }
+        try {
+            return session.getUIById(Integer.parseInt(uiId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
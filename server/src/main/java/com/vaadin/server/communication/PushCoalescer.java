@@ -0,0 +1,141 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+/**
+ * Coalesces automatic pushes for UIs that have a
+ * {@link PushConfiguration#getCoalescingWindow() coalescing window}. Instead of
+ * pushing every time the session is unlocked, the first change in a window
+ * schedules a single push at the end of the window and further changes during
+ * the window are included in that push.
+ * <p>
+ * One instance is shared by all sessions of a service and runs the scheduled
+ * pushes using a single background thread, which is started when the first
+ * push is scheduled.
+ *
+ * @see com.vaadin.server.VaadinService#getPushCoalescer()
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class PushCoalescer implements Serializable {
+
+    private final Set<UI> scheduledUIs = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong scheduledPushCount = new AtomicLong();
+    private final AtomicLong coalescedPushCount = new AtomicLong();
+
+    private transient ScheduledExecutorService executor;
+
+    /**
+     * Schedules a push for the given UI at the end of the coalescing window,
+     * unless a push has already been scheduled for the UI. This method is
+     * called by the framework when a session with an
+     * {@link PushMode#AUTOMATIC automatic} push UI is unlocked and should not
+     * be used by application developers.
+     *
+     * @param ui
+     *            the UI to push, not <code>null</code>
+     * @param coalescingWindow
+     *            the number of milliseconds to wait for further changes,
+     *            greater than zero
+     */
+    public void schedulePush(UI ui, int coalescingWindow) {
+        if (!scheduledUIs.add(ui)) {
+            coalescedPushCount.incrementAndGet();
+            return;
+        }
+        scheduledPushCount.incrementAndGet();
+        getExecutor().schedule(() -> push(ui), coalescingWindow,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void push(UI ui) {
+        /*
+         * The push is done as an access task so that the scheduler thread
+         * doesn't wait for the lock. The UI is removed from the scheduled UIs
+         * while holding the lock so that any change made after the push
+         * schedules a new one.
+         */
+        try {
+            ui.access(() -> {
+                scheduledUIs.remove(ui);
+                if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+                    ui.push();
+                }
+            });
+        } catch (UIDetachedException e) {
+            scheduledUIs.remove(ui);
+        }
+    }
+
+    /**
+     * Gets the number of pushes that have been scheduled, i.e. the number of
+     * coalescing windows that have been started.
+     *
+     * @return the number of scheduled pushes
+     */
+    public long getScheduledPushCount() {
+        return scheduledPushCount.get();
+    }
+
+    /**
+     * Gets the number of pushes that have been saved by coalescing, i.e. the
+     * number of times changes have been included in an already scheduled push
+     * instead of being pushed separately.
+     *
+     * @return the number of coalesced pushes
+     */
+    public long getCoalescedPushCount() {
+        return coalescedPushCount.get();
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Vaadin push coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the background thread. Pushes that have not yet been run are
+     * discarded. Called by the framework when the service is destroyed.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        scheduledUIs.clear();
+    }
+}
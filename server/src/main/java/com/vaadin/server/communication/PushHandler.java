@@ -223,7 +223,10 @@ public class PushHandler {
             }
 
             UI ui = null;
-            session.lock();
+            // Only the UI is locked if UI locking is enabled
+            UI lockedUI = session.isUILockingEnabled()
+                    ? service.findUI(vaadinRequest) : null;
+            session.lockUI(lockedUI);
             try {
                 ui = service.findUI(vaadinRequest);
                 assert UI.getCurrent() == ui;
@@ -259,7 +262,7 @@ public class PushHandler {
                 callErrorHandler(session, e);
             } finally {
                 try {
-                    session.unlock();
+                    session.unlockUI(lockedUI);
                 } catch (Exception e) {
                     getLogger().log(Level.WARNING,
                             "Error while unlocking session", e);
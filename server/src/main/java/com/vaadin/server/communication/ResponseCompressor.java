@@ -0,0 +1,284 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.vaadin.server.DeploymentConfiguration;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.metrics.RequestMetrics;
+
+/**
+ * Compresses UIDL responses using gzip when they are larger than the
+ * {@link DeploymentConfiguration#getCompressionThreshold() compression
+ * threshold} and the client accepts gzip encoded responses.
+ * <p>
+ * One instance is shared by all sessions of a service. The deflaters and
+ * output buffers used for compressing are pooled so that compressing a
+ * response does not allocate native memory or large arrays in the common case.
+ *
+ * @see com.vaadin.server.VaadinService#getResponseCompressor()
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class ResponseCompressor implements Serializable {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final byte[] GZIP_HEADER = { (byte) GZIP_MAGIC,
+            (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+            0 };
+
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    /**
+     * Output buffers larger than this are not returned to the pool to avoid
+     * keeping the memory of an occasional huge response around.
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final int threshold;
+
+    private final RequestMetrics requestMetrics;
+
+    private final int poolSize;
+
+    private transient BlockingQueue<Compression> pool;
+
+    /**
+     * The state needed for compressing one response at a time.
+     */
+    private static class Compression {
+        private final Deflater deflater = new Deflater(
+                Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+        private int compress(byte[] data) {
+            deflater.setInput(data);
+            deflater.finish();
+            crc.update(data);
+
+            System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+            int length = GZIP_HEADER.length;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    grow(length);
+                }
+                length += deflater.deflate(buffer, length,
+                        buffer.length - length);
+            }
+
+            if (buffer.length - length < GZIP_TRAILER_LENGTH) {
+                grow(length);
+            }
+            writeInt(length, (int) crc.getValue());
+            writeInt(length + 4, data.length);
+            return length + GZIP_TRAILER_LENGTH;
+        }
+
+        private void grow(int length) {
+            byte[] newBuffer = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+
+        private void writeInt(int offset, int value) {
+            // gzip uses little endian byte order
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >> 8);
+            buffer[offset + 2] = (byte) (value >> 16);
+            buffer[offset + 3] = (byte) (value >> 24);
+        }
+
+        private boolean reset() {
+            deflater.reset();
+            crc.reset();
+            return buffer.length <= MAX_POOLED_BUFFER_SIZE;
+        }
+    }
+
+    /**
+     * Creates a new response compressor.
+     *
+     * @param threshold
+     *            the minimum size in bytes of responses to compress, or a
+     *            negative value to never compress responses
+     * @param requestMetrics
+     *            the request metrics to report compressed responses to, not
+     *            <code>null</code>
+     */
+    public ResponseCompressor(int threshold, RequestMetrics requestMetrics) {
+        this.threshold = threshold;
+        this.requestMetrics = requestMetrics;
+        poolSize = 2 * Runtime.getRuntime().availableProcessors();
+        pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Gets the minimum size of responses to compress.
+     *
+     * @return the threshold in bytes, or a negative value if responses are
+     *         never compressed
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Checks whether responses are compressed at all.
+     *
+     * @return <code>true</code> if large enough responses are compressed,
+     *         <code>false</code> if responses are never compressed
+     */
+    public boolean isEnabled() {
+        return threshold >= 0;
+    }
+
+    /**
+     * Checks whether the client that sent the given request accepts gzip
+     * encoded responses, based on the <code>Accept-Encoding</code> header.
+     *
+     * @param request
+     *            the request to check, not <code>null</code>
+     * @return <code>true</code> if the response can be gzip encoded,
+     *         <code>false</code> otherwise
+     */
+    public boolean isGzipAccepted(VaadinRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ENGLISH);
+            boolean accepted = !hasZeroQuality(parts);
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                return accepted;
+            } else if ("*".equals(name)) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard != null && wildcard.booleanValue();
+    }
+
+    private static boolean hasZeroQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) == 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the given data to the response using gzip encoding if
+     * compression is enabled, the data is at least as large as the threshold
+     * and the client accepts gzip. If compression is enabled, the
+     * <code>Vary</code> header of the response is set regardless of whether
+     * this response is compressed so that caches do not serve a compressed
+     * response to clients that do not accept it.
+     * <p>
+     * Nothing is written to the response if this method returns
+     * <code>false</code>.
+     *
+     * @param request
+     *            the request that the response is for, not <code>null</code>
+     * @param response
+     *            the response to write to, not <code>null</code>
+     * @param data
+     *            the uncompressed data to write, not <code>null</code>
+     * @return <code>true</code> if the data was written compressed,
+     *         <code>false</code> if the caller should write the data as is
+     * @throws IOException
+     *             if writing to the response fails
+     */
+    public boolean writeCompressed(VaadinRequest request,
+            VaadinResponse response, byte[] data) throws IOException {
+        if (!isEnabled()) {
+            return false;
+        }
+        response.setHeader("Vary", "Accept-Encoding");
+        if (data.length < threshold || !isGzipAccepted(request)) {
+            return false;
+        }
+
+        Compression compression = pool.poll();
+        if (compression == null) {
+            compression = new Compression();
+        }
+        try {
+            int length = compression.compress(data);
+
+            response.setHeader("Content-Encoding", "gzip");
+            response.setContentLength(length);
+            OutputStream outputStream = response.getOutputStream();
+            outputStream.write(compression.buffer, 0, length);
+            // NOTE GateIn requires the buffers to be flushed to work
+            outputStream.flush();
+
+            if (requestMetrics.isEnabled()) {
+                requestMetrics.responseCompressed(data.length, length);
+            }
+        } finally {
+            release(compression);
+        }
+        return true;
+    }
+
+    private void release(Compression compression) {
+        if (!compression.reset() || !pool.offer(compression)) {
+            compression.deflater.end();
+        }
+    }
+
+    /**
+     * Releases the native resources of the pooled deflaters. Called when the
+     * service is destroyed. The compressor can still be used after this, but
+     * will then allocate new deflaters.
+     */
+    public void shutdown() {
+        Compression compression;
+        while ((compression = pool.poll()) != null) {
+            compression.deflater.end();
+        }
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pool = new ArrayBlockingQueue<>(poolSize);
+    }
+}
@@ -39,6 +39,7 @@ import com.vaadin.server.ServerRpcMethodInvocation;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VariableOwner;
+import com.vaadin.server.metrics.RequestMetrics;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.Connector;
 import com.vaadin.shared.Version;
@@ -331,6 +332,8 @@ public class ServerRpcHandler implements Serializable {
         // TODO PUSH Refactor so that this is not needed
         LegacyCommunicationManager manager = ui.getSession()
                 .getCommunicationManager();
+        RequestMetrics metrics = ui.getSession().getService()
+                .getRequestMetrics();
 
         try {
             ConnectorTracker connectorTracker = ui.getConnectorTracker();
@@ -384,6 +387,7 @@ public class ServerRpcHandler implements Serializable {
                         // data
                         if (DataRequestRpc.class.getName()
                                 .equals(rpc.getInterfaceClass().getName())) {
+                            metrics.rpcInvoked(connector.getClass());
                             handleInvocation(ui, connector, rpc);
                         }
                         continue;
@@ -411,6 +415,7 @@ public class ServerRpcHandler implements Serializable {
 
                 }
 
+                metrics.rpcInvoked(connector.getClass());
                 if (invocation instanceof ServerRpcMethodInvocation) {
                     handleInvocation(ui, connector,
                             (ServerRpcMethodInvocation) invocation);
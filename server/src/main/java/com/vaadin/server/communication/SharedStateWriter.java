@@ -82,4 +82,62 @@ public class SharedStateWriter implements Serializable {
 
         return writtenConnectors;
     }
+
+    /**
+     * Writes a JSON object containing the pending state changes of the dirty
+     * connectors of the given UI. Produces the same output as
+     * {@link #write(UI, Writer)}, but writes the state of each connector to
+     * the writer as soon as it has been encoded instead of first collecting
+     * all states into one JSON object.
+     *
+     * @since 8.1
+     * @param ui
+     *            The UI whose state changes should be written.
+     * @param writer
+     *            The writer to use.
+     * @return a set of connector ids with state changes
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public Set<String> writeStreaming(UI ui, Writer writer)
+            throws IOException {
+
+        // Write in the key order of the JSON object written by write
+        Collection<ClientConnector> dirtyVisibleConnectors = UidlWriter
+                .inStringifyOrder(ui.getConnectorTracker()
+                        .getDirtyVisibleConnectors());
+
+        Set<String> writtenConnectors = new HashSet<>();
+        writer.write('{');
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            // encode and send shared state
+            String connectorId = connector.getConnectorId();
+            String stateString;
+            try {
+                JsonObject stateJson = connector.encodeState();
+
+                if (stateJson == null || stateJson.keys().length == 0) {
+                    continue;
+                }
+                stateString = JsonUtil.stringify(stateJson);
+            } catch (JsonException e) {
+                throw new PaintException(
+                        "Failed to serialize shared state for connector "
+                                + connector.getClass().getName() + " ("
+                                + connectorId + "): " + e.getMessage(),
+                        e);
+            }
+
+            if (!writtenConnectors.isEmpty()) {
+                writer.write(',');
+            }
+            writer.write(JsonUtil.quote(connectorId));
+            writer.write(':');
+            writer.write(stateString);
+            writtenConnectors.add(connectorId);
+        }
+        writer.write('}');
+
+        return writtenConnectors;
+    }
 }
@@ -112,6 +112,15 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         response.setHeader("Cache-Control", "no-cache");
 
         byte[] b = json.getBytes("UTF-8");
+
+        VaadinService service = request.getService();
+        ResponseCompressor compressor = service == null ? null
+                : service.getResponseCompressor();
+        if (compressor != null
+                && compressor.writeCompressed(request, response, b)) {
+            return true;
+        }
+
         response.setContentLength(b.length);
 
         OutputStream outputStream = response.getOutputStream();
@@ -72,6 +72,11 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isUIDLRequest(request);
     }
 
+    @Override
+    protected boolean isUILockSufficient(VaadinRequest request) {
+        return true;
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
@@ -84,6 +89,10 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             return true;
         }
 
+        /*
+         * Buffered so that only a refresh is sent if writing fails and so
+         * that commitJsonResponse knows the length to decide on compression
+         */
         StringWriter stringWriter = new StringWriter();
 
         try {
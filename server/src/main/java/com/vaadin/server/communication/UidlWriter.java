@@ -36,6 +36,7 @@ import com.vaadin.server.LegacyCommunicationManager.ClientCache;
 import com.vaadin.server.SystemMessages;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.server.metrics.RequestMetrics;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.Dependency;
@@ -74,6 +75,13 @@ public class UidlWriter implements Serializable {
         VaadinSession session = ui.getSession();
         VaadinService service = session.getService();
 
+        RequestMetrics metrics = service.getRequestMetrics();
+        Utf8CountingWriter countingWriter = null;
+        if (metrics.isEnabled()) {
+            countingWriter = new Utf8CountingWriter(writer);
+            writer = countingWriter;
+        }
+
         // Purge pending access calls as they might produce additional changes
         // to write out
         service.runPendingAccessTasks(session);
@@ -117,6 +125,9 @@ public class UidlWriter implements Serializable {
         getLogger().log(Level.FINE, "Found " + processedConnectors.size()
                 + " dirty connectors to paint");
 
+        boolean streaming = service.getDeploymentConfiguration()
+                .isStreamingUidlEnabled();
+
         uiConnectorTracker.setWritingResponse(true);
         try {
 
@@ -155,8 +166,14 @@ public class UidlWriter implements Serializable {
             // processing.
 
             writer.write("\"state\":");
-            Set<String> stateUpdateConnectors = new SharedStateWriter()
-                    .write(ui, writer);
+            Set<String> stateUpdateConnectors;
+            if (streaming) {
+                stateUpdateConnectors = new SharedStateWriter()
+                        .writeStreaming(ui, writer);
+            } else {
+                stateUpdateConnectors = new SharedStateWriter().write(ui,
+                        writer);
+            }
             writer.write(", "); // close states
 
             // TODO This should be optimized. The type only needs to be
@@ -176,8 +193,13 @@ public class UidlWriter implements Serializable {
             // child to 0 children)
 
             writer.write("\"hierarchy\":");
-            new ConnectorHierarchyWriter().write(ui, writer,
-                    stateUpdateConnectors);
+            if (streaming) {
+                new ConnectorHierarchyWriter().writeStreaming(ui, writer,
+                        stateUpdateConnectors);
+            } else {
+                new ConnectorHierarchyWriter().write(ui, writer,
+                        stateUpdateConnectors);
+            }
             writer.write(", "); // close hierarchy
 
             // send server to client RPC calls for components in the UI, in call
@@ -187,7 +209,11 @@ public class UidlWriter implements Serializable {
             // which they were performed, remove the calls from components
 
             writer.write("\"rpc\" : ");
-            new ClientRpcWriter().write(ui, writer);
+            if (streaming) {
+                new ClientRpcWriter().writeStreaming(ui, writer);
+            } else {
+                new ClientRpcWriter().write(ui, writer);
+            }
             writer.write(", "); // close rpc
 
             uiConnectorTracker.markAllConnectorsClean();
@@ -305,6 +331,11 @@ public class UidlWriter implements Serializable {
             uiConnectorTracker.setWritingResponse(false);
             uiConnectorTracker.cleanConnectorMap();
         }
+
+        if (countingWriter != null) {
+            metrics.changesWritten(processedConnectors.size(),
+                    countingWriter.getByteCount());
+        }
     }
 
     private JsonArray toJsonArray(List<Dependency> list) {
@@ -335,7 +366,103 @@ public class UidlWriter implements Serializable {
         }
     }
 
+    /**
+     * Returns the given connectors in the order in which
+     * {@link JsonUtil#stringify(elemental.json.JsonValue)} writes the keys of
+     * an object with their connector ids as keys: numeric ids first in string
+     * order, followed by any other ids in their original order. The streaming
+     * writers use this order to produce the same output as the tree building
+     * writers.
+     *
+     * @param connectors
+     *            the connectors to order
+     * @return a new list of the connectors in stringify order
+     */
+    static List<ClientConnector> inStringifyOrder(
+            Collection<ClientConnector> connectors) {
+        List<ClientConnector> ordered = new ArrayList<>(connectors);
+        // Stable sort keeps the original order of the non-numeric ids
+        ordered.sort((connector1, connector2) -> {
+            String id1 = connector1.getConnectorId();
+            String id2 = connector2.getConnectorId();
+            boolean numeric1 = isNumeric(id1);
+            boolean numeric2 = isNumeric(id2);
+            if (numeric1 && numeric2) {
+                return id1.compareTo(id2);
+            }
+            return Boolean.compare(numeric2, numeric1);
+        });
+        return ordered;
+    }
+
+    private static boolean isNumeric(String id) {
+        if (id.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(UidlWriter.class.getName());
     }
+
+    /**
+     * Passes characters through to another writer while counting the number
+     * of bytes they take up when encoded as UTF-8.
+     */
+    private static class Utf8CountingWriter extends Writer {
+        private final Writer writer;
+        private long byteCount = 0;
+
+        private Utf8CountingWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count(cbuf[i]);
+            }
+            writer.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count(str.charAt(i));
+            }
+            writer.write(str, off, len);
+        }
+
+        private void count(char c) {
+            if (c < 0x80) {
+                byteCount += 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // Each half of a surrogate pair is counted as two bytes
+                byteCount += 2;
+            } else {
+                byteCount += 3;
+            }
+        }
+
+        private long getByteCount() {
+            return byteCount;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.RequestHandler;
+
+/**
+ * Request metrics implementation that collects measurements in memory and
+ * publishes them as an MXBean in the platform MBean server.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class JmxRequestMetrics implements RequestMetrics, RequestMetricsMXBean {
+
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final Map<Class<?>, LatencyHistogram> handlerLatencies = new ConcurrentHashMap<>();
+    private final LatencyHistogram sessionLockWaitTime = new LatencyHistogram();
+    private final LatencyHistogram sessionLockHoldTime = new LatencyHistogram();
+
+    private final LongAdder changeMessageCount = new LongAdder();
+    private final LongAdder dirtyConnectorCount = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final Map<Class<?>, LongAdder> rpcCounts = new ConcurrentHashMap<>();
+    private final LongAdder compressedResponseCount = new LongAdder();
+    private final LongAdder uncompressedResponseBytes = new LongAdder();
+    private final LongAdder compressedResponseBytes = new LongAdder();
+
+    private ObjectName objectName;
+
+    /**
+     * Creates the object name used for publishing the metrics of a service.
+     * The name of the web application or portlet application is included so
+     * that services with the same name in different applications running in
+     * the same JVM get different names.
+     *
+     * @param contextName
+     *            the name of the application the service belongs to, e.g. the
+     *            servlet context path, or <code>null</code> if not known
+     * @param serviceName
+     *            the name of the service, not <code>null</code>
+     * @return the object name
+     * @throws MalformedObjectNameException
+     *             if no valid object name can be created
+     */
+    public static ObjectName createObjectName(String contextName,
+            String serviceName) throws MalformedObjectNameException {
+        StringBuilder name = new StringBuilder(
+                "com.vaadin:type=RequestMetrics");
+        if (contextName != null) {
+            name.append(",context=").append(ObjectName.quote(contextName));
+        }
+        name.append(",service=").append(ObjectName.quote(serviceName));
+        return new ObjectName(name.toString());
+    }
+
+    /**
+     * Publishes these metrics in the platform MBean server using the given
+     * name. If some other MBean has already been registered with the name, an
+     * <code>instance</code> key with the first free number is added to the
+     * name instead of replacing the existing MBean. Failures are logged and
+     * otherwise ignored.
+     *
+     * @param name
+     *            the object name to use, not <code>null</code>
+     * @return the name these metrics were registered with, or
+     *         <code>null</code> if registering failed
+     */
+    public synchronized ObjectName register(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName candidate = name;
+        try {
+            for (int instance = 2;; instance++) {
+                try {
+                    server.registerMBean(this, candidate);
+                    objectName = candidate;
+                    return candidate;
+                } catch (InstanceAlreadyExistsException e) {
+                    candidate = new ObjectName(name.getCanonicalName()
+                            + ",instance=" + instance);
+                }
+            }
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not register request metrics as " + candidate, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the name these metrics have been registered with in the platform
+     * MBean server.
+     *
+     * @return the object name, or <code>null</code> if these metrics are not
+     *         registered
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server if they have been
+     * registered. MBeans registered by others are never removed.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(objectName);
+        } catch (JMException e) {
+            getLogger().log(Level.FINE,
+                    "Could not unregister request metrics " + objectName, e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void requestCompleted(long duration) {
+        requestLatency.record(duration);
+    }
+
+    @Override
+    public void requestHandled(Class<? extends RequestHandler> handlerType,
+            long duration) {
+        handlerLatencies
+                .computeIfAbsent(handlerType, type -> new LatencyHistogram())
+                .record(duration);
+    }
+
+    @Override
+    public void sessionLockAcquired(long waitTime) {
+        sessionLockWaitTime.record(waitTime);
+    }
+
+    @Override
+    public void sessionLockReleased(long holdTime) {
+        sessionLockHoldTime.record(holdTime);
+    }
+
+    @Override
+    public void changesWritten(int dirtyConnectorCount, long encodedBytes) {
+        changeMessageCount.increment();
+        this.dirtyConnectorCount.add(dirtyConnectorCount);
+        this.encodedBytes.add(encodedBytes);
+    }
+
+    @Override
+    public void rpcInvoked(Class<? extends ClientConnector> connectorType) {
+        rpcCounts.computeIfAbsent(connectorType, type -> new LongAdder())
+                .increment();
+    }
+
+    @Override
+    public void responseCompressed(long rawBytes, long compressedBytes) {
+        compressedResponseCount.increment();
+        uncompressedResponseBytes.add(rawBytes);
+        compressedResponseBytes.add(compressedBytes);
+    }
+
+    @Override
+    public LatencyStatistics getRequestLatency() {
+        return requestLatency.getStatistics();
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getHandlerLatencies() {
+        Map<String, LatencyStatistics> result = new TreeMap<>();
+        handlerLatencies.forEach((type, histogram) -> result
+                .put(type.getName(), histogram.getStatistics()));
+        return result;
+    }
+
+    @Override
+    public LatencyStatistics getSessionLockWaitTime() {
+        return sessionLockWaitTime.getStatistics();
+    }
+
+    @Override
+    public LatencyStatistics getSessionLockHoldTime() {
+        return sessionLockHoldTime.getStatistics();
+    }
+
+    @Override
+    public long getChangeMessageCount() {
+        return changeMessageCount.sum();
+    }
+
+    @Override
+    public long getDirtyConnectorCount() {
+        return dirtyConnectorCount.sum();
+    }
+
+    @Override
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    @Override
+    public Map<String, Long> getRpcCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        rpcCounts.forEach(
+                (type, counter) -> result.put(type.getName(), counter.sum()));
+        return result;
+    }
+
+    @Override
+    public long getCompressedResponseCount() {
+        return compressedResponseCount.sum();
+    }
+
+    @Override
+    public long getUncompressedResponseBytes() {
+        return uncompressedResponseBytes.sum();
+    }
+
+    @Override
+    public long getCompressedResponseBytes() {
+        return compressedResponseBytes.sum();
+    }
+
+    @Override
+    public void reset() {
+        requestLatency.reset();
+        handlerLatencies.clear();
+        sessionLockWaitTime.reset();
+        sessionLockHoldTime.reset();
+        changeMessageCount.reset();
+        dirtyConnectorCount.reset();
+        encodedBytes.reset();
+        rpcCounts.clear();
+        compressedResponseCount.reset();
+        uncompressedResponseBytes.reset();
+        compressedResponseBytes.reset();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(JmxRequestMetrics.class.getName());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe histogram of durations with fixed, roughly exponential bucket
+ * boundaries from 0.1 milliseconds to 10 seconds. Recording a duration does
+ * not allocate memory or acquire locks. Percentiles are estimated as the upper
+ * boundary of the bucket that contains them.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class LatencyHistogram implements Serializable {
+
+    /*
+     * Upper bounds of the buckets in microseconds. The last bucket, which is
+     * not included, contains all larger durations.
+     */
+    private static final long[] BUCKET_BOUNDS = { 100, 250, 500, 1000, 2500,
+            5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000,
+            2500000, 5000000, 10000000 };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(
+            BUCKET_BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param duration
+     *            the duration in nanoseconds
+     */
+    public void record(long duration) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(duration);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length
+                && micros > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        total.add(duration);
+        max.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the mean of the recorded durations.
+     *
+     * @return the mean duration in milliseconds, or 0 if nothing has been
+     *         recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        return toMillis(total.sum()) / n;
+    }
+
+    /**
+     * Gets the longest recorded duration.
+     *
+     * @return the longest duration in milliseconds, or 0 if nothing has been
+     *         recorded
+     */
+    public double getMax() {
+        return toMillis(max.get());
+    }
+
+    /**
+     * Gets an estimate of the given percentile of the recorded durations. The
+     * estimate is the upper boundary of the bucket that contains the
+     * percentile, or the longest recorded duration if it is smaller.
+     *
+     * @param percentile
+     *            the percentile to get, between 0 and 100
+     * @return the estimated percentile in milliseconds, or 0 if nothing has
+     *         been recorded
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100");
+        }
+        long[] counts = new long[buckets.length()];
+        long n = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(BUCKET_BOUNDS[i] / 1000.0, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of this histogram.
+     *
+     * @return the current statistics, not <code>null</code>
+     */
+    public LatencyStatistics getStatistics() {
+        return new LatencyStatistics(getCount(), getMean(), getMax(),
+                getPercentile(50), getPercentile(95), getPercentile(99));
+    }
+
+    /**
+     * Discards all recorded durations. Durations recorded concurrently with
+     * the reset may be partially discarded.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.metrics;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of the statistics of a {@link LatencyHistogram}. All
+ * durations are in milliseconds.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class LatencyStatistics implements Serializable {
+
+    private final long count;
+    private final double mean;
+    private final double max;
+    private final double p50;
+    private final double p95;
+    private final double p99;
+
+    /**
+     * Creates a new statistics snapshot.
+     *
+     * @param count
+     *            the number of recorded durations
+     * @param mean
+     *            the mean duration
+     * @param max
+     *            the longest duration
+     * @param p50
+     *            the median duration
+     * @param p95
+     *            the 95th percentile of the durations
+     * @param p99
+     *            the 99th percentile of the durations
+     */
+    @ConstructorProperties({ "count", "mean", "max", "p50", "p95", "p99" })
+    public LatencyStatistics(long count, double mean, double max, double p50,
+            double p95, double p99) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean duration.
+     *
+     * @return the mean duration in milliseconds
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the longest duration.
+     *
+     * @return the longest duration in milliseconds
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the median duration.
+     *
+     * @return the median duration in milliseconds
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * Gets the 95th percentile of the durations.
+     *
+     * @return the 95th percentile in milliseconds
+     */
+    public double getP95() {
+        return p95;
+    }
+
+    /**
+     * Gets the 99th percentile of the durations.
+     *
+     * @return the 99th percentile in milliseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "count=%d, mean=%.3f ms, p50=%.3f ms, p95=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                count, mean, p50, p95, p99, max);
+    }
+}
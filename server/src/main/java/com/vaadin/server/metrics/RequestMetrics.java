@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.metrics;
+
+import java.io.Serializable;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.RequestHandler;
+
+/**
+ * Receives measurements from the request handling pipeline of a
+ * {@link com.vaadin.server.VaadinService}. All methods have empty default
+ * implementations so that implementations only need to override the methods
+ * for the measurements they are interested in.
+ * <p>
+ * Implementations are called concurrently from all request threads and must
+ * thus be thread safe. They should also be fast since they are called while
+ * requests are being handled, in some cases while holding the session lock.
+ * <p>
+ * Durations are given in nanoseconds.
+ *
+ * @see com.vaadin.server.VaadinService#getRequestMetrics()
+ * @see com.vaadin.server.VaadinService#createRequestMetrics()
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public interface RequestMetrics extends Serializable {
+
+    /**
+     * Request metrics implementation that ignores all measurements. The
+     * framework does not take any measurements when this instance is used.
+     */
+    public static final RequestMetrics NONE = new RequestMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * Checks whether measurements should be taken at all. When this method
+     * returns <code>false</code>, the framework skips all work related to
+     * taking measurements, such as reading the system time or counting
+     * response bytes.
+     *
+     * @return <code>true</code> if measurements should be taken,
+     *         <code>false</code> otherwise
+     */
+    public default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called when a request has been completely handled.
+     *
+     * @param duration
+     *            the time from the start to the end of the request
+     */
+    public default void requestCompleted(long duration) {
+    }
+
+    /**
+     * Called when a request handler has handled a request.
+     *
+     * @param handlerType
+     *            the type of the request handler that handled the request
+     * @param duration
+     *            the time spent in the request handler
+     */
+    public default void requestHandled(
+            Class<? extends RequestHandler> handlerType, long duration) {
+    }
+
+    /**
+     * Called when the lock of a session has been acquired. Only the outermost
+     * acquisition of a reentrant lock is reported.
+     *
+     * @param waitTime
+     *            the time spent waiting for the lock
+     */
+    public default void sessionLockAcquired(long waitTime) {
+    }
+
+    /**
+     * Called when the lock of a session has been released. Only the outermost
+     * release of a reentrant lock is reported.
+     *
+     * @param holdTime
+     *            the time the lock was held
+     */
+    public default void sessionLockReleased(long holdTime) {
+    }
+
+    /**
+     * Called when the changes of a UI have been written to the client, either
+     * as a response to a client request or as a push message.
+     *
+     * @param dirtyConnectorCount
+     *            the number of connectors whose changes were written
+     * @param encodedBytes
+     *            the number of bytes of the UTF-8 encoded message
+     */
+    public default void changesWritten(int dirtyConnectorCount,
+            long encodedBytes) {
+    }
+
+    /**
+     * Called when an RPC invocation from the client is about to be handled.
+     *
+     * @param connectorType
+     *            the type of the connector the invocation is targeted to
+     */
+    public default void rpcInvoked(
+            Class<? extends ClientConnector> connectorType) {
+    }
+
+    /**
+     * Called when a response has been compressed before being written to the
+     * client.
+     *
+     * @see com.vaadin.server.communication.ResponseCompressor
+     *
+     * @param rawBytes
+     *            the number of bytes before compression
+     * @param compressedBytes
+     *            the number of bytes written to the client
+     */
+    public default void responseCompressed(long rawBytes,
+            long compressedBytes) {
+    }
+}
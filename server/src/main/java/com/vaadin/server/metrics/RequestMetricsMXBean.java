@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface for the request metrics of a
+ * {@link com.vaadin.server.VaadinService}, as published over JMX by
+ * {@link JmxRequestMetrics}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public interface RequestMetricsMXBean {
+
+    /**
+     * Gets the statistics of the total request handling time.
+     *
+     * @return the request latency statistics
+     */
+    public LatencyStatistics getRequestLatency();
+
+    /**
+     * Gets the statistics of the time spent in each request handler, by the
+     * fully qualified name of the request handler class.
+     *
+     * @return a map from handler class name to latency statistics
+     */
+    public Map<String, LatencyStatistics> getHandlerLatencies();
+
+    /**
+     * Gets the statistics of the time spent waiting for session locks.
+     *
+     * @return the session lock wait time statistics
+     */
+    public LatencyStatistics getSessionLockWaitTime();
+
+    /**
+     * Gets the statistics of the time session locks have been held.
+     *
+     * @return the session lock hold time statistics
+     */
+    public LatencyStatistics getSessionLockHoldTime();
+
+    /**
+     * Gets the number of messages with UI changes that have been written to
+     * clients.
+     *
+     * @return the number of change messages
+     */
+    public long getChangeMessageCount();
+
+    /**
+     * Gets the total number of dirty connectors written to clients.
+     *
+     * @return the number of dirty connectors
+     */
+    public long getDirtyConnectorCount();
+
+    /**
+     * Gets the total number of UTF-8 encoded bytes of the change messages
+     * written to clients.
+     *
+     * @return the number of encoded bytes
+     */
+    public long getEncodedBytes();
+
+    /**
+     * Gets the number of RPC invocations received from clients, by the fully
+     * qualified name of the target connector class.
+     *
+     * @return a map from connector class name to invocation count
+     */
+    public Map<String, Long> getRpcCounts();
+
+    /**
+     * Gets the number of responses that have been compressed before being
+     * written to clients.
+     *
+     * @return the number of compressed responses
+     */
+    public long getCompressedResponseCount();
+
+    /**
+     * Gets the total number of bytes of the compressed responses before
+     * compression.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getUncompressedResponseBytes();
+
+    /**
+     * Gets the total number of bytes of the compressed responses as written to
+     * clients.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedResponseBytes();
+
+    /**
+     * Discards all collected metrics.
+     */
+    public void reset();
+}
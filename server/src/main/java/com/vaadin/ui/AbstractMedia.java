@@ -104,7 +104,8 @@ public abstract class AbstractMedia extends AbstractComponent {
         DownloadStream stream;
 
         VaadinSession session = getSession();
-        session.lock();
+        UI ui = getUI();
+        session.lockUI(ui);
         try {
             List<URLReference> sources = getState().sources;
 
@@ -122,7 +123,7 @@ public abstract class AbstractMedia extends AbstractComponent {
                     .getResource(reference);
             stream = resource.getStream();
         } finally {
-            session.unlock();
+            session.unlockUI(ui);
         }
 
         stream.writeResponse(request, response);
@@ -174,7 +174,7 @@ public abstract class AbstractSingleComponentContainer extends AbstractComponent
         UI parentUI = content.getUI();
         if (parentUI != null) {
             VaadinSession parentSession = parentUI.getSession();
-            if (parentSession != null && !parentSession.hasLock()) {
+            if (parentSession != null && !parentSession.hasUILock(parentUI)) {
                 String message = "Cannot remove from parent when the session is not locked.";
                 if (VaadinService.isOtherSessionLocked(parentSession)) {
                     message += " Furthermore, there is another locked session, indicating that the component might be about to be moved from one session to another.";
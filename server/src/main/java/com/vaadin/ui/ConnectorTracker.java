@@ -28,6 +28,7 @@ import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,10 +36,12 @@ import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
+import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.ConnectorHierarchyWriter;
 
 import elemental.json.Json;
@@ -67,7 +70,11 @@ import elemental.json.JsonObject;
  */
 public class ConnectorTracker implements Serializable {
 
-    private final HashMap<String, ClientConnector> connectorIdToConnector = new HashMap<>();
+    /*
+     * Concurrent so that connectors can be looked up without locking, e.g.
+     * when serving connector resources. Only modified while holding the lock.
+     */
+    private final Map<String, ClientConnector> connectorIdToConnector = new ConcurrentHashMap<>();
     private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
 
@@ -76,13 +83,21 @@ public class ConnectorTracker implements Serializable {
      * time {@link #cleanConnectorMap()} is invoked unless they have been
      * registered again.
      */
-    private final Set<ClientConnector> unregisteredConnectors = new HashSet<>();
+    private final Set<ClientConnector> unregisteredConnectors = ConcurrentHashMap
+            .newKeySet();
 
     private boolean writingResponse = false;
 
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
 
+    /**
+     * Values of the immutable state properties of connectors at the time their
+     * diff state was last updated. Only used when incremental state encoding
+     * is enabled.
+     */
+    private transient Map<ClientConnector, Object[]> stateSnapshots = new HashMap<>();
+
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
 
@@ -246,10 +261,15 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        stateSnapshots.clear();
     }
 
     /**
      * Gets a connector by its id.
+     * <p>
+     * Since 8.1, this method can also be used without holding the session
+     * lock. The connector itself should still only be accessed while holding
+     * the lock.
      *
      * @param connectorId
      *            The connector id to look for
@@ -258,14 +278,18 @@ public class ConnectorTracker implements Serializable {
      */
     public ClientConnector getConnector(String connectorId) {
         ClientConnector connector = connectorIdToConnector.get(connectorId);
-        // Ignore connectors that have been unregistered but not yet cleaned up
-        if (unregisteredConnectors.contains(connector)) {
-            return null;
-        } else if (connector != null) {
+        if (connector != null) {
+            // Ignore connectors that have been unregistered but not yet
+            // cleaned up
+            if (unregisteredConnectors.contains(connector)) {
+                return null;
+            }
             return connector;
-        } else {
-            DragAndDropService service = uI.getSession()
-                    .getDragAndDropService();
+        }
+        // The UI might be detached concurrently when not holding the lock
+        VaadinSession session = uI.getSession();
+        if (session != null) {
+            DragAndDropService service = session.getDragAndDropService();
             if (connectorId.equals(service.getConnectorId())) {
                 return service;
             }
@@ -315,12 +339,14 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                stateSnapshots.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
                             .isConnectorVisibleToClient(connector)) {
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                stateSnapshots.remove(connector);
 
                 assert isRemovalSentToClient(connector) : "Connector "
                         + connector + " (id = " + connector.getConnectorId()
@@ -431,6 +457,7 @@ public class ConnectorTracker implements Serializable {
             }
             uninitializedConnectors.remove(connector);
             diffStates.remove(connector);
+            stateSnapshots.remove(connector);
         }
         unregisteredConnectors.clear();
     }
@@ -641,6 +668,50 @@ public class ConnectorTracker implements Serializable {
     public void setDiffState(ClientConnector connector, JsonObject diffState) {
         assert getConnector(connector.getConnectorId()) == connector;
         diffStates.put(connector, diffState);
+        // A snapshot is only valid for the diff state it was taken for
+        stateSnapshots.remove(connector);
+    }
+
+    /**
+     * Gets the values of the immutable state properties of the given connector
+     * at the time its diff state was last updated, as set using
+     * {@link #setStateSnapshot(ClientConnector, Object[])}. The snapshot is
+     * discarded whenever the diff state of the connector is replaced or
+     * removed. Modifications made in place to the diff state, e.g. for state
+     * changes from the client, are detected by
+     * {@link JsonCodec#encodeChanges(Object, Class, JsonObject, Object[], ConnectorTracker)}
+     * without discarding the snapshot.
+     * <p>
+     * This method is for internal use only and may be removed in future
+     * versions.
+     *
+     * @since 8.1
+     * @param connector
+     *            the connector to get the snapshot for
+     * @return the state snapshot, or <code>null</code> if there is no valid
+     *         snapshot for the connector
+     */
+    public Object[] getStateSnapshot(ClientConnector connector) {
+        return stateSnapshots.get(connector);
+    }
+
+    /**
+     * Sets the values of the immutable state properties of the given connector
+     * that correspond to its current diff state.
+     * <p>
+     * This method is for internal use only and may be removed in future
+     * versions.
+     *
+     * @since 8.1
+     * @param connector
+     *            the connector to set the snapshot for
+     * @param snapshot
+     *            the state snapshot
+     */
+    public void setStateSnapshot(ClientConnector connector,
+            Object[] snapshot) {
+        assert diffStates.containsKey(connector);
+        stateSnapshots.put(connector, snapshot);
     }
 
     public boolean isDirty(ClientConnector connector) {
@@ -719,6 +790,10 @@ public class ConnectorTracker implements Serializable {
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
 
+        // Snapshots are discarded, causing the next state update of each
+        // connector to be a full one
+        stateSnapshots = new HashMap<>();
+
         // Read String versions of JsonObjects and parse into JsonObjects as
         // JsonObject is not serializable
         diffStates = new HashMap<>();
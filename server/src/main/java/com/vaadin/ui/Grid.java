@@ -613,6 +613,10 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
                 MouseEventDetails details) {
             Column<T, ?> column = getColumnByInternalId(columnInternalId);
             T item = getDataCommunicator().getKeyMapper().get(rowKey);
+            if (item == null) {
+                // Unknown key, e.g. a placeholder row that is being fetched
+                return;
+            }
             fireEvent(new ItemClick<>(Grid.this, column, item, details));
         }
 
@@ -162,11 +162,65 @@ public interface PushConfiguration extends Serializable {
      */
     public String getPushUrl();
 
+    /**
+     * Sets the number of milliseconds to wait for further changes before
+     * pushing them when the push mode is {@link PushMode#AUTOMATIC automatic}.
+     * <p>
+     * By default, changes are pushed every time the session is unlocked. When
+     * a UI is updated very often, e.g. by a background thread for each
+     * received event, a coalescing window combines all changes made during the
+     * window into a single push, which reduces the number of messages sent to
+     * the client at the cost of a delay of at most the given length.
+     * <p>
+     * The default implementation only supports pushing immediately so that
+     * existing implementations of this interface keep compiling.
+     *
+     * @since 8.1
+     * @param coalescingWindow
+     *            the coalescing window in milliseconds, or 0 to push
+     *            immediately
+     * @throws IllegalArgumentException
+     *             if the window is negative
+     * @throws UnsupportedOperationException
+     *             if the window is positive and this implementation does not
+     *             support coalescing
+     */
+    public default void setCoalescingWindow(int coalescingWindow) {
+        if (coalescingWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Coalescing window cannot be negative");
+        }
+        if (coalescingWindow != 0) {
+            throw new UnsupportedOperationException(
+                    "Push coalescing is not supported by "
+                            + getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds to wait for further changes before
+     * pushing them when the push mode is {@link PushMode#AUTOMATIC automatic}.
+     *
+     * @see #setCoalescingWindow(int)
+     *
+     * @since 8.1
+     * @return the coalescing window in milliseconds, or 0 if changes are
+     *         pushed immediately
+     */
+    public default int getCoalescingWindow() {
+        return 0;
+    }
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private final UI ui;
 
+    /*
+     * Only used on the server, so not stored in the shared state
+     */
+    private int coalescingWindow = 0;
+
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
     }
@@ -200,7 +254,7 @@ class PushConfigurationImpl implements PushConfiguration {
                     "Cannot set the push mode for a detached UI");
         }
 
-        assert session.hasLock();
+        assert session.hasUILock(ui);
 
         if (pushMode.isEnabled()
                 && !session.getService().ensurePushAvailable()) {
@@ -232,6 +286,20 @@ class PushConfigurationImpl implements PushConfiguration {
         return getState(false).pushUrl;
     }
 
+    @Override
+    public void setCoalescingWindow(int coalescingWindow) {
+        if (coalescingWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Coalescing window cannot be negative");
+        }
+        this.coalescingWindow = coalescingWindow;
+    }
+
+    @Override
+    public int getCoalescingWindow() {
+        return coalescingWindow;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -17,10 +17,11 @@ package com.vaadin.ui;
 
 import java.util.Collection;
 import java.util.Objects;
-import java.util.stream.Stream;
 
+import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.HierarchicalDataProvider;
+import com.vaadin.data.provider.InMemoryHierarchicalDataProvider;
 import com.vaadin.shared.ui.treegrid.NodeCollapseRpc;
 import com.vaadin.shared.ui.treegrid.TreeGridCommunicationConstants;
 import com.vaadin.shared.ui.treegrid.TreeGridState;
@@ -75,20 +76,17 @@ public class TreeGrid<T> extends Grid<T> {
         });
     }
 
-    // TODO: construct a "flat" in memory hierarchical data provider?
+    /**
+     * Sets the data items of this grid as root items of a new
+     * {@link InMemoryHierarchicalDataProvider}. Child items can be added
+     * through the data provider returned by {@link #getDataProvider()}.
+     *
+     * @param items
+     *            the root items to display, not null
+     */
     @Override
     public void setItems(Collection<T> items) {
-        throw new UnsupportedOperationException("Not implemented");
-    }
-
-    @Override
-    public void setItems(Stream<T> items) {
-        throw new UnsupportedOperationException("Not implemented");
-    }
-
-    @Override
-    public void setItems(T... items) {
-        throw new UnsupportedOperationException("Not implemented");
+        setDataProvider(new InMemoryHierarchicalDataProvider<>(items));
     }
 
     @Override
@@ -142,9 +140,36 @@ public class TreeGrid<T> extends Grid<T> {
      *            the item to toggle expansion for
      */
     public void toggleCollapse(T item) {
-        getDataProvider().setCollapsed(item,
-                !getDataProvider().isCollapsed(item));
-        getDataCommunicator().reset();
+        HierarchicalDataProvider<T, ?> dataProvider = getDataProvider();
+        boolean collapse = !dataProvider.isCollapsed(item);
+        // The data provider resolves indexes among the unfiltered rows in
+        // their natural order
+        boolean rowIndexesKnown = isRowOrderNatural();
+        int index = rowIndexesKnown ? dataProvider.getIndexOf(item) : -1;
+        int removedRows = dataProvider.getVisibleDescendantCount(item);
+
+        dataProvider.setCollapsed(item, collapse);
+
+        int addedRows = dataProvider.getVisibleDescendantCount(item);
+        if (index < 0 || removedRows < 0 || addedRows < 0) {
+            getDataCommunicator().reset();
+            return;
+        }
+
+        // Only send the rows below the toggled item
+        if (collapse) {
+            getDataCommunicator().removeRows(index + 1, removedRows);
+        } else {
+            getDataCommunicator().insertRows(index + 1, addedRows);
+        }
+        getDataCommunicator().refresh(item);
+    }
+
+    private boolean isRowOrderNatural() {
+        DataCommunicator<T> dataCommunicator = getDataCommunicator();
+        return dataCommunicator.getFilter() == null
+                && dataCommunicator.getInMemorySorting() == null
+                && dataCommunicator.getBackEndSorting().isEmpty();
     }
 
     @Override
@@ -18,6 +18,7 @@ package com.vaadin.ui;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.ArrayList;
@@ -30,7 +31,13 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +67,7 @@ import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinServlet;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.server.VaadinSession.FutureAccess;
 import com.vaadin.server.VaadinSession.State;
 import com.vaadin.server.communication.PushConnection;
 import com.vaadin.shared.Connector;
@@ -277,11 +285,12 @@ public abstract class UI extends AbstractSingleComponentContainer
     /**
      * Timestamp keeping track of the last heartbeat of this UI. Updated to the
      * current time whenever the application receives a heartbeat or UIDL
-     * request from the client for this UI.
+     * request from the client for this UI. Volatile since heartbeat requests
+     * update it without locking.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
 
-    private boolean closing = false;
+    private volatile boolean closing = false;
 
     private TooltipConfiguration tooltipConfiguration = new TooltipConfigurationImpl(
             this);
@@ -652,6 +661,13 @@ public abstract class UI extends AbstractSingleComponentContainer
 
     private PushConnection pushConnection = null;
 
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /*
+     * Pending tasks can't be serialized, see VaadinSession.pendingAccessQueue
+     */
+    private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
+
     private LocaleService localeService = new LocaleService(this,
             getState(false).localeServiceState);
 
@@ -1217,7 +1233,8 @@ public abstract class UI extends AbstractSingleComponentContainer
      * <p>
      * This method is not intended to be overridden. If it is overridden, care
      * should be taken since this method might be called in situations where
-     * {@link UI#getCurrent()} does not return this UI.
+     * {@link UI#getCurrent()} does not return this UI, and since 8.1 also
+     * without holding the session lock.
      *
      * @param lastHeartbeat
      *            The time the last heartbeat request occurred, in milliseconds
@@ -1289,6 +1306,7 @@ public abstract class UI extends AbstractSingleComponentContainer
             // Can't use UI.push() directly since it checks for a valid session
             if (session != null) {
                 session.getService().runPendingAccessTasks(session);
+                session.getService().runPendingAccessTasks(this);
             }
             getPushConnection().push();
         }
@@ -1415,7 +1433,7 @@ public abstract class UI extends AbstractSingleComponentContainer
 
         VaadinService.verifyNoOtherSessionLocked(session);
 
-        session.lock();
+        session.lockUI(this);
         try {
             if (getSession() == null) {
                 // UI was detached after fetching the session but before we
@@ -1425,7 +1443,7 @@ public abstract class UI extends AbstractSingleComponentContainer
             old = CurrentInstance.setCurrent(this);
             runnable.run();
         } finally {
-            session.unlock();
+            session.unlockUI(this);
             if (old != null) {
                 CurrentInstance.restoreInstances(old);
             }
@@ -1441,6 +1459,8 @@ public abstract class UI extends AbstractSingleComponentContainer
      * exclusive access to this UI. If the session is not locked, the lock will
      * be acquired and the runnable is run right away. If the session is
      * currently locked, the runnable will be run before that lock is released.
+     * If {@link VaadinSession#isUILockingEnabled() UI locking} is enabled, only
+     * the lock of this UI is needed for running the runnable.
      * </p>
      * <p>
      * RPC handlers for components inside this UI do not need to use this method
@@ -1484,7 +1504,7 @@ public abstract class UI extends AbstractSingleComponentContainer
             throw new UIDetachedException();
         }
 
-        return session.access(new ErrorHandlingRunnable() {
+        ErrorHandlingRunnable task = new ErrorHandlingRunnable() {
             @Override
             public void run() {
                 accessSynchronously(runnable);
@@ -1514,7 +1534,86 @@ public abstract class UI extends AbstractSingleComponentContainer
                     getLogger().log(Level.SEVERE, e.getMessage(), e);
                 }
             }
-        });
+        };
+        if (session.isUILockingEnabled()) {
+            return session.getService().accessUI(this, task);
+        }
+        return session.access(task);
+    }
+
+    /**
+     * Runs a task in the background and then passes its result to a handler
+     * that can safely update this UI. This is a convenience for the common
+     * pattern of fetching data from a slow back end and then showing it using
+     * {@link #access(Runnable)}, without the application having to manage a
+     * thread pool of its own.
+     * <p>
+     * The background task is run without holding any Vaadin lock, using the
+     * {@link VaadinService#getBackgroundExecutor() background executor} of the
+     * service. It should thus not access the UI or the session. The result
+     * handler is run as if it had been passed to {@link #access(Runnable)}.
+     * Exceptions thrown by either the task or the handler are passed to the
+     * error handler of this UI.
+     *
+     * @see #access(Runnable)
+     * @see VaadinService#createBackgroundExecutor()
+     *
+     * @since 8.1
+     *
+     * @param <T>
+     *            the type of the background task result
+     * @param backgroundTask
+     *            the task to run in the background, not <code>null</code>
+     * @param resultHandler
+     *            the handler that updates the UI based on the result of the
+     *            background task, not <code>null</code>
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session
+     * @return a future that is completed when the result handler has been run
+     *         and that can be used to cancel the task
+     */
+    public <T> CompletableFuture<Void> accessAsync(Supplier<T> backgroundTask,
+            Consumer<T> resultHandler) {
+        VaadinSession session = getSession();
+
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+
+        return session.getService().getBackgroundExecutor().accessAsync(this,
+                backgroundTask, resultHandler);
+    }
+
+    /**
+     * Gets the lock that is used for protecting the data of this UI from
+     * concurrent access when {@link VaadinSession#isUILockingEnabled() UI
+     * locking} is enabled. The lock should not be used directly, use
+     * {@link VaadinSession#lockUI(UI)} or {@link #access(Runnable)} instead.
+     *
+     * @return the lock of this UI, not <code>null</code>
+     * @since 8.1
+     */
+    public ReentrantLock getLockInstance() {
+        return lock;
+    }
+
+    /**
+     * Gets the queue of tasks submitted using {@link #access(Runnable)} when
+     * {@link VaadinSession#isUILockingEnabled() UI locking} is enabled. It is
+     * safe to call this method and access the returned queue without holding
+     * any lock.
+     *
+     * @return the queue of pending access tasks
+     * @since 8.1
+     */
+    public Queue<FutureAccess> getPendingAccessQueue() {
+        return pendingAccessQueue;
+    }
+
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        pendingAccessQueue = new ConcurrentLinkedQueue<>();
     }
 
     /**
@@ -1572,7 +1671,7 @@ public abstract class UI extends AbstractSingleComponentContainer
         if (session == null) {
             throw new UIDetachedException("Cannot push a detached UI");
         }
-        assert session.hasLock();
+        assert session.hasUILock(this);
 
         if (!getPushConfiguration().getPushMode().isEnabled()) {
             throw new IllegalStateException("Push not enabled");
@@ -1585,6 +1684,7 @@ public abstract class UI extends AbstractSingleComponentContainer
          * to push.
          */
         session.getService().runPendingAccessTasks(session);
+        session.getService().runPendingAccessTasks(this);
 
         if (!getConnectorTracker().hasDirtyConnectors()) {
             // Do not push if there is nothing to push
@@ -15,19 +15,24 @@
  */
 package com.vaadin.ui;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 
+import com.vaadin.server.FileChannelOutputStream;
 import com.vaadin.server.NoInputStreamException;
 import com.vaadin.server.NoOutputStreamException;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.server.SerializableBiFunction;
 import com.vaadin.server.StreamVariable.StreamingProgressEvent;
 import com.vaadin.shared.EventId;
 import com.vaadin.shared.Registration;
@@ -217,6 +222,81 @@ public class Upload extends AbstractComponent
         public OutputStream receiveUpload(String filename, String mimeType);
     }
 
+    /**
+     * A receiver that writes uploads directly to files through a
+     * {@link java.nio.channels.FileChannel}. The uploaded data is read from
+     * the request and written to the file in chunks of the given buffer size,
+     * without any further copying or buffering.
+     * <p>
+     * If the file cannot be opened, the upload fails with an
+     * {@link UncheckedIOException}.
+     *
+     * @author Vaadin Ltd.
+     * @since 8.1
+     */
+    public static class FileChannelReceiver implements Receiver {
+
+        private final SerializableBiFunction<String, String, Path> fileProvider;
+        private final int bufferSize;
+
+        /**
+         * Creates a new receiver with the default buffer size.
+         *
+         * @param fileProvider
+         *            function that returns the file to write to for the
+         *            filename and MIME type of an upload, not
+         *            <code>null</code>
+         */
+        public FileChannelReceiver(
+                SerializableBiFunction<String, String, Path> fileProvider) {
+            this(fileProvider, FileChannelOutputStream.DEFAULT_BUFFER_SIZE);
+        }
+
+        /**
+         * Creates a new receiver.
+         *
+         * @param fileProvider
+         *            function that returns the file to write to for the
+         *            filename and MIME type of an upload, not
+         *            <code>null</code>
+         * @param bufferSize
+         *            the number of bytes to read from the request and write
+         *            to the file at a time, greater than zero
+         */
+        public FileChannelReceiver(
+                SerializableBiFunction<String, String, Path> fileProvider,
+                int bufferSize) {
+            Objects.requireNonNull(fileProvider,
+                    "File provider cannot be null");
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException(
+                        "Buffer size must be greater than zero");
+            }
+            this.fileProvider = fileProvider;
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * Gets the number of bytes written to the file at a time.
+         *
+         * @return the buffer size in bytes
+         */
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        @Override
+        public OutputStream receiveUpload(String filename, String mimeType) {
+            Path path = fileProvider.apply(filename, mimeType);
+            try {
+                return FileChannelOutputStream.open(path, bufferSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(
+                        "Could not open " + path + " for writing", e);
+            }
+        }
+    }
+
     /* Upload events */
 
     private static final Method UPLOAD_FINISHED_METHOD;
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui.components.grid;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.Query;
+
+/**
+ * A selection consisting of all items of a data provider that match a filter,
+ * except for some explicitly deselected items. The selection is never
+ * materialized: {@link #contains(Object)} only checks the deselected items and
+ * iterating the selection fetches the items from the data provider one page
+ * at a time, so it can represent selecting all rows of a large back-end data
+ * set.
+ * <p>
+ * Instances are immutable. The items are identified by
+ * {@link DataProvider#getId(Object)}. {@link #contains(Object)} assumes that
+ * the given item matches the filter, which is the case for the rows shown in
+ * a grid as long as the filter has not been changed after selecting all.
+ * <p>
+ * Methods that need all items, such as {@link #size()} and iterating, query
+ * the data provider each time they are called. Two instances are equal if they
+ * have the same data provider, filter and deselected items, without querying
+ * the data provider.
+ *
+ * @see MultiSelectionModelImpl#setLazySelectAll(boolean)
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public class AllExceptSelection<T> extends AbstractSet<T>
+        implements Serializable {
+
+    /**
+     * The default number of items fetched at a time when iterating the
+     * selection.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final DataProvider<T, ?> dataProvider;
+    private final Object filter;
+    private final Map<Object, T> deselectedItems;
+
+    /**
+     * Creates a new selection of all the items matching the given filter.
+     *
+     * @param dataProvider
+     *            the data provider to fetch the items from, not
+     *            <code>null</code>
+     * @param filter
+     *            the filter the items should match, or <code>null</code> for
+     *            all items
+     */
+    public AllExceptSelection(DataProvider<T, ?> dataProvider, Object filter) {
+        this(dataProvider, filter, Collections.emptyMap());
+    }
+
+    private AllExceptSelection(DataProvider<T, ?> dataProvider, Object filter,
+            Map<Object, T> deselectedItems) {
+        this.dataProvider = dataProvider;
+        this.filter = filter;
+        this.deselectedItems = deselectedItems;
+    }
+
+    /**
+     * Gets the data provider of the selected items.
+     *
+     * @return the data provider, not <code>null</code>
+     */
+    public DataProvider<T, ?> getDataProvider() {
+        return dataProvider;
+    }
+
+    /**
+     * Gets the filter that the selected items match.
+     *
+     * @return the filter, or an empty optional if all items of the data
+     *         provider are selected
+     */
+    public Optional<Object> getFilter() {
+        return Optional.ofNullable(filter);
+    }
+
+    /**
+     * Gets the identifiers of the items that are not selected even though
+     * they match the filter.
+     *
+     * @return an unmodifiable set of item identifiers, not <code>null</code>
+     */
+    public Set<Object> getDeselectedIds() {
+        return Collections.unmodifiableSet(deselectedItems.keySet());
+    }
+
+    /**
+     * Checks whether the given item is selected, i.e. has not been deselected.
+     *
+     * @param item
+     *            the item to check, not <code>null</code>
+     * @return <code>true</code> if the item is selected, <code>false</code>
+     *         otherwise
+     */
+    public boolean isSelected(T item) {
+        return !deselectedItems.containsKey(dataProvider.getId(item));
+    }
+
+    /**
+     * Returns a selection where the given items have been selected or
+     * deselected.
+     *
+     * @param addedItems
+     *            the items to select, not <code>null</code>
+     * @param removedItems
+     *            the items to deselect, not <code>null</code>
+     * @return the new selection, or this instance if the selection did not
+     *         change
+     */
+    public AllExceptSelection<T> update(Collection<T> addedItems,
+            Collection<T> removedItems) {
+        Map<Object, T> newItems = new LinkedHashMap<>(deselectedItems);
+        addedItems.forEach(item -> newItems.remove(dataProvider.getId(item)));
+        removedItems.forEach(
+                item -> newItems.put(dataProvider.getId(item), item));
+        if (newItems.keySet().equals(deselectedItems.keySet())) {
+            return this;
+        }
+        return new AllExceptSelection<>(dataProvider, filter, newItems);
+    }
+
+    /**
+     * Gets the items in this selection that are not in the given selection
+     * without fetching the items from the data provider.
+     *
+     * @param other
+     *            the selection to compare with, not <code>null</code>
+     * @return the items only in this selection, or <code>null</code> if they
+     *         cannot be found without fetching items, i.e. if the other
+     *         selection has a different data provider or filter
+     */
+    Set<T> difference(Set<T> other) {
+        if (!(other instanceof AllExceptSelection)) {
+            // All items except the ones selected in both
+            return update(Collections.emptySet(), other);
+        }
+        AllExceptSelection<T> otherSelection = (AllExceptSelection<T>) other;
+        if (otherSelection.dataProvider != dataProvider
+                || !Objects.equals(otherSelection.filter, filter)) {
+            return null;
+        }
+        // The items deselected only in the other selection
+        Set<T> items = new LinkedHashSet<>();
+        otherSelection.deselectedItems.forEach((id, item) -> {
+            if (!deselectedItems.containsKey(id)) {
+                items.add(item);
+            }
+        });
+        return items;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+        return o != null && isSelected((T) o);
+    }
+
+    /**
+     * Gets the number of selected items. The deselected items are assumed to
+     * match the filter.
+     *
+     * @return the number of selected items
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public int size() {
+        int size = ((DataProvider) dataProvider).size(new Query(filter));
+        return Math.max(0, size - deselectedItems.size());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Compares the data provider, filter and deselected items if the other
+     * object is also an {@code AllExceptSelection}. Otherwise, the sizes are
+     * compared and the items of the other set are checked to be contained in
+     * this selection, which does not fetch any items.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof AllExceptSelection) {
+            AllExceptSelection<?> other = (AllExceptSelection<?>) o;
+            return dataProvider.equals(other.dataProvider)
+                    && Objects.equals(filter, other.filter)
+                    && deselectedItems.keySet()
+                            .equals(other.deselectedItems.keySet());
+        }
+        return super.equals(o);
+    }
+
+    /**
+     * Computes the hash code from the data provider, filter and deselected
+     * items without fetching any items. Unlike specified by
+     * {@link Set#hashCode()}, the hash code is not the same as that of a
+     * materialized set of the same items.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(dataProvider, filter, deselectedItems.keySet());
+    }
+
+    /**
+     * Returns an iterator over the selected items, fetching
+     * {@value #DEFAULT_PAGE_SIZE} items at a time from the data provider.
+     *
+     * @return an iterator over the selected items
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(DEFAULT_PAGE_SIZE);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        // Not sized since the size is only an estimate
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns a sequential stream of the selected items, fetching the given
+     * number of items at a time from the data provider. Only one page of items
+     * is kept in memory at a time.
+     *
+     * @param pageSize
+     *            the number of items to fetch at a time, greater than zero
+     * @return a stream of the selected items
+     */
+    public Stream<T> stream(int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(pageSize), Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * Passes the selected items to the given action in chunks of at most the
+     * given size. Only one chunk of items is kept in memory at a time.
+     *
+     * @param chunkSize
+     *            the maximum number of items in a chunk, greater than zero
+     * @param action
+     *            the action to run for each chunk, not <code>null</code>
+     */
+    public void forEachChunk(int chunkSize, Consumer<? super List<T>> action) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Chunk size must be greater than zero");
+        }
+        int offset = 0;
+        while (true) {
+            List<T> page = fetch(offset, chunkSize);
+            List<T> selected = page.stream().filter(this::isSelected)
+                    .collect(Collectors.toList());
+            if (!selected.isEmpty()) {
+                action.accept(selected);
+            }
+            if (page.size() < chunkSize) {
+                return;
+            }
+            offset += chunkSize;
+        }
+    }
+
+    private Iterator<T> iterator(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Page size must be greater than zero");
+        }
+        return new PageIterator(pageSize);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<T> fetch(int offset, int limit) {
+        return (List<T>) ((DataProvider) dataProvider)
+                .fetch(new Query(offset, limit, Collections.emptyList(), null,
+                        filter))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Iterates the selected items, fetching a page of items at a time.
+     */
+    private class PageIterator implements Iterator<T> {
+        private final int pageSize;
+        private int offset = 0;
+        private boolean lastPage = false;
+        private Iterator<T> page = Collections.emptyIterator();
+        private T next;
+
+        private PageIterator(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (page.hasNext()) {
+                    T item = page.next();
+                    if (isSelected(item)) {
+                        next = item;
+                    }
+                } else if (lastPage) {
+                    return false;
+                } else {
+                    List<T> items = fetch(offset, pageSize);
+                    offset += pageSize;
+                    lastPage = items.size() < pageSize;
+                    page = items.iterator();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = next;
+            next = null;
+            return item;
+        }
+    }
+}
@@ -142,12 +142,16 @@ public class EditorImpl<T> extends AbstractGridExtension<T>
             public void bind(String key) {
                 // When in buffered mode, the editor is not allowed to move.
                 // Binder with failed validation returns true for hasChanges.
-                if (isOpen() && (isBuffered() || getBinder().hasChanges())) {
+                T item = getData(key);
+                // An unknown key, e.g. of a placeholder row that is being
+                // fetched, cannot be edited
+                if (item == null || isOpen()
+                        && (isBuffered() || getBinder().hasChanges())) {
                     rpc.confirmBind(false);
                     return;
                 }
                 doClose();
-                doEdit(getData(key));
+                doEdit(item);
                 rpc.confirmBind(true);
             }
         });
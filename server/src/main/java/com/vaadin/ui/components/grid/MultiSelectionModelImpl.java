@@ -17,13 +17,12 @@ package com.vaadin.ui.components.grid;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,6 +34,8 @@ import com.vaadin.event.selection.MultiSelectionListener;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.selection.GridMultiSelectServerRpc;
 import com.vaadin.shared.ui.grid.MultiSelectionModelState;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Grid;
 import com.vaadin.ui.MultiSelect;
 
 /**
@@ -45,6 +46,10 @@ import com.vaadin.ui.MultiSelect;
  * <p>
  * Implementation detail: The Grid selection is updated immediately after user
  * selection on client side, without waiting for the server response.
+ * <p>
+ * By default selecting all items fetches all items from the data provider. With
+ * {@link #setLazySelectAll(boolean) lazy select all}, the selection is instead
+ * represented as an {@link AllExceptSelection} that is never materialized.
  *
  * @author Vaadin Ltd.
  * @since 8.0
@@ -68,7 +73,9 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
          * Shows the select all checkbox, regardless of data provider used.
          * <p>
          * <b>For a lazy data provider, selecting all will result in to all rows
-         * being fetched from backend to application memory!</b>
+         * being fetched from backend to application memory, unless
+         * {@link MultiSelectionModelImpl#setLazySelectAll(boolean) lazy select
+         * all} is enabled!</b>
          */
         VISIBLE,
         /**
@@ -79,8 +86,11 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         /**
          * By default select all checkbox depends on the grid's dataprovider.
          * <ul>
-         * <li>Visible, if the data provider is in-memory</li>
-         * <li>Hidden, if the data provider is NOT in-memory (lazy)</li>
+         * <li>Visible, if the data provider is in-memory or
+         * {@link MultiSelectionModelImpl#setLazySelectAll(boolean) lazy select
+         * all} is enabled</li>
+         * <li>Hidden, if the data provider is NOT in-memory (lazy) and lazy
+         * select all is not enabled</li>
          * </ul>
          *
          * @see DataProvider#isInMemory()}.
@@ -93,22 +103,30 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
         @Override
         public void select(String key) {
+            T item = getData(key);
+            if (item == null) {
+                // Unknown key, e.g. a placeholder row that is being fetched
+                return;
+            }
             MultiSelectionModelImpl.this.updateSelection(
-                    new LinkedHashSet<>(Arrays.asList(getData(key))),
+                    new LinkedHashSet<>(Arrays.asList(item)),
                     Collections.emptySet(), true);
         }
 
         @Override
         public void deselect(String key) {
+            T item = getData(key);
+            if (item == null) {
+                // Unknown key, e.g. a placeholder row that is being fetched
+                return;
+            }
             if (getState(false).allSelected) {
                 // updated right away on client side
                 getState(false).allSelected = false;
-                getUI().getConnectorTracker()
-                        .getDiffState(MultiSelectionModelImpl.this)
-                        .put("allSelected", false);
+                updateAllSelectedDiffState(false);
             }
             MultiSelectionModelImpl.this.updateSelection(Collections.emptySet(),
-                    new LinkedHashSet<>(Arrays.asList(getData(key))), true);
+                    new LinkedHashSet<>(Arrays.asList(item)), true);
         }
 
         @Override
@@ -126,6 +144,14 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     private SelectAllCheckBoxVisibility selectAllCheckBoxVisibility = SelectAllCheckBoxVisibility.DEFAULT;
 
+    private boolean lazySelectAll = false;
+
+    /**
+     * The selection after selecting all with lazy select all enabled, or
+     * <code>null</code> if the selection is in {@link #selection}.
+     */
+    private AllExceptSelection<T> allExceptSelection;
+
     @Override
     protected void init() {
         registerRpc(new GridMultiSelectServerRpcImpl());
@@ -186,6 +212,61 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         return getState(false).selectAllCheckBoxVisible;
     }
 
+    /**
+     * Sets whether selecting all items should be done lazily. When enabled,
+     * {@link #selectAll()} and the select all checkbox do not fetch any items
+     * from the data provider. The selection is instead represented as all the
+     * items matching the current filter of the grid, except for items that
+     * are deselected afterwards. {@link #getSelectedItems()} then returns an
+     * {@link AllExceptSelection} that fetches the items from the data provider
+     * one page at a time when iterated. Lazy select all also makes the select
+     * all checkbox visible for back-end data providers with the
+     * {@link SelectAllCheckBoxVisibility#DEFAULT default} visibility.
+     * <p>
+     * Selecting items that do not match the filter used when selecting all
+     * is only supported by deselecting all first.
+     * <p>
+     * By default lazy select all is disabled.
+     *
+     * @since 8.1
+     * @param lazySelectAll
+     *            <code>true</code> to select all items lazily,
+     *            <code>false</code> to fetch all items when selecting all
+     */
+    public void setLazySelectAll(boolean lazySelectAll) {
+        if (this.lazySelectAll != lazySelectAll) {
+            this.lazySelectAll = lazySelectAll;
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Gets whether selecting all items is done lazily.
+     *
+     * @see #setLazySelectAll(boolean)
+     *
+     * @since 8.1
+     * @return <code>true</code> if all items are selected lazily,
+     *         <code>false</code> otherwise
+     */
+    public boolean isLazySelectAll() {
+        return lazySelectAll;
+    }
+
+    /**
+     * Gets the lazy selection that is in use after all items have been
+     * selected with {@link #setLazySelectAll(boolean) lazy select all}
+     * enabled. The selection stays in use when single items are selected or
+     * deselected, until all items are deselected or a new value is set.
+     *
+     * @since 8.1
+     * @return the lazy selection, or an empty optional if the selected items
+     *         are kept in memory
+     */
+    public Optional<AllExceptSelection<T>> getAllExceptSelection() {
+        return Optional.ofNullable(allExceptSelection);
+    }
+
     /**
      * Returns whether all items are selected or not.
      * <p>
@@ -201,6 +282,9 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     @Override
     public boolean isSelected(T item) {
+        if (allExceptSelection != null) {
+            return allExceptSelection.isSelected(item);
+        }
         return isAllSelected()
                 || selectionContainsId(getGrid().getDataProvider().getId(item));
     }
@@ -242,8 +326,8 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState(false).selectAllCheckBoxVisible = false;
             break;
         case DEFAULT:
-            getState(false).selectAllCheckBoxVisible = getGrid()
-                    .getDataProvider().isInMemory();
+            getState(false).selectAllCheckBoxVisible = lazySelectAll
+                    || getGrid().getDataProvider().isInMemory();
             break;
         default:
             break;
@@ -257,8 +341,18 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
                 MultiSelectionListener.SELECTION_CHANGE_METHOD);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * After all items have been selected with
+     * {@link #setLazySelectAll(boolean) lazy select all} enabled, the returned
+     * set is an {@link AllExceptSelection}.
+     */
     @Override
     public Set<T> getSelectedItems() {
+        if (allExceptSelection != null) {
+            return allExceptSelection;
+        }
         return Collections.unmodifiableSet(new LinkedHashSet<>(selection));
     }
 
@@ -292,6 +386,11 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
                 Set<T> copy = value.stream().map(Objects::requireNonNull)
                         .collect(Collectors.toCollection(LinkedHashSet::new));
 
+                if (allExceptSelection != null) {
+                    // Don't materialize the lazy selection
+                    replaceAllExceptSelection(copy, false);
+                    return;
+                }
                 updateSelection(copy, new LinkedHashSet<>(getSelectedItems()));
             }
 
@@ -353,6 +452,11 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         };
     }
 
+    private void updateAllSelectedDiffState(boolean allSelected) {
+        getUI().getConnectorTracker().getDiffState(this).put("allSelected",
+                allSelected);
+    }
+
     /**
      * Triggered when the user checks the select all checkbox.
      *
@@ -364,12 +468,31 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             verifyUserCanSelectAll();
             // all selected state has been updated in client side already
             getState(false).allSelected = true;
-            getUI().getConnectorTracker().getDiffState(this).put("allSelected",
-                    true);
+            updateAllSelectedDiffState(true);
         } else {
             getState().allSelected = true;
         }
 
+        if (lazySelectAll) {
+            if (userOriginated && !isUserSelectionAllowed()) {
+                throw new IllegalStateException(
+                        "Client tried to update selection"
+                                + " although user selection is disallowed");
+            }
+            DataCommunicator<T> dataCommunicator = getGrid()
+                    .getDataCommunicator();
+            AllExceptSelection<T> newSelection = new AllExceptSelection<>(
+                    getGrid().getDataProvider(),
+                    dataCommunicator.getFilter());
+            doUpdateSelection(() -> {
+                allExceptSelection = newSelection;
+                selection.clear();
+                // Send all rows again with their new selection state
+                dataCommunicator.reset();
+            }, userOriginated);
+            return;
+        }
+
         DataProvider<T, ?> dataSource = getGrid().getDataProvider();
         // this will fetch everything from backend
         Stream<T> stream = dataSource.fetch(new Query<>());
@@ -389,16 +512,36 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             verifyUserCanSelectAll();
             // all selected state has been update in client side already
             getState(false).allSelected = false;
-            getUI().getConnectorTracker().getDiffState(this).put("allSelected",
-                    false);
+            updateAllSelectedDiffState(false);
         } else {
             getState().allSelected = false;
         }
 
+        if (allExceptSelection != null) {
+            replaceAllExceptSelection(Collections.emptySet(), userOriginated);
+            return;
+        }
         updateSelection(Collections.emptySet(), new LinkedHashSet<>(selection),
                 userOriginated);
     }
 
+    private void replaceAllExceptSelection(Set<T> newSelection,
+            boolean userOriginated) {
+        if (userOriginated && !isUserSelectionAllowed()) {
+            throw new IllegalStateException("Client tried to update selection"
+                    + " although user selection is disallowed");
+        }
+        if (getState(false).allSelected && !userOriginated) {
+            getState().allSelected = false;
+        }
+        doUpdateSelection(() -> {
+            allExceptSelection = null;
+            selection.clear();
+            selection.addAll(newSelection);
+            getGrid().getDataCommunicator().reset();
+        }, userOriginated);
+    }
+
     private void verifyUserCanSelectAll() {
         if (!getState(false).selectAllCheckBoxVisible) {
             throw new IllegalStateException(
@@ -434,6 +577,26 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         // discard that and leave things as was before
         addedItems.removeIf(item -> removedItems.remove(item));
 
+        if (allExceptSelection != null) {
+            AllExceptSelection<T> newSelection = allExceptSelection
+                    .update(addedItems, removedItems);
+            if (newSelection == allExceptSelection) {
+                return;
+            }
+            if (getState(false).allSelected && !removedItems.isEmpty()
+                    && !userOriginated) {
+                getState().allSelected = false;
+            }
+            doUpdateSelection(() -> {
+                allExceptSelection = newSelection;
+                DataCommunicator<T> dataCommunicator = getGrid()
+                        .getDataCommunicator();
+                removedItems.forEach(dataCommunicator::refresh);
+                addedItems.forEach(dataCommunicator::refresh);
+            }, userOriginated);
+            return;
+        }
+
         if (selection.containsAll(addedItems)
                 && Collections.disjoint(selection, removedItems)) {
             return;
@@ -445,10 +608,10 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = false;
         }
 
-        doUpdateSelection(set -> {
+        doUpdateSelection(() -> {
             // order of add / remove does not matter since no duplicates
-            set.removeAll(removedItems);
-            set.addAll(addedItems);
+            selection.removeAll(removedItems);
+            selection.addAll(addedItems);
 
             // refresh method is NOOP for items that are not present client side
             DataCommunicator<T> dataCommunicator = getGrid()
@@ -458,20 +621,59 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         }, userOriginated);
     }
 
-    private void doUpdateSelection(Consumer<Collection<T>> handler,
-            boolean userOriginated) {
+    private void doUpdateSelection(Runnable handler, boolean userOriginated) {
         if (getParent() == null) {
             throw new IllegalStateException(
                     "Trying to update selection for grid selection model that has been detached from the grid.");
         }
 
-        LinkedHashSet<T> oldSelection = new LinkedHashSet<>(selection);
-        handler.accept(selection);
+        // A lazy selection is immutable and can be used as is
+        Set<T> oldSelection = allExceptSelection != null ? allExceptSelection
+                : new LinkedHashSet<>(selection);
+        handler.run();
 
-        fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
+        fireEvent(new LazyMultiSelectionEvent<>(getGrid(), asMultiSelect(),
                 oldSelection, userOriginated));
     }
 
+    /**
+     * A selection event that finds the added and removed items without
+     * fetching all items when the old or new selection is an
+     * {@link AllExceptSelection}.
+     */
+    private static class LazyMultiSelectionEvent<T>
+            extends MultiSelectionEvent<T> {
+
+        private LazyMultiSelectionEvent(Grid<T> grid, MultiSelect<T> source,
+                Set<T> oldSelection, boolean userOriginated) {
+            super(grid, source, oldSelection, userOriginated);
+        }
+
+        @Override
+        public Set<T> getRemovedSelection() {
+            Set<T> removed = difference(getOldValue(), getValue());
+            return removed != null ? removed : super.getRemovedSelection();
+        }
+
+        @Override
+        public Set<T> getAddedSelection() {
+            Set<T> added = difference(getValue(), getOldValue());
+            return added != null ? added : super.getAddedSelection();
+        }
+
+        private static <T> Set<T> difference(Set<T> selection,
+                Set<T> other) {
+            if (selection instanceof AllExceptSelection) {
+                return ((AllExceptSelection<T>) selection).difference(other);
+            }
+            if (other instanceof AllExceptSelection) {
+                return selection.stream().filter(item -> !other.contains(item))
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
+            }
+            return null;
+        }
+    }
+
     @Override
     public void refreshData(T item) {
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
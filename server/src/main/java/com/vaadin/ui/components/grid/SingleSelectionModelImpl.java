@@ -49,6 +49,11 @@ public class SingleSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
             @Override
             public void select(String key) {
+                if (getData(key) == null) {
+                    // Unknown key, e.g. a placeholder row that is being
+                    // fetched
+                    return;
+                }
                 setSelectedFromClient(key);
             }
 
@@ -249,4 +249,28 @@ public class ReflectTools implements Serializable {
 
         return currentClass;
     }
+
+    /**
+     * Returns the given throwable as an unchecked exception to be thrown by
+     * the caller. Runtime exceptions are returned as such, errors are thrown
+     * directly and checked exceptions are wrapped in a
+     * {@link RuntimeException}. Useful for rethrowing exceptions from
+     * {@link java.lang.invoke.MethodHandle#invokeExact(Object...)} and the
+     * cause of an {@link InvocationTargetException}.
+     *
+     * @param throwable
+     *            the throwable to rethrow, not <code>null</code>
+     * @return the unchecked exception to throw
+     *
+     * @since 8.1
+     */
+    public static RuntimeException wrapException(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        } else {
+            return new RuntimeException(throwable);
+        }
+    }
 }
@@ -17,7 +17,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.vaadin.data.converter.StringToIntegerConverter;
+import com.vaadin.tests.data.bean.Address;
 import com.vaadin.tests.data.bean.BeanToValidate;
+import com.vaadin.tests.data.bean.Country;
 import com.vaadin.ui.CheckBoxGroup;
 import com.vaadin.ui.TextField;
 
@@ -150,6 +152,26 @@ public class BeanBinderTest
         otherBinder.setBean(new TestBean());
     }
 
+    @Test
+    public void nestedProperty_validatedUsingConstraintsOfNestedBean() {
+        TextField postalCodeField = new TextField();
+        binder.forField(postalCodeField)
+                .withConverter(new StringToIntegerConverter(""))
+                .bind("address.postalCode");
+        item.setAddress(new Address("Ruukinkatu 2-4", 540, "Turku",
+                Country.FINLAND));
+        binder.setBean(item);
+
+        assertEquals("540", postalCodeField.getValue());
+        Assert.assertTrue(postalCodeField.isRequiredIndicatorVisible());
+
+        postalCodeField.setValue("100000");
+        assertEquals(Integer.valueOf(540), item.getAddress().getPostalCode());
+
+        postalCodeField.setValue("100");
+        assertEquals(Integer.valueOf(100), item.getAddress().getPostalCode());
+    }
+
     @Test
     public void fieldBound_bindBean_fieldValueUpdated() {
         binder.bind(nameField, "firstname");
@@ -30,9 +30,18 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.data.provider.bov.Person;
+import com.vaadin.server.Setter;
+import com.vaadin.tests.data.bean.Address;
 import com.vaadin.tests.server.ClassesSerializableTest;
 
 public class BeanPropertySetTest {
+
+    public static class FailingBean {
+        public String getValue() {
+            throw new IllegalStateException("Not available");
+        }
+    }
+
     @Test
     public void testSerializeDeserialize_propertySet() throws Exception {
         PropertySet<Person> originalPropertySet = BeanPropertySet
@@ -111,4 +120,97 @@ public class BeanPropertySetTest {
         Assert.assertEquals(new HashSet<>(Arrays.asList("name", "born")),
                 propertyNames);
     }
+
+    @Test
+    public void getterAndSetter_primitiveProperty() {
+        PropertyDefinition<com.vaadin.tests.data.bean.Person, Integer> age = getPersonProperty(
+                "age");
+        com.vaadin.tests.data.bean.Person person = new com.vaadin.tests.data.bean.Person();
+
+        age.getSetter().get().accept(person, 42);
+
+        Assert.assertEquals(Integer.class, age.getType());
+        Assert.assertEquals(Integer.valueOf(42),
+                age.getGetter().apply(person));
+    }
+
+    @Test
+    public void getter_exceptionFromBeanPropagated() {
+        ValueProvider<FailingBean, ?> getter = BeanPropertySet
+                .get(FailingBean.class).getProperty("value").get().getGetter();
+        try {
+            getter.apply(new FailingBean());
+            Assert.fail("Exception should have been thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Not available", e.getMessage());
+        }
+    }
+
+    @Test
+    public void nestedProperty_getterAndSetter() {
+        PropertyDefinition<com.vaadin.tests.data.bean.Person, String> city = getPersonProperty(
+                "address.city");
+        com.vaadin.tests.data.bean.Person person = new com.vaadin.tests.data.bean.Person();
+        person.setAddress(new Address());
+
+        city.getSetter().get().accept(person, "Turku");
+
+        Assert.assertEquals("Turku", person.getAddress().getCity());
+        Assert.assertEquals("Turku", city.getGetter().apply(person));
+        Assert.assertEquals("address.city", city.getName());
+        Assert.assertEquals("City", city.getCaption());
+        Assert.assertEquals(String.class, city.getType());
+    }
+
+    @Test
+    public void nestedProperty_nullParent() {
+        PropertyDefinition<com.vaadin.tests.data.bean.Person, String> city = getPersonProperty(
+                "address.city");
+        com.vaadin.tests.data.bean.Person person = new com.vaadin.tests.data.bean.Person();
+
+        Assert.assertNull(city.getGetter().apply(person));
+
+        Setter<com.vaadin.tests.data.bean.Person, String> setter = city
+                .getSetter().get();
+        try {
+            setter.accept(person, "Turku");
+            Assert.fail("Exception should have been thrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void nestedProperty_notListedAndCached() {
+        PropertySet<com.vaadin.tests.data.bean.Person> propertySet = BeanPropertySet
+                .get(com.vaadin.tests.data.bean.Person.class);
+
+        Assert.assertSame(propertySet.getProperty("address.city").get(),
+                propertySet.getProperty("address.city").get());
+        Assert.assertFalse(propertySet.getProperties()
+                .anyMatch(property -> property.getName().contains(".")));
+        Assert.assertFalse(
+                propertySet.getProperty("address.unknown").isPresent());
+        Assert.assertFalse(propertySet.getProperty("unknown.city").isPresent());
+    }
+
+    @Test
+    public void testSerializeDeserialize_nestedPropertyDefinition()
+            throws Exception {
+        PropertyDefinition<com.vaadin.tests.data.bean.Person, String> city = getPersonProperty(
+                "address.city");
+
+        PropertyDefinition<com.vaadin.tests.data.bean.Person, String> deserializedDefinition = ClassesSerializableTest
+                .serializeAndDeserialize(city);
+
+        Assert.assertSame(city, deserializedDefinition);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> PropertyDefinition<com.vaadin.tests.data.bean.Person, V> getPersonProperty(
+            String name) {
+        return (PropertyDefinition<com.vaadin.tests.data.bean.Person, V>) BeanPropertySet
+                .get(com.vaadin.tests.data.bean.Person.class).getProperty(name)
+                .orElseThrow(RuntimeException::new);
+    }
 }
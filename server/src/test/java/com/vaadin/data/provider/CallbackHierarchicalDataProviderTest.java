@@ -0,0 +1,247 @@
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.SerializablePredicate;
+
+public class CallbackHierarchicalDataProviderTest {
+
+    private static final int ROOTS = 5;
+    private static final int CHILDREN = 3;
+    private static final int MAX_DEPTH = 2;
+
+    private final AtomicInteger fetchedItems = new AtomicInteger();
+    private final AtomicInteger countQueries = new AtomicInteger();
+
+    private CallbackHierarchicalDataProvider<String, Void> dataProvider;
+    private InMemoryHierarchicalDataProvider<String> reference;
+
+    private static int getDepthOf(String item) {
+        return item.split("/").length - 1;
+    }
+
+    private static int countChildren(String parent) {
+        if (parent == null) {
+            return ROOTS;
+        }
+        return getDepthOf(parent) < MAX_DEPTH ? CHILDREN : 0;
+    }
+
+    private static List<String> getChildren(String parent) {
+        return IntStream.range(0, countChildren(parent))
+                .mapToObj(i -> parent == null ? String.valueOf(i)
+                        : parent + "/" + i)
+                .collect(Collectors.toList());
+    }
+
+    private void addToReference(String parent) {
+        for (String child : getChildren(parent)) {
+            reference.addItem(parent, child);
+            addToReference(child);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SerializablePredicate<String> hasChildren = item -> countChildren(
+                item) > 0;
+        dataProvider = new CallbackHierarchicalDataProvider<>(query -> {
+            List<String> children = getChildren(query.getParent());
+            int end = (int) Math.min(children.size(),
+                    (long) query.getOffset() + query.getLimit());
+            fetchedItems.addAndGet(end - query.getOffset());
+            return children.subList(query.getOffset(), end).stream();
+        }, query -> {
+            countQueries.incrementAndGet();
+            return countChildren(query.getParent());
+        }, hasChildren);
+
+        reference = new InMemoryHierarchicalDataProvider<>();
+        addToReference(null);
+    }
+
+    private List<String> fetch(int offset, int limit) {
+        return dataProvider.fetch(new Query<>(offset, limit, null, null, null))
+                .collect(Collectors.toList());
+    }
+
+    private void expand(String item) {
+        dataProvider.setCollapsed(item, false);
+        reference.setCollapsed(item, false);
+    }
+
+    private void collapse(String item) {
+        dataProvider.setCollapsed(item, true);
+        reference.setCollapsed(item, true);
+    }
+
+    private void assertSameAsReference() {
+        int size = reference.size(new Query<>());
+        Assert.assertEquals(size, dataProvider.size(new Query<>()));
+
+        List<String> expected = reference.fetch(new Query<>())
+                .collect(Collectors.toList());
+        Assert.assertEquals(expected, fetch(0, Integer.MAX_VALUE));
+        for (int offset = 0; offset < size; offset += 2) {
+            Assert.assertEquals(
+                    expected.subList(offset, Math.min(size, offset + 4)),
+                    fetch(offset, 4));
+        }
+        for (String item : expected) {
+            Assert.assertEquals(reference.getIndexOf(item),
+                    dataProvider.getIndexOf(item));
+            Assert.assertEquals(reference.getVisibleDescendantCount(item),
+                    dataProvider.getVisibleDescendantCount(item));
+            Assert.assertEquals(reference.getDepth(item),
+                    dataProvider.getDepth(item));
+        }
+    }
+
+    @Test
+    public void collapsed_onlyRootsFetched() {
+        Assert.assertEquals(ROOTS, dataProvider.size(new Query<>()));
+        Assert.assertEquals(1, countQueries.get());
+
+        Assert.assertEquals(3, fetch(1, 3).size());
+        Assert.assertEquals(3, fetchedItems.get());
+        assertSameAsReference();
+    }
+
+    @Test
+    public void expandAndCollapse_sameRowsAsInMemory() {
+        fetch(0, ROOTS);
+        expand("1");
+        expand("3");
+        assertSameAsReference();
+
+        expand("1/2");
+        expand("3/0");
+        assertSameAsReference();
+
+        collapse("1");
+        assertSameAsReference();
+
+        expand("1");
+        assertSameAsReference();
+
+        collapse("3/0");
+        assertSameAsReference();
+    }
+
+    @Test
+    public void fetchRange_onlyOverlappingChildrenFetched() {
+        fetch(0, ROOTS);
+        expand("0");
+        fetchedItems.set(0);
+
+        // 0, 0/0, 0/1, 0/2, 1, ...
+        Assert.assertEquals(Arrays.asList("0/2", "1"), fetch(3, 2));
+        Assert.assertEquals(2, fetchedItems.get());
+    }
+
+    @Test
+    public void childCounts_cachedForExpandedItems() {
+        fetch(0, ROOTS);
+        expand("2");
+        dataProvider.size(new Query<>());
+        int queries = countQueries.get();
+
+        fetch(0, Integer.MAX_VALUE);
+        dataProvider.size(new Query<>());
+        dataProvider.getIndexOf("4");
+        Assert.assertEquals(queries, countQueries.get());
+    }
+
+    @Test
+    public void collapse_collapsedDescendantsForgotten() {
+        fetch(0, ROOTS);
+        expand("1");
+        fetch(0, Integer.MAX_VALUE);
+        expand("1/2");
+        fetch(0, Integer.MAX_VALUE);
+
+        collapse("1");
+
+        try {
+            dataProvider.getParent("1/0");
+            Assert.fail("Info of a collapsed descendant should be discarded");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        // Expanded descendants are kept
+        Assert.assertEquals("1", dataProvider.getParent("1/2"));
+        Assert.assertFalse(dataProvider.isCollapsed("1/2"));
+
+        expand("1");
+        assertSameAsReference();
+    }
+
+    @Test
+    public void refreshAll_collapsesAll() {
+        fetch(0, ROOTS);
+        expand("2");
+        dataProvider.refreshAll();
+
+        Assert.assertEquals(ROOTS, dataProvider.size(new Query<>()));
+        Assert.assertTrue(dataProvider.isCollapsed("2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expandNotFetchedItem_throws() {
+        dataProvider.setCollapsed("2", false);
+    }
+
+    @Test
+    public void notFetched_indexUnknown() {
+        Assert.assertEquals(-1, dataProvider.getIndexOf("2"));
+        fetch(0, ROOTS);
+        Assert.assertEquals(-1, dataProvider.getIndexOf("2/1"));
+        Assert.assertEquals(new ArrayList<>(getChildren(null)),
+                fetch(0, ROOTS));
+    }
+
+    @Test
+    public void scrollThroughLargeTree_fetchedItemsBounded() {
+        int roots = 20000;
+        CallbackHierarchicalDataProvider<String, Void> largeProvider = new CallbackHierarchicalDataProvider<>(
+                query -> {
+                    if (query.getParent() != null) {
+                        return IntStream.range(0, CHILDREN)
+                                .mapToObj(i -> query.getParent() + "/" + i)
+                                .skip(query.getOffset())
+                                .limit(query.getLimit());
+                    }
+                    return IntStream
+                            .range(query.getOffset(),
+                                    Math.min(roots, query.getOffset()
+                                            + query.getLimit()))
+                            .mapToObj(String::valueOf);
+                }, query -> query.getParent() == null ? roots : CHILDREN,
+                item -> !item.contains("/"));
+        largeProvider.setFetchedItemLimit(500);
+
+        largeProvider.fetch(new Query<>(0, 50, null, null, null));
+        largeProvider.setCollapsed("1", false);
+        int size = largeProvider.size(new Query<>());
+        for (int offset = 0; offset < size; offset += 100) {
+            largeProvider.fetch(new Query<>(offset, 100, null, null, null));
+            Assert.assertTrue(largeProvider.getFetchedItemCount() <= 501);
+        }
+
+        // The expanded item is still known after scrolling
+        Assert.assertEquals(1, largeProvider.getIndexOf("1"));
+        Assert.assertEquals(CHILDREN,
+                largeProvider.getVisibleDescendantCount("1"));
+        largeProvider.setCollapsed("1", true);
+        Assert.assertEquals(roots, largeProvider.size(new Query<>()));
+    }
+}
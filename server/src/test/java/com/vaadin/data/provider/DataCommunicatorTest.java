@@ -15,20 +15,29 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.BackgroundExecutor;
+import com.vaadin.server.ClientMethodInvocation;
 import com.vaadin.server.MockVaadinSession;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.communication.PushMode;
 import com.vaadin.ui.UI;
 
+import elemental.json.JsonArray;
 import elemental.json.JsonObject;
 
 /**
@@ -191,4 +200,318 @@ public class DataCommunicatorTest {
                 TEST_OBJECT, generator.generated);
     }
 
+    @Test
+    public void insertAndRemoveRows_sentAsRpcUnlessResetPending() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(new TestDataProvider(), null);
+
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        communicator.insertRows(1, 3);
+        communicator.removeRows(0, 2);
+        Assert.assertEquals(Arrays.asList("insertRows", "removeRows"),
+                communicator.retrievePendingRpcCalls().stream()
+                        .map(ClientMethodInvocation::getMethodName)
+                        .collect(Collectors.toList()));
+
+        communicator.reset();
+        communicator.insertRows(0, 1);
+        Assert.assertTrue("Rows should not be inserted before a reset",
+                communicator.retrievePendingRpcCalls().isEmpty());
+    }
+
+    @Test
+    public void itemsAddedAndRemoved_rowsShiftedWithoutReset() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        List<Object> items = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        ListDataProvider<Object> dataProvider = DataProvider
+                .ofCollection(items);
+        communicator.setDataProvider(dataProvider, null);
+
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        items.add(1, "d");
+        dataProvider.refreshItemsAdded(1, 1);
+        items.remove(3);
+        dataProvider.refreshItemsRemoved(3, 1);
+        communicator.beforeClientResponse(false);
+
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("insertRows", "removeRows"),
+                calls.stream().map(ClientMethodInvocation::getMethodName)
+                        .collect(Collectors.toList()));
+        Assert.assertArrayEquals(new Object[] { 1, 1 },
+                calls.get(0).getParameters());
+        Assert.assertArrayEquals(new Object[] { 3, 1 },
+                calls.get(1).getParameters());
+    }
+
+    @Test
+    public void itemsAdded_sortedRows_reset() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        TestDataProvider dataProvider = new TestDataProvider();
+        communicator.setDataProvider(dataProvider, null);
+        communicator.setInMemorySorting((a, b) -> 0);
+
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        dataProvider.refreshItemsAdded(0, 1);
+        communicator.beforeClientResponse(false);
+
+        Assert.assertEquals(Collections.singletonList("reset"),
+                communicator.retrievePendingRpcCalls().stream()
+                        .map(ClientMethodInvocation::getMethodName)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void refreshItems_refreshedInOneUpdate() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        ListDataProvider<Object> dataProvider = DataProvider.ofItems("a", "b",
+                "c");
+        communicator.setDataProvider(dataProvider, null);
+        List<Object> refreshed = new ArrayList<>();
+        communicator.addDataGenerator(new DataGenerator<Object>() {
+            @Override
+            public void generateData(Object item, JsonObject jsonObject) {
+            }
+
+            @Override
+            public void refreshData(Object item) {
+                refreshed.add(item);
+            }
+        });
+
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        dataProvider.refreshItems(Arrays.asList("a", "c"));
+        communicator.beforeClientResponse(false);
+
+        Assert.assertEquals(Arrays.asList("a", "c"), refreshed);
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("updateData", calls.get(0).getMethodName());
+        Assert.assertEquals(2,
+                ((JsonArray) calls.get(0).getParameters()[0]).length());
+    }
+
+    private final List<Integer> asyncFetchOffsets = new ArrayList<>();
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private boolean failAsyncFetch = false;
+
+    private TestDataCommunicator createAsyncCommunicator() {
+        return createAsyncCommunicator(PushMode.AUTOMATIC);
+    }
+
+    private TestDataCommunicator createAsyncCommunicator(PushMode pushMode) {
+        session.lock();
+        Mockito.when(session.getService().getBackgroundExecutor())
+                .thenReturn(new BackgroundExecutor(backgroundTasks::add));
+        Mockito.when(session.getService().ensurePushAvailable())
+                .thenReturn(true);
+
+        UI ui = new TestUI(session);
+        ui.getPushConfiguration().setPushMode(pushMode);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        CallbackDataProvider<Object, Void> dataProvider = new CallbackDataProvider<>(
+                query -> {
+                    if (failAsyncFetch) {
+                        throw new IllegalStateException("Back end is down");
+                    }
+                    asyncFetchOffsets.add(query.getOffset());
+                    return IntStream
+                            .range(query.getOffset(),
+                                    Math.min(100, query.getOffset()
+                                            + query.getLimit()))
+                            .mapToObj(Integer::valueOf);
+                }, query -> 100);
+        dataProvider.setAsynchronous(true);
+        communicator.setDataProvider(dataProvider, null);
+        return communicator;
+    }
+
+    private static List<String> getMethodNames(
+            List<ClientMethodInvocation> calls) {
+        return calls.stream().map(ClientMethodInvocation::getMethodName)
+                .collect(Collectors.toList());
+    }
+
+    private static JsonArray getSetDataRows(ClientMethodInvocation call) {
+        Assert.assertEquals("setData", call.getMethodName());
+        return (JsonArray) call.getParameters()[1];
+    }
+
+    @Test
+    public void asynchronousDataProvider_placeholdersSentBeforeRows() {
+        TestDataCommunicator communicator = createAsyncCommunicator();
+
+        communicator.beforeClientResponse(true);
+
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("reset", "setData"),
+                getMethodNames(calls));
+        JsonArray placeholders = getSetDataRows(calls.get(1));
+        Assert.assertEquals(communicator.getMinPushSize(),
+                placeholders.length());
+        Assert.assertEquals(DataCommunicator.PLACEHOLDER_KEY_PREFIX + 0,
+                placeholders.getObject(0).getString("k"));
+        Assert.assertTrue(asyncFetchOffsets.isEmpty());
+
+        Assert.assertEquals(1, backgroundTasks.size());
+        backgroundTasks.get(0).run();
+
+        calls = communicator.retrievePendingRpcCalls();
+        Assert.assertEquals(Collections.singletonList(0), asyncFetchOffsets);
+        JsonArray rows = getSetDataRows(calls.get(0));
+        Assert.assertEquals(communicator.getMinPushSize(), rows.length());
+        Assert.assertEquals(Integer.valueOf(0), communicator.getKeyMapper()
+                .get(rows.getObject(0).getString("k")));
+    }
+
+    @Test
+    public void asynchronousDataProvider_scrolledPastOrReset_fetchCancelled() {
+        TestDataCommunicator communicator = createAsyncCommunicator();
+        communicator.beforeClientResponse(true);
+
+        communicator.new SimpleDataRequestRpc().requestRows(60, 20, 0, 0);
+        communicator.beforeClientResponse(false);
+        communicator.retrievePendingRpcCalls();
+        backgroundTasks.forEach(Runnable::run);
+
+        Assert.assertEquals(Collections.singletonList(60), asyncFetchOffsets);
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals(60, calls.get(0).getParameters()[0]);
+        Assert.assertEquals(20, getSetDataRows(calls.get(0)).length());
+
+        backgroundTasks.clear();
+        communicator.new SimpleDataRequestRpc().requestRows(0, 20, 0, 0);
+        communicator.beforeClientResponse(false);
+        communicator.reset();
+        communicator.retrievePendingRpcCalls();
+        backgroundTasks.forEach(Runnable::run);
+
+        Assert.assertEquals(Collections.singletonList(60), asyncFetchOffsets);
+        Assert.assertTrue(communicator.retrievePendingRpcCalls().isEmpty());
+    }
+
+    @Test
+    public void asynchronousDataProvider_pushDisabled_rowsFetchedSynchronously() {
+        TestDataCommunicator communicator = createAsyncCommunicator(
+                PushMode.DISABLED);
+
+        communicator.beforeClientResponse(true);
+
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("reset", "setData"),
+                getMethodNames(calls));
+        JsonArray rows = getSetDataRows(calls.get(1));
+        Assert.assertEquals(Integer.valueOf(0), communicator.getKeyMapper()
+                .get(rows.getObject(0).getString("k")));
+        Assert.assertEquals(Collections.singletonList(0), asyncFetchOffsets);
+        Assert.assertTrue(backgroundTasks.isEmpty());
+    }
+
+    @Test
+    public void asynchronousDataProvider_manualPush_rowsFetchedSynchronously() {
+        TestDataCommunicator communicator = createAsyncCommunicator(
+                PushMode.MANUAL);
+
+        communicator.beforeClientResponse(true);
+
+        Assert.assertEquals(Collections.singletonList(0), asyncFetchOffsets);
+        Assert.assertTrue(backgroundTasks.isEmpty());
+    }
+
+    @Test
+    public void asynchronousDataProvider_adjacentRowsRequested_earlierFetchDelivered() {
+        TestDataCommunicator communicator = createAsyncCommunicator();
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        // The client keeps the placeholders of the first rows in its cache
+        communicator.new SimpleDataRequestRpc().requestRows(40, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        communicator.retrievePendingRpcCalls();
+        backgroundTasks.forEach(Runnable::run);
+
+        Assert.assertEquals(Arrays.asList(0, 40), asyncFetchOffsets);
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(2, calls.size());
+        Assert.assertEquals(0, calls.get(0).getParameters()[0]);
+        Assert.assertEquals(40, getSetDataRows(calls.get(0)).length());
+        Assert.assertEquals(40, calls.get(1).getParameters()[0]);
+    }
+
+    @Test
+    public void asynchronousDataProvider_rowsInsertedWhileFetching_movedRowsFetchedAgain() {
+        TestDataCommunicator communicator = createAsyncCommunicator();
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        communicator.insertRows(10, 5);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(Arrays.asList("insertRows", "setData"),
+                getMethodNames(communicator.retrievePendingRpcCalls()));
+        backgroundTasks.forEach(Runnable::run);
+
+        // The first fetch is cancelled and the shifted rows are fetched
+        Assert.assertEquals(Collections.singletonList(0), asyncFetchOffsets);
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals(0, calls.get(0).getParameters()[0]);
+        Assert.assertEquals(45, getSetDataRows(calls.get(0)).length());
+    }
+
+    @Test
+    public void asynchronousDataProvider_fetchFails_placeholdersInvalidated() {
+        TestDataCommunicator communicator = createAsyncCommunicator();
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        failAsyncFetch = true;
+        backgroundTasks.forEach(Runnable::run);
+
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("removeRows", "insertRows"),
+                getMethodNames(calls));
+        Assert.assertArrayEquals(new Object[] { 0, 40 },
+                calls.get(0).getParameters());
+        Assert.assertArrayEquals(new Object[] { 0, 40 },
+                calls.get(1).getParameters());
+    }
 }
@@ -0,0 +1,197 @@
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.data.DataCommunicatorConstants;
+import com.vaadin.shared.data.DataRequestRpc;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+public class DataObjectCacheTest {
+
+    private final List<Integer> generated = new ArrayList<>();
+    private final List<Integer> items = IntStream.range(0, 100).boxed()
+            .collect(Collectors.toList());
+
+    private DataObjectCache cache;
+    private TestDataCommunicator communicator;
+
+    private static class TestDataCommunicator
+            extends DataCommunicator<Integer> {
+        @Override
+        public JsonObject getDataObject(Integer data) {
+            return super.getDataObject(data);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        cache = new DataObjectCache(50);
+        communicator = new TestDataCommunicator();
+        communicator.setDataObjectCache(cache);
+        communicator.setDataProvider(DataProvider.ofCollection(items), null);
+        communicator.addDataGenerator((item, json) -> {
+            generated.add(item);
+            json.put("value", "Item " + item);
+        });
+    }
+
+    @Test
+    public void getDataObject_sameItemTwice_generatedOnce() {
+        JsonObject first = communicator.getDataObject(7);
+        JsonObject second = communicator.getDataObject(7);
+
+        Assert.assertEquals(Collections.singletonList(7), generated);
+        Assert.assertEquals("Item 7", second.getString("value"));
+        Assert.assertEquals(first.getString(DataCommunicatorConstants.KEY),
+                second.getString(DataCommunicatorConstants.KEY));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0.5, cache.getHitRatio(), 0);
+    }
+
+    @Test
+    public void getDataObject_itemDropped_keyUpdated() {
+        String key = communicator.getDataObject(7)
+                .getString(DataCommunicatorConstants.KEY);
+        communicator.getKeyMapper().remove(7);
+
+        JsonObject dataObject = communicator.getDataObject(7);
+
+        Assert.assertEquals(1, generated.size());
+        String newKey = dataObject.getString(DataCommunicatorConstants.KEY);
+        Assert.assertNotEquals(key, newKey);
+        Assert.assertEquals(Integer.valueOf(7),
+                communicator.getKeyMapper().get(newKey));
+    }
+
+    @Test
+    public void refresh_onlyRefreshedItemGeneratedAgain() {
+        communicator.getDataObject(1);
+        communicator.getDataObject(2);
+
+        communicator.refresh(1);
+        communicator.getDataObject(1);
+        communicator.getDataObject(2);
+
+        Assert.assertEquals(Arrays.asList(1, 2, 1), generated);
+    }
+
+    @Test
+    public void resetOrGeneratorChange_allItemsGeneratedAgain() {
+        communicator.getDataObject(1);
+
+        communicator.reset();
+        communicator.getDataObject(1);
+
+        DataGenerator<Integer> generator = (item, json) -> json.put("extra",
+                true);
+        communicator.addDataGenerator(generator);
+        Assert.assertTrue(communicator.getDataObject(1).getBoolean("extra"));
+
+        communicator.removeDataGenerator(generator);
+        Assert.assertFalse(communicator.getDataObject(1).hasKey("extra"));
+
+        Assert.assertEquals(4, generated.size());
+    }
+
+    @Test
+    public void sortingChanged_cachedDataObjectsKept() {
+        communicator.getDataObject(1);
+
+        communicator.setInMemorySorting(Comparator.reverseOrder());
+        communicator.setBackEndSorting(Collections.emptyList());
+        communicator.getDataObject(1);
+
+        Assert.assertEquals(1, generated.size());
+    }
+
+    @Test
+    public void dataProviderChanged_allItemsGeneratedAgain() {
+        ListDataProvider<Integer> dataProvider = DataProvider
+                .ofCollection(items);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.getDataObject(1);
+
+        communicator.setDataProvider(dataProvider, null);
+        communicator.getDataObject(1);
+
+        Assert.assertEquals(2, generated.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedItemEvicted() {
+        for (int i = 0; i < 50; i++) {
+            communicator.getDataObject(i);
+        }
+        // Make the first item the most recently used one
+        communicator.getDataObject(0);
+        communicator.getDataObject(50);
+        generated.clear();
+
+        communicator.getDataObject(0);
+        communicator.getDataObject(1);
+
+        Assert.assertEquals(Collections.singletonList(1), generated);
+        Assert.assertEquals(50, cache.size());
+    }
+
+    @Test
+    public void scrollBackOverDroppedRows_servedFromCache() {
+        DataRequestRpc rpc = communicator.new SimpleDataRequestRpc();
+        communicator.beforeClientResponse(true);
+        rpc.requestRows(40, 10, 0, 40);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(50, generated.size());
+
+        JsonArray droppedKeys = Json.createArray();
+        for (int i = 0; i < 10; i++) {
+            droppedKeys.set(i, communicator.getKeyMapper().key(i));
+        }
+        rpc.dropRows(droppedKeys);
+        rpc.requestRows(0, 10, 10, 40);
+        communicator.beforeClientResponse(false);
+
+        Assert.assertEquals(50, generated.size());
+        Assert.assertEquals(10, cache.getHitCount());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), communicator
+                    .getKeyMapper().get(droppedKeys.getString(i)));
+        }
+    }
+
+    @Test
+    public void noCache_alwaysGenerated() {
+        communicator.setDataObjectCache(null);
+
+        communicator.getDataObject(1);
+        communicator.getDataObject(1);
+
+        Assert.assertEquals(2, generated.size());
+    }
+
+    @Test
+    public void resetStatistics_countersCleared() {
+        cache.put(1, Json.createObject());
+        cache.get(1);
+        cache.get(2);
+
+        cache.resetStatistics();
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(0, cache.getMissCount());
+        Assert.assertEquals(0, cache.getHitRatio(), 0);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.data.sort.SortDirection;
+
+/**
+ * @author Vaadin Ltd
+ *
+ */
+public class DataPageCacheTest {
+
+    private final List<Integer> items = IntStream.range(0, 95).boxed()
+            .collect(Collectors.toList());
+    private final List<Query<Integer, String>> fetchQueries = new ArrayList<>();
+    private int sizeQueries;
+
+    private DataProvider<Integer, String> dataProvider;
+    private DataPageCache<Integer> cache;
+
+    @Before
+    public void setUp() {
+        dataProvider = DataProvider.fromFilteringCallbacks(query -> {
+            fetchQueries.add(query);
+            return items.stream()
+                    .filter(item -> !query.getFilter().isPresent() || String
+                            .valueOf(item).contains(query.getFilter().get()))
+                    .skip(query.getOffset()).limit(query.getLimit());
+        }, query -> {
+            sizeQueries++;
+            return (int) items.stream()
+                    .filter(item -> !query.getFilter().isPresent() || String
+                            .valueOf(item).contains(query.getFilter().get()))
+                    .count();
+        });
+        cache = new DataPageCache<>(10, 5);
+    }
+
+    @Test
+    public void fetch_sameRangeTwice_dataProviderQueriedOnce() {
+        Assert.assertEquals(range(15, 35), fetch(15, 20, null));
+        Assert.assertEquals(range(15, 35), fetch(15, 20, null));
+
+        Assert.assertEquals(1, fetchQueries.size());
+        Assert.assertEquals(10, fetchQueries.get(0).getOffset());
+        Assert.assertEquals(30, fetchQueries.get(0).getLimit());
+        Assert.assertEquals(3, cache.getMissCount());
+        Assert.assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    public void fetch_overlappingRange_onlyMissingPagesFetched() {
+        fetch(0, 20, null);
+        Assert.assertEquals(range(5, 40), fetch(5, 35, null));
+
+        Assert.assertEquals(2, fetchQueries.size());
+        Assert.assertEquals(20, fetchQueries.get(1).getOffset());
+        Assert.assertEquals(20, fetchQueries.get(1).getLimit());
+    }
+
+    @Test
+    public void fetch_pastEndOfData_partialResult() {
+        Assert.assertEquals(range(85, 95), fetch(85, 40, null));
+        Assert.assertEquals(range(85, 95), fetch(85, 40, null));
+        // Pages past the end were cached as empty by the first fetch
+        Assert.assertEquals(Collections.emptyList(), fetch(100, 10, null));
+        Assert.assertEquals(1, fetchQueries.size());
+
+        Assert.assertEquals(Collections.emptyList(), fetch(200, 10, null));
+        Assert.assertEquals(2, fetchQueries.size());
+    }
+
+    @Test
+    public void fetch_differentFilterOrSorting_notShared() {
+        fetch(0, 10, null);
+        fetch(0, 10, "1");
+        fetch(0, 10, "1");
+
+        Comparator<Integer> comparator = (a, b) -> b - a;
+        fetch(0, 10, null, comparator);
+        fetch(0, 10, null, comparator);
+        fetch(0, 10, null, (a, b) -> b - a);
+
+        Assert.assertEquals(4, fetchQueries.size());
+    }
+
+    @Test
+    public void fetch_equalBackEndSorting_shared() {
+        Query<Integer, String> query = new Query<>(0, 10,
+                Collections.singletonList(
+                        new QuerySortOrder("value", SortDirection.DESCENDING)),
+                null, null);
+        cache.fetch(dataProvider, query);
+        query = new Query<>(0, 10,
+                Collections.singletonList(
+                        new QuerySortOrder("value", SortDirection.DESCENDING)),
+                null, null);
+        cache.fetch(dataProvider, query);
+
+        Assert.assertEquals(1, fetchQueries.size());
+    }
+
+    @Test
+    public void fetch_leastRecentlyUsedPageEvicted() {
+        fetch(0, 50, null);
+        // Touch the first page
+        fetch(0, 10, null);
+        // Evicts the second page
+        fetch(50, 10, null);
+
+        fetchQueries.clear();
+        fetch(0, 10, null);
+        Assert.assertEquals(0, fetchQueries.size());
+        fetch(10, 10, null);
+        Assert.assertEquals(1, fetchQueries.size());
+    }
+
+    @Test
+    public void size_memoizedPerFilter() {
+        Assert.assertEquals(95, cache.size(dataProvider, new Query<>()));
+        Assert.assertEquals(95, cache.size(dataProvider, new Query<>()));
+        Assert.assertEquals(19, cache.size(dataProvider, new Query<>("1")));
+        Assert.assertEquals(19, cache.size(dataProvider, new Query<>("1")));
+
+        Assert.assertEquals(2, sizeQueries);
+    }
+
+    @Test
+    public void invalidatePages_sizesKept() {
+        cache.size(dataProvider, new Query<>());
+        fetch(0, 10, null);
+
+        cache.invalidatePages();
+
+        cache.size(dataProvider, new Query<>());
+        fetch(0, 10, null);
+        Assert.assertEquals(1, sizeQueries);
+        Assert.assertEquals(2, fetchQueries.size());
+    }
+
+    @Test
+    public void invalidateAll_everythingQueriedAgain() {
+        cache.size(dataProvider, new Query<>());
+        fetch(0, 10, null);
+
+        cache.invalidateAll();
+
+        cache.size(dataProvider, new Query<>());
+        fetch(0, 10, null);
+        Assert.assertEquals(2, sizeQueries);
+        Assert.assertEquals(2, fetchQueries.size());
+    }
+
+    @Test
+    public void dataCommunicator_cacheUsedUntilDataProviderChanged() {
+        ListDataProvider<Integer> listDataProvider = DataProvider
+                .ofCollection(new ArrayList<>(items));
+        DataCommunicator<Integer> communicator = new DataCommunicator<>();
+        communicator.setPageCache(cache);
+        communicator.setDataProvider(listDataProvider, null);
+
+        communicator.beforeClientResponse(true);
+        Assert.assertEquals(5, cache.getMissCount());
+
+        communicator.reset();
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(1, cache.getHitCount());
+
+        communicator.setDataProvider(listDataProvider, null);
+        communicator.beforeClientResponse(false);
+        Assert.assertEquals(10, cache.getMissCount());
+    }
+
+    private List<Integer> fetch(int offset, int limit, String filter) {
+        return fetch(offset, limit, filter, null);
+    }
+
+    private List<Integer> fetch(int offset, int limit, String filter,
+            Comparator<Integer> inMemorySorting) {
+        return cache.fetch(dataProvider, new Query<>(offset, limit,
+                Collections.emptyList(), inMemorySorting, filter));
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,136 @@
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryHierarchicalDataProviderTest {
+
+    private InMemoryHierarchicalDataProvider<String> dataProvider;
+
+    @Before
+    public void setUp() {
+        dataProvider = new InMemoryHierarchicalDataProvider<>(
+                Arrays.asList("a", "b", "c"));
+        for (String root : Arrays.asList("a", "b", "c")) {
+            for (String child : Arrays.asList("1", "2")) {
+                dataProvider.addItem(root, root + child);
+                dataProvider.addItem(root + child, root + child + "x");
+            }
+        }
+    }
+
+    private List<String> fetchAll() {
+        return dataProvider.fetch(new Query<>()).collect(Collectors.toList());
+    }
+
+    private void assertConsistent() {
+        List<String> rows = fetchAll();
+        Assert.assertEquals(rows.size(), dataProvider.size(new Query<>()));
+        for (int i = 0; i < rows.size(); i++) {
+            Assert.assertEquals(i, dataProvider.getIndexOf(rows.get(i)));
+        }
+    }
+
+    @Test
+    public void initiallyCollapsed_onlyRootsVisible() {
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), fetchAll());
+        Assert.assertEquals(0, dataProvider.getVisibleDescendantCount("a"));
+        Assert.assertEquals(-1, dataProvider.getIndexOf("a1"));
+    }
+
+    @Test
+    public void expandAndCollapse_visibleRowsUpdated() {
+        dataProvider.setCollapsed("b", false);
+        Assert.assertEquals(Arrays.asList("a", "b", "b1", "b2", "c"),
+                fetchAll());
+        Assert.assertEquals(2, dataProvider.getVisibleDescendantCount("b"));
+        assertConsistent();
+
+        dataProvider.setCollapsed("b2", false);
+        Assert.assertEquals(Arrays.asList("a", "b", "b1", "b2", "b2x", "c"),
+                fetchAll());
+        Assert.assertEquals(3, dataProvider.getVisibleDescendantCount("b"));
+        assertConsistent();
+
+        dataProvider.setCollapsed("b", true);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), fetchAll());
+        assertConsistent();
+
+        // Expanded state of descendants is kept
+        dataProvider.setCollapsed("b", false);
+        Assert.assertEquals(Arrays.asList("a", "b", "b1", "b2", "b2x", "c"),
+                fetchAll());
+        assertConsistent();
+    }
+
+    @Test
+    public void expandHiddenItem_countsUpdatedWhenShown() {
+        dataProvider.setCollapsed("a1", false);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), fetchAll());
+
+        dataProvider.setCollapsed("a", false);
+        Assert.assertEquals(Arrays.asList("a", "a1", "a1x", "a2", "b", "c"),
+                fetchAll());
+        Assert.assertEquals(3, dataProvider.getVisibleDescendantCount("a"));
+        assertConsistent();
+    }
+
+    @Test
+    public void addAndRemoveItems_visibleRowsUpdated() {
+        dataProvider.setCollapsed("a", false);
+        dataProvider.addItem("a", "a3");
+        dataProvider.addItem(null, "d");
+        Assert.assertEquals(Arrays.asList("a", "a1", "a2", "a3", "b", "c", "d"),
+                fetchAll());
+        assertConsistent();
+
+        dataProvider.removeItem("a1");
+        dataProvider.removeItem("c");
+        Assert.assertEquals(Arrays.asList("a", "a2", "a3", "b", "d"),
+                fetchAll());
+        Assert.assertFalse(dataProvider.contains("a1x"));
+        Assert.assertFalse(dataProvider.contains("c2"));
+        assertConsistent();
+    }
+
+    @Test
+    public void fetch_offsetLimitAndFilter() {
+        dataProvider.setCollapsed("a", false);
+        dataProvider.setCollapsed("c", false);
+
+        Assert.assertEquals(Arrays.asList("a2", "b", "c"),
+                dataProvider.fetch(new Query<>(2, 3, null, null, null))
+                        .collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList("a1", "a2"),
+                dataProvider
+                        .fetch(new Query<>(0, Integer.MAX_VALUE, null, null,
+                                item -> item.startsWith("a")
+                                        && item.length() > 1))
+                        .collect(Collectors.toList()));
+        Assert.assertEquals(4, dataProvider
+                .size(new Query<>(item -> item.length() == 2)));
+    }
+
+    @Test
+    public void hierarchy() {
+        Assert.assertEquals(0, dataProvider.getDepth("a"));
+        Assert.assertEquals(2, dataProvider.getDepth("a1x"));
+        Assert.assertTrue(dataProvider.isRoot("b"));
+        Assert.assertEquals("b1", dataProvider.getParent("b1x"));
+        Assert.assertTrue(dataProvider.hasChildren("b1"));
+        Assert.assertFalse(dataProvider.hasChildren("b1x"));
+        Assert.assertEquals(Arrays.asList("b1", "b2"),
+                new ArrayList<>(dataProvider.getChildren("b")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addItem_duplicate_throws() {
+        dataProvider.addItem("b", "a1");
+    }
+}
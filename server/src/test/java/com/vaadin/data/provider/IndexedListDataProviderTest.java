@@ -0,0 +1,204 @@
+package com.vaadin.data.provider;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.SerializablePredicate;
+
+public class IndexedListDataProviderTest extends ListDataProviderTest {
+
+    private final Comparator<StrBean> valueComparator = Comparator
+            .comparing(StrBean::getValue).thenComparing(StrBean::getId);
+
+    @Override
+    protected ListDataProvider<StrBean> createDataProvider() {
+        return new IndexedListDataProvider<>(data);
+    }
+
+    private List<StrBean> fetch(SerializablePredicate<StrBean> filter,
+            Comparator<StrBean> comparator) {
+        return dataProvider
+                .fetch(new Query<>(0, Integer.MAX_VALUE, null, comparator,
+                        filter))
+                .collect(Collectors.toList());
+    }
+
+    private List<StrBean> expected(SerializablePredicate<StrBean> filter,
+            Comparator<StrBean> comparator) {
+        return data.stream().filter(filter).sorted(comparator)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void fetch_sameQuery_filterAndSortOnlyOnce() {
+        AtomicInteger filterCalls = new AtomicInteger();
+        SerializablePredicate<StrBean> countingFilter = item -> {
+            filterCalls.incrementAndGet();
+            return true;
+        };
+
+        fetch(countingFilter, valueComparator);
+        Assert.assertEquals(data.size(), filterCalls.get());
+
+        dataProvider.fetch(
+                new Query<>(10, 20, null, valueComparator, countingFilter));
+        dataProvider.size(new Query<>(countingFilter));
+        Assert.assertEquals(data.size(), filterCalls.get());
+    }
+
+    @Test
+    public void fetch_offsetAndLimit_matchesListDataProvider() {
+        ListDataProvider<StrBean> plain = new ListDataProvider<>(data);
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(7,
+                15, null, valueComparator, fooFilter);
+
+        Assert.assertEquals(plain.fetch(query).collect(Collectors.toList()),
+                dataProvider.fetch(query).collect(Collectors.toList()));
+        Assert.assertEquals(plain.size(query), dataProvider.size(query));
+    }
+
+    @Test
+    public void fetch_offsetPastEnd_empty() {
+        Assert.assertEquals(0, dataProvider
+                .fetch(new Query<>(data.size(), 10, null, null, null)).count());
+    }
+
+    @Test
+    public void refreshItem_sortedIndexUpdated() {
+        fetch(fooFilter, valueComparator);
+        fetch(gt5Filter, valueComparator);
+
+        StrBean changed = data.stream()
+                .filter(item -> item.getValue().equals("Foo")).findFirst()
+                .get();
+        changed.setValue("Bar");
+        dataProvider.refreshItem(changed);
+
+        Assert.assertEquals(expected(fooFilter, valueComparator),
+                fetch(fooFilter, valueComparator));
+        Assert.assertEquals(expected(gt5Filter, valueComparator),
+                fetch(gt5Filter, valueComparator));
+        Assert.assertEquals(expected(fooFilter, valueComparator).size(),
+                dataProvider.size(new Query<>(fooFilter)));
+
+        changed.setValue("Foo");
+        dataProvider.refreshItem(changed);
+
+        Assert.assertEquals(expected(fooFilter, valueComparator).size(),
+                fetch(fooFilter, valueComparator).size());
+        Assert.assertTrue(fetch(fooFilter, valueComparator).contains(changed));
+    }
+
+    @Test
+    public void refreshItem_unsortedIndexUpdated() {
+        StrBean changed = data.get(3);
+        fetch(null, null);
+
+        changed.setValue("Changed");
+        dataProvider.refreshItem(changed);
+
+        Assert.assertEquals(data, fetch(null, null));
+    }
+
+    @Test
+    public void refreshAll_indexesDiscarded() {
+        fetch(null, valueComparator);
+
+        data.add(new StrBean("Aaa", 1000, 1));
+        dataProvider.refreshAll();
+
+        Assert.assertEquals(expected(item -> true, valueComparator),
+                fetch(null, valueComparator));
+    }
+
+    @Test
+    public void refreshItemsAdded_indexesDiscarded() {
+        fetch(null, null);
+
+        data.add(0, new StrBean("Aaa", 1000, 1));
+        dataProvider.refreshItemsAdded(0, 1);
+
+        Assert.assertEquals(data, fetch(null, null));
+    }
+
+    @Test
+    public void refreshItems_indexesUpdated() {
+        fetch(null, valueComparator);
+
+        data.get(3).setValue("Changed");
+        data.get(7).setValue("Aaa");
+        dataProvider.refreshItems(Arrays.asList(data.get(3), data.get(7)));
+
+        Assert.assertEquals(expected(item -> true, valueComparator),
+                fetch(null, valueComparator));
+    }
+
+    /*
+     * StrBean.hashCode() depends on the mutable value and the bean ids are not
+     * unique, so use the original positions of the beans as item ids
+     */
+    private void usePositionIds(AtomicInteger idLookups) {
+        Map<StrBean, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < data.size(); i++) {
+            ids.put(data.get(i), i);
+        }
+        dataProvider = new IndexedListDataProvider<StrBean>(data) {
+            @Override
+            public Object getId(StrBean item) {
+                idLookups.incrementAndGet();
+                return ids.get(item);
+            }
+        };
+    }
+
+    @Test
+    public void refreshItems_repeatedly_indexesMatchFullSort() {
+        usePositionIds(new AtomicInteger());
+        fetch(null, valueComparator);
+        fetch(fooFilter, valueComparator);
+        fetch(null, null);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            StrBean changed = data.get(random.nextInt(data.size()));
+            changed.setValue("Value " + random.nextInt(20));
+            dataProvider.refreshItem(changed);
+        }
+
+        Assert.assertEquals(expected(item -> true, valueComparator),
+                fetch(null, valueComparator));
+        Assert.assertEquals(expected(fooFilter, valueComparator),
+                fetch(fooFilter, valueComparator));
+        Assert.assertEquals(data, fetch(null, null));
+    }
+
+    @Test
+    public void refreshItem_itemFoundWithoutScanningIndex() {
+        AtomicInteger idLookups = new AtomicInteger();
+        usePositionIds(idLookups);
+        fetch(null, valueComparator);
+        dataProvider.refreshItem(data.get(3));
+
+        idLookups.set(0);
+        dataProvider.refreshItem(data.get(5));
+        Assert.assertTrue(idLookups.get() < 5);
+    }
+
+    @Test
+    public void parallelSort_sameOrderAsSequential() {
+        IndexedListDataProvider<StrBean> indexed = (IndexedListDataProvider<StrBean>) dataProvider;
+        indexed.setParallelSortThreshold(0);
+
+        Assert.assertEquals(expected(item -> true, valueComparator),
+                fetch(null, valueComparator));
+    }
+}
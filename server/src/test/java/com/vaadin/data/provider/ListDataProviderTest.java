@@ -1,5 +1,6 @@
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
@@ -8,6 +9,9 @@ import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.vaadin.data.provider.DataChangeEvent.ItemsAddedEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsRemovedEvent;
+import com.vaadin.data.provider.DataChangeEvent.ItemsUpdatedEvent;
 import com.vaadin.server.SerializableComparator;
 import com.vaadin.shared.data.sort.SortDirection;
 
@@ -224,4 +228,49 @@ public class ListDataProviderTest
         getDataProvider().setSortComparator(serializableComp);
     }
 
+
+    @Test
+    public void refreshItemsAdded_noDefaultFilterOrSorting_itemsAddedEventFired() {
+        List<DataChangeEvent<StrBean>> events = new ArrayList<>();
+        dataProvider.addDataProviderListener(events::add);
+
+        dataProvider.refreshItemsAdded(5, 2);
+        dataProvider.refreshItemsRemoved(1, 3);
+
+        Assert.assertEquals(2, events.size());
+        ItemsAddedEvent<StrBean> added = (ItemsAddedEvent<StrBean>) events
+                .get(0);
+        Assert.assertEquals(5, added.getIndex());
+        Assert.assertEquals(2, added.getCount());
+        ItemsRemovedEvent<StrBean> removed = (ItemsRemovedEvent<StrBean>) events
+                .get(1);
+        Assert.assertEquals(1, removed.getIndex());
+        Assert.assertEquals(3, removed.getCount());
+    }
+
+    @Test
+    public void refreshItemsAdded_defaultFilter_allItemsRefreshed() {
+        dataProvider.setFilter(fooFilter);
+        List<DataChangeEvent<StrBean>> events = new ArrayList<>();
+        dataProvider.addDataProviderListener(events::add);
+
+        dataProvider.refreshItemsAdded(5, 2);
+        dataProvider.refreshItemsRemoved(1, 3);
+
+        Assert.assertEquals(2, events.size());
+        events.forEach(event -> Assert.assertEquals(DataChangeEvent.class,
+                event.getClass()));
+    }
+
+    @Test
+    public void refreshItems_singleItemsUpdatedEventFired() {
+        List<DataChangeEvent<StrBean>> events = new ArrayList<>();
+        dataProvider.addDataProviderListener(events::add);
+
+        dataProvider.refreshItems(data.subList(0, 3));
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(data.subList(0, 3), new ArrayList<>(
+                ((ItemsUpdatedEvent<StrBean>) events.get(0)).getItems()));
+    }
 }
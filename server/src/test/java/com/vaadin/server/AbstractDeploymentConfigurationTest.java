@@ -152,5 +152,40 @@ public class AbstractDeploymentConfigurationTest {
             return DefaultDeploymentConfiguration.DEFAULT_SEND_URLS_AS_PARAMETERS;
         }
 
+        @Override
+        public boolean isStreamingUidlEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_STREAMING_UIDL;
+        }
+
+        @Override
+        public boolean isIncrementalStateEncodingEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_INCREMENTAL_STATE_ENCODING;
+        }
+
+        @Override
+        public boolean isStaticResourceCacheEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_STATIC_RESOURCE_CACHE;
+        }
+
+        @Override
+        public boolean isUILockingEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_UI_LOCKING;
+        }
+
+        @Override
+        public int getSessionHousekeepingInterval() {
+            return DefaultDeploymentConfiguration.DEFAULT_SESSION_HOUSEKEEPING_INTERVAL;
+        }
+
+        @Override
+        public boolean isRequestMetricsEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_REQUEST_METRICS;
+        }
+
+        @Override
+        public int getCompressionThreshold() {
+            return DefaultDeploymentConfiguration.DEFAULT_COMPRESSION_THRESHOLD;
+        }
+
     }
 }
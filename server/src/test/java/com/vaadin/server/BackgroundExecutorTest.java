@@ -0,0 +1,247 @@
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class BackgroundExecutorTest {
+
+    private VaadinServletService service;
+    private MockVaadinSession session;
+    private UI ui;
+
+    @Before
+    public void setup() throws ServiceException {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        service = new VaadinServletService(new VaadinServlet(), configuration);
+        session = new MockVaadinSession(service);
+
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        session.lock();
+        try {
+            session.setConfiguration(configuration);
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void accessAsync_taskRunWithoutLock_resultAppliedWithLock()
+            throws Exception {
+        AtomicBoolean lockedInTask = new AtomicBoolean(true);
+        Label label = new Label();
+
+        CompletableFuture<Void> future = ui.accessAsync(() -> {
+            lockedInTask.set(session.hasLock());
+            return "Result";
+        }, result -> {
+            Assert.assertTrue(session.hasLock());
+            Assert.assertSame(ui, UI.getCurrent());
+            label.setValue(result);
+        });
+        future.get(5, TimeUnit.SECONDS);
+
+        Assert.assertFalse(lockedInTask.get());
+        Assert.assertEquals("Result", label.getValue());
+
+        BackgroundExecutor executor = service.getBackgroundExecutor();
+        Assert.assertEquals(1, executor.getCompletedTaskCount());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+        Assert.assertEquals(0, executor.getActiveTaskCount());
+        Assert.assertTrue(executor.getAverageQueueTime() >= 0);
+        Assert.assertTrue(executor.getAverageLockWaitTime() >= 0);
+    }
+
+    @Test
+    public void accessAsync_taskFails_errorHandlerCalled() throws Exception {
+        AtomicReference<Throwable> handledError = new AtomicReference<>();
+        session.lock();
+        try {
+            session.setErrorHandler(
+                    event -> handledError.set(event.getThrowable()));
+        } finally {
+            session.unlock();
+        }
+
+        IllegalStateException failure = new IllegalStateException();
+        AtomicBoolean handlerRun = new AtomicBoolean();
+        CompletableFuture<Void> future = ui.accessAsync(() -> {
+            throw failure;
+        }, result -> handlerRun.set(true));
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("Future should have failed");
+        } catch (ExecutionException e) {
+            Assert.assertSame(failure, e.getCause());
+        }
+        Assert.assertFalse(handlerRun.get());
+
+        // The error handler is run after the future has been completed
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handledError.get() == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(handledError.get());
+    }
+
+    @Test
+    public void submit_queuedUntilRun() {
+        List<Runnable> queue = new ArrayList<>();
+        BackgroundExecutor executor = new BackgroundExecutor(queue::add);
+
+        CompletableFuture<String> future = executor.submit(() -> "Result");
+        Assert.assertEquals(1, executor.getQueuedTaskCount());
+        Assert.assertFalse(future.isDone());
+
+        queue.forEach(Runnable::run);
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+        Assert.assertEquals(1, executor.getCompletedTaskCount());
+        Assert.assertEquals("Result", future.join());
+    }
+
+    @Test
+    public void accessAsync_cancelledBeforeResult_handlerNotRun() {
+        List<Runnable> queue = new ArrayList<>();
+        BackgroundExecutor executor = new BackgroundExecutor(queue::add);
+
+        AtomicBoolean handlerRun = new AtomicBoolean();
+        CompletableFuture<Void> future = executor.accessAsync(ui,
+                () -> "Result", result -> handlerRun.set(true));
+        future.cancel(false);
+
+        queue.forEach(Runnable::run);
+        Assert.assertFalse(handlerRun.get());
+    }
+
+    @Test
+    public void submit_limitReached_taskHandedToExecutorWhenPermitReleased() {
+        List<Runnable> queue = new ArrayList<>();
+        BackgroundExecutor executor = new BackgroundExecutor(queue::add, 1);
+
+        CompletableFuture<String> first = executor.submit(() -> "First");
+        CompletableFuture<String> second = executor.submit(() -> "Second");
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(2, executor.getQueuedTaskCount());
+
+        queue.remove(0).run();
+        Assert.assertEquals("First", first.join());
+        Assert.assertFalse(second.isDone());
+        Assert.assertEquals(1, queue.size());
+
+        queue.remove(0).run();
+        Assert.assertEquals("Second", second.join());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+        Assert.assertEquals(2, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void shutdown_pendingTasksCancelled() {
+        List<Runnable> queue = new ArrayList<>();
+        BackgroundExecutor executor = new BackgroundExecutor(queue::add, 1);
+
+        CompletableFuture<String> first = executor.submit(() -> "First");
+        CompletableFuture<String> second = executor.submit(() -> "Second");
+        executor.shutdown();
+
+        Assert.assertTrue(second.isCancelled());
+        Assert.assertEquals(1, executor.getQueuedTaskCount());
+
+        queue.remove(0).run();
+        Assert.assertEquals("First", first.join());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    public void shutdown_tasksQueuedInExecutorCancelled()
+            throws InterruptedException {
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        BackgroundExecutor executor = new BackgroundExecutor(threads);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        CompletableFuture<String> queued = executor.submit(() -> "Queued");
+        started.await();
+        executor.shutdown();
+
+        Assert.assertTrue(queued.isCancelled());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+        Assert.assertTrue(threads.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submit_afterShutdown_rejected() {
+        List<Runnable> queue = new ArrayList<>();
+        BackgroundExecutor executor = new BackgroundExecutor(queue::add, 1);
+        executor.shutdown();
+
+        CompletableFuture<String> future = executor.submit(() -> "Result");
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    public void serviceExecutor_boundedByDefault() {
+        Assert.assertEquals(2 * Runtime.getRuntime().availableProcessors(),
+                service.getBackgroundExecutor().getMaxConcurrentTasks());
+    }
+
+    @Test
+    public void serviceExecutor_configuredLimit() throws ServiceException {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_BACKGROUND_TASK_LIMIT, "3");
+        VaadinServletService limitedService = new VaadinServletService(
+                new VaadinServlet(), configuration);
+        try {
+            Assert.assertEquals(3, limitedService.getBackgroundExecutor()
+                    .getMaxConcurrentTasks());
+        } finally {
+            limitedService.destroy();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.vaadin.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void parse_closedRange() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+        Assert.assertTrue(range.isSatisfiable());
+        Assert.assertEquals(10, range.getFirst());
+        Assert.assertEquals(19, range.getLast());
+        Assert.assertEquals(10, range.getLength());
+        Assert.assertEquals("bytes 10-19/100", range.getContentRange());
+    }
+
+    @Test
+    public void parse_openRange_endsAtLastByte() {
+        ByteRange range = ByteRange.parse("bytes=90-", 100);
+        Assert.assertEquals(99, range.getLast());
+        Assert.assertEquals(10, range.getLength());
+
+        Assert.assertEquals(99, ByteRange.parse("bytes=90-500", 100).getLast());
+    }
+
+    @Test
+    public void parse_suffixRange() {
+        ByteRange range = ByteRange.parse("bytes=-30", 100);
+        Assert.assertEquals(70, range.getFirst());
+        Assert.assertEquals(99, range.getLast());
+
+        range = ByteRange.parse("bytes=-300", 100);
+        Assert.assertEquals(0, range.getFirst());
+    }
+
+    @Test
+    public void parse_unsatisfiable() {
+        ByteRange range = ByteRange.parse("bytes=100-", 100);
+        Assert.assertFalse(range.isSatisfiable());
+        Assert.assertEquals("bytes */100", range.getContentRange());
+
+        Assert.assertFalse(ByteRange.parse("bytes=-0", 100).isSatisfiable());
+        Assert.assertFalse(ByteRange.parse("bytes=-5", 0).isSatisfiable());
+    }
+
+    @Test
+    public void parse_ignored() {
+        Assert.assertNull(ByteRange.parse(null, 100));
+        Assert.assertNull(ByteRange.parse("items=1-2", 100));
+        Assert.assertNull(ByteRange.parse("bytes=1-2,5-6", 100));
+        Assert.assertNull(ByteRange.parse("bytes=5-2", 100));
+        Assert.assertNull(ByteRange.parse("bytes=a-2", 100));
+        Assert.assertNull(ByteRange.parse("bytes=-", 100));
+    }
+}
@@ -94,4 +94,19 @@ public class ConnectorResourceHandlerTest {
 
         EasyMock.verify(errorHandler);
     }
+
+    @Test
+    public void unknownConnectorOfDetachedUI_notFound() {
+        UI.setCurrent(ui);
+        session.lock();
+        try {
+            session.removeUI(ui);
+        } finally {
+            session.unlock();
+            UI.setCurrent(null);
+        }
+
+        // Lookups are done without locking and might race with detaching
+        Assert.assertNull(ui.getConnectorTracker().getConnector("42"));
+    }
 }
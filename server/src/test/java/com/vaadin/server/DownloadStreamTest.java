@@ -4,10 +4,20 @@ import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,4 +46,108 @@ public class DownloadStreamTest {
                 contains(
                         String.format("filename*=utf-8''%s", encodedFileName)));
     }
+
+    private static final byte[] DATA = "0123456789"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ByteArrayOutputStream write(DownloadStream downloadStream,
+            VaadinResponse response, String range, String ifRange)
+            throws IOException {
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn(range);
+        when(request.getHeader("If-Range")).thenReturn(ifRange);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+        downloadStream.writeResponse(request, response);
+        return out;
+    }
+
+    @Test
+    public void range_partialContentWritten() throws IOException {
+        stream = new DownloadStream(new ByteArrayInputStream(DATA), "", "f");
+        stream.setLength(DATA.length);
+        VaadinResponse response = mock(VaadinResponse.class);
+
+        ByteArrayOutputStream out = write(stream, response, "bytes=3-5",
+                null);
+
+        Assert.assertEquals("345", out.toString("UTF-8"));
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 3-5/10");
+        verify(response).setHeader("Content-Length", "3");
+        verify(response).setHeader("Accept-Ranges", "bytes");
+    }
+
+    @Test
+    public void range_unsatisfiable() throws IOException {
+        stream = new DownloadStream(new ByteArrayInputStream(DATA), "", "f");
+        stream.setParameter("Content-Length", "10");
+        VaadinResponse response = mock(VaadinResponse.class);
+
+        ByteArrayOutputStream out = write(stream, response, "bytes=10-",
+                null);
+
+        Assert.assertEquals(0, out.size());
+        verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */10");
+    }
+
+    @Test
+    public void range_ifRangeMismatch_wholeContentWritten()
+            throws IOException {
+        stream = new DownloadStream(new ByteArrayInputStream(DATA), "", "f");
+        stream.setLength(DATA.length);
+        stream.setParameter("ETag", "\"v2\"");
+
+        ByteArrayOutputStream out = write(stream,
+                mock(VaadinResponse.class), "bytes=3-5", "\"v1\"");
+        Assert.assertEquals("0123456789", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void range_seekableSource_openedAtOffset() throws IOException {
+        AtomicLong openedAt = new AtomicLong(-1);
+        stream = new DownloadStream(new StreamResource.SeekableStreamSource() {
+            @Override
+            public long getLength() {
+                return DATA.length;
+            }
+
+            @Override
+            public InputStream getStream(long offset) {
+                openedAt.set(offset);
+                return new ByteArrayInputStream(DATA, (int) offset,
+                        DATA.length);
+            }
+        }, "", "f");
+
+        ByteArrayOutputStream out = write(stream,
+                mock(VaadinResponse.class), "bytes=-4", null);
+
+        Assert.assertEquals(6, openedAt.get());
+        Assert.assertEquals("6789", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void range_fileResource() throws IOException {
+        File file = File.createTempFile("download", ".txt");
+        try {
+            Files.write(file.toPath(), DATA);
+            DownloadStream fileStream = new FileResource(file).getStream();
+            VaadinResponse response = mock(VaadinResponse.class);
+
+            ByteArrayOutputStream out = write(fileStream, response,
+                    "bytes=7-", null);
+
+            Assert.assertEquals("789", out.toString("UTF-8"));
+            verify(response).setHeader("Content-Range", "bytes 7-9/10");
+
+            out = write(new FileResource(file).getStream(),
+                    mock(VaadinResponse.class), null, null);
+            Assert.assertEquals("0123456789", out.toString("UTF-8"));
+        } finally {
+            file.delete();
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.ui.ContentMode;
+import com.vaadin.shared.ui.checkbox.CheckBoxServerRpc;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.ComponentTest;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+import elemental.json.JsonObject;
+
+/**
+ * Tests for incremental shared state encoding.
+ *
+ * @author Vaadin Ltd
+ */
+public class IncrementalStateEncodingTest {
+
+    @After
+    public void cleanup() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+    }
+
+    @Test
+    public void changedImmutableProperty_onlyThatPropertyEncoded() {
+        Label label = createLabel(true);
+        ComponentTest.syncToClient(label);
+
+        label.setCaption("New caption");
+
+        ComponentTest.assertEncodedStateProperties(label,
+                "Only the changed caption should be encoded", "caption");
+    }
+
+    @Test
+    public void noChanges_nothingEncoded() {
+        Label label = createLabel(true);
+        ComponentTest.syncToClient(label);
+
+        label.markAsDirty();
+
+        ComponentTest.assertEncodedStateProperties(label,
+                "Nothing should be encoded for an unchanged state");
+    }
+
+    @Test
+    public void collectionChangedInPlace_collectionEncoded() {
+        Label label = createLabel(true);
+        ComponentTest.syncToClient(label);
+
+        label.addStyleName("first");
+        ComponentTest.assertEncodedStateProperties(label,
+                "New style list should be encoded", "styles");
+
+        label.addStyleName("second");
+        ComponentTest.assertEncodedStateProperties(label,
+                "Modified style list should be encoded", "styles");
+    }
+
+    @Test
+    public void propertyChangedBackAndForth_encodedEveryTime() {
+        Label label = createLabel(true);
+        ComponentTest.syncToClient(label);
+
+        label.setValue("changed");
+        ComponentTest.assertEncodedStateProperties(label,
+                "Changed value should be encoded", "text");
+
+        label.setValue("Label");
+        ComponentTest.assertEncodedStateProperties(label,
+                "Reverted value should be encoded", "text");
+    }
+
+    @Test
+    public void clientSideReset_fullStateEncoded() {
+        Label label = createLabel(true);
+        ComponentTest.syncToClient(label);
+        label.setCaption("Caption");
+        label.encodeState();
+
+        label.getUI().getConnectorTracker().markAllClientSidesUninitialized();
+
+        Label reference = createLabel(false);
+        reference.setCaption("Caption");
+
+        assertSameDiff(reference.encodeState(), label.encodeState());
+    }
+
+    @Test
+    public void sequenceOfChanges_sameDiffsAsFullEncoding() {
+        Label incremental = createLabel(true);
+        Label full = createLabel(false);
+
+        assertSameDiff(full.encodeState(), incremental.encodeState());
+
+        applyAndCompare(full, incremental, label -> label.setCaption("Foo"));
+        applyAndCompare(full, incremental, label -> {
+            label.setContentMode(ContentMode.HTML);
+            label.addStyleName("bar");
+        });
+        applyAndCompare(full, incremental, label -> label.setWidth("100px"));
+        applyAndCompare(full, incremental, label -> {
+            label.setCaption(null);
+            label.setDescription("Description");
+        });
+        applyAndCompare(full, incremental, label -> {
+            label.removeStyleName("bar");
+            label.setEnabled(false);
+        });
+        applyAndCompare(full, incremental, label -> label.setCaption("Foo"));
+    }
+
+    @Test
+    public void clientChangeRevertedByListener_revertedValueEncoded() {
+        CheckBox checkBox = new CheckBox();
+        createUI(true).setContent(checkBox);
+        ComponentTest.syncToClient(checkBox);
+        checkBox.addValueChangeListener(event -> checkBox.setValue(false));
+
+        ServerRpcManager.getRpcProxy(checkBox, CheckBoxServerRpc.class)
+                .setChecked(true, new MouseEventDetails());
+
+        Assert.assertFalse(checkBox.getValue());
+        JsonObject encodedState = checkBox.encodeState();
+        Assert.assertTrue("Reverted value should be encoded",
+                encodedState.hasKey("checked"));
+        Assert.assertFalse(encodedState.getBoolean("checked"));
+    }
+
+    @Test
+    public void diffStateModifiedInPlace_propertyEncodedAgain() {
+        Label label = createLabel(true);
+        label.setCaption("Caption");
+        ComponentTest.syncToClient(label);
+
+        label.getUI().getConnectorTracker().getDiffState(label).put("caption",
+                "From client");
+
+        label.markAsDirty();
+        JsonObject encodedState = label.encodeState();
+        Assert.assertEquals("Caption", encodedState.getString("caption"));
+    }
+
+    private static void applyAndCompare(Label full, Label incremental,
+            Consumer<Label> change) {
+        change.accept(full);
+        change.accept(incremental);
+        assertSameDiff(full.encodeState(), incremental.encodeState());
+    }
+
+    private static void assertSameDiff(JsonObject expected,
+            JsonObject actual) {
+        Assert.assertTrue(
+                "Expected " + expected.toJson() + " but got " + actual.toJson(),
+                JsonCodec.jsonEquals(expected, actual));
+    }
+
+    private static Label createLabel(boolean incremental) {
+        Label label = new Label("Label");
+        createUI(incremental).setContent(label);
+        return label;
+    }
+
+    private static UI createUI(boolean incremental) {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setIncrementalStateEncodingEnabled(incremental);
+
+        VaadinSession session = new AlwaysLockedVaadinSession(null);
+        session.setConfiguration(configuration);
+
+        return new MockUI(session);
+    }
+}
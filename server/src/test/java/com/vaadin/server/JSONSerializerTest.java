@@ -17,6 +17,8 @@ package com.vaadin.server;
  */
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +33,7 @@ import com.vaadin.shared.ui.splitpanel.AbstractSplitPanelState;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
+import elemental.json.JsonObject;
 import elemental.json.JsonValue;
 
 /**
@@ -103,6 +106,66 @@ public class JSONSerializerTest {
                 .decodeInternalType(UidlValue.class, true, inputArray, null);
     }
 
+    @Test
+    public void testEncodeObjectDiffOnlyContainsChangedProperties() {
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+        state.width = "100px";
+
+        JsonObject initial = (JsonObject) JsonCodec
+                .encode(state, null, AbstractSplitPanelState.class, null)
+                .getEncodedValue();
+
+        state.caption = "New caption";
+        EncodeResult result = JsonCodec.encode(state, initial,
+                AbstractSplitPanelState.class, null);
+
+        JsonObject diff = (JsonObject) result.getDiff();
+        Assert.assertArrayEquals(new String[] { "caption" }, diff.keys());
+        Assert.assertEquals("New caption", diff.getString("caption"));
+
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        Assert.assertEquals(initial.keys().length, encoded.keys().length);
+        Assert.assertEquals("New caption", encoded.getString("caption"));
+        Assert.assertEquals("100px", encoded.getString("width"));
+    }
+
+    @Test
+    public void testEncodeUnchangedObjectHasEmptyDiff() {
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+        state.styles = new ArrayList<>(Arrays.asList("a", "b"));
+
+        JsonObject initial = (JsonObject) JsonCodec
+                .encode(state, null, AbstractSplitPanelState.class, null)
+                .getEncodedValue();
+        EncodeResult result = JsonCodec.encode(state, initial,
+                AbstractSplitPanelState.class, null);
+
+        Assert.assertEquals(0, ((JsonObject) result.getDiff()).keys().length);
+        Assert.assertTrue(
+                JsonCodec.jsonEquals(initial, result.getEncodedValue()));
+    }
+
+    @Test
+    public void testEncodeObjectWithNullReferenceIncludesAllProperties()
+            throws Exception {
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+
+        EncodeResult result = JsonCodec.encode(state, null,
+                AbstractSplitPanelState.class, null);
+
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        JsonObject diff = (JsonObject) result.getDiff();
+        Assert.assertEquals(
+                JsonCodec.getProperties(AbstractSplitPanelState.class).size(),
+                encoded.keys().length);
+        // null values are not included in the diff when there is no reference
+        Assert.assertFalse(diff.hasKey("styles"));
+        Assert.assertEquals("Caption", diff.getString("caption"));
+    }
+
     private void ensureDecodedCorrectly(Object original, JsonValue encoded,
             Type type) throws Exception {
         Object serverSideDecoded = JsonCodec.decodeInternalOrCustomType(type,
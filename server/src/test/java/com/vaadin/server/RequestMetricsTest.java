@@ -0,0 +1,171 @@
+package com.vaadin.server;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.communication.UidlRequestHandler;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.server.metrics.JmxRequestMetrics;
+import com.vaadin.server.metrics.RequestMetrics;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class RequestMetricsTest {
+
+    private final MBeanServer server = ManagementFactory
+            .getPlatformMBeanServer();
+
+    private VaadinService service;
+    private JmxRequestMetrics metrics;
+    private ObjectName objectName;
+
+    @Before
+    public void setup() throws Exception {
+        service = createService(null);
+        metrics = (JmxRequestMetrics) service.getRequestMetrics();
+        objectName = metrics.getObjectName();
+    }
+
+    private static VaadinService createService(String contextPath)
+            throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(Constants.SERVLET_PARAMETER_REQUEST_METRICS,
+                "true");
+        MockServletContext context = new MockServletContext() {
+            @Override
+            public String getContextPath() {
+                return contextPath;
+            }
+        };
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters) {
+            @Override
+            public ServletContext getServletContext() {
+                return context;
+            }
+        });
+        return servlet.getService();
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+    }
+
+    @Test
+    public void metricsDisabledByDefault() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+
+        Assert.assertSame(RequestMetrics.NONE,
+                servlet.getService().getRequestMetrics());
+        servlet.destroy();
+    }
+
+    @Test
+    public void registeredUntilServiceDestroyed() throws Exception {
+        Assert.assertTrue(server.isRegistered(objectName));
+        Assert.assertEquals(0L,
+                server.getAttribute(objectName, "ChangeMessageCount"));
+
+        service.destroy();
+        Assert.assertFalse(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void contextPathIncludedInName() throws Exception {
+        VaadinService other = createService("");
+        try {
+            ObjectName otherName = ((JmxRequestMetrics) other
+                    .getRequestMetrics()).getObjectName();
+            Assert.assertEquals(
+                    JmxRequestMetrics.createObjectName("/", "Mock Servlet"),
+                    otherName);
+            Assert.assertTrue(server.isRegistered(otherName));
+        } finally {
+            other.destroy();
+        }
+    }
+
+    @Test
+    public void sameName_otherServiceRegisteredSeparately() throws Exception {
+        VaadinService other = createService(null);
+        ObjectName otherName = ((JmxRequestMetrics) other.getRequestMetrics())
+                .getObjectName();
+        Assert.assertNotEquals(objectName, otherName);
+        Assert.assertEquals("2", otherName.getKeyProperty("instance"));
+
+        other.destroy();
+        Assert.assertFalse(server.isRegistered(otherName));
+        Assert.assertTrue(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void sessionLock_waitAndHoldTimeRecorded() throws Exception {
+        VaadinSession session = new MockVaadinSession(service);
+        session.lock();
+        session.lock();
+        session.unlock();
+        session.unlock();
+
+        Assert.assertEquals(1, metrics.getSessionLockWaitTime().getCount());
+        Assert.assertEquals(1, metrics.getSessionLockHoldTime().getCount());
+
+        CompositeData holdTime = (CompositeData) server
+                .getAttribute(objectName, "SessionLockHoldTime");
+        Assert.assertEquals(1L, holdTime.get("count"));
+    }
+
+    @Test
+    public void uidlWritten_connectorsAndBytesRecorded() throws Exception {
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.setConfiguration(service.getDeploymentConfiguration());
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(session);
+        ui.setContent(new Label("Unicode åäö €"));
+
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+
+        Assert.assertEquals(1, metrics.getChangeMessageCount());
+        Assert.assertEquals(2, metrics.getDirtyConnectorCount());
+        Assert.assertEquals(
+                writer.toString().getBytes(StandardCharsets.UTF_8).length,
+                metrics.getEncodedBytes());
+    }
+
+    @Test
+    public void reset_metricsCleared() {
+        metrics.requestHandled(UidlRequestHandler.class, 1000000);
+        metrics.rpcInvoked(Label.class);
+        Assert.assertEquals(1, metrics.getHandlerLatencies()
+                .get(UidlRequestHandler.class.getName()).getCount());
+        Assert.assertEquals(Long.valueOf(1),
+                metrics.getRpcCounts().get(Label.class.getName()));
+
+        metrics.reset();
+        Assert.assertTrue(metrics.getHandlerLatencies().isEmpty());
+        Assert.assertTrue(metrics.getRpcCounts().isEmpty());
+    }
+}
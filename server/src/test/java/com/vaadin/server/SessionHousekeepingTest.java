@@ -0,0 +1,167 @@
+package com.vaadin.server;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class SessionHousekeepingTest {
+
+    private VaadinService service;
+    private MockVaadinSession session;
+    private UI ui;
+
+    @After
+    public void tearDown() {
+        service.destroy();
+        CurrentInstance.clearAll();
+    }
+
+    private void setup(int housekeepingInterval) throws ServletException {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_SESSION_HOUSEKEEPING_INTERVAL,
+                Integer.toString(housekeepingInterval));
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = servlet.getService();
+
+        session = new MockVaadinSession(service);
+
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getId()).thenReturn("id");
+        Mockito.when(wrappedSession
+                .getAttribute(service.getServiceName() + ".lock"))
+                .thenReturn(session.getLockInstance());
+
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        session.lock();
+        try {
+            session.setConfiguration(service.getDeploymentConfiguration());
+            session.refreshTransients(wrappedSession, service);
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private void endRequest() {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getAttribute("requestStartTime"))
+                .thenReturn(System.nanoTime());
+        VaadinSession.setCurrent(session);
+        service.requestEnd(request, null, session);
+    }
+
+    private boolean isUIRemoved() {
+        session.lock();
+        try {
+            return session.getUIs().isEmpty();
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void housekeepingDisabled_inactiveUIRemovedAtRequestEnd()
+            throws ServletException {
+        setup(0);
+        ui.setLastHeartbeatTimestamp(0);
+
+        endRequest();
+
+        Assert.assertTrue(isUIRemoved());
+    }
+
+    @Test
+    public void housekeepingEnabled_inactiveUIRemovedBySweep()
+            throws ServletException {
+        setup(3600);
+        ui.setLastHeartbeatTimestamp(0);
+
+        endRequest();
+        Assert.assertFalse(isUIRemoved());
+
+        service.runSessionHousekeeping();
+        Assert.assertTrue(isUIRemoved());
+    }
+
+    @Test
+    public void housekeepingEnabled_closedCurrentUIRemovedAtRequestEnd()
+            throws ServletException {
+        setup(3600);
+        session.lock();
+        try {
+            ui.close();
+        } finally {
+            session.unlock();
+        }
+
+        UI.setCurrent(ui);
+        endRequest();
+
+        Assert.assertTrue(isUIRemoved());
+    }
+
+    @Test
+    public void housekeepingEnabled_requestDurationTracked()
+            throws ServletException {
+        setup(3600);
+
+        endRequest();
+
+        session.lock();
+        try {
+            Assert.assertTrue(session.getLastRequestDuration() >= 0);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void sweep_sessionLockedByOtherThread_skipped() throws Exception {
+        setup(3600);
+        ui.setLastHeartbeatTimestamp(0);
+        endRequest();
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                session.unlock();
+            }
+        });
+        holder.start();
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        service.runSessionHousekeeping();
+        release.countDown();
+        holder.join();
+        Assert.assertFalse(isUIRemoved());
+
+        service.runSessionHousekeeping();
+        Assert.assertTrue(isUIRemoved());
+    }
+}
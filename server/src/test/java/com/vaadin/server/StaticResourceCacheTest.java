@@ -0,0 +1,259 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class StaticResourceCacheTest {
+
+    private static final String SCRIPT = "/VAADIN/script.js";
+    private static final String LARGE = "/VAADIN/large.bin";
+
+    private Path root;
+    private final AtomicInteger lookups = new AtomicInteger();
+    private StaticResourceCache cache;
+    private byte[] largeContent;
+
+    private final Map<String, String> headers = new HashMap<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status;
+    private boolean allowPrecompressed = true;
+
+    private class TestServlet extends VaadinServlet {
+        private final ServletContext context = Mockito
+                .mock(ServletContext.class);
+
+        private TestServlet() {
+            Mockito.when(context.getMimeType(SCRIPT))
+                    .thenReturn("application/javascript");
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return context;
+        }
+
+        @Override
+        protected URL findResourceURL(String filename) throws IOException {
+            lookups.incrementAndGet();
+            File file = new File(root.toFile(), filename);
+            return file.exists() ? file.toURI().toURL() : null;
+        }
+
+        @Override
+        protected int getCacheTime(String filename) {
+            return 0;
+        }
+
+        @Override
+        protected boolean allowServePrecompressedResource(
+                HttpServletRequest request, String url) {
+            return allowPrecompressed;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("static-resource-cache");
+        Files.createDirectories(root.resolve("VAADIN"));
+        write(SCRIPT, "console.log('Hello');");
+        write(SCRIPT + ".gz", "gzipped");
+        write(SCRIPT + ".br", "brotli");
+
+        largeContent = new byte[StaticResourceCache.MAX_IN_MEMORY_SIZE * 2];
+        new Random(42).nextBytes(largeContent);
+        Files.write(root.resolve(LARGE.substring(1)), largeContent);
+
+        cache = new StaticResourceCache(new TestServlet(), true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private void write(String filename, String content) throws IOException {
+        Files.write(root.resolve(filename.substring(1)),
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean serve(String filename, String... requestHeaders)
+            throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("GET");
+        for (int i = 0; i < requestHeaders.length; i += 2) {
+            Mockito.when(request.getHeader(requestHeaders[i]))
+                    .thenReturn(requestHeaders[i + 1]);
+        }
+        Mockito.when(request.getDateHeader(Mockito.anyString()))
+                .thenReturn(-1L);
+
+        headers.clear();
+        body.reset();
+        status = HttpServletResponse.SC_OK;
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.doAnswer(invocation -> headers.put(
+                (String) invocation.getArguments()[0],
+                (String) invocation.getArguments()[1])).when(response)
+                .setHeader(Mockito.anyString(), Mockito.anyString());
+        Mockito.doAnswer(invocation -> headers.put("Content-Length",
+                String.valueOf(invocation.getArguments()[0]))).when(response)
+                .setContentLength(Mockito.anyInt());
+        Mockito.doAnswer(invocation -> headers.put("Content-Type",
+                (String) invocation.getArguments()[0])).when(response)
+                .setContentType(Mockito.anyString());
+        Mockito.doAnswer(invocation -> status = (Integer) invocation
+                .getArguments()[0]).when(response).setStatus(Mockito.anyInt());
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        body.write(b);
+                    }
+                });
+
+        return cache.serve(filename, request, response);
+    }
+
+    private String bodyString() {
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void serve_resolvedOnce() throws IOException {
+        Assert.assertTrue(serve(SCRIPT));
+        Assert.assertEquals(HttpServletResponse.SC_OK, status);
+        Assert.assertEquals("console.log('Hello');", bodyString());
+        Assert.assertEquals("21", headers.get("Content-Length"));
+        Assert.assertEquals("application/javascript",
+                headers.get("Content-Type"));
+        Assert.assertEquals("Accept-Encoding", headers.get("Vary"));
+        Assert.assertEquals(3, lookups.get());
+
+        Assert.assertTrue(serve(SCRIPT));
+        Assert.assertEquals("console.log('Hello');", bodyString());
+        Assert.assertEquals(3, lookups.get());
+        Assert.assertTrue(cache.getMemoryUsage() > 0);
+    }
+
+    @Test
+    public void serve_notFound_notCached() throws IOException {
+        Assert.assertFalse(serve("/VAADIN/missing.js"));
+        Assert.assertFalse(serve("/VAADIN/missing.js"));
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void serve_precompressedVariants() throws IOException {
+        serve(SCRIPT, "Accept-Encoding", "gzip, deflate, br");
+        Assert.assertEquals("brotli", bodyString());
+        Assert.assertEquals("br", headers.get("Content-Encoding"));
+        String brotliTag = headers.get("ETag");
+
+        serve(SCRIPT, "Accept-Encoding", "gzip, br;q=0");
+        Assert.assertEquals("gzipped", bodyString());
+        Assert.assertEquals("gzip", headers.get("Content-Encoding"));
+        Assert.assertNotEquals(brotliTag, headers.get("ETag"));
+
+        serve(SCRIPT, "Accept-Encoding", "identity");
+        Assert.assertEquals("console.log('Hello');", bodyString());
+        Assert.assertNull(headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void serve_precompressedNotAllowed_identityServed()
+            throws IOException {
+        allowPrecompressed = false;
+
+        serve(SCRIPT, "Accept-Encoding", "gzip, deflate, br");
+        Assert.assertEquals("console.log('Hello');", bodyString());
+        Assert.assertNull(headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void serve_ifNoneMatch_notModified() throws IOException {
+        serve(SCRIPT);
+        String eTag = headers.get("ETag");
+        Assert.assertTrue(eTag.startsWith("\""));
+
+        serve(SCRIPT, "If-None-Match", "\"other\", " + eTag);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, status);
+        Assert.assertEquals(0, body.size());
+
+        serve(SCRIPT, "If-None-Match", "\"other\"");
+        Assert.assertEquals(HttpServletResponse.SC_OK, status);
+    }
+
+    @Test
+    public void serve_range() throws IOException {
+        serve(SCRIPT, "Range", "bytes=8-10", "Accept-Encoding", "br");
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, status);
+        Assert.assertEquals("log", bodyString());
+        Assert.assertEquals("bytes 8-10/21", headers.get("Content-Range"));
+        Assert.assertNull(headers.get("Content-Encoding"));
+
+        serve(SCRIPT, "Range", "bytes=30-");
+        Assert.assertEquals(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                status);
+        Assert.assertEquals("bytes */21", headers.get("Content-Range"));
+    }
+
+    @Test
+    public void serve_ifRangeMismatch_wholeResource() throws IOException {
+        serve(SCRIPT);
+        String eTag = headers.get("ETag");
+
+        serve(SCRIPT, "Range", "bytes=-3", "If-Range", eTag);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, status);
+        Assert.assertEquals("');", bodyString());
+
+        serve(SCRIPT, "Range", "bytes=-3", "If-Range", "\"other\"");
+        Assert.assertEquals(HttpServletResponse.SC_OK, status);
+        Assert.assertEquals("console.log('Hello');", bodyString());
+    }
+
+    @Test
+    public void serve_largeFile_transferredFromFile() throws IOException {
+        serve(LARGE);
+        Assert.assertArrayEquals(largeContent, body.toByteArray());
+        Assert.assertEquals(0, cache.getMemoryUsage());
+
+        serve(LARGE, "Range", "bytes=1000-199999");
+        Assert.assertArrayEquals(
+                Arrays.copyOfRange(largeContent, 1000, 200000),
+                body.toByteArray());
+    }
+
+    @Test
+    public void serve_modifiedFile_resolvedAgain() throws IOException {
+        serve(SCRIPT);
+        write(SCRIPT, "console.log('Changed');");
+
+        serve(SCRIPT);
+        Assert.assertEquals("console.log('Changed');", bodyString());
+        Assert.assertEquals(6, lookups.get());
+    }
+}
@@ -0,0 +1,262 @@
+package com.vaadin.server;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class UILockingTest {
+
+    private final ExecutorService executor = Executors
+            .newSingleThreadExecutor();
+    private final ExecutorService otherExecutor = Executors
+            .newSingleThreadExecutor();
+
+    private MockDeploymentConfiguration configuration;
+    private MockVaadinSession session;
+    private UI ui1;
+    private UI ui2;
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    @Before
+    public void setup() throws ServiceException {
+        configuration = new MockDeploymentConfiguration();
+        configuration.setUILockingEnabled(true);
+
+        VaadinServlet servlet = new VaadinServlet();
+        session = new MockVaadinSession(
+                new VaadinServletService(servlet, configuration));
+        session.lock();
+        try {
+            session.setConfiguration(configuration);
+        } finally {
+            session.unlock();
+        }
+
+        ui1 = createUI();
+        ui2 = createUI();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        otherExecutor.shutdownNow();
+        CurrentInstance.clearAll();
+    }
+
+    private UI createUI() {
+        UI ui = new TestUI();
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+
+    /*
+     * Locks the UI in another thread and keeps it locked until the returned
+     * latch is released.
+     */
+    private CountDownLatch holdInOtherThread(UI ui)
+            throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            session.lockUI(ui);
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                session.unlockUI(ui);
+            }
+            return null;
+        });
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private <T> T inOtherThread(Callable<T> task) throws InterruptedException,
+            ExecutionException, TimeoutException {
+        return otherExecutor.submit(task).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void differentUIs_lockedConcurrently() throws Exception {
+        CountDownLatch release = holdInOtherThread(ui1);
+
+        Assert.assertTrue(session.tryLockUI(ui2));
+        try {
+            Assert.assertFalse(session.hasLock());
+            Assert.assertTrue(session.hasUILock(ui2));
+            Assert.assertFalse(session.hasUILock(ui1));
+            Assert.assertFalse(session.hasExclusiveLock());
+            Assert.assertFalse(session.tryLockUI(ui1));
+        } finally {
+            session.unlockUI(ui2);
+            release.countDown();
+        }
+        Assert.assertFalse(session.hasLock());
+    }
+
+    @Test
+    public void sessionLock_waitsForUIHolders() throws Exception {
+        CountDownLatch release = holdInOtherThread(ui1);
+
+        Assert.assertFalse(inOtherThread(() -> session.tryLock()));
+
+        release.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(session.tryLock());
+        try {
+            Assert.assertTrue(session.hasExclusiveLock());
+            Assert.assertFalse(inOtherThread(() -> session.tryLockUI(ui2)));
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockSession_whileHoldingUILock_throws() {
+        session.lockUI(ui1);
+        try {
+            session.lock();
+        } finally {
+            session.unlockUI(ui1);
+        }
+    }
+
+    @Test
+    public void lockUI_whileHoldingSessionLock_reentrant() {
+        session.lock();
+        try {
+            session.lockUI(ui1);
+            try {
+                Assert.assertTrue(session.hasExclusiveLock());
+            } finally {
+                session.unlockUI(ui1);
+            }
+            Assert.assertTrue(session.hasExclusiveLock());
+        } finally {
+            session.unlock();
+        }
+        Assert.assertFalse(session.hasLock());
+    }
+
+    @Test
+    public void lockUIs_inReverseOrder_assertionError() {
+        boolean assertionsEnabled = false;
+        assert assertionsEnabled = true;
+        Assume.assumeTrue(assertionsEnabled);
+
+        session.lockUI(ui2);
+        try {
+            session.lockUI(ui1);
+            session.unlockUI(ui1);
+            Assert.fail("Locking UIs in reverse order should fail");
+        } catch (AssertionError expected) {
+            Assert.assertTrue(expected.getMessage().contains("deadlock"));
+        } finally {
+            session.unlockUI(ui2);
+        }
+
+        session.lockUI(ui1);
+        try {
+            session.lockUI(ui2);
+            session.unlockUI(ui2);
+        } finally {
+            session.unlockUI(ui1);
+        }
+    }
+
+    @Test
+    public void sharedState_accessibleWhileOtherUILocked() throws Exception {
+        CountDownLatch release = holdInOtherThread(ui1);
+        try {
+            session.lockUI(ui2);
+            try {
+                session.setAttribute("foo", "bar");
+                Assert.assertSame(ui1, session.getUIById(ui1.getUIId()));
+            } finally {
+                session.unlockUI(ui2);
+            }
+            Assert.assertEquals("bar",
+                    inOtherThread(() -> session.getAttribute("foo")));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void access_runsWithUILock() throws Exception {
+        AtomicBoolean uiLocked = new AtomicBoolean();
+        AtomicBoolean sessionLocked = new AtomicBoolean(true);
+
+        Future<Void> future = ui1.access(() -> {
+            uiLocked.set(ui1.getLockInstance().isHeldByCurrentThread());
+            sessionLocked.set(session.hasExclusiveLock());
+        });
+        future.get(5, TimeUnit.SECONDS);
+
+        Assert.assertTrue(uiLocked.get());
+        Assert.assertFalse(sessionLocked.get());
+    }
+
+    @Test
+    public void access_uiLockedByOtherThread_runOnUnlock() throws Exception {
+        CountDownLatch release = holdInOtherThread(ui1);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<Void> future = ui1.access(() -> ran.set(true));
+        Assert.assertFalse(ran.get());
+
+        // Other UIs are not blocked by the pending task
+        ui2.access(() -> {
+        }).get(5, TimeUnit.SECONDS);
+
+        release.countDown();
+        future.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(ran.get());
+    }
+
+    @Test
+    public void uiLockingDisabled_lockUILocksSession() {
+        configuration.setUILockingEnabled(false);
+
+        session.lockUI(ui1);
+        try {
+            Assert.assertTrue(session.hasExclusiveLock());
+            Assert.assertFalse(ui1.getLockInstance().isHeldByCurrentThread());
+        } finally {
+            session.unlockUI(ui1);
+        }
+        Assert.assertFalse(session.hasLock());
+    }
+}
@@ -16,22 +16,34 @@
 package com.vaadin.server.communication;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.FileChannelOutputStream;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
+import com.vaadin.server.StreamVariable.StreamingProgressEvent;
+import com.vaadin.server.UploadException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
@@ -165,4 +177,72 @@ public class FileUploadHandlerTest {
 
         verifyZeroInteractions(responseOutput);
     }
+
+    @Test
+    public void progressEvents_coalescedThroughUiAccess()
+            throws UploadException {
+        handler = new FileUploadHandler() {
+            @Override
+            protected int getProgressEventInterval() {
+                return 0;
+            }
+        };
+        List<Runnable> accessTasks = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            accessTasks.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        }).when(ui).access(Mockito.any(Runnable.class));
+        when(streamVariable.listenProgress()).thenReturn(true);
+
+        // Read in chunks of 4 kB
+        byte[] data = new byte[20000];
+        handler.streamToReceiver(session, ui, new ByteArrayInputStream(data),
+                streamVariable, "file", "type", data.length);
+
+        // Only one task is queued while the UI is busy
+        Assert.assertEquals(1, accessTasks.size());
+        ArgumentCaptor<StreamingProgressEvent> progress = ArgumentCaptor
+                .forClass(StreamingProgressEvent.class);
+        verify(streamVariable).onProgress(progress.capture());
+        Assert.assertEquals(data.length,
+                progress.getValue().getBytesReceived());
+
+        // Nothing is reported after the upload has finished
+        accessTasks.get(0).run();
+        verify(streamVariable, times(1))
+                .onProgress(Mockito.any(StreamingProgressEvent.class));
+    }
+
+    @Test
+    public void fileChannelOutputStream_writtenWithBufferSize()
+            throws IOException, UploadException {
+        Path file = Files.createTempFile("upload", ".bin");
+        try {
+            FileChannelOutputStream out = FileChannelOutputStream.open(file,
+                    8192);
+            when(streamVariable.getOutputStream()).thenReturn(out);
+
+            byte[] data = new byte[100000];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+            List<Integer> readSizes = new ArrayList<>();
+            InputStream in = new ByteArrayInputStream(data) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    readSizes.add(len);
+                    return super.read(b, off, len);
+                }
+            };
+
+            handler.streamToReceiver(session, ui, in, streamVariable, "file",
+                    "type", data.length);
+
+            Assert.assertArrayEquals(data, Files.readAllBytes(file));
+            Assert.assertEquals(Integer.valueOf(8192), readSizes.get(0));
+            Assert.assertFalse(out.getChannel().isOpen());
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package com.vaadin.server.communication;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class HeartbeatHandlerTest {
+
+    private final ExecutorService executor = Executors
+            .newSingleThreadExecutor();
+
+    private MockVaadinSession session;
+    private UI ui;
+
+    @Before
+    public void setup() throws ServiceException {
+        session = new MockVaadinSession(new VaadinServletService(
+                new VaadinServlet(), new MockDeploymentConfiguration()));
+
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+        ui.setLastHeartbeatTimestamp(0);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        CurrentInstance.clearAll();
+    }
+
+    private VaadinRequest createRequest(String uiId) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo())
+                .thenReturn("/" + ApplicationConstants.HEARTBEAT_PATH + "/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn(uiId);
+        return request;
+    }
+
+    @Test
+    public void heartbeat_sessionLockedByOtherThread_handledWithoutWaiting()
+            throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                session.unlock();
+            }
+            return null;
+        });
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try {
+            VaadinResponse response = Mockito.mock(VaadinResponse.class);
+            Assert.assertTrue(new HeartbeatHandler().handleRequest(session,
+                    createRequest(String.valueOf(ui.getUIId())), response));
+
+            Assert.assertNotEquals(0, ui.getLastHeartbeatTimestamp());
+            Mockito.verify(response).setHeader("Cache-Control", "no-cache");
+            Assert.assertSame(ui, UI.getCurrent());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void heartbeat_unknownUI_notFound() throws Exception {
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+        new HeartbeatHandler().handleRequest(session, createRequest("42"),
+                response);
+
+        Mockito.verify(response).sendError(
+                Mockito.eq(HttpServletResponse.SC_NOT_FOUND),
+                Mockito.anyString());
+        Assert.assertEquals(0, ui.getLastHeartbeatTimestamp());
+    }
+}
@@ -0,0 +1,229 @@
+package com.vaadin.server.communication;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.shared.ui.ui.Transport;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class PushCoalescerTest {
+
+    private VaadinServletService service;
+    private MockVaadinSession session;
+    private UI ui;
+    private Label label;
+
+    private final AtomicInteger pushCount = new AtomicInteger();
+
+    private class CountingPushConnection implements PushConnection {
+        @Override
+        public void push() {
+            pushCount.incrementAndGet();
+            ui.getConnectorTracker().markAllConnectorsClean();
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+
+    @Before
+    public void setup() throws ServiceException {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        service = new VaadinServletService(new VaadinServlet(), configuration);
+        session = new MockVaadinSession(service);
+
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        label = new Label();
+        session.lock();
+        try {
+            session.setConfiguration(configuration);
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+            ui.setContent(label);
+            ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+            ui.setPushConnection(new CountingPushConnection());
+        } finally {
+            session.unlock();
+        }
+        pushCount.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+        CurrentInstance.clearAll();
+    }
+
+    private void updateLabel(String value) {
+        session.lock();
+        try {
+            label.setValue(value);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private void awaitPushCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pushCount.get() < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, pushCount.get());
+    }
+
+    @Test
+    public void noCoalescingWindow_pushedOnEveryUnlock() {
+        for (int i = 0; i < 5; i++) {
+            updateLabel("Value " + i);
+        }
+
+        Assert.assertEquals(5, pushCount.get());
+        Assert.assertEquals(0,
+                service.getPushCoalescer().getScheduledPushCount());
+    }
+
+    @Test
+    public void coalescingWindow_changesPushedOnce() throws Exception {
+        session.lock();
+        try {
+            ui.getPushConfiguration().setCoalescingWindow(100);
+        } finally {
+            session.unlock();
+        }
+
+        for (int i = 0; i < 5; i++) {
+            updateLabel("Value " + i);
+        }
+        Assert.assertEquals(0, pushCount.get());
+
+        awaitPushCount(1);
+        PushCoalescer coalescer = service.getPushCoalescer();
+        Assert.assertEquals(1, coalescer.getScheduledPushCount());
+        Assert.assertEquals(4, coalescer.getCoalescedPushCount());
+
+        // A change after the push starts a new window
+        updateLabel("Another value");
+        awaitPushCount(2);
+        Assert.assertEquals(2, coalescer.getScheduledPushCount());
+    }
+
+    @Test
+    public void coalescingWindow_noChanges_nothingScheduled() {
+        session.lock();
+        try {
+            ui.getPushConfiguration().setCoalescingWindow(100);
+        } finally {
+            session.unlock();
+        }
+
+        session.lock();
+        session.unlock();
+
+        Assert.assertEquals(0,
+                service.getPushCoalescer().getScheduledPushCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCoalescingWindow_throws() {
+        ui.getPushConfiguration().setCoalescingWindow(-1);
+    }
+
+    @Test
+    public void legacyPushConfiguration_noCoalescing() {
+        PushConfiguration configuration = new LegacyPushConfiguration();
+
+        configuration.setCoalescingWindow(0);
+
+        Assert.assertEquals(0, configuration.getCoalescingWindow());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void legacyPushConfiguration_setCoalescingWindow_throws() {
+        new LegacyPushConfiguration().setCoalescingWindow(100);
+    }
+
+    /**
+     * A configuration written before coalescing was introduced.
+     */
+    private static class LegacyPushConfiguration implements PushConfiguration {
+        @Override
+        public PushMode getPushMode() {
+            return PushMode.DISABLED;
+        }
+
+        @Override
+        public void setPushMode(PushMode pushMode) {
+        }
+
+        @Override
+        public Transport getTransport() {
+            return Transport.WEBSOCKET;
+        }
+
+        @Override
+        public void setTransport(Transport transport) {
+        }
+
+        @Override
+        public Transport getFallbackTransport() {
+            return Transport.LONG_POLLING;
+        }
+
+        @Override
+        public void setFallbackTransport(Transport fallbackTransport) {
+        }
+
+        @Override
+        public String getParameter(String parameter) {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getParameterNames() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void setParameter(String parameter, String value) {
+        }
+
+        @Override
+        public void setPushUrl(String pushUrl) {
+        }
+
+        @Override
+        public String getPushUrl() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.vaadin.server.communication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.metrics.JmxRequestMetrics;
+import com.vaadin.server.metrics.RequestMetrics;
+
+public class ResponseCompressorTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private VaadinRequest createRequest(String acceptEncoding) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn(acceptEncoding);
+        return request;
+    }
+
+    private VaadinResponse createResponse() throws IOException {
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+        return response;
+    }
+
+    private static byte[] createData(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append("{\"id\":\"").append(i).append("\"},");
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    @Test
+    public void largeResponse_gzipAccepted_compressed() throws IOException {
+        ResponseCompressor compressor = new ResponseCompressor(1024,
+                RequestMetrics.NONE);
+        VaadinResponse response = createResponse();
+        byte[] data = createData(100000);
+
+        Assert.assertTrue(compressor.writeCompressed(
+                createRequest("gzip, deflate, br"), response, data));
+
+        byte[] compressed = output.toByteArray();
+        Assert.assertTrue(compressed.length < data.length);
+        Assert.assertArrayEquals(data, gunzip(compressed));
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response).setContentLength(compressed.length);
+    }
+
+    @Test
+    public void pooledDeflaterReused_outputStillValid() throws IOException {
+        ResponseCompressor compressor = new ResponseCompressor(0,
+                RequestMetrics.NONE);
+        for (int length : new int[] { 300000, 10, 5000 }) {
+            output.reset();
+            byte[] data = createData(length);
+            Assert.assertTrue(compressor.writeCompressed(createRequest("gzip"),
+                    createResponse(), data));
+            Assert.assertArrayEquals(data, gunzip(output.toByteArray()));
+        }
+    }
+
+    @Test
+    public void smallResponse_notCompressed() throws IOException {
+        ResponseCompressor compressor = new ResponseCompressor(1024,
+                RequestMetrics.NONE);
+        VaadinResponse response = createResponse();
+
+        Assert.assertFalse(compressor.writeCompressed(createRequest("gzip"),
+                response, createData(1023)));
+
+        Assert.assertEquals(0, output.size());
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+    }
+
+    @Test
+    public void disabled_nothingWritten() throws IOException {
+        ResponseCompressor compressor = new ResponseCompressor(-1,
+                RequestMetrics.NONE);
+        VaadinResponse response = createResponse();
+
+        Assert.assertFalse(compressor.isEnabled());
+        Assert.assertFalse(compressor.writeCompressed(createRequest("gzip"),
+                response, createData(100000)));
+
+        Assert.assertEquals(0, output.size());
+        Mockito.verifyZeroInteractions(response);
+    }
+
+    @Test
+    public void acceptEncoding_parsed() {
+        ResponseCompressor compressor = new ResponseCompressor(0,
+                RequestMetrics.NONE);
+
+        Assert.assertTrue(compressor.isGzipAccepted(createRequest("gzip")));
+        Assert.assertTrue(compressor
+                .isGzipAccepted(createRequest("deflate, GZIP;q=0.5")));
+        Assert.assertTrue(compressor.isGzipAccepted(createRequest("x-gzip")));
+        Assert.assertTrue(compressor.isGzipAccepted(createRequest("*")));
+
+        Assert.assertFalse(compressor.isGzipAccepted(createRequest(null)));
+        Assert.assertFalse(compressor.isGzipAccepted(createRequest("")));
+        Assert.assertFalse(
+                compressor.isGzipAccepted(createRequest("identity, br")));
+        Assert.assertFalse(
+                compressor.isGzipAccepted(createRequest("gzip;q=0")));
+        Assert.assertFalse(
+                compressor.isGzipAccepted(createRequest("*, gzip;q=0.0")));
+        Assert.assertFalse(compressor.isGzipAccepted(createRequest("*;q=0")));
+    }
+
+    @Test
+    public void compressedResponse_reportedToMetrics() throws IOException {
+        JmxRequestMetrics metrics = new JmxRequestMetrics();
+        ResponseCompressor compressor = new ResponseCompressor(1024, metrics);
+        byte[] data = createData(50000);
+
+        compressor.writeCompressed(createRequest("gzip"), createResponse(),
+                data);
+        compressor.writeCompressed(createRequest(null), createResponse(),
+                data);
+
+        Assert.assertEquals(1, metrics.getCompressedResponseCount());
+        Assert.assertEquals(data.length,
+                metrics.getUncompressedResponseBytes());
+        Assert.assertEquals(output.size(),
+                metrics.getCompressedResponseBytes());
+    }
+}
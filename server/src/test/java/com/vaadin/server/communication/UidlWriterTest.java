@@ -0,0 +1,208 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.MenuBar;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Tests that the streaming and the tree building UIDL writers produce exactly
+ * the same output.
+ * <p>
+ * The same UI is written once in each mode, with the connector tracker reset
+ * in between, so that the connectors are processed in the same order.
+ *
+ * @author Vaadin Ltd
+ */
+public class UidlWriterTest {
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    private static class TestDeploymentConfiguration
+            extends DefaultDeploymentConfiguration {
+        private boolean streaming;
+
+        public TestDeploymentConfiguration(Properties properties) {
+            super(UI.class, properties);
+        }
+
+        @Override
+        public boolean isStreamingUidlEnabled() {
+            return streaming;
+        }
+    }
+
+    private TestDeploymentConfiguration deploymentConfiguration;
+    private UI ui;
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+
+        // The sync id is incremented by each write
+        Properties properties = new Properties();
+        properties.setProperty(Constants.SERVLET_PARAMETER_SYNC_ID_CHECK,
+                "false");
+        deploymentConfiguration = new TestDeploymentConfiguration(properties);
+
+        VaadinServletService service = new VaadinServletService(servlet,
+                deploymentConfiguration);
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.setConfiguration(deploymentConfiguration);
+
+        ui = new TestUI();
+        ui.setSession(session);
+    }
+
+    @After
+    public void cleanup() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+    }
+
+    @Test
+    public void streamingOutputEqualsTreeOutput_initialResponse()
+            throws Exception {
+        populate();
+        executeJavaScript();
+
+        String treeOutput = write(false);
+        ui.getSession().getCommunicationManager().repaintAll(ui);
+        executeJavaScript();
+        String streamingOutput = write(true);
+
+        Assert.assertEquals(treeOutput, streamingOutput);
+    }
+
+    @Test
+    public void streamingOutputEqualsTreeOutput_incrementalResponse()
+            throws Exception {
+        populate();
+        executeJavaScript();
+        write(false);
+        modify();
+
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        List<ClientConnector> dirty = new ArrayList<>(
+                tracker.getDirtyConnectors());
+        Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+        for (ClientConnector connector : dirty) {
+            Assert.assertTrue(tracker.isClientSideInitialized(connector));
+            diffStates.put(connector,
+                    Json.parse(tracker.getDiffState(connector).toJson()));
+        }
+
+        String treeOutput = write(false);
+        Assert.assertTrue(treeOutput.contains("Changed \\\"value\\\""));
+        Assert.assertTrue(treeOutput.contains("View"));
+
+        diffStates.forEach(tracker::setDiffState);
+        dirty.forEach(tracker::markDirty);
+        executeJavaScript();
+        String streamingOutput = write(true);
+
+        Assert.assertEquals(treeOutput, streamingOutput);
+    }
+
+    @Test
+    public void streamingOutputEqualsTreeOutput_noChanges() throws Exception {
+        write(false);
+
+        Assert.assertEquals(write(false), write(true));
+    }
+
+    private void populate() {
+        VerticalLayout layout = new VerticalLayout();
+        layout.addComponent(new Label("Plain label"));
+        layout.addComponent(
+                new Label("Quotes \" and \\ backslashes\n\ttabs \u0001  "));
+        layout.addComponent(new Button("Unicode åäö €"));
+
+        TextField field = new TextField("Field");
+        field.setValue("value");
+        field.setDescription("<b>description</b>");
+        layout.addComponent(field);
+
+        MenuBar menuBar = new MenuBar();
+        menuBar.addItem("File", null).addItem("Open", null);
+        menuBar.addItem("Edit", null);
+        layout.addComponent(menuBar);
+
+        Panel panel = new Panel("Panel", new VerticalLayout(new Label("1"),
+                new Label("2"), new Button("3")));
+        layout.addComponent(panel);
+
+        ui.setContent(layout);
+    }
+
+    private void modify() {
+        VerticalLayout layout = (VerticalLayout) ui.getContent();
+        ((Label) layout.getComponent(0)).setValue("Changed \"value\"");
+        layout.removeComponent(layout.getComponent(1));
+        ((TextField) layout.getComponent(2)).setValue("new\tvalue");
+        ((MenuBar) layout.getComponent(3)).addItem("View", null);
+        executeJavaScript();
+    }
+
+    private void executeJavaScript() {
+        ui.getPage().getJavaScript().execute("alert('a' + \"b\");");
+    }
+
+    private String write(boolean streaming) throws Exception {
+        deploymentConfiguration.streaming = streaming;
+        StringWriter writer = new StringWriter();
+        new UidlWriter().write(ui, writer, false);
+        return writer.toString();
+    }
+}
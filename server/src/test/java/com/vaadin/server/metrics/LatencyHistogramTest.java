@@ -0,0 +1,67 @@
+package com.vaadin.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private static final double DELTA = 0.0001;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private void recordMillis(double... millis) {
+        for (double value : millis) {
+            histogram.record((long) (value * TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    @Test
+    public void empty_allZero() {
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean(), DELTA);
+        Assert.assertEquals(0, histogram.getMax(), DELTA);
+        Assert.assertEquals(0, histogram.getPercentile(99), DELTA);
+    }
+
+    @Test
+    public void countMeanAndMax() {
+        recordMillis(1, 2, 3, 6);
+
+        Assert.assertEquals(4, histogram.getCount());
+        Assert.assertEquals(3, histogram.getMean(), DELTA);
+        Assert.assertEquals(6, histogram.getMax(), DELTA);
+    }
+
+    @Test
+    public void percentile_upperBoundOfBucket() {
+        // 90 fast values and 10 slow ones
+        for (int i = 0; i < 90; i++) {
+            recordMillis(0.8);
+        }
+        for (int i = 0; i < 10; i++) {
+            recordMillis(40);
+        }
+
+        Assert.assertEquals(1, histogram.getPercentile(50), DELTA);
+        Assert.assertEquals(1, histogram.getPercentile(90), DELTA);
+        Assert.assertEquals(40, histogram.getPercentile(95), DELTA);
+    }
+
+    @Test
+    public void percentile_beyondLastBucket_max() {
+        recordMillis(20000, 30000);
+
+        Assert.assertEquals(30000, histogram.getPercentile(50), DELTA);
+    }
+
+    @Test
+    public void reset_allZero() {
+        recordMillis(5);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getStatistics().getCount());
+        Assert.assertEquals(0, histogram.getStatistics().getMax(), DELTA);
+    }
+}
@@ -0,0 +1,273 @@
+package com.vaadin.tests.components.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.event.selection.MultiSelectionEvent;
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.shared.data.selection.GridMultiSelectServerRpc;
+import com.vaadin.shared.ui.grid.GridServerRpc;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.SelectionMode;
+import com.vaadin.ui.components.grid.AllExceptSelection;
+import com.vaadin.ui.components.grid.MultiSelectionModelImpl;
+
+public class GridLazySelectAllTest {
+
+    private static final int SIZE = 10000;
+
+    private final List<Integer> fetchedOffsets = new ArrayList<>();
+    private final List<MultiSelectionEvent<Integer>> events = new ArrayList<>();
+
+    private Grid<Integer> grid;
+    private DataProvider<Integer, Integer> dataProvider;
+    private MultiSelectionModelImpl<Integer> model;
+
+    @Before
+    public void setUp() {
+        grid = new Grid<>();
+        new MockUI().setContent(grid);
+        dataProvider = DataProvider.fromFilteringCallbacks(query -> {
+            fetchedOffsets.add(query.getOffset());
+            int min = query.getFilter().orElse(0);
+            return IntStream
+                    .range(min + query.getOffset(),
+                            Math.min(SIZE, min + query.getOffset()
+                                    + query.getLimit()))
+                    .boxed();
+        }, query -> SIZE - query.getFilter().orElse(0));
+        grid.setDataProvider(dataProvider);
+
+        model = (MultiSelectionModelImpl<Integer>) grid
+                .setSelectionMode(SelectionMode.MULTI);
+        model.setLazySelectAll(true);
+        model.addMultiSelectionListener(events::add);
+    }
+
+    @Test
+    public void selectAll_nothingFetched() {
+        model.selectAll();
+
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+        Assert.assertTrue(model.isAllSelected());
+        Assert.assertTrue(model.isSelected(1234));
+        Assert.assertTrue(
+                model.getSelectedItems() instanceof AllExceptSelection);
+        Assert.assertTrue(model.getAllExceptSelection().isPresent());
+        Assert.assertEquals(1, events.size());
+        Assert.assertTrue(events.get(0).getOldSelection().isEmpty());
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void selectAllCheckBoxVisibleForBackEndProvider() {
+        Assert.assertTrue(model.isSelectAllCheckBoxVisible());
+
+        model.setLazySelectAll(false);
+
+        Assert.assertFalse(model.isSelectAllCheckBoxVisible());
+    }
+
+    @Test
+    public void deselectAfterSelectAll_onlyDeselectedItemsTracked() {
+        model.selectAll();
+        Set<Integer> allSelected = model.getSelectedItems();
+
+        model.deselect(5);
+        model.deselect(7);
+        model.select(5);
+
+        Assert.assertTrue(model.isSelected(5));
+        Assert.assertFalse(model.isSelected(7));
+        Assert.assertFalse(model.isAllSelected());
+        Assert.assertEquals(Collections.singleton(7),
+                model.getAllExceptSelection().get().getDeselectedIds());
+        Assert.assertEquals(SIZE - 1, model.getSelectedItems().size());
+        Assert.assertEquals(4, events.size());
+        Assert.assertSame(allSelected, events.get(1).getOldValue());
+        Assert.assertTrue(allSelected.contains(7));
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void selectAlreadySelectedItem_noEvent() {
+        model.selectAll();
+
+        model.select(5);
+
+        Assert.assertEquals(1, events.size());
+    }
+
+    @Test
+    public void deselectAll_selectionKeptInMemoryAgain() {
+        model.selectAll();
+        model.deselect(5);
+
+        model.deselectAll();
+
+        Assert.assertFalse(model.getAllExceptSelection().isPresent());
+        Assert.assertTrue(model.getSelectedItems().isEmpty());
+        Assert.assertFalse(model.isSelected(1));
+        Assert.assertEquals(3, events.size());
+
+        model.select(1);
+        Assert.assertEquals(Collections.singleton(1),
+                model.getSelectedItems());
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void setValueAfterSelectAll_replacesSelection() {
+        model.selectAll();
+
+        model.asMultiSelect()
+                .setValue(new LinkedHashSet<>(Arrays.asList(1, 2)));
+
+        Assert.assertFalse(model.getAllExceptSelection().isPresent());
+        Assert.assertEquals(new LinkedHashSet<>(Arrays.asList(1, 2)),
+                model.getSelectedItems());
+        Assert.assertEquals(2, events.size());
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void selectAllWithFilter_onlyMatchingItemsSelected() {
+        grid.getDataCommunicator().setDataProvider(dataProvider, SIZE - 10);
+
+        model.selectAll();
+        model.deselect(SIZE - 1);
+
+        AllExceptSelection<Integer> selection = model.getAllExceptSelection()
+                .get();
+        Assert.assertEquals(Integer.valueOf(SIZE - 10),
+                selection.getFilter().get());
+        Assert.assertEquals(9, selection.size());
+        Assert.assertEquals(
+                IntStream.range(SIZE - 10, SIZE - 1).boxed()
+                        .collect(Collectors.toList()),
+                new ArrayList<>(selection));
+    }
+
+    @Test
+    public void streamSelection_fetchedInPages() {
+        model.selectAll();
+        model.deselect(0);
+        model.deselect(SIZE - 1);
+        fetchedOffsets.clear();
+
+        long sum = model.getAllExceptSelection().get().stream(1000)
+                .mapToLong(Integer::longValue).sum();
+
+        Assert.assertEquals((long) SIZE * (SIZE - 1) / 2 - (SIZE - 1), sum);
+        // The last page is empty since the size is a multiple of the page size
+        Assert.assertEquals(IntStream.rangeClosed(0, 10).map(i -> i * 1000)
+                .boxed().collect(Collectors.toList()), fetchedOffsets);
+    }
+
+    @Test
+    public void streamSelection_limited_onlyFirstPageFetched() {
+        model.selectAll();
+        fetchedOffsets.clear();
+
+        List<Integer> first = model.getSelectedItems().stream().limit(3)
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(Arrays.asList(0, 1, 2), first);
+        Assert.assertEquals(Collections.singletonList(0), fetchedOffsets);
+    }
+
+    @Test
+    public void forEachChunk_deselectedItemsSkipped() {
+        model.selectAll();
+        model.deselect(1);
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        model.getAllExceptSelection().get().forEachChunk(4000,
+                chunk -> chunkSizes.add(chunk.size()));
+
+        Assert.assertEquals(Arrays.asList(3999, 4000, 2000), chunkSizes);
+    }
+
+    @Test
+    public void placeholderKeySentAfterSelectAll_ignored() {
+        String placeholderKey = DataCommunicator.PLACEHOLDER_KEY_PREFIX + 0;
+        GridMultiSelectServerRpc rpc = ServerRpcManager.getRpcProxy(model,
+                GridMultiSelectServerRpc.class);
+        model.selectAll();
+
+        rpc.deselect(placeholderKey);
+        rpc.select(placeholderKey);
+
+        Assert.assertTrue(model.isAllSelected());
+        Assert.assertEquals(1, events.size());
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void placeholderRowClicked_noItemClickEvent() {
+        List<Object> clicked = new ArrayList<>();
+        grid.addItemClickListener(event -> clicked.add(event.getItem()));
+
+        ServerRpcManager.getRpcProxy(grid, GridServerRpc.class).itemClick(
+                DataCommunicator.PLACEHOLDER_KEY_PREFIX + 0, null, null);
+
+        Assert.assertTrue(clicked.isEmpty());
+    }
+
+    @Test
+    public void selectAllAndDeselect_addedAndRemovedItemsFoundWithoutFetching() {
+        model.select(1);
+        model.selectAll();
+        model.deselect(5);
+
+        MultiSelectionEvent<Integer> selectAll = events.get(1);
+        Assert.assertTrue(selectAll.getRemovedSelection().isEmpty());
+        Set<Integer> added = selectAll.getAddedSelection();
+        Assert.assertFalse(added.contains(1));
+        Assert.assertTrue(added.contains(2));
+
+        MultiSelectionEvent<Integer> deselect = events.get(2);
+        Assert.assertEquals(Collections.singleton(5),
+                deselect.getRemovedSelection());
+        Assert.assertTrue(deselect.getAddedSelection().isEmpty());
+
+        model.deselectAll();
+        MultiSelectionEvent<Integer> deselectAll = events.get(3);
+        Assert.assertTrue(deselectAll.getAddedSelection().isEmpty());
+        Set<Integer> removed = deselectAll.getRemovedSelection();
+        Assert.assertTrue(removed.contains(1));
+        Assert.assertFalse(removed.contains(5));
+
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+
+    @Test
+    public void equalsAndHashCode_deselectedItemsCompared() {
+        AllExceptSelection<Integer> selection = new AllExceptSelection<>(
+                dataProvider, null);
+        AllExceptSelection<Integer> deselected = selection
+                .update(Collections.emptySet(), Collections.singleton(5));
+
+        Assert.assertEquals(selection,
+                new AllExceptSelection<>(dataProvider, null));
+        Assert.assertEquals(selection.hashCode(),
+                new AllExceptSelection<>(dataProvider, null).hashCode());
+        Assert.assertNotEquals(selection, deselected);
+        Assert.assertEquals(deselected, selection
+                .update(Collections.emptySet(), Collections.singleton(5)));
+        Assert.assertTrue(fetchedOffsets.isEmpty());
+    }
+}
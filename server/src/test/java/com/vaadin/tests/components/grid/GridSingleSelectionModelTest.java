@@ -18,10 +18,13 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.data.HasValue.ValueChangeEvent;
+import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.bov.Person;
 import com.vaadin.event.selection.SingleSelectionEvent;
 import com.vaadin.event.selection.SingleSelectionListener;
+import com.vaadin.server.ServerRpcManager;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.selection.SelectionServerRpc;
 import com.vaadin.ui.Grid;
 import com.vaadin.ui.Grid.SelectionMode;
 import com.vaadin.ui.components.grid.GridSelectionModel;
@@ -327,4 +330,17 @@ public class GridSingleSelectionModelTest {
         Assert.assertTrue(event.get().isUserOriginated());
     }
 
+    @Test
+    public void selectPlaceholderKeyFromClient_selectionKept() {
+        grid.getDataCommunicator().beforeClientResponse(true);
+        selectionModel.select(PERSON_A);
+        selectionChanges.clear();
+
+        ServerRpcManager.getRpcProxy(selectionModel, SelectionServerRpc.class)
+                .select(DataCommunicator.PLACEHOLDER_KEY_PREFIX + 0);
+
+        assertEquals(Optional.of(PERSON_A),
+                selectionModel.getSelectedItem());
+        assertTrue(selectionChanges.isEmpty());
+    }
 }
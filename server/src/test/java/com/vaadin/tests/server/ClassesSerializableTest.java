@@ -50,6 +50,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.widgetsetutils\\..*", //
             "com\\.vaadin\\.server\\.themeutils\\..*", //
             "com\\.vaadin\\.tests\\..*", // exclude automated tests
+            "com\\.vaadin\\.benchmarks\\..*", // exclude benchmarks
             "com\\.vaadin\\.tools\\..*", //
             "com\\.vaadin\\.ui\\.themes\\..*", //
             // exact class level filtering
@@ -63,6 +64,10 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.Constants", //
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil", //
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil\\$GetClassLoaderPrivilegedAction", //
+            "com\\.vaadin\\.server\\.FileChannelOutputStream", //
+            "com\\.vaadin\\.server\\.metrics\\.RequestMetricsMXBean", //
+            "com\\.vaadin\\.server\\.communication\\.UidlWriter\\$Utf8CountingWriter", //
+            "com\\.vaadin\\.server\\.communication\\.ResponseCompressor\\$Compression", //
             "com\\.vaadin\\.server\\.communication\\.FileUploadHandler\\$SimpleMultiPartInputStream", //
             "com\\.vaadin\\.server\\.communication\\.PushRequestHandler.*",
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
@@ -94,6 +99,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.util\\.ConnectorHelper", //
             "com\\.vaadin\\.server\\.VaadinSession\\$FutureAccess", //
+            "com\\.vaadin\\.ui\\.components\\.grid\\.AllExceptSelection\\$PageIterator", //
             "com\\.vaadin\\.external\\..*", //
             "com\\.vaadin\\.util\\.WeakValueMap.*", //
             "com\\.vaadin\\.themes\\.valoutil\\.BodyStyleName", //
@@ -3,8 +3,11 @@ package com.vaadin.tests.server;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
@@ -141,6 +144,109 @@ public class SimpleMultiPartInputStreamTest {
     // }
     // }
 
+    @Test
+    public void testBulkReadMatchesSingleByteRead() throws Exception {
+        byte[] input = ("xyz\r\n-abc\r\n--ab123" + getFullBoundary("abc")
+                + "123").getBytes();
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream(input), "abc", 8);
+        ByteArrayOutputStream resultStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = smpis.read(buffer, 0, buffer.length)) != -1) {
+            resultStream.write(buffer, 0, read);
+        }
+        Assert.assertEquals("xyz\r\n-abc\r\n--ab123", resultStream.toString());
+        Assert.assertEquals(-1, smpis.read());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoBoundaryInInputBulkRead() throws Exception {
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream("xyz123\r\n--ab".getBytes()), "abc",
+                4);
+        byte[] buffer = new byte[1024];
+        while (smpis.read(buffer, 0, buffer.length) != -1) {
+            // Read until the stream ends
+        }
+    }
+
+    /**
+     * Reads random content containing fragments of the boundary through
+     * buffers of random sizes, so that the boundary and its partial matches
+     * span block edges in varying positions.
+     */
+    @Test
+    public void testRandomChunkEdges() throws Exception {
+        Random random = new Random(8);
+        String boundary = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+        byte[] fullBoundary = ("\r\n--" + boundary)
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int round = 0; round < 2000; round++) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            int parts = random.nextInt(20);
+            for (int i = 0; i < parts; i++) {
+                if (random.nextBoolean()) {
+                    // A proper prefix of the boundary
+                    content.write(fullBoundary, 0,
+                            random.nextInt(fullBoundary.length));
+                } else {
+                    byte[] noise = new byte[random.nextInt(40)];
+                    random.nextBytes(noise);
+                    content.write(noise);
+                }
+            }
+            byte[] expected = content.toByteArray();
+            content.write(fullBoundary);
+            content.write("--\r\n".getBytes(StandardCharsets.ISO_8859_1));
+
+            int bufferSize = fullBoundary.length + random.nextInt(64);
+            SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                    new ChunkedInputStream(content.toByteArray(), random),
+                    boundary, bufferSize);
+
+            ByteArrayOutputStream resultStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1 + random.nextInt(100)];
+            int read;
+            while (true) {
+                if (random.nextInt(4) == 0) {
+                    read = smpis.read();
+                    if (read == -1) {
+                        break;
+                    }
+                    resultStream.write(read);
+                } else {
+                    read = smpis.read(buffer, 0,
+                            1 + random.nextInt(buffer.length));
+                    if (read == -1) {
+                        break;
+                    }
+                    resultStream.write(buffer, 0, read);
+                }
+            }
+            Assert.assertArrayEquals("Round " + round, expected,
+                    resultStream.toByteArray());
+        }
+    }
+
+    /**
+     * Returns its content in chunks of random length.
+     */
+    private static class ChunkedInputStream extends ByteArrayInputStream {
+        private final Random random;
+
+        public ChunkedInputStream(byte[] content, Random random) {
+            super(content);
+            this.random = random;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(16)));
+        }
+    }
+
     public static String getFullBoundary(String str) {
         return "\r\n--" + str + "--";
     }
@@ -131,6 +131,7 @@ public class StateGetDoesNotMarkDirtyTest {
         UI ui = mockUI();
         VaadinSession session = Mockito.mock(VaadinSession.class);
         Mockito.when(session.hasLock()).thenReturn(true);
+        Mockito.when(session.hasUILock(Mockito.any())).thenReturn(true);
         Mockito.when(ui.getSession()).thenReturn(session);
         component.setParent(ui);
 
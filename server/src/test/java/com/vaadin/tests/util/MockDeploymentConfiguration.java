@@ -21,6 +21,13 @@ public class MockDeploymentConfiguration
     private final Map<String, String> applicationOrSystemProperty = new HashMap<>();
     private boolean syncIdCheckEnabled = true;
     private final boolean sendUrlsAsParameters = true;
+    private boolean streamingUidl = false;
+    private boolean incrementalStateEncoding = false;
+    private boolean staticResourceCache = false;
+    private boolean uiLocking = false;
+    private int sessionHousekeepingInterval = 0;
+    private boolean requestMetrics = false;
+    private int compressionThreshold = -1;
 
     @Override
     public boolean isProductionMode() {
@@ -113,4 +120,69 @@ public class MockDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
+    @Override
+    public boolean isStreamingUidlEnabled() {
+        return streamingUidl;
+    }
+
+    public void setStreamingUidlEnabled(boolean streamingUidl) {
+        this.streamingUidl = streamingUidl;
+    }
+
+    @Override
+    public boolean isIncrementalStateEncodingEnabled() {
+        return incrementalStateEncoding;
+    }
+
+    public void setIncrementalStateEncodingEnabled(
+            boolean incrementalStateEncoding) {
+        this.incrementalStateEncoding = incrementalStateEncoding;
+    }
+
+    @Override
+    public boolean isStaticResourceCacheEnabled() {
+        return staticResourceCache;
+    }
+
+    public void setStaticResourceCacheEnabled(boolean staticResourceCache) {
+        this.staticResourceCache = staticResourceCache;
+    }
+
+    @Override
+    public boolean isUILockingEnabled() {
+        return uiLocking;
+    }
+
+    public void setUILockingEnabled(boolean uiLocking) {
+        this.uiLocking = uiLocking;
+    }
+
+    @Override
+    public int getSessionHousekeepingInterval() {
+        return sessionHousekeepingInterval;
+    }
+
+    public void setSessionHousekeepingInterval(
+            int sessionHousekeepingInterval) {
+        this.sessionHousekeepingInterval = sessionHousekeepingInterval;
+    }
+
+    @Override
+    public boolean isRequestMetricsEnabled() {
+        return requestMetrics;
+    }
+
+    public void setRequestMetricsEnabled(boolean requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
+    @Override
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
 }
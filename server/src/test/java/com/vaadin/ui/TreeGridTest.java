@@ -0,0 +1,71 @@
+package com.vaadin.ui;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.InMemoryHierarchicalDataProvider;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.SerializablePredicate;
+import com.vaadin.tests.util.MockUI;
+
+public class TreeGridTest {
+
+    private TreeGrid<String> treeGrid;
+    private InMemoryHierarchicalDataProvider<String> dataProvider;
+    private DataCommunicator<String> dataCommunicator;
+
+    @Before
+    public void setUp() {
+        treeGrid = new TreeGrid<>();
+        new MockUI().setContent(treeGrid);
+        dataProvider = new InMemoryHierarchicalDataProvider<>(
+                Arrays.asList("a", "b", "c"));
+        for (String root : Arrays.asList("a", "b", "c")) {
+            dataProvider.addItem(root, root + "1");
+            dataProvider.addItem(root, root + "2");
+        }
+        treeGrid.setDataProvider(dataProvider);
+        dataCommunicator = treeGrid.getDataCommunicator();
+        dataCommunicator.beforeClientResponse(true);
+        dataCommunicator.retrievePendingRpcCalls();
+    }
+
+    private List<ClientMethodInvocation> getRowCalls() {
+        dataCommunicator.beforeClientResponse(false);
+        return dataCommunicator.retrievePendingRpcCalls().stream()
+                .filter(call -> !call.getMethodName().equals("updateData"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void toggleCollapse_onlyChildRowsInserted() {
+        treeGrid.toggleCollapse("b");
+
+        List<ClientMethodInvocation> calls = getRowCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("insertRows", calls.get(0).getMethodName());
+        Assert.assertArrayEquals(new Object[] { 2, 2 },
+                calls.get(0).getParameters());
+    }
+
+    @Test
+    public void toggleCollapse_filtered_rowsReset() {
+        dataCommunicator.setDataProvider(dataProvider,
+                (SerializablePredicate<String>) item -> !item.startsWith("a"));
+        dataCommunicator.beforeClientResponse(false);
+        dataCommunicator.retrievePendingRpcCalls();
+
+        treeGrid.toggleCollapse("b");
+
+        List<ClientMethodInvocation> calls = getRowCalls();
+        Assert.assertEquals("reset", calls.get(0).getMethodName());
+        Assert.assertTrue(calls.stream()
+                .noneMatch(call -> call.getMethodName().equals("insertRows")));
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.vaadin.util;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import org.junit.Assert;
@@ -50,4 +51,23 @@ public class ReflectToolsTest implements Serializable {
         Assert.assertSame(Object.class,
                 ReflectTools.findCommonBaseType(String.class, Number.class));
     }
+
+    @Test
+    public void wrapException_runtimeExceptionReturned() {
+        IllegalStateException exception = new IllegalStateException();
+        Assert.assertSame(exception, ReflectTools.wrapException(exception));
+    }
+
+    @Test
+    public void wrapException_checkedExceptionWrapped() {
+        IOException exception = new IOException();
+        RuntimeException wrapped = ReflectTools.wrapException(exception);
+        Assert.assertSame(RuntimeException.class, wrapped.getClass());
+        Assert.assertSame(exception, wrapped.getCause());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void wrapException_errorThrown() {
+        ReflectTools.wrapException(new AssertionError());
+    }
 }
@@ -56,5 +56,26 @@ public interface DataCommunicatorClientRpc extends ClientRpc {
      */
     void updateData(JsonArray data);
 
-    // TODO: Notify add / remove
+    /**
+     * Informs the client-side DataSource that rows have been inserted. Cached
+     * rows from the given index onwards are shifted forward and the inserted
+     * rows are requested if needed.
+     *
+     * @param firstRowIndex
+     *            the index of the first inserted row
+     * @param count
+     *            the number of inserted rows
+     */
+    void insertRows(int firstRowIndex, int count);
+
+    /**
+     * Informs the client-side DataSource that rows have been removed. Cached
+     * rows after the removed range are shifted backward.
+     *
+     * @param firstRowIndex
+     *            the index of the first removed row
+     * @param count
+     *            the number of removed rows
+     */
+    void removeRows(int firstRowIndex, int count);
 }